@@ -0,0 +1,71 @@
+package org.polytech.benchmark;
+
+import org.acme.core.BodyStore;
+import org.acme.simulation.GalaxyGenerator;
+import org.acme.simulation.SimulationLogic;
+import org.acme.simulation.force.BarnesHutForceEngine;
+import org.acme.simulation.force.FmmForceEngine;
+import org.acme.simulation.force.P3mForceEngine;
+import org.acme.simulation.force.ForceEngine;
+import org.acme.simulation.force.PairwiseForceEngine;
+import org.acme.simulation.force.ParallelPairwiseForceEngine;
+import org.acme.simulation.force.VectorPairwiseForceEngine;
+import org.acme.simulation.integrator.BlockTimeStepIntegrator;
+import org.acme.simulation.integrator.Integrator;
+import org.acme.simulation.integrator.LeapfrogIntegrator;
+import org.acme.simulation.integrator.SemiImplicitEulerIntegrator;
+import org.acme.simulation.integrator.YoshidaIntegrator;
+
+/**
+ * Jeux de données et stratégies partagés par les benchmarks.
+ */
+final class Benchmarks {
+
+    // Même galaxie d'une exécution à l'autre : les mesures sont comparables
+    static final long SEED = 42;
+
+    private Benchmarks() {
+    }
+
+    /**
+     * Galaxie de {@code count} corps générée avec les paramètres de la simulation
+     */
+    static BodyStore galaxy(SimulationLogic simulation, int count) {
+        return GalaxyGenerator.galaxy(simulation.getParameters(), count, SEED);
+    }
+
+    static ForceEngine forceEngine(String name) {
+        return switch (name) {
+            case "pairwise" -> new PairwiseForceEngine();
+            case "barnes-hut" -> new BarnesHutForceEngine();
+            case "fmm" -> new FmmForceEngine();
+            case "p3m" -> new P3mForceEngine();
+            case "parallel" -> new ParallelPairwiseForceEngine();
+            case "vector" -> new VectorPairwiseForceEngine();
+            default -> throw new IllegalArgumentException("Unknown force engine: " + name);
+        };
+    }
+
+    static Integrator integrator(String name) {
+        return switch (name) {
+            case "euler" -> new SemiImplicitEulerIntegrator();
+            case "leapfrog" -> new LeapfrogIntegrator();
+            case "yoshida" -> new YoshidaIntegrator();
+            case "block" -> new BlockTimeStepIntegrator();
+            default -> throw new IllegalArgumentException("Unknown integrator: " + name);
+        };
+    }
+
+    /**
+     * Ferme les moteurs qui possèdent des threads
+     */
+    static void close(ForceEngine engine) {
+        if (engine instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package org.polytech.benchmark;
+
+import org.acme.core.BodyStore;
+import org.acme.protocol.Frame;
+import org.acme.protocol.PositionStreamEncoder;
+import org.acme.protocol.StreamFormat;
+import org.acme.protocol.StreamSubscription;
+import org.acme.simulation.SimulationEngine;
+import org.acme.simulation.SimulationLogic;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coût de l'encodage des images envoyées aux clients : les méthodes historiques de {@link SimulationLogic}
+ * (copie dans un tableau) et le chemin de diffusion avec frames recyclées.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EncodeBenchmark {
+
+    private static final StreamSubscription DELTA = new StreamSubscription(StreamFormat.DELTA, 4);
+    private static final StreamSubscription HEATMAP = new StreamSubscription(StreamFormat.HEATMAP, 0);
+
+    @Param({"180", "1000", "10000", "100000"})
+    public int bodyCount;
+
+    private SimulationEngine simulations;
+    private SimulationLogic simulation;
+    private PositionStreamEncoder stream;
+    // Deux états successifs de la galaxie, alternés pour que les deltas aient une taille réaliste
+    private BodyStore[] states;
+    private int tick;
+
+    @Setup
+    public void setUp() {
+        simulations = new SimulationEngine(1);
+        simulation = simulations.getOrCreate("benchmark");
+        simulation.stopSimulation();
+        BodyStore bodies = Benchmarks.galaxy(simulation, bodyCount);
+        simulation.setBodies(bodies);
+
+        BodyStore next = BodyStore.of(bodies.toList());
+        simulation.simulateStep(next);
+        states = new BodyStore[]{bodies, next};
+        stream = new PositionStreamEncoder();
+    }
+
+    @TearDown
+    public void tearDown() {
+        stream.releaseFrames();
+        simulations.shutdown();
+    }
+
+    @Benchmark
+    public byte[] getBodyPositionsBinary() {
+        return simulation.getBodyPositionsBinary();
+    }
+
+    @Benchmark
+    public byte[] getGridBinary() {
+        return simulation.getGridBinary();
+    }
+
+    @Benchmark
+    public Frame legacyFrame() {
+        stream.beginTick(states[tick++ & 1]);
+        return stream.frame(StreamSubscription.LEGACY);
+    }
+
+    @Benchmark
+    public Frame deltaFrame() {
+        stream.beginTick(states[tick++ & 1]);
+        return stream.frame(DELTA);
+    }
+
+    @Benchmark
+    public Frame heatmapFrame() {
+        stream.beginTick(states[tick++ & 1]);
+        return stream.frame(HEATMAP);
+    }
+}
@@ -0,0 +1,67 @@
+package org.polytech.benchmark;
+
+import org.acme.core.BodyStore;
+import org.acme.simulation.SimulationEngine;
+import org.acme.simulation.SimulationLogic;
+import org.acme.simulation.force.ForceEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coût de {@link SimulationLogic#computeForces(BodyStore, double[], double[])} pour chaque moteur de forces.
+ * Attention : le moteur exact à 100k corps prend plusieurs dizaines de secondes par appel.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ForceBenchmark {
+
+    @Param({"180", "1000", "10000", "100000"})
+    public int bodyCount;
+
+    @Param({"pairwise", "barnes-hut", "parallel", "vector", "fmm", "p3m"})
+    public String engine;
+
+    private SimulationEngine simulations;
+    private SimulationLogic simulation;
+    private ForceEngine forceEngine;
+    private BodyStore bodies;
+    private double[] fx;
+    private double[] fy;
+
+    @Setup
+    public void setUp() {
+        simulations = new SimulationEngine(1);
+        simulation = simulations.getOrCreate("benchmark");
+        simulation.stopSimulation();
+        forceEngine = Benchmarks.forceEngine(engine);
+        simulation.setForceEngine(forceEngine);
+        bodies = Benchmarks.galaxy(simulation, bodyCount);
+        fx = new double[bodyCount];
+        fy = new double[bodyCount];
+    }
+
+    @TearDown
+    public void tearDown() {
+        Benchmarks.close(forceEngine);
+        simulations.shutdown();
+    }
+
+    @Benchmark
+    public double[] computeForces() {
+        Arrays.fill(fx, 0);
+        Arrays.fill(fy, 0);
+        simulation.computeForces(bodies, fx, fy);
+        return fx;
+    }
+}
@@ -0,0 +1,66 @@
+package org.polytech.benchmark;
+
+import org.acme.core.BodyStore;
+import org.acme.simulation.SimulationEngine;
+import org.acme.simulation.SimulationLogic;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coût de {@link SimulationLogic#updatePositions(BodyStore, double[], double[])} seul, à forces déjà calculées.
+ * Le pas complet de chaque intégrateur est mesuré par {@link StepBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class IntegrateBenchmark {
+
+    @Param({"180", "1000", "10000", "100000"})
+    public int bodyCount;
+
+    private SimulationEngine simulations;
+    private SimulationLogic simulation;
+    private BodyStore initial;
+    private BodyStore bodies;
+
+    @Setup
+    public void setUp() {
+        simulations = new SimulationEngine(1);
+        simulation = simulations.getOrCreate("benchmark");
+        simulation.stopSimulation();
+        initial = Benchmarks.galaxy(simulation, bodyCount);
+        initial.clearForces();
+        simulation.computeForces(initial, initial.fx(), initial.fy());
+    }
+
+    /**
+     * Repart de la galaxie initiale à chaque itération pour que les corps ne s'éloignent pas indéfiniment
+     */
+    @Setup(Level.Iteration)
+    public void resetBodies() {
+        bodies = BodyStore.of(initial.toList());
+        System.arraycopy(initial.fx(), 0, bodies.fx(), 0, bodyCount);
+        System.arraycopy(initial.fy(), 0, bodies.fy(), 0, bodyCount);
+    }
+
+    @TearDown
+    public void tearDown() {
+        simulations.shutdown();
+    }
+
+    @Benchmark
+    public BodyStore updatePositions() {
+        simulation.updatePositions(bodies, bodies.fx(), bodies.fy());
+        return bodies;
+    }
+}
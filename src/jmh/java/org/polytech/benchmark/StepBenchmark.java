@@ -0,0 +1,68 @@
+package org.polytech.benchmark;
+
+import org.acme.core.BodyStore;
+import org.acme.simulation.SimulationEngine;
+import org.acme.simulation.SimulationLogic;
+import org.acme.simulation.force.BarnesHutForceEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coût d'un pas complet ({@link SimulationLogic#simulateStep(BodyStore)}) pour chaque intégrateur,
+ * avec le moteur Barnes-Hut pour que les grandes tailles restent mesurables.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StepBenchmark {
+
+    @Param({"180", "1000", "10000", "100000"})
+    public int bodyCount;
+
+    @Param({"euler", "leapfrog", "yoshida", "block"})
+    public String integrator;
+
+    private SimulationEngine simulations;
+    private SimulationLogic simulation;
+    private BodyStore initial;
+    private BodyStore bodies;
+
+    @Setup
+    public void setUp() {
+        simulations = new SimulationEngine(1);
+        simulation = simulations.getOrCreate("benchmark");
+        simulation.stopSimulation();
+        simulation.setForceEngine(new BarnesHutForceEngine());
+        simulation.setIntegrator(Benchmarks.integrator(integrator));
+        initial = Benchmarks.galaxy(simulation, bodyCount);
+    }
+
+    /**
+     * Repart de la galaxie initiale à chaque itération pour que les corps ne s'éloignent pas indéfiniment
+     */
+    @Setup(Level.Iteration)
+    public void resetBodies() {
+        bodies = BodyStore.of(initial.toList());
+    }
+
+    @TearDown
+    public void tearDown() {
+        simulations.shutdown();
+    }
+
+    @Benchmark
+    public BodyStore simulateStep() {
+        simulation.simulateStep(bodies);
+        return bodies;
+    }
+}
@@ -0,0 +1,283 @@
+package org.acme.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Structure-of-arrays storage of bodies: positions, velocities and masses are kept in parallel
+ * primitive arrays, together with reusable force accumulators, so that the simulation hot loops
+ * read contiguous memory and do not allocate once the capacity has been reached.
+ * <p>
+ * The arrays returned by {@link #x()}, {@link #y()}, ... are replaced when the capacity grows:
+ * callers must read them again after adding bodies. This class is not thread-safe.
+ */
+public class BodyStore {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private double[] x;
+    private double[] y;
+    private double[] vx;
+    private double[] vy;
+    private double[] mass;
+    private double[] fx;
+    private double[] fy;
+    private int size;
+    private long modifications;
+
+    public BodyStore() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public BodyStore(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity cannot be negative");
+        }
+        x = new double[capacity];
+        y = new double[capacity];
+        vx = new double[capacity];
+        vy = new double[capacity];
+        mass = new double[capacity];
+        fx = new double[capacity];
+        fy = new double[capacity];
+    }
+
+    public static BodyStore of(List<Body> bodies) {
+        BodyStore store = new BodyStore(bodies.size());
+        for (Body b : bodies) {
+            store.add(b);
+        }
+        return store;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return x.length;
+    }
+
+    /**
+     * Counter incremented every time bodies are added or removed, so that callers caching per-body
+     * data (accelerations, time-step levels, ...) can tell when it is stale.
+     */
+    public long modificationCount() {
+        return modifications;
+    }
+
+    public double[] x() {
+        return x;
+    }
+
+    public double[] y() {
+        return y;
+    }
+
+    public double[] vx() {
+        return vx;
+    }
+
+    public double[] vy() {
+        return vy;
+    }
+
+    public double[] mass() {
+        return mass;
+    }
+
+    /**
+     * Force accumulator along x, at least {@link #size()} long.
+     */
+    public double[] fx() {
+        return fx;
+    }
+
+    /**
+     * Force accumulator along y, at least {@link #size()} long.
+     */
+    public double[] fy() {
+        return fy;
+    }
+
+    public void ensureCapacity(int capacity) {
+        if (capacity <= x.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, x.length + (x.length >> 1) + 1);
+        x = Arrays.copyOf(x, newCapacity);
+        y = Arrays.copyOf(y, newCapacity);
+        vx = Arrays.copyOf(vx, newCapacity);
+        vy = Arrays.copyOf(vy, newCapacity);
+        mass = Arrays.copyOf(mass, newCapacity);
+        fx = Arrays.copyOf(fx, newCapacity);
+        fy = Arrays.copyOf(fy, newCapacity);
+    }
+
+    /**
+     * Appends a body and returns its index.
+     */
+    public int add(double x, double y, double vx, double vy, double mass) {
+        if (mass < 0) {
+            throw new IllegalArgumentException("Mass cannot be negative");
+        }
+        ensureCapacity(size + 1);
+        int i = size++;
+        modifications++;
+        this.x[i] = x;
+        this.y[i] = y;
+        this.vx[i] = vx;
+        this.vy[i] = vy;
+        this.mass[i] = mass;
+        fx[i] = 0;
+        fy[i] = 0;
+        return i;
+    }
+
+    public int add(Body body) {
+        return add(body.getX(), body.getY(), body.getVx(), body.getVy(), body.getMass());
+    }
+
+    /**
+     * Removes the body at the given index, shifting the following ones (same contract as {@link List#remove(int)}).
+     */
+    public void remove(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        int moved = size - index - 1;
+        System.arraycopy(x, index + 1, x, index, moved);
+        System.arraycopy(y, index + 1, y, index, moved);
+        System.arraycopy(vx, index + 1, vx, index, moved);
+        System.arraycopy(vy, index + 1, vy, index, moved);
+        System.arraycopy(mass, index + 1, mass, index, moved);
+        System.arraycopy(fx, index + 1, fx, index, moved);
+        System.arraycopy(fy, index + 1, fy, index, moved);
+        size--;
+        modifications++;
+    }
+
+    /**
+     * Sets the number of bodies, growing the arrays if needed. Bodies added this way hold whatever the
+     * arrays contained: the caller fills them, e.g. by copying whole arrays in bulk.
+     */
+    public void setSize(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Size cannot be negative");
+        }
+        ensureCapacity(size);
+        this.size = size;
+        modifications++;
+    }
+
+    /**
+     * Removes the body at the given index in O(1) by moving the last body into its slot: the order of
+     * the bodies is not preserved.
+     */
+    public void swapRemove(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        int last = --size;
+        if (index != last) {
+            move(last, index);
+        }
+        modifications++;
+    }
+
+    /**
+     * Appends a copy of every body of {@code source}, growing the arrays at most once.
+     */
+    public void addAll(BodyStore source) {
+        int count = source.size;
+        ensureCapacity(size + count);
+        System.arraycopy(source.x, 0, x, size, count);
+        System.arraycopy(source.y, 0, y, size, count);
+        System.arraycopy(source.vx, 0, vx, size, count);
+        System.arraycopy(source.vy, 0, vy, size, count);
+        System.arraycopy(source.mass, 0, mass, size, count);
+        Arrays.fill(fx, size, size + count, 0.0);
+        Arrays.fill(fy, size, size + count, 0.0);
+        size += count;
+        modifications++;
+    }
+
+    /**
+     * Removes the bodies flagged in {@code removed} (indexed like the store) in a single pass, the other
+     * bodies keeping their relative order.
+     * @return the number of bodies removed
+     */
+    public int compact(boolean[] removed) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (!removed[i]) {
+                if (kept != i) {
+                    move(i, kept);
+                }
+                kept++;
+            }
+        }
+        int count = size - kept;
+        if (count > 0) {
+            size = kept;
+            modifications++;
+        }
+        return count;
+    }
+
+    public void clear() {
+        size = 0;
+        modifications++;
+    }
+
+    private void move(int from, int to) {
+        x[to] = x[from];
+        y[to] = y[from];
+        vx[to] = vx[from];
+        vy[to] = vy[from];
+        mass[to] = mass[from];
+        fx[to] = fx[from];
+        fy[to] = fy[from];
+    }
+
+    /**
+     * Resets the force accumulators of the stored bodies.
+     */
+    public void clearForces() {
+        Arrays.fill(fx, 0, size, 0.0);
+        Arrays.fill(fy, 0, size, 0.0);
+    }
+
+    /**
+     * Returns a copy of the body at the given index; modifying it does not change the store.
+     */
+    public Body get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        return new Body(x[index], y[index], vx[index], vy[index], mass[index]);
+    }
+
+    /**
+     * Copies the state of the body at the given index into an existing {@link Body}.
+     */
+    public void copyTo(int index, Body body) {
+        body.setX(x[index]);
+        body.setY(y[index]);
+        body.setVx(vx[index]);
+        body.setVy(vy[index]);
+        body.setMass(mass[index]);
+    }
+
+    /**
+     * Returns a snapshot of the stored bodies as {@link Body} objects.
+     */
+    public List<Body> toList() {
+        List<Body> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(get(i));
+        }
+        return list;
+    }
+}
@@ -0,0 +1,166 @@
+package org.acme.core;
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid over the bodies of a {@link BodyStore}, built by counting sort in O(n): the indices of
+ * the bodies of cell {@code c} are {@code body(start(c))} to {@code body(end(c) - 1)}, cells being
+ * numbered row by row. The grid covers the bounding box of the bodies, optionally limited to a fixed extent
+ * whose outside bodies go to the border cells; when it would exceed {@link #MAX_CELLS} cells, the cell size
+ * is doubled until it fits. Arrays are reused between builds.
+ */
+public class SpatialGrid {
+
+    public static final int MAX_CELLS = 1 << 22;
+
+    private double originX;
+    private double originY;
+    private double cellSize;
+    private int columns;
+    private int rows;
+
+    private int[] cellStart = new int[2];
+    private int[] sorted = new int[0];
+    private int[] cellOfBody = new int[0];
+
+    /**
+     * Rebuilds the grid for the current positions, with cells of at least {@code cellSize}.
+     */
+    public void build(BodyStore bodies, double cellSize) {
+        build(bodies, cellSize, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY,
+                Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Rebuilds the grid over the bounding box of the bodies limited to [{@code minX}, {@code maxX}] ×
+     * [{@code minY}, {@code maxY}]: a few far bodies then no longer enlarge the cells of all the others.
+     */
+    public void build(BodyStore bodies, double cellSize, double minX, double minY, double maxX, double maxY) {
+        if (!(cellSize > 0) || Double.isInfinite(cellSize)) {
+            throw new IllegalArgumentException("Cell size must be a positive number");
+        }
+        int n = bodies.size();
+        double[] x = bodies.x();
+        double[] y = bodies.y();
+        if (!(minX <= maxX) || !(minY <= maxY)) {
+            throw new IllegalArgumentException("Grid extent cannot be empty");
+        }
+        double lowX = Double.POSITIVE_INFINITY;
+        double lowY = Double.POSITIVE_INFINITY;
+        double highX = Double.NEGATIVE_INFINITY;
+        double highY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            // Un corps éjecté à l'infini (ou NaN) n'agrandit pas la grille : il est rangé dans une cellule du bord
+            if (Double.isFinite(x[i]) && Double.isFinite(y[i])) {
+                lowX = Math.min(lowX, x[i]);
+                highX = Math.max(highX, x[i]);
+                lowY = Math.min(lowY, y[i]);
+                highY = Math.max(highY, y[i]);
+            }
+        }
+        if (lowX > highX || lowY > highY) {
+            lowX = highX = lowY = highY = 0;
+        }
+        // Chaque borne est ramenée dans l'étendue : les corps au-delà vont dans les cellules du bord
+        minX = clamp(lowX, minX, maxX);
+        minY = clamp(lowY, minY, maxY);
+        maxX = clamp(highX, minX, maxX);
+        maxY = clamp(highY, minY, maxY);
+        while ((Math.floor((maxX - minX) / cellSize) + 1) * (Math.floor((maxY - minY) / cellSize) + 1) > MAX_CELLS) {
+            cellSize *= 2;
+        }
+        this.cellSize = cellSize;
+        originX = minX;
+        originY = minY;
+        columns = (int) ((maxX - minX) / cellSize) + 1;
+        rows = (int) ((maxY - minY) / cellSize) + 1;
+
+        int cells = columns * rows;
+        if (cellStart.length < cells + 1) {
+            cellStart = new int[cells + 1];
+        } else {
+            Arrays.fill(cellStart, 0, cells + 1, 0);
+        }
+        if (sorted.length < n) {
+            sorted = new int[bodies.capacity()];
+            cellOfBody = new int[bodies.capacity()];
+        }
+        for (int i = 0; i < n; i++) {
+            int cell = cellOf(x[i], y[i]);
+            cellOfBody[i] = cell;
+            cellStart[cell + 1]++;
+        }
+        for (int c = 0; c < cells; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        // Placement stable : chaque cellule garde ses corps par indice croissant
+        for (int i = 0; i < n; i++) {
+            sorted[cellStart[cellOfBody[i]]++] = i;
+        }
+        // cellStart[c] pointe maintenant sur la fin de c : on décale d'un cran pour retrouver les débuts
+        System.arraycopy(cellStart, 0, cellStart, 1, cells);
+        cellStart[0] = 0;
+    }
+
+    /**
+     * Cell containing the point, positions outside of the grid being clamped to its border.
+     */
+    public int cellOf(double x, double y) {
+        return row(y) * columns + column(x);
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    public int column(double x) {
+        int column = (int) Math.floor((x - originX) / cellSize);
+        return Math.max(0, Math.min(columns - 1, column));
+    }
+
+    public int row(double y) {
+        int row = (int) Math.floor((y - originY) / cellSize);
+        return Math.max(0, Math.min(rows - 1, row));
+    }
+
+    public double originX() {
+        return originX;
+    }
+
+    public double originY() {
+        return originY;
+    }
+
+    public double cellSize() {
+        return cellSize;
+    }
+
+    public int columns() {
+        return columns;
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    /**
+     * Position of the first body of the cell in the sorted order.
+     */
+    public int start(int cell) {
+        return cellStart[cell];
+    }
+
+    /**
+     * Position after the last body of the cell in the sorted order.
+     */
+    public int end(int cell) {
+        return cellStart[cell + 1];
+    }
+
+    /**
+     * Index in the store of the body at the given position of the sorted order.
+     */
+    public int body(int position) {
+        return sorted[position];
+    }
+}
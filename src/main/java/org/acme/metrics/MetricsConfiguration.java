@@ -0,0 +1,40 @@
+package org.acme.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.inject.Instance;
+import jakarta.inject.Inject;
+import org.acme.simulation.SimulationEngine;
+import org.acme.websocket.WebSocketMetrics;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Publishes the simulation and WebSocket metrics in the Micrometer registry of the application
+ * (Prometheus format on {@code /q/metrics}) when {@code nbody.metrics.enabled} is true.
+ */
+@ApplicationScoped
+public class MetricsConfiguration {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricsConfiguration.class);
+
+    @ConfigProperty(name = "nbody.metrics.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @Inject
+    Instance<MeterRegistry> registry;
+
+    void onStart(@Observes StartupEvent event) {
+        // Pas de registre quand l'extension Micrometer est désactivée (quarkus.micrometer.enabled=false)
+        if (!enabled || !registry.isResolvable()) {
+            logger.info("Métriques désactivées");
+            return;
+        }
+        SimulationEngine.getInstance().setMeterRegistry(registry.get());
+        WebSocketMetrics.enable(registry.get());
+        logger.info("Métriques publiées sur le registre {}", registry.get().getClass().getSimpleName());
+    }
+}
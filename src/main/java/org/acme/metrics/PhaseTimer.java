@@ -0,0 +1,83 @@
+package org.acme.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timer of one phase of the hot path. When metrics are off the timer is {@link #DISABLED}: {@link #start()}
+ * does not even read the clock and {@link #stop(long)} returns immediately, so instrumented code costs a
+ * predictable branch. When on, durations go to a Micrometer timer backed by an HDR histogram
+ * (client-side percentiles plus Prometheus buckets), or to a plain timer (count, total and max) for meters
+ * registered once per simulation, whose buckets would multiply the exported series.
+ */
+public final class PhaseTimer {
+
+    public static final PhaseTimer DISABLED = new PhaseTimer(null);
+
+    // Bornes des histogrammes : de la microseconde (encodage d'une petite image) à 10 s (client bloqué)
+    private static final Duration MIN_EXPECTED = Duration.ofNanos(1_000);
+    private static final Duration MAX_EXPECTED = Duration.ofSeconds(10);
+
+    private final Timer timer;
+
+    private PhaseTimer(Timer timer) {
+        this.timer = timer;
+    }
+
+    public static PhaseTimer register(MeterRegistry registry, String name, String description, Tags tags) {
+        return register(registry, name, description, tags, true);
+    }
+
+    /**
+     * @param distribution whether to publish percentiles and histogram buckets, or only count, total and max
+     */
+    public static PhaseTimer register(MeterRegistry registry, String name, String description, Tags tags,
+                                      boolean distribution) {
+        Timer.Builder builder = Timer.builder(name)
+                .description(description)
+                .tags(tags);
+        if (distribution) {
+            builder.publishPercentiles(0.5, 0.9, 0.99, 0.999)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(MIN_EXPECTED)
+                    .maximumExpectedValue(MAX_EXPECTED);
+        }
+        return new PhaseTimer(builder.register(registry));
+    }
+
+    public boolean isEnabled() {
+        return timer != null;
+    }
+
+    /**
+     * Returns the start time to give back to {@link #stop(long)}.
+     */
+    public long start() {
+        return timer == null ? 0 : System.nanoTime();
+    }
+
+    public void stop(long startNanos) {
+        if (timer != null) {
+            timer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public void record(long nanos) {
+        if (timer != null) {
+            timer.record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Removes the underlying meter, e.g. when the simulation it belongs to is removed.
+     */
+    public void remove(MeterRegistry registry) {
+        if (timer != null) {
+            registry.remove(timer);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package org.acme.persistence;
+
+import org.acme.core.BodyStore;
+
+/**
+ * Full state of a simulation read back from a checkpoint file.
+ *
+ * @param bodies   the bodies, body 0 being the central mass
+ * @param step     number of physics steps simulated when the checkpoint was taken
+ * @param seed     seed to give to the random generator of the simulation to continue its sequence
+ * @param timeStep time step of the simulation
+ */
+public record Checkpoint(BodyStore bodies, long step, long seed, double timeStep) {
+}
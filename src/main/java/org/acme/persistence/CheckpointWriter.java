@@ -0,0 +1,130 @@
+package org.acme.persistence;
+
+import org.acme.core.BodyStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Periodic checkpoints of one simulation, written without pausing its ticks.
+ * <p>
+ * The tick only copies the body arrays into one of two snapshot buffers (a few milliseconds for a
+ * million bodies) and returns; the snapshot is written by a background thread shared by every writer.
+ * While one buffer is being written the other can be filled, and when both are busy the checkpoint is
+ * skipped rather than blocking the tick. {@link #offer} must be called from one thread at a time.
+ */
+public class CheckpointWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(CheckpointWriter.class);
+
+    private static final ExecutorService IO = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "CheckpointWriter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Path file;
+    private final long intervalNanos;
+    private final BlockingQueue<Snapshot> free = new ArrayBlockingQueue<>(2);
+
+    private long nextDue;
+    private volatile Future<?> lastWrite = CompletableFuture.completedFuture(null);
+    private volatile long written;
+    private volatile long skipped;
+
+    public CheckpointWriter(Path file, long intervalNanos) {
+        if (intervalNanos <= 0) {
+            throw new IllegalArgumentException("Checkpoint interval must be positive");
+        }
+        this.file = file;
+        this.intervalNanos = intervalNanos;
+        // Premier checkpoint après un intervalle complet
+        this.nextDue = System.nanoTime() + intervalNanos;
+        free.add(new Snapshot());
+        free.add(new Snapshot());
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * True when the interval has elapsed since the last checkpoint ({@code now} from {@link System#nanoTime()}).
+     */
+    public boolean isDue(long now) {
+        return now - nextDue >= 0;
+    }
+
+    /**
+     * Copies the state and schedules its write; returns false, without copying, when both buffers are
+     * still being written.
+     */
+    public boolean offer(BodyStore bodies, long step, long seed, double timeStep, long now) {
+        Snapshot snapshot = free.poll();
+        nextDue = now + intervalNanos;
+        if (snapshot == null) {
+            skipped++;
+            logger.warn("Checkpoint {} ignoré : l'écriture précédente n'est pas terminée", file);
+            return false;
+        }
+        snapshot.bodies.clear();
+        snapshot.bodies.addAll(bodies);
+        snapshot.step = step;
+        snapshot.seed = seed;
+        snapshot.timeStep = timeStep;
+        lastWrite = IO.submit(() -> write(snapshot));
+        return true;
+    }
+
+    /**
+     * Waits until every scheduled checkpoint is on disk.
+     */
+    public void flush(long timeout, TimeUnit unit) throws IOException {
+        try {
+            // Un seul thread d'écriture : la dernière écriture planifiée se termine après les autres
+            lastWrite.get(timeout, unit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing checkpoint " + file, e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IOException("Checkpoint " + file + " not written", e);
+        }
+    }
+
+    public long getWrittenCount() {
+        return written;
+    }
+
+    public long getSkippedCount() {
+        return skipped;
+    }
+
+    private void write(Snapshot snapshot) {
+        try {
+            CheckpointFile.write(file, snapshot.bodies, snapshot.step, snapshot.seed, snapshot.timeStep);
+            written++;
+        } catch (IOException | RuntimeException e) {
+            logger.error("Erreur lors de l'écriture du checkpoint {}: {}", file, e.getMessage());
+        } finally {
+            free.add(snapshot);
+        }
+    }
+
+    private static final class Snapshot {
+        final BodyStore bodies = new BodyStore();
+        long step;
+        long seed;
+        double timeStep;
+    }
+}
@@ -0,0 +1,156 @@
+package org.acme.persistence;
+
+import org.acme.core.BodyStore;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Initial conditions imported from a file, one body per record with the central mass first.
+ * <ul>
+ *     <li>{@code .csv}: one body per line, {@code x,y,vx,vy,mass}; blank lines, lines starting with {@code #}
+ *     and a header line are skipped;</li>
+ *     <li>{@code .checkpoint}: a file written by {@link CheckpointFile};</li>
+ *     <li>any other extension: raw little-endian doubles, {@code x, y, vx, vy, mass} for each body in turn
+ *     (what {@code numpy.ndarray.tofile} writes for an {@code (n, 5)} array of {@code <f8}).</li>
+ * </ul>
+ * Files are read as a stream through a fixed-size buffer and decoded straight into the arrays of a
+ * {@link BodyStore}, so a million bodies are loaded without a {@code Body} object per line.
+ */
+public final class InitialConditions {
+
+    private static final int RECORD_SIZE = 5 * Double.BYTES;
+    // Tampon de lecture du format binaire : 64 Ko de corps entiers
+    private static final int BUFFER_BODIES = 64 * 1024 / RECORD_SIZE;
+
+    private InitialConditions() {
+    }
+
+    /**
+     * Reads the bodies of a file, the format being chosen from its extension; throws {@link IOException}
+     * when the file cannot be read or is malformed.
+     */
+    public static BodyStore load(Path file) throws IOException {
+        String name = file.getFileName().toString().toLowerCase();
+        if (name.endsWith(".csv")) {
+            return readCsv(file);
+        }
+        if (name.endsWith(".checkpoint")) {
+            return CheckpointFile.read(file).bodies();
+        }
+        return readBinary(file);
+    }
+
+    public static BodyStore readCsv(Path file) throws IOException {
+        BodyStore bodies = new BodyStore();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int number = 0;
+            while ((line = reader.readLine()) != null) {
+                number++;
+                line = line.strip();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                // Ligne d'en-tête (x,y,vx,vy,mass) : seule la première ligne utile peut ne pas être numérique
+                if (bodies.size() == 0 && !startsLikeNumber(line)) {
+                    continue;
+                }
+                parseLine(bodies, line, file, number);
+            }
+        }
+        return bodies;
+    }
+
+    public static BodyStore readBinary(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size % RECORD_SIZE != 0 || size / RECORD_SIZE > Integer.MAX_VALUE - 8) {
+                throw new IOException("Invalid initial conditions size: " + size + " bytes in " + file);
+            }
+            int count = (int) (size / RECORD_SIZE);
+            BodyStore bodies = new BodyStore(count);
+            bodies.setSize(count);
+            double[] x = bodies.x();
+            double[] y = bodies.y();
+            double[] vx = bodies.vx();
+            double[] vy = bodies.vy();
+            double[] m = bodies.mass();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BODIES * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            int i = 0;
+            while (i < count) {
+                buffer.clear().limit(Math.min(count - i, BUFFER_BODIES) * RECORD_SIZE);
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer) < 0) {
+                        throw new IOException("Truncated initial conditions: " + file);
+                    }
+                }
+                buffer.flip();
+                DoubleBuffer records = buffer.asDoubleBuffer();
+                for (; records.hasRemaining(); i++) {
+                    x[i] = records.get();
+                    y[i] = records.get();
+                    vx[i] = records.get();
+                    vy[i] = records.get();
+                    m[i] = records.get();
+                    if (!(m[i] >= 0)) {
+                        throw new IOException("Invalid mass " + m[i] + " for body " + i + " in " + file);
+                    }
+                }
+            }
+            bodies.clearForces();
+            return bodies;
+        }
+    }
+
+    /**
+     * Writes the bodies in the binary format read by {@link #readBinary(Path)}.
+     */
+    public static void writeBinary(Path file, BodyStore bodies) throws IOException {
+        int count = bodies.size();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BODIES * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            int i = 0;
+            while (i < count) {
+                buffer.clear();
+                for (int end = Math.min(count, i + BUFFER_BODIES); i < end; i++) {
+                    buffer.putDouble(bodies.x()[i]).putDouble(bodies.y()[i])
+                            .putDouble(bodies.vx()[i]).putDouble(bodies.vy()[i]).putDouble(bodies.mass()[i]);
+                }
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        }
+    }
+
+    private static void parseLine(BodyStore bodies, String line, Path file, int number) throws IOException {
+        String[] columns = line.split("[,;\\s]+");
+        if (columns.length != 5) {
+            throw new IOException(file + ":" + number + ": expected x,y,vx,vy,mass but got " + columns.length
+                    + " columns");
+        }
+        try {
+            bodies.add(Double.parseDouble(columns[0]), Double.parseDouble(columns[1]), Double.parseDouble(columns[2]),
+                    Double.parseDouble(columns[3]), Double.parseDouble(columns[4]));
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException, ou masse négative refusée par le store
+            throw new IOException(file + ":" + number + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static boolean startsLikeNumber(String line) {
+        char c = line.charAt(0);
+        return Character.isDigit(c) || c == '-' || c == '+' || c == '.';
+    }
+}
@@ -0,0 +1,82 @@
+package org.acme.persistence;
+
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.annotation.Priority;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import org.acme.simulation.SimulationConfiguration;
+import org.acme.simulation.SimulationEngine;
+import org.acme.websocket.ReplayWebSocket;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Persistence of the simulations, configured in {@code application.properties}:
+ * <ul>
+ *     <li>checkpoints in {@code nbody.checkpoint.directory} every {@code nbody.checkpoint.interval},
+ *     restored at startup and written once more on shutdown; nothing is persisted without directory;</li>
+ *     <li>trajectories recorded in {@code nbody.recording.directory}, one frame every
+ *     {@code nbody.recording.interval} broadcasts (0 to not record), served by {@link ReplayWebSocket}.</li>
+ * </ul>
+ */
+@ApplicationScoped
+public class PersistenceConfiguration {
+
+    private static final Logger logger = LoggerFactory.getLogger(PersistenceConfiguration.class);
+
+    @ConfigProperty(name = "nbody.checkpoint.directory")
+    Optional<String> checkpointDirectory;
+
+    @ConfigProperty(name = "nbody.checkpoint.interval", defaultValue = "30s")
+    Duration checkpointInterval;
+
+    @ConfigProperty(name = "nbody.recording.directory", defaultValue = "recordings")
+    String recordingDirectory;
+
+    @ConfigProperty(name = "nbody.recording.interval", defaultValue = "0")
+    int recordingInterval;
+
+    /**
+     * Runs after the parameters and the initial conditions are applied, see {@link SimulationConfiguration}.
+     */
+    void onStart(@Observes @Priority(SimulationConfiguration.RESTORE_PRIORITY) StartupEvent event) {
+        SimulationEngine engine = SimulationEngine.getInstance();
+        if (checkpointDirectory.isEmpty()) {
+            logger.info("Checkpoints désactivés");
+        } else {
+            try {
+                engine.enableCheckpoints(Path.of(checkpointDirectory.get()), checkpointInterval);
+            } catch (IOException e) {
+                logger.error("Répertoire de checkpoints {} inutilisable: {}", checkpointDirectory.get(), e.getMessage());
+            }
+        }
+        // Simulation par défaut créée et restaurée dès le démarrage, pas à la première connexion
+        engine.getDefault();
+
+        ReplayWebSocket.setDirectory(Path.of(recordingDirectory));
+        if (recordingInterval > 0) {
+            try {
+                engine.enableRecording(Path.of(recordingDirectory), recordingInterval);
+            } catch (IOException e) {
+                logger.error("Répertoire d'enregistrement {} inutilisable: {}", recordingDirectory, e.getMessage());
+            }
+        }
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        SimulationEngine engine = SimulationEngine.getInstance();
+        if (engine.getRecordingDirectory() != null) {
+            engine.disableRecording();
+        }
+        if (engine.getCheckpointDirectory() != null) {
+            engine.checkpointAll();
+        }
+    }
+}
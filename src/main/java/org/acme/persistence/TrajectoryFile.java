@@ -0,0 +1,31 @@
+package org.acme.persistence;
+
+/**
+ * Layout of a recorded trajectory, made of two append-only files.
+ * <p>
+ * The data file ({@code name.trajectory}) starts with a 16-byte little-endian header (magic, version,
+ * period between recorded frames in nanoseconds) followed by chunks. A chunk is a run of frames
+ * compressed together with Deflate; once inflated it is a sequence of {@code [step: long][length: int][frame]}
+ * where each frame is a position frame in the legacy format ({@code getBodyPositionsBinary}).
+ * <p>
+ * The index file ({@code name.trajectory.idx}) starts with an 8-byte header (magic, version) followed by
+ * one 32-byte entry per chunk: index of its first frame, step of its first frame, offset of the chunk in the
+ * data file, compressed length and number of frames. Entries are appended once their chunk is fully
+ * written, so readers never see a partial chunk, and are sorted by frame and by step.
+ */
+final class TrajectoryFile {
+
+    static final int DATA_MAGIC = 0x52544E4E;   // "NNTR"
+    static final int INDEX_MAGIC = 0x58494E4E;  // "NNIX"
+    static final int VERSION = 1;
+    static final int DATA_HEADER_SIZE = 16;
+    static final int INDEX_HEADER_SIZE = 8;
+    static final int ENTRY_SIZE = 32;
+    static final String INDEX_SUFFIX = ".idx";
+
+    // Les fichiers sont projetés d'un bloc en mémoire
+    static final long MAX_DATA_SIZE = Integer.MAX_VALUE;
+
+    private TrajectoryFile() {
+    }
+}
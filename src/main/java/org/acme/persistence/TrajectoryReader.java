@@ -0,0 +1,252 @@
+package org.acme.persistence;
+
+import org.acme.protocol.Frame;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Random access to a recorded trajectory ({@link TrajectoryFile}) through memory-mapped files.
+ * <p>
+ * Seeking is a binary search in the mapped index; only the chunk holding the requested frame is inflated.
+ * The last chunks are kept decoded, as ready-to-send {@link Frame}s shared by every viewer, so viewers
+ * watching the same part of a recording cost one decompression in total. A reader can be shared by
+ * any number of threads, and {@link #refresh()} picks up the chunks written since it was opened.
+ */
+public class TrajectoryReader implements AutoCloseable {
+
+    private static final int CACHED_CHUNKS = 16;
+
+    private final Path file;
+    private final FileChannel dataChannel;
+    private final FileChannel indexChannel;
+    private final long framePeriodNanos;
+
+    private MappedByteBuffer data;
+    private MappedByteBuffer index;
+    private int chunkCount;
+
+    private final Map<Integer, Chunk> cache = new LinkedHashMap<>(CACHED_CHUNKS, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Chunk> eldest) {
+            return size() > CACHED_CHUNKS;
+        }
+    };
+    private final Inflater inflater = new Inflater();
+
+    public TrajectoryReader(Path file) throws IOException {
+        this.file = file;
+        dataChannel = FileChannel.open(file, StandardOpenOption.READ);
+        indexChannel = FileChannel.open(TrajectoryWriter.indexFile(file), StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(TrajectoryFile.DATA_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            dataChannel.read(header, 0);
+            header.flip();
+            if (header.remaining() < TrajectoryFile.DATA_HEADER_SIZE || header.getInt() != TrajectoryFile.DATA_MAGIC) {
+                throw new IOException("Not a trajectory file: " + file);
+            }
+            if (header.getInt() != TrajectoryFile.VERSION) {
+                throw new IOException("Unsupported trajectory version: " + file);
+            }
+            framePeriodNanos = header.getLong();
+            refresh();
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Time between two recorded frames.
+     */
+    public long getFramePeriodNanos() {
+        return framePeriodNanos;
+    }
+
+    /**
+     * Maps the chunks appended since the last call, while the trajectory is still being recorded.
+     */
+    public synchronized void refresh() throws IOException {
+        long indexSize = indexChannel.size();
+        if (indexSize < TrajectoryFile.INDEX_HEADER_SIZE) {
+            throw new IOException("Invalid trajectory index: " + file);
+        }
+        int chunks = (int) ((indexSize - TrajectoryFile.INDEX_HEADER_SIZE) / TrajectoryFile.ENTRY_SIZE);
+        if (index != null && chunks == chunkCount) {
+            return;
+        }
+        index = indexChannel.map(FileChannel.MapMode.READ_ONLY, 0,
+                TrajectoryFile.INDEX_HEADER_SIZE + (long) chunks * TrajectoryFile.ENTRY_SIZE);
+        index.order(ByteOrder.LITTLE_ENDIAN);
+        if (index.getInt(0) != TrajectoryFile.INDEX_MAGIC) {
+            throw new IOException("Invalid trajectory index: " + file);
+        }
+        long dataSize = chunks == 0 ? TrajectoryFile.DATA_HEADER_SIZE
+                : chunkOffset(chunks - 1) + chunkLength(chunks - 1);
+        if (dataSize > dataChannel.size() || dataSize > TrajectoryFile.MAX_DATA_SIZE) {
+            throw new IOException("Truncated trajectory: " + file);
+        }
+        data = dataChannel.map(FileChannel.MapMode.READ_ONLY, 0, dataSize);
+        chunkCount = chunks;
+    }
+
+    public synchronized int getFrameCount() {
+        return chunkCount == 0 ? 0 : (int) (firstFrame(chunkCount - 1) + chunkFrames(chunkCount - 1));
+    }
+
+    /**
+     * Index of the first frame recorded at or after {@code step}, or {@link #getFrameCount()} if none.
+     */
+    public synchronized int seek(long step) throws IOException {
+        // Dernier bloc dont la première image est avant step : l'image cherchée est dedans ou au début du suivant
+        int low = 0;
+        int high = chunkCount - 1;
+        int candidate = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (firstStep(middle) <= step) {
+                candidate = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        if (candidate < 0) {
+            return 0;
+        }
+        Chunk chunk = chunk(candidate);
+        for (int k = 0; k < chunk.steps.length; k++) {
+            if (chunk.steps[k] >= step) {
+                return chunk.firstFrame + k;
+            }
+        }
+        return chunk.firstFrame + chunk.steps.length;
+    }
+
+    /**
+     * Simulation step at which the given frame was recorded.
+     */
+    public synchronized long step(int frame) throws IOException {
+        Chunk chunk = chunk(chunkOf(frame));
+        return chunk.steps[frame - chunk.firstFrame];
+    }
+
+    /**
+     * The given frame, shared: callers that keep it beyond the call take their own reference.
+     */
+    public synchronized Frame frame(int frame) throws IOException {
+        Chunk chunk = chunk(chunkOf(frame));
+        return chunk.frames[frame - chunk.firstFrame];
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            dataChannel.close();
+        } finally {
+            indexChannel.close();
+        }
+    }
+
+    private int chunkOf(int frame) {
+        if (frame < 0 || frame >= getFrameCount()) {
+            throw new IndexOutOfBoundsException("Frame " + frame + " out of bounds for " + getFrameCount() + " frames");
+        }
+        int low = 0;
+        int high = chunkCount - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (firstFrame(middle) <= frame) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    private Chunk chunk(int chunkIndex) throws IOException {
+        Chunk chunk = cache.get(chunkIndex);
+        if (chunk == null) {
+            chunk = decode(chunkIndex);
+            cache.put(chunkIndex, chunk);
+        }
+        return chunk;
+    }
+
+    private Chunk decode(int chunkIndex) throws IOException {
+        int count = chunkFrames(chunkIndex);
+        ByteBuffer compressed = data.slice((int) chunkOffset(chunkIndex), chunkLength(chunkIndex));
+        inflater.reset();
+        inflater.setInput(compressed);
+        byte[] content = new byte[Math.max(64, chunkLength(chunkIndex) * 4)];
+        int length = 0;
+        try {
+            while (!inflater.finished()) {
+                if (length == content.length) {
+                    content = Arrays.copyOf(content, content.length * 2);
+                }
+                int inflated = inflater.inflate(content, length, content.length - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated chunk " + chunkIndex + " in " + file);
+                }
+                length += inflated;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupted chunk " + chunkIndex + " in " + file, e);
+        }
+
+        ByteBuffer frames = ByteBuffer.wrap(content, 0, length).order(ByteOrder.LITTLE_ENDIAN);
+        long[] steps = new long[count];
+        Frame[] decoded = new Frame[count];
+        for (int k = 0; k < count; k++) {
+            steps[k] = frames.getLong();
+            int frameLength = frames.getInt();
+            // Chaque image est une vue sur le bloc décompressé, sans copie
+            decoded[k] = Frame.of(content, frames.position(), frameLength);
+            frames.position(frames.position() + frameLength);
+        }
+        return new Chunk((int) firstFrame(chunkIndex), steps, decoded);
+    }
+
+    private long firstFrame(int chunk) {
+        return index.getLong(entry(chunk));
+    }
+
+    private long firstStep(int chunk) {
+        return index.getLong(entry(chunk) + 8);
+    }
+
+    private long chunkOffset(int chunk) {
+        return index.getLong(entry(chunk) + 16);
+    }
+
+    private int chunkLength(int chunk) {
+        return index.getInt(entry(chunk) + 24);
+    }
+
+    private int chunkFrames(int chunk) {
+        return index.getInt(entry(chunk) + 28);
+    }
+
+    private static int entry(int chunk) {
+        return TrajectoryFile.INDEX_HEADER_SIZE + chunk * TrajectoryFile.ENTRY_SIZE;
+    }
+
+    private record Chunk(int firstFrame, long[] steps, Frame[] frames) {
+    }
+}
@@ -0,0 +1,203 @@
+package org.acme.persistence;
+
+import io.netty.buffer.ByteBuf;
+import org.acme.protocol.Frame;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.Deflater;
+
+/**
+ * Records position frames into a trajectory file ({@link TrajectoryFile}).
+ * <p>
+ * {@link #append} only takes a reference on the frame, already encoded for the live clients, and hands it
+ * to a background thread shared by every recorder: copying, compressing and writing never run on the tick.
+ * Frames are grouped in chunks of {@link #FRAMES_PER_CHUNK}; a chunk becomes visible to readers when it
+ * is full or when the recorder is closed.
+ */
+public class TrajectoryWriter implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrajectoryWriter.class);
+
+    public static final int FRAMES_PER_CHUNK = 64;
+
+    private static final ExecutorService IO = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "TrajectoryWriter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Path file;
+    private final FileChannel data;
+    private final FileChannel index;
+
+    // État utilisé uniquement par le thread d'écriture
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private byte[] chunk = new byte[64 * 1024];
+    private int chunkLength;
+    private int chunkFrames;
+    private long chunkFirstStep;
+    private byte[] compressed = new byte[64 * 1024];
+    private final ByteBuffer entry = ByteBuffer.allocate(TrajectoryFile.ENTRY_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private long dataSize = TrajectoryFile.DATA_HEADER_SIZE;
+    private long frames;
+    private boolean full;
+
+    private volatile long recordedFrames;
+    private volatile boolean closed;
+
+    /**
+     * Creates a new trajectory; fails if {@code file} already exists.
+     * @param framePeriodNanos time between two recorded frames, used to replay them at the original pace
+     */
+    public TrajectoryWriter(Path file, long framePeriodNanos) throws IOException {
+        this.file = file;
+        data = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        index = FileChannel.open(indexFile(file), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(TrajectoryFile.DATA_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(TrajectoryFile.DATA_MAGIC).putInt(TrajectoryFile.VERSION).putLong(framePeriodNanos).flip();
+        writeFully(data, header);
+        ByteBuffer indexHeader = ByteBuffer.allocate(TrajectoryFile.INDEX_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        indexHeader.putInt(TrajectoryFile.INDEX_MAGIC).putInt(TrajectoryFile.VERSION).flip();
+        writeFully(index, indexHeader);
+    }
+
+    static Path indexFile(Path file) {
+        return file.resolveSibling(file.getFileName() + TrajectoryFile.INDEX_SUFFIX);
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Frames handed to the recorder so far, including those not yet written.
+     */
+    public long getRecordedFrames() {
+        return recordedFrames;
+    }
+
+    /**
+     * Records a frame taken at the given simulation step; the frame must not be modified until released.
+     */
+    public synchronized void append(long step, Frame frame) {
+        if (closed) {
+            return;
+        }
+        frame.retain();
+        recordedFrames++;
+        IO.submit(() -> {
+            try {
+                write(step, frame);
+            } catch (IOException | RuntimeException e) {
+                logger.error("Erreur lors de l'enregistrement de {}: {}", file, e.getMessage());
+            } finally {
+                frame.release();
+            }
+        });
+    }
+
+    /**
+     * Writes the last, partial chunk and closes the files, waiting for the pending frames.
+     */
+    @Override
+    public void close() throws IOException {
+        Future<?> done;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            done = IO.submit(() -> {
+                try {
+                    flushChunk();
+                } finally {
+                    data.close();
+                    index.close();
+                }
+                return null;
+            });
+        }
+        try {
+            done.get(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while closing " + file, e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IOException("Trajectory " + file + " not closed properly", e);
+        }
+    }
+
+    private void write(long step, Frame frame) throws IOException {
+        if (full) {
+            return;
+        }
+        ByteBuf content = frame.content().byteBuf();
+        int length = content.readableBytes();
+        int required = chunkLength + Long.BYTES + Integer.BYTES + length;
+        if (required > chunk.length) {
+            chunk = Arrays.copyOf(chunk, Math.max(required, chunk.length * 2));
+        }
+        if (chunkFrames == 0) {
+            chunkFirstStep = step;
+        }
+        ByteBuffer header = ByteBuffer.wrap(chunk, chunkLength, Long.BYTES + Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putLong(step).putInt(length);
+        content.getBytes(content.readerIndex(), chunk, chunkLength + Long.BYTES + Integer.BYTES, length);
+        chunkLength = required;
+        chunkFrames++;
+        if (chunkFrames == FRAMES_PER_CHUNK) {
+            flushChunk();
+        }
+    }
+
+    private void flushChunk() throws IOException {
+        if (chunkFrames == 0) {
+            return;
+        }
+        deflater.reset();
+        deflater.setInput(chunk, 0, chunkLength);
+        deflater.finish();
+        int compressedLength = 0;
+        while (!deflater.finished()) {
+            if (compressedLength == compressed.length) {
+                compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            }
+            compressedLength += deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+        }
+        if (dataSize + compressedLength > TrajectoryFile.MAX_DATA_SIZE) {
+            full = true;
+            logger.warn("Enregistrement {} plein, les images suivantes sont ignorées", file);
+            return;
+        }
+        writeFully(data, ByteBuffer.wrap(compressed, 0, compressedLength));
+        // L'entrée d'index n'est ajoutée qu'une fois le bloc écrit : un lecteur ne voit jamais de bloc partiel
+        entry.clear();
+        entry.putLong(frames).putLong(chunkFirstStep).putLong(dataSize).putInt(compressedLength).putInt(chunkFrames).flip();
+        writeFully(index, entry);
+        dataSize += compressedLength;
+        frames += chunkFrames;
+        chunkLength = 0;
+        chunkFrames = 0;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package org.acme.protocol;
+
+import io.vertx.core.buffer.Buffer;
+
+/**
+ * Binary control request sent by a client, decoded in place: a session keeps one instance and reuses it
+ * for each of its messages, so that decoding allocates nothing.
+ * <p>
+ * Request layout: the 4-byte header {@code [version][opcode][request id as unsigned 16-bit]}, then the
+ * parameters of the opcode, big-endian:
+ * <ul>
+ * <li>{@link #START}, {@link #STOP}: none;</li>
+ * <li>{@link #ADD_BODIES}: count (int, 0 for the default), x and y (doubles, NaN to spread the bodies over
+ * the galaxy);</li>
+ * <li>{@link #DELETE_BODIES}: count (int, 0 for the default);</li>
+ * <li>{@link #SET_TIME_STEP}: time step (double);</li>
+ * <li>{@link #SUBSCRIBE}: format (byte, ordinal of {@link StreamFormat}), precision (byte) and maximum frame
+ * rate in Hz (unsigned 16-bit, 0 for every broadcast);</li>
+ * <li>{@link #VIEWPORT}: x, y, width, height and zoom (doubles), see {@link Viewport}.</li>
+ * </ul>
+ * Every request is answered with {@code [version][type = RESPONSE][status][opcode][request id]}, see
+ * {@link #encodeResponse}; the type follows the frame types of the position streams.
+ */
+public final class ControlRequest {
+
+    public static final int START = 1;
+    public static final int STOP = 2;
+    public static final int ADD_BODIES = 3;
+    public static final int DELETE_BODIES = 4;
+    public static final int SET_TIME_STEP = 5;
+    public static final int SUBSCRIBE = 6;
+    public static final int VIEWPORT = 7;
+
+    public static final int RESPONSE = 4;
+
+    public static final int OK = 0;
+    public static final int UNKNOWN_OPCODE = 1;
+    public static final int MALFORMED = 2;
+    public static final int INVALID_ARGUMENT = 3;
+    public static final int RATE_LIMITED = 4;
+
+    public static final int HEADER_SIZE = 4;
+    public static final int RESPONSE_SIZE = 6;
+    public static final int MAX_RATE = 1000;
+
+    // values() copie le tableau à chaque appel
+    private static final StreamFormat[] FORMATS = StreamFormat.values();
+
+    private int opcode;
+    private int requestId;
+    private int count;
+    private double x;
+    private double y;
+    private double width;
+    private double height;
+    private double zoom;
+    private double timeStep;
+    private StreamFormat format;
+    private int precision;
+    private int rate;
+
+    /**
+     * Reads {@code message} into this request and returns {@link #OK}, or the status to answer with. The
+     * opcode and the request id are kept whenever the header could be read, so that errors can be answered.
+     */
+    public int decode(Buffer message) {
+        opcode = 0;
+        requestId = 0;
+        int length = message.length();
+        if (length < HEADER_SIZE) {
+            return MALFORMED;
+        }
+        opcode = message.getUnsignedByte(1);
+        requestId = message.getUnsignedShort(2);
+        if (message.getUnsignedByte(0) != DeltaPositionEncoder.VERSION) {
+            return MALFORMED;
+        }
+        int expected = payloadSize(opcode);
+        if (expected < 0) {
+            return UNKNOWN_OPCODE;
+        }
+        if (length != HEADER_SIZE + expected) {
+            return MALFORMED;
+        }
+        int p = HEADER_SIZE;
+        switch (opcode) {
+            case ADD_BODIES -> {
+                count = message.getInt(p);
+                x = message.getDouble(p + 4);
+                y = message.getDouble(p + 12);
+                if (count < 0 || Double.isNaN(x) != Double.isNaN(y) || Double.isInfinite(x) || Double.isInfinite(y)) {
+                    return INVALID_ARGUMENT;
+                }
+            }
+            case DELETE_BODIES -> {
+                count = message.getInt(p);
+                if (count < 0) {
+                    return INVALID_ARGUMENT;
+                }
+            }
+            case SET_TIME_STEP -> {
+                timeStep = message.getDouble(p);
+                if (!(timeStep > 0) || Double.isInfinite(timeStep)) {
+                    return INVALID_ARGUMENT;
+                }
+            }
+            case SUBSCRIBE -> {
+                int ordinal = message.getUnsignedByte(p);
+                precision = message.getUnsignedByte(p + 1);
+                rate = message.getUnsignedShort(p + 2);
+                if (ordinal >= FORMATS.length || precision > DeltaPositionEncoder.MAX_PRECISION || rate > MAX_RATE) {
+                    return INVALID_ARGUMENT;
+                }
+                format = FORMATS[ordinal];
+            }
+            case VIEWPORT -> {
+                x = message.getDouble(p);
+                y = message.getDouble(p + 8);
+                width = message.getDouble(p + 16);
+                height = message.getDouble(p + 24);
+                zoom = message.getDouble(p + 32);
+            }
+            default -> { }
+        }
+        return OK;
+    }
+
+    private static int payloadSize(int opcode) {
+        return switch (opcode) {
+            case START, STOP -> 0;
+            case ADD_BODIES -> 20;
+            case DELETE_BODIES, SUBSCRIBE -> 4;
+            case SET_TIME_STEP -> 8;
+            case VIEWPORT -> 40;
+            default -> -1;
+        };
+    }
+
+    /**
+     * Response to this request with the given status.
+     */
+    public Buffer encodeResponse(int status) {
+        return Buffer.buffer(RESPONSE_SIZE)
+                .appendByte((byte) DeltaPositionEncoder.VERSION)
+                .appendByte((byte) RESPONSE)
+                .appendByte((byte) status)
+                .appendByte((byte) opcode)
+                .appendUnsignedShort(requestId);
+    }
+
+    public int opcode() {
+        return opcode;
+    }
+
+    public int requestId() {
+        return requestId;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public double x() {
+        return x;
+    }
+
+    public double y() {
+        return y;
+    }
+
+    public double width() {
+        return width;
+    }
+
+    public double height() {
+        return height;
+    }
+
+    public double zoom() {
+        return zoom;
+    }
+
+    public double timeStep() {
+        return timeStep;
+    }
+
+    public StreamFormat format() {
+        return format;
+    }
+
+    public int precision() {
+        return precision;
+    }
+
+    /**
+     * Maximum frames per second asked by {@link #SUBSCRIBE}, 0 for every broadcast.
+     */
+    public int rate() {
+        return rate;
+    }
+}
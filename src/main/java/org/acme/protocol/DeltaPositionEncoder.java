@@ -0,0 +1,111 @@
+package org.acme.protocol;
+
+import org.acme.core.BodyStore;
+
+import java.util.Arrays;
+
+/**
+ * Encoder of the delta position stream (version 1).
+ * <p>
+ * Coordinates are quantized to fixed point with {@code precision} fractional bits
+ * ({@code q = round(x * 2^precision)}). Every frame starts with a 4-byte header
+ * {@code [version][type][precision][0]}, where type is {@link #KEYFRAME} or {@link #DELTA},
+ * followed by the sequence number and the body count as varints. A keyframe then holds the
+ * zig-zag varint of {@code qx, qy} for every body; a delta frame holds the zig-zag varint of the
+ * difference with the previous frame, which is the frame with sequence number - 1.
+ * <p>
+ * A keyframe is emitted every {@link #KEYFRAME_INTERVAL} frames, when the body count changes,
+ * when the previous tick was not encoded, and on {@link #requestKeyframe()}.
+ * Deltas are computed against the quantized values sent before, so rounding errors never accumulate.
+ */
+public final class DeltaPositionEncoder {
+
+    public static final int VERSION = 1;
+    public static final int KEYFRAME = 0;
+    public static final int DELTA = 1;
+    public static final int MAX_PRECISION = 8;
+    public static final int KEYFRAME_INTERVAL = 40;
+
+    private final int precision;
+    private final double scale;
+
+    private long[] previousX = new long[0];
+    private long[] previousY = new long[0];
+    private int previousCount = -1;
+    private long sequence = -1;
+    private long lastTick = Long.MIN_VALUE;
+    private int framesSinceKeyframe;
+    private boolean keyframeRequested;
+
+    public DeltaPositionEncoder(int precision) {
+        if (precision < 0 || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Precision must be between 0 and " + MAX_PRECISION);
+        }
+        this.precision = precision;
+        this.scale = 1 << precision;
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    public void requestKeyframe() {
+        keyframeRequested = true;
+    }
+
+    /**
+     * Encodes the bodies for the given tick into {@code out} and returns true for a keyframe.
+     */
+    public boolean encode(BodyStore bodies, long tick, FrameBuffer out) {
+        int n = bodies.size();
+        boolean keyframe = keyframeRequested
+                || n != previousCount
+                || tick != lastTick + 1
+                || framesSinceKeyframe + 1 >= KEYFRAME_INTERVAL;
+        keyframeRequested = false;
+        lastTick = tick;
+        sequence++;
+        if (previousX.length < n) {
+            previousX = Arrays.copyOf(previousX, Math.max(n, previousX.length * 2));
+            previousY = Arrays.copyOf(previousY, previousX.length);
+        }
+
+        out.reset();
+        out.writeByte(VERSION);
+        out.writeByte(keyframe ? KEYFRAME : DELTA);
+        out.writeByte(precision);
+        out.writeByte(0);
+        out.writeVarLong(sequence);
+        out.writeVarLong(n);
+        out.ensureCapacity(n * 4);
+
+        double[] xs = bodies.x();
+        double[] ys = bodies.y();
+        long[] px = previousX;
+        long[] py = previousY;
+        for (int i = 0; i < n; i++) {
+            long qx = Math.round(xs[i] * scale);
+            long qy = Math.round(ys[i] * scale);
+            if (keyframe) {
+                out.writeZigZag(qx);
+                out.writeZigZag(qy);
+            } else {
+                out.writeZigZag(qx - px[i]);
+                out.writeZigZag(qy - py[i]);
+            }
+            px[i] = qx;
+            py[i] = qy;
+        }
+
+        previousCount = n;
+        framesSinceKeyframe = keyframe ? 0 : framesSinceKeyframe + 1;
+        return keyframe;
+    }
+
+    /**
+     * Sequence number of the last encoded frame.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+}
@@ -0,0 +1,129 @@
+package org.acme.protocol;
+
+import io.netty.buffer.Unpooled;
+import io.vertx.core.buffer.Buffer;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Encoded frame shared by every client of a stream.
+ * <p>
+ * A frame is reference counted: whoever keeps it beyond the current call (the encoder until the next
+ * tick, a client slot, a send in flight) holds a reference obtained with {@link #retain()} and gives it
+ * back with {@link #release()}. When the last reference is released, a pooled frame goes back to its
+ * {@link FramePool} and its buffer is reused for a later frame.
+ * <p>
+ * Delta frames can only be applied on top of the frame with the previous sequence number.
+ */
+public final class Frame {
+
+    private final FramePool pool;
+    private final FrameBuffer content;
+    // Vue Vert.x sur le contenu, créée une fois : chaque envoi en prend une tranche, sans copie
+    private final Buffer buffer;
+    private final AtomicInteger references = new AtomicInteger();
+
+    private boolean delta;
+    private long sequence;
+    // System.nanoTime() au début de l'encodage, 0 quand il n'est pas mesuré
+    private long encodedAt;
+
+    // Chaînage dans la liste des frames libres du pool
+    Frame nextFree;
+
+    // Vert.x 4 n'offre pas d'autre moyen d'envelopper un ByteBuf sans copie ; son remplaçant
+    // (BufferInternal.buffer) n'arrive qu'avec Vert.x 5
+    @SuppressWarnings("deprecation")
+    Frame(FramePool pool, FrameBuffer content) {
+        this.pool = pool;
+        this.content = content;
+        this.buffer = Buffer.buffer(content.byteBuf());
+    }
+
+    /**
+     * Self-contained, unpooled frame wrapping the given bytes without copying them.
+     */
+    public static Frame of(byte[] data) {
+        Frame frame = new Frame(null, new FrameBuffer(Unpooled.wrappedBuffer(data)));
+        frame.references.set(1);
+        return frame;
+    }
+
+    /**
+     * Self-contained, unpooled frame over {@code length} bytes of {@code data}, without copying them.
+     */
+    public static Frame of(byte[] data, int offset, int length) {
+        Frame frame = new Frame(null, new FrameBuffer(Unpooled.wrappedBuffer(data, offset, length)));
+        frame.references.set(1);
+        return frame;
+    }
+
+    /**
+     * Buffer to write into while the frame is being encoded.
+     */
+    public FrameBuffer content() {
+        return content;
+    }
+
+    /**
+     * Bytes of the frame, to be handed to the network layer.
+     */
+    public Buffer buffer() {
+        return buffer;
+    }
+
+    public boolean isDelta() {
+        return delta;
+    }
+
+    public long sequence() {
+        return sequence;
+    }
+
+    public void setDelta(boolean delta, long sequence) {
+        this.delta = delta;
+        this.sequence = sequence;
+    }
+
+    /**
+     * {@link System#nanoTime()} when the frame started being encoded, or 0 when encoding is not timed.
+     */
+    public long encodedAt() {
+        return encodedAt;
+    }
+
+    public void setEncodedAt(long encodedAt) {
+        this.encodedAt = encodedAt;
+    }
+
+    public Frame retain() {
+        if (references.getAndIncrement() <= 0) {
+            references.getAndDecrement();
+            throw new IllegalStateException("Frame already released");
+        }
+        return this;
+    }
+
+    public void release() {
+        int remaining = references.decrementAndGet();
+        if (remaining == 0) {
+            if (pool != null) {
+                pool.recycle(this);
+            }
+        } else if (remaining < 0) {
+            throw new IllegalStateException("Frame released too many times");
+        }
+    }
+
+    int references() {
+        return references.get();
+    }
+
+    void reset() {
+        references.set(1);
+        delta = false;
+        sequence = 0;
+        encodedAt = 0;
+        content.reset();
+    }
+}
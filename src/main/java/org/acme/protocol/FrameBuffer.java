@@ -0,0 +1,84 @@
+package org.acme.protocol;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+
+/**
+ * Growable buffer the encoders write frames into, reused from one frame to the next.
+ * It is backed by a Netty {@link ByteBuf} so that pooled frames can live off-heap and be handed to the
+ * network layer without copies. Multi-byte integers are written big-endian; variable-length integers use
+ * 7 bits per byte, least significant group first, with the high bit set on every byte but the last.
+ */
+public final class FrameBuffer {
+
+    private final ByteBuf buf;
+
+    public FrameBuffer() {
+        this(256);
+    }
+
+    /**
+     * Heap buffer with the given initial capacity.
+     */
+    public FrameBuffer(int capacity) {
+        this(Unpooled.buffer(Math.max(16, capacity)));
+    }
+
+    public FrameBuffer(ByteBuf buf) {
+        this.buf = buf;
+    }
+
+    public void reset() {
+        buf.clear();
+    }
+
+    public int length() {
+        return buf.writerIndex();
+    }
+
+    /**
+     * Underlying buffer; its readable bytes are the frame written so far.
+     */
+    public ByteBuf byteBuf() {
+        return buf;
+    }
+
+    public void ensureCapacity(int extra) {
+        buf.ensureWritable(extra);
+    }
+
+    public void writeByte(int value) {
+        buf.writeByte(value);
+    }
+
+    public void writeShort(int value) {
+        buf.writeShort(value);
+    }
+
+    public void writeInt(int value) {
+        buf.writeInt(value);
+    }
+
+    /**
+     * Writes a non-negative value on 1 to 10 bytes.
+     */
+    public void writeVarLong(long value) {
+        while ((value & ~0x7FL) != 0) {
+            buf.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buf.writeByte((int) value);
+    }
+
+    /**
+     * Writes a signed value with zig-zag encoding, so that small negative values stay small.
+     */
+    public void writeZigZag(long value) {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    public byte[] toByteArray() {
+        return ByteBufUtil.getBytes(buf);
+    }
+}
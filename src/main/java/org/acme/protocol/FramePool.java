@@ -0,0 +1,83 @@
+package org.acme.protocol;
+
+import io.netty.buffer.Unpooled;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Pool of off-heap frames reused once every send of a frame has completed, so that broadcasting
+ * does not allocate once the pool is warm.
+ * <p>
+ * Frames are recycled from any thread (typically the I/O threads completing the sends) onto an
+ * intrusive lock-free stack; {@link #acquire()} must only be called by one thread at a time
+ * (the broadcasting thread of the simulation), which rules out the ABA problem of the pop.
+ * Frames beyond {@code maxIdle} are freed instead of being kept.
+ */
+public class FramePool {
+
+    public static final int DEFAULT_MAX_IDLE = 64;
+
+    private final int initialCapacity;
+    private final int maxIdle;
+    private final AtomicReference<Frame> free = new AtomicReference<>();
+    private final AtomicInteger idle = new AtomicInteger();
+    private final AtomicLong allocated = new AtomicLong();
+
+    public FramePool(int initialCapacity) {
+        this(initialCapacity, DEFAULT_MAX_IDLE);
+    }
+
+    public FramePool(int initialCapacity, int maxIdle) {
+        this.initialCapacity = initialCapacity;
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * Returns an empty frame holding one reference.
+     */
+    public Frame acquire() {
+        while (true) {
+            Frame head = free.get();
+            if (head == null) {
+                allocated.incrementAndGet();
+                Frame frame = new Frame(this, new FrameBuffer(Unpooled.directBuffer(initialCapacity)));
+                frame.reset();
+                return frame;
+            }
+            if (free.compareAndSet(head, head.nextFree)) {
+                idle.decrementAndGet();
+                head.nextFree = null;
+                head.reset();
+                return head;
+            }
+        }
+    }
+
+    void recycle(Frame frame) {
+        if (idle.incrementAndGet() > maxIdle) {
+            idle.decrementAndGet();
+            frame.content().byteBuf().release();
+            return;
+        }
+        while (true) {
+            Frame head = free.get();
+            frame.nextFree = head;
+            if (free.compareAndSet(head, frame)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Number of frames created since the pool exists; stays flat once the pool is warm.
+     */
+    public long getAllocatedFrames() {
+        return allocated.get();
+    }
+
+    public int getIdleFrames() {
+        return idle.get();
+    }
+}
@@ -0,0 +1,178 @@
+package org.acme.protocol;
+
+import org.acme.core.BodyStore;
+
+import java.util.Arrays;
+
+/**
+ * Encoder of heatmap frames: the mass of the bodies summed over a grid of fixed resolution covering the
+ * world, sent as 8-bit intensities. The frame size depends on the resolution and on how much of the grid
+ * is empty, never on the number of bodies, so a million bodies cost the same bandwidth as a thousand.
+ * <p>
+ * The masses are accumulated in a single pass over the positions into a reusable buffer, then mapped to
+ * intensities on a logarithmic scale, {@code 1 + round(254 * log(mass / unit) / log(max / unit))} where
+ * {@code unit} is the smallest non-zero cell mass and {@code max} the largest, 0 meaning an empty cell.
+ * <p>
+ * Frame layout: the 4-byte header {@code [version][type = HEATMAP][0][0]} shared with the delta stream, the
+ * number of columns and rows as unsigned 16-bit integers, the world width and height, {@code unit} and
+ * {@code max} as big-endian floats, then the cells row by row as runs: a varint count of empty cells, a
+ * varint count of literal cells and that many intensity bytes, until every cell is covered.
+ */
+public final class HeatmapEncoder {
+
+    public static final int HEATMAP = 3;
+    public static final int DEFAULT_COLUMNS = 256;
+    public static final int DEFAULT_ROWS = 128;
+    public static final int MAX_CELLS = 1 << 20;
+
+    private final int columns;
+    private final int rows;
+    // Toile du front-end, jusqu'à ce que setWorldSize donne la taille de la simulation
+    private double worldWidth = 400;
+    private double worldHeight = 200;
+
+    // Masse par cellule et intensités, réutilisées d'une image à l'autre
+    private final double[] mass;
+    private final byte[] intensity;
+
+    public HeatmapEncoder() {
+        this(DEFAULT_COLUMNS, DEFAULT_ROWS);
+    }
+
+    public HeatmapEncoder(int columns, int rows) {
+        if (columns < 1 || rows < 1 || columns > 0xFFFF || rows > 0xFFFF || (long) columns * rows > MAX_CELLS) {
+            throw new IllegalArgumentException("Invalid heatmap resolution: " + columns + "x" + rows);
+        }
+        this.columns = columns;
+        this.rows = rows;
+        mass = new double[columns * rows];
+        intensity = new byte[columns * rows];
+    }
+
+    public int columns() {
+        return columns;
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public double worldWidth() {
+        return worldWidth;
+    }
+
+    public double worldHeight() {
+        return worldHeight;
+    }
+
+    /**
+     * Size of the world covered by the grid, from (0, 0); bodies outside of it are not counted.
+     */
+    public void setWorldSize(double width, double height) {
+        if (!(width > 0) || !(height > 0) || Double.isInfinite(width) || Double.isInfinite(height)) {
+            throw new IllegalArgumentException("World size must be positive");
+        }
+        worldWidth = width;
+        worldHeight = height;
+    }
+
+    /**
+     * Mass accumulated in a cell by the last {@link #encode(BodyStore, FrameBuffer)}.
+     */
+    public double mass(int column, int row) {
+        return mass[row * columns + column];
+    }
+
+    public void encode(BodyStore bodies, FrameBuffer out) {
+        double max = accumulate(bodies);
+        double unit = quantize(max);
+
+        out.reset();
+        out.ensureCapacity(4 + 2 * Short.BYTES + 4 * Float.BYTES + intensity.length + 16);
+        out.writeByte(DeltaPositionEncoder.VERSION);
+        out.writeByte(HEATMAP);
+        out.writeByte(0);
+        out.writeByte(0);
+        out.writeShort(columns);
+        out.writeShort(rows);
+        writeFloat(out, (float) worldWidth);
+        writeFloat(out, (float) worldHeight);
+        writeFloat(out, (float) unit);
+        writeFloat(out, (float) max);
+        writeRuns(out);
+    }
+
+    /**
+     * Sums the masses per cell and returns the largest cell mass.
+     */
+    private double accumulate(BodyStore bodies) {
+        Arrays.fill(mass, 0.0);
+        int n = bodies.size();
+        double[] x = bodies.x();
+        double[] y = bodies.y();
+        double[] m = bodies.mass();
+        double sx = columns / worldWidth;
+        double sy = rows / worldHeight;
+        for (int i = 0; i < n; i++) {
+            double cx = x[i] * sx;
+            double cy = y[i] * sy;
+            // Comparaison avant conversion : les NaN et les corps hors du monde sont ignorés
+            if (cx >= 0 && cx < columns && cy >= 0 && cy < rows) {
+                mass[(int) cy * columns + (int) cx] += m[i];
+            }
+        }
+        double max = 0;
+        for (double value : mass) {
+            max = Math.max(max, value);
+        }
+        return max;
+    }
+
+    /**
+     * Fills the intensities and returns the mass mapped to the lowest non-zero intensity.
+     */
+    private double quantize(double max) {
+        double unit = max;
+        for (double value : mass) {
+            if (value > 0 && value < unit) {
+                unit = value;
+            }
+        }
+        // Toutes les cellules non vides à la même masse : intensité maximale
+        double scale = max > unit ? 254 / Math.log(max / unit) : 0;
+        for (int k = 0; k < mass.length; k++) {
+            double value = mass[k];
+            if (value > 0) {
+                intensity[k] = (byte) (scale == 0 ? 255 : 1 + (int) Math.round(scale * Math.log(value / unit)));
+            } else {
+                intensity[k] = 0;
+            }
+        }
+        return unit;
+    }
+
+    private void writeRuns(FrameBuffer out) {
+        int cells = intensity.length;
+        int k = 0;
+        while (k < cells) {
+            int start = k;
+            while (k < cells && intensity[k] == 0) {
+                k++;
+            }
+            out.writeVarLong(k - start);
+            int literals = k;
+            // Une cellule vide isolée reste dans les littéraux : une nouvelle paire de compteurs coûterait plus
+            while (k < cells && (intensity[k] != 0 || (k + 1 < cells && intensity[k + 1] != 0))) {
+                k++;
+            }
+            out.writeVarLong(k - literals);
+            for (int i = literals; i < k; i++) {
+                out.writeByte(intensity[i]);
+            }
+        }
+    }
+
+    private static void writeFloat(FrameBuffer out, float value) {
+        out.writeInt(Float.floatToIntBits(value));
+    }
+}
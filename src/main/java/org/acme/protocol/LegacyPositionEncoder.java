@@ -0,0 +1,26 @@
+package org.acme.protocol;
+
+import org.acme.core.BodyStore;
+
+/**
+ * Encoder of the original position format: body count (4 bytes) followed by (x, y) for each body
+ * (2 x 2 bytes per body), big-endian, coordinates rounded to the nearest pixel.
+ */
+public final class LegacyPositionEncoder {
+
+    private LegacyPositionEncoder() {
+    }
+
+    public static void encode(BodyStore bodies, FrameBuffer out) {
+        int bodyCount = bodies.size();
+        double[] xs = bodies.x();
+        double[] ys = bodies.y();
+        out.reset();
+        out.ensureCapacity(4 + bodyCount * 4);
+        out.writeInt(bodyCount);
+        for (int i = 0; i < bodyCount; i++) {
+            out.writeShort((int) Math.round(xs[i]));
+            out.writeShort((int) Math.round(ys[i]));
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package org.acme.protocol;
+
+import org.acme.core.BodyStore;
+import org.acme.metrics.PhaseTimer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Encodes the position frames of one simulation, once per broadcast and per format actually requested.
+ * Frames are encoded lazily by {@link #frame(StreamSubscription)} and shared by every client with the
+ * same subscription. Must be used from the broadcasting thread only.
+ * <p>
+ * Frames are encoded straight into buffers of a {@link FramePool}: the encoder keeps one reference on
+ * each frame of the current broadcast until the next one starts, and clients take their own references
+ * while they send it, so a buffer is reused as soon as the last send completes.
+ */
+public class PositionStreamEncoder {
+
+    // Capacité initiale d'une frame : en-tête et ~1000 corps, le tampon grandit ensuite au besoin
+    private static final int INITIAL_FRAME_CAPACITY = 4096;
+
+    private final FramePool pool;
+    private final DeltaPositionEncoder[] deltaEncoders = new DeltaPositionEncoder[DeltaPositionEncoder.MAX_PRECISION + 1];
+    private final Frame[] deltaFrames = new Frame[DeltaPositionEncoder.MAX_PRECISION + 1];
+    private Frame legacyFrame;
+    // Une frame par viewport distinct : les clients qui regardent la même zone la partagent
+    private final ViewportEncoder viewportEncoder = new ViewportEncoder();
+    private final Map<Viewport, Frame> viewportFrames = new HashMap<>();
+    // Carte de densité : une seule frame par diffusion, de taille indépendante du nombre de corps
+    private final HeatmapEncoder heatmapEncoder = new HeatmapEncoder();
+    // Monde entier, de la taille couverte par la heatmap
+    private Viewport world = Viewport.whole(heatmapEncoder.worldWidth(), heatmapEncoder.worldHeight());
+    private Frame heatmapFrame;
+
+    private BodyStore bodies;
+    private long tick = -1;
+
+    // Durée d'encodage de chaque frame ; inactif par défaut
+    private volatile PhaseTimer encodeTimer = PhaseTimer.DISABLED;
+
+    public PositionStreamEncoder() {
+        this(new FramePool(INITIAL_FRAME_CAPACITY));
+    }
+
+    public PositionStreamEncoder(FramePool pool) {
+        this.pool = pool;
+    }
+
+    public FramePool getPool() {
+        return pool;
+    }
+
+    /**
+     * Records the encoding time of every frame; frames then carry their encoding time, so that
+     * clients can measure how long they took to reach the network.
+     */
+    public void setEncodeTimer(PhaseTimer encodeTimer) {
+        this.encodeTimer = encodeTimer == null ? PhaseTimer.DISABLED : encodeTimer;
+    }
+
+    /**
+     * Size of the world covered by the {@link StreamFormat#HEATMAP} frames.
+     */
+    public void setWorldSize(double width, double height) {
+        heatmapEncoder.setWorldSize(width, height);
+        world = Viewport.whole(width, height);
+    }
+
+    /**
+     * Starts a new broadcast: frames returned afterwards reflect the current state of the bodies.
+     */
+    public void beginTick(BodyStore bodies) {
+        this.bodies = bodies;
+        tick++;
+        releaseFrames();
+        viewportEncoder.reset(bodies);
+    }
+
+    /**
+     * Gives back the frames of the current broadcast; they return to the pool once their sends complete.
+     */
+    public void releaseFrames() {
+        if (legacyFrame != null) {
+            legacyFrame.release();
+            legacyFrame = null;
+        }
+        if (heatmapFrame != null) {
+            heatmapFrame.release();
+            heatmapFrame = null;
+        }
+        for (Frame frame : viewportFrames.values()) {
+            frame.release();
+        }
+        viewportFrames.clear();
+        for (int precision = 0; precision < deltaFrames.length; precision++) {
+            if (deltaFrames[precision] != null) {
+                deltaFrames[precision].release();
+                deltaFrames[precision] = null;
+            }
+        }
+    }
+
+    /**
+     * Frame for the given subscription; a {@link StreamFormat#VIEWPORT} frame shows the whole world.
+     */
+    public Frame frame(StreamSubscription subscription) {
+        return frame(subscription, world);
+    }
+
+    /**
+     * Frame for the given subscription; the viewport is only used by the {@link StreamFormat#VIEWPORT} format.
+     */
+    public Frame frame(StreamSubscription subscription, Viewport viewport) {
+        return switch (subscription.format()) {
+            case LEGACY -> legacyFrame();
+            case DELTA -> deltaFrame(subscription.precision());
+            case VIEWPORT -> viewportFrame(viewport);
+            case HEATMAP -> heatmapFrame();
+        };
+    }
+
+    /**
+     * Makes the next frame of the delta stream at this precision a keyframe, e.g. for a client that just joined.
+     */
+    public void requestKeyframe(int precision) {
+        deltaEncoder(precision).requestKeyframe();
+    }
+
+    private Frame legacyFrame() {
+        if (legacyFrame == null) {
+            PhaseTimer timer = encodeTimer;
+            long start = timer.start();
+            Frame frame = pool.acquire();
+            LegacyPositionEncoder.encode(bodies, frame.content());
+            frame.setEncodedAt(start);
+            timer.stop(start);
+            legacyFrame = frame;
+        }
+        return legacyFrame;
+    }
+
+    private Frame heatmapFrame() {
+        if (heatmapFrame == null) {
+            PhaseTimer timer = encodeTimer;
+            long start = timer.start();
+            Frame frame = pool.acquire();
+            heatmapEncoder.encode(bodies, frame.content());
+            frame.setEncodedAt(start);
+            timer.stop(start);
+            heatmapFrame = frame;
+        }
+        return heatmapFrame;
+    }
+
+    private Frame viewportFrame(Viewport viewport) {
+        Frame frame = viewportFrames.get(viewport);
+        if (frame == null) {
+            PhaseTimer timer = encodeTimer;
+            long start = timer.start();
+            frame = pool.acquire();
+            viewportEncoder.encode(viewport, frame.content());
+            frame.setEncodedAt(start);
+            timer.stop(start);
+            viewportFrames.put(viewport, frame);
+        }
+        return frame;
+    }
+
+    private Frame deltaFrame(int precision) {
+        Frame frame = deltaFrames[precision];
+        if (frame == null) {
+            DeltaPositionEncoder encoder = deltaEncoder(precision);
+            PhaseTimer timer = encodeTimer;
+            long start = timer.start();
+            frame = pool.acquire();
+            boolean keyframe = encoder.encode(bodies, tick, frame.content());
+            frame.setDelta(!keyframe, encoder.getSequence());
+            frame.setEncodedAt(start);
+            timer.stop(start);
+            deltaFrames[precision] = frame;
+        }
+        return frame;
+    }
+
+    private DeltaPositionEncoder deltaEncoder(int precision) {
+        DeltaPositionEncoder encoder = deltaEncoders[precision];
+        if (encoder == null) {
+            encoder = new DeltaPositionEncoder(precision);
+            deltaEncoders[precision] = encoder;
+        }
+        return encoder;
+    }
+}
@@ -0,0 +1,49 @@
+package org.acme.protocol;
+
+/**
+ * Part of a recording requested by a replay client, read from the query string of the WebSocket URL,
+ * e.g. {@code /replay/room-1-1700000000000?from=200&to=800&speed=2}.
+ *
+ * @param from  first simulation step to replay
+ * @param to    last simulation step to replay (inclusive)
+ * @param speed playback speed, 1 being the pace of the recording
+ */
+public record ReplayRequest(long from, long to, double speed) {
+
+    public static final double MAX_SPEED = 64;
+
+    public static final ReplayRequest ALL = new ReplayRequest(0, Long.MAX_VALUE, 1);
+
+    public ReplayRequest {
+        if (from < 0 || to < from) {
+            throw new IllegalArgumentException("Invalid step range: " + from + " to " + to);
+        }
+        if (!(speed > 0) || speed > MAX_SPEED) {
+            throw new IllegalArgumentException("Speed must be between 0 and " + MAX_SPEED);
+        }
+    }
+
+    public static ReplayRequest fromQuery(String query) {
+        if (query == null || query.isEmpty()) {
+            return ALL;
+        }
+        long from = 0;
+        long to = Long.MAX_VALUE;
+        double speed = 1;
+        for (String parameter : query.split("&")) {
+            int separator = parameter.indexOf('=');
+            if (separator < 0) {
+                continue;
+            }
+            String key = parameter.substring(0, separator);
+            String value = parameter.substring(separator + 1);
+            switch (key) {
+                case "from" -> from = Long.parseLong(value);
+                case "to" -> to = Long.parseLong(value);
+                case "speed" -> speed = Double.parseDouble(value);
+                default -> { }
+            }
+        }
+        return new ReplayRequest(from, to, speed);
+    }
+}
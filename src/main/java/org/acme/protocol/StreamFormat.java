@@ -0,0 +1,37 @@
+package org.acme.protocol;
+
+/**
+ * Position stream formats a client can ask for when it connects.
+ */
+public enum StreamFormat {
+
+    /**
+     * Body count (int) followed by the rounded x/y of every body on two signed 16-bit integers.
+     */
+    LEGACY,
+
+    /**
+     * Versioned keyframe / delta stream, see {@link DeltaPositionEncoder}.
+     */
+    DELTA,
+
+    /**
+     * Only the bodies inside the viewport of the client, dense regions being sent as density cells,
+     * see {@link ViewportEncoder}.
+     */
+    VIEWPORT,
+
+    /**
+     * Mass density over a fixed grid covering the world, whatever the number of bodies, see {@link HeatmapEncoder}.
+     */
+    HEATMAP;
+
+    public static StreamFormat parse(String value) {
+        for (StreamFormat format : values()) {
+            if (format.name().equalsIgnoreCase(value)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unknown stream format: " + value);
+    }
+}
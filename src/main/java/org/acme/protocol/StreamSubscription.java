@@ -0,0 +1,41 @@
+package org.acme.protocol;
+
+/**
+ * Stream format negotiated by a client, read from the query string of the WebSocket URL,
+ * e.g. {@code /websocket?format=delta&precision=4}. Without parameters the legacy format is used.
+ *
+ * @param format    the position stream format
+ * @param precision number of fractional bits of the fixed-point coordinates (delta format only)
+ */
+public record StreamSubscription(StreamFormat format, int precision) {
+
+    public static final StreamSubscription LEGACY = new StreamSubscription(StreamFormat.LEGACY, 0);
+
+    public StreamSubscription {
+        if (precision < 0 || precision > DeltaPositionEncoder.MAX_PRECISION) {
+            throw new IllegalArgumentException("Precision must be between 0 and " + DeltaPositionEncoder.MAX_PRECISION);
+        }
+    }
+
+    public static StreamSubscription fromQuery(String query) {
+        if (query == null || query.isEmpty()) {
+            return LEGACY;
+        }
+        StreamFormat format = StreamFormat.LEGACY;
+        int precision = 0;
+        for (String parameter : query.split("&")) {
+            int separator = parameter.indexOf('=');
+            if (separator < 0) {
+                continue;
+            }
+            String key = parameter.substring(0, separator);
+            String value = parameter.substring(separator + 1);
+            switch (key) {
+                case "format" -> format = StreamFormat.parse(value);
+                case "precision" -> precision = Integer.parseInt(value);
+                default -> { }
+            }
+        }
+        return new StreamSubscription(format, precision);
+    }
+}
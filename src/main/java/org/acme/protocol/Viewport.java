@@ -0,0 +1,86 @@
+package org.acme.protocol;
+
+/**
+ * Part of the world a client displays, in world units, and its zoom in screen pixels per world unit.
+ * Sent in the query string ({@code ?format=viewport&viewport=100,50,200,100&zoom=2}) or later with the
+ * text command {@code viewport <x> <y> <width> <height> <zoom>}.
+ *
+ * @param x      left of the viewport
+ * @param y      top of the viewport
+ * @param width  width of the viewport
+ * @param height height of the viewport
+ * @param zoom   screen pixels per world unit
+ */
+public record Viewport(double x, double y, double width, double height, double zoom) {
+
+    // Taille maximale de l'image du client : les coordonnées écran tiennent sur 16 bits
+    public static final int MAX_PIXELS = 4096;
+
+    public Viewport {
+        if (!Double.isFinite(x) || !Double.isFinite(y)) {
+            throw new IllegalArgumentException("Viewport position must be finite");
+        }
+        if (!(width > 0) || !(height > 0) || !(zoom > 0)) {
+            throw new IllegalArgumentException("Viewport size and zoom must be positive");
+        }
+        if (width * zoom > MAX_PIXELS || height * zoom > MAX_PIXELS) {
+            throw new IllegalArgumentException("Viewport cannot exceed " + MAX_PIXELS + " pixels");
+        }
+    }
+
+    /**
+     * Whole world of the given size, one pixel per world unit unless that exceeds {@link #MAX_PIXELS}.
+     */
+    public static Viewport whole(double width, double height) {
+        return new Viewport(0, 0, width, height, Math.min(1, MAX_PIXELS / Math.max(width, height)));
+    }
+
+    public boolean contains(double px, double py) {
+        return px >= x && px < x + width && py >= y && py < y + height;
+    }
+
+    /**
+     * Parses the arguments of the {@code viewport} command: {@code <x> <y> <width> <height> <zoom>}.
+     */
+    public static Viewport parse(String arguments) {
+        String[] values = arguments.trim().split("\\s+");
+        if (values.length != 5) {
+            throw new IllegalArgumentException("Expected: viewport <x> <y> <width> <height> <zoom>");
+        }
+        return new Viewport(Double.parseDouble(values[0]), Double.parseDouble(values[1]),
+                Double.parseDouble(values[2]), Double.parseDouble(values[3]), Double.parseDouble(values[4]));
+    }
+
+    /**
+     * Viewport asked in the query string, {@code world} (the whole world) when none is given.
+     */
+    public static Viewport fromQuery(String query, Viewport world) {
+        if (query == null || query.isEmpty()) {
+            return world;
+        }
+        String rectangle = null;
+        double zoom = world.zoom();
+        for (String parameter : query.split("&")) {
+            int separator = parameter.indexOf('=');
+            if (separator < 0) {
+                continue;
+            }
+            String key = parameter.substring(0, separator);
+            String value = parameter.substring(separator + 1);
+            switch (key) {
+                case "viewport" -> rectangle = value;
+                case "zoom" -> zoom = Double.parseDouble(value);
+                default -> { }
+            }
+        }
+        if (rectangle == null) {
+            return zoom == world.zoom() ? world : new Viewport(world.x(), world.y(), world.width(), world.height(), zoom);
+        }
+        String[] values = rectangle.split(",");
+        if (values.length != 4) {
+            throw new IllegalArgumentException("Expected: viewport=<x>,<y>,<width>,<height>");
+        }
+        return new Viewport(Double.parseDouble(values[0]), Double.parseDouble(values[1]),
+                Double.parseDouble(values[2]), Double.parseDouble(values[3]), zoom);
+    }
+}
@@ -0,0 +1,245 @@
+package org.acme.protocol;
+
+import org.acme.core.BodyStore;
+import org.acme.core.SpatialGrid;
+
+import java.util.Arrays;
+
+/**
+ * Encoder of viewport frames: only the bodies inside the viewport of the client, with dense regions
+ * replaced by density cells at low zoom.
+ * <p>
+ * The bodies are sorted once per broadcast into a {@link SpatialGrid} of {@link #BASE_CELL_SIZE} world
+ * units, shared by every viewport. Each coarser level of detail groups 2×2 cells of the previous one;
+ * their body counts are computed on first use and shared as well. A viewport is encoded at the level whose
+ * cells are at most {@link #CELL_PIXELS} pixels wide on screen: a cell holding more than
+ * {@link #MAX_POINTS_PER_CELL} bodies is sent as one density cell, the others as individual points. Zoomed in
+ * beyond the base cells, a base cell covers several on-screen cells and keeps at most
+ * {@link #MAX_POINTS_PER_CELL} points for each of those it shows, beyond which it is sent as a density cell.
+ * The frame size is thus bounded by the pixel size of the viewport rather than by the number of bodies.
+ * <p>
+ * Frame layout: the 4-byte header {@code [version][type = VIEWPORT][0][0]} shared with the delta stream,
+ * the viewport ({@code x, y, width, height, zoom}) and the on-screen cell size as big-endian floats,
+ * the number of points and of cells as varints, then each point as two signed 16-bit pixel coordinates
+ * relative to the viewport, and each cell as the pixel coordinates of its top-left corner followed by
+ * its body count as a varint.
+ */
+public final class ViewportEncoder {
+
+    public static final int VIEWPORT = 2;
+    public static final double BASE_CELL_SIZE = 1;
+    public static final int CELL_PIXELS = 4;
+    public static final int MAX_POINTS_PER_CELL = 4;
+    public static final int MAX_LEVEL = 16;
+
+    private final SpatialGrid grid = new SpatialGrid();
+    private BodyStore bodies;
+    private boolean gridBuilt;
+
+    // Nombre de corps par cellule, pour chaque niveau de détail construit depuis le début de la diffusion
+    private final int[][] counts = new int[MAX_LEVEL + 1][];
+    private final int[] levelColumns = new int[MAX_LEVEL + 1];
+    private final int[] levelRows = new int[MAX_LEVEL + 1];
+    private int builtLevels;
+
+    // Résultat de la sélection, avant écriture : indices des corps et cellules (colonne, ligne, nombre)
+    private int[] points = new int[256];
+    private int pointCount;
+    private int[] cells = new int[3 * 256];
+    private int cellCount;
+
+    /**
+     * Starts a new broadcast; the spatial index is rebuilt on the first frame requested.
+     */
+    public void reset(BodyStore bodies) {
+        this.bodies = bodies;
+        gridBuilt = false;
+        builtLevels = 0;
+    }
+
+    public void encode(Viewport viewport, FrameBuffer out) {
+        if (!gridBuilt) {
+            grid.build(bodies, BASE_CELL_SIZE);
+            gridBuilt = true;
+        }
+        // Niveau dont les cellules font au plus CELL_PIXELS à l'écran ; plus fin que la grille : aucun regroupement
+        double cellWorld = CELL_PIXELS / viewport.zoom();
+        boolean aggregate = cellWorld >= grid.cellSize();
+        int level = 0;
+        double block = grid.cellSize();
+        while (aggregate && level < MAX_LEVEL && block * 2 <= cellWorld) {
+            block *= 2;
+            level++;
+        }
+        buildLevels(level);
+        select(viewport, level, block, aggregate);
+
+        float zoom = (float) viewport.zoom();
+        out.reset();
+        out.ensureCapacity(4 + 6 * Float.BYTES + 10 + pointCount * 4 + cellCount * 7);
+        out.writeByte(DeltaPositionEncoder.VERSION);
+        out.writeByte(VIEWPORT);
+        out.writeByte(0);
+        out.writeByte(0);
+        writeFloat(out, (float) viewport.x());
+        writeFloat(out, (float) viewport.y());
+        writeFloat(out, (float) viewport.width());
+        writeFloat(out, (float) viewport.height());
+        writeFloat(out, zoom);
+        writeFloat(out, (float) (block * viewport.zoom()));
+        out.writeVarLong(pointCount);
+        out.writeVarLong(cellCount);
+        double[] x = bodies.x();
+        double[] y = bodies.y();
+        for (int k = 0; k < pointCount; k++) {
+            int i = points[k];
+            out.writeShort((int) Math.round((x[i] - viewport.x()) * viewport.zoom()));
+            out.writeShort((int) Math.round((y[i] - viewport.y()) * viewport.zoom()));
+        }
+        for (int k = 0; k < cellCount; k++) {
+            double left = grid.originX() + cells[3 * k] * block;
+            double top = grid.originY() + cells[3 * k + 1] * block;
+            out.writeShort((int) Math.round((left - viewport.x()) * viewport.zoom()));
+            out.writeShort((int) Math.round((top - viewport.y()) * viewport.zoom()));
+            out.writeVarLong(cells[3 * k + 2]);
+        }
+    }
+
+    private void select(Viewport viewport, int level, double block, boolean aggregate) {
+        pointCount = 0;
+        cellCount = 0;
+        int columns = levelColumns[level];
+        int rows = levelRows[level];
+        int firstColumn = (int) Math.floor((viewport.x() - grid.originX()) / block);
+        int lastColumn = (int) Math.floor((viewport.x() + viewport.width() - grid.originX()) / block);
+        int firstRow = (int) Math.floor((viewport.y() - grid.originY()) / block);
+        int lastRow = (int) Math.floor((viewport.y() + viewport.height() - grid.originY()) / block);
+        int[] levelCounts = counts[level];
+        for (int row = Math.max(0, firstRow); row <= Math.min(rows - 1, lastRow); row++) {
+            for (int column = Math.max(0, firstColumn); column <= Math.min(columns - 1, lastColumn); column++) {
+                int count = levelCounts[row * columns + column];
+                if (count == 0) {
+                    continue;
+                }
+                if (aggregate ? count > MAX_POINTS_PER_CELL : exceedsScreenCells(viewport, column, row, count)) {
+                    addCell(column, row, count);
+                } else {
+                    addPoints(viewport, level, column, row);
+                }
+            }
+        }
+    }
+
+    /**
+     * Whether a base cell wider than {@link #CELL_PIXELS} on screen shows more than {@link #MAX_POINTS_PER_CELL}
+     * bodies for each on-screen cell its visible part covers.
+     */
+    private boolean exceedsScreenCells(Viewport viewport, int column, int row, int count) {
+        double size = grid.cellSize();
+        double left = Math.max(viewport.x(), grid.originX() + column * size);
+        double right = Math.min(viewport.x() + viewport.width(), grid.originX() + (column + 1) * size);
+        double top = Math.max(viewport.y(), grid.originY() + row * size);
+        double bottom = Math.min(viewport.y() + viewport.height(), grid.originY() + (row + 1) * size);
+        double screenColumns = Math.max(1, Math.ceil((right - left) * viewport.zoom() / CELL_PIXELS));
+        double screenRows = Math.max(1, Math.ceil((bottom - top) * viewport.zoom() / CELL_PIXELS));
+        double limit = MAX_POINTS_PER_CELL * screenColumns * screenRows;
+        if (count <= limit) {
+            return false;
+        }
+        // Cellule coupée par le bord du viewport : seuls ses corps visibles seraient envoyés
+        int cell = row * grid.columns() + column;
+        double[] x = bodies.x();
+        double[] y = bodies.y();
+        int visible = 0;
+        for (int k = grid.start(cell); k < grid.end(cell); k++) {
+            int i = grid.body(k);
+            if (viewport.contains(x[i], y[i]) && ++visible > limit) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds the visible bodies of a cell, descending only into the non-empty cells of the finer levels.
+     */
+    private void addPoints(Viewport viewport, int level, int column, int row) {
+        if (level == 0) {
+            int cell = row * grid.columns() + column;
+            double[] x = bodies.x();
+            double[] y = bodies.y();
+            for (int k = grid.start(cell); k < grid.end(cell); k++) {
+                int i = grid.body(k);
+                if (viewport.contains(x[i], y[i])) {
+                    addPoint(i);
+                }
+            }
+            return;
+        }
+        int finer = level - 1;
+        for (int r = 2 * row; r <= Math.min(2 * row + 1, levelRows[finer] - 1); r++) {
+            for (int c = 2 * column; c <= Math.min(2 * column + 1, levelColumns[finer] - 1); c++) {
+                if (counts[finer][r * levelColumns[finer] + c] > 0) {
+                    addPoints(viewport, finer, c, r);
+                }
+            }
+        }
+    }
+
+    private void addPoint(int body) {
+        if (pointCount == points.length) {
+            points = Arrays.copyOf(points, points.length * 2);
+        }
+        points[pointCount++] = body;
+    }
+
+    private void addCell(int column, int row, int count) {
+        if (3 * cellCount == cells.length) {
+            cells = Arrays.copyOf(cells, cells.length * 2);
+        }
+        cells[3 * cellCount] = column;
+        cells[3 * cellCount + 1] = row;
+        cells[3 * cellCount + 2] = count;
+        cellCount++;
+    }
+
+    private void buildLevels(int level) {
+        if (builtLevels == 0) {
+            int columns = grid.columns();
+            int rows = grid.rows();
+            int[] base = ensureLevel(0, columns, rows);
+            for (int cell = 0; cell < columns * rows; cell++) {
+                base[cell] = grid.end(cell) - grid.start(cell);
+            }
+            builtLevels = 1;
+        }
+        for (; builtLevels <= level; builtLevels++) {
+            int finer = builtLevels - 1;
+            int finerColumns = levelColumns[finer];
+            int finerRows = levelRows[finer];
+            int columns = (finerColumns + 1) / 2;
+            int rows = (finerRows + 1) / 2;
+            int[] coarse = ensureLevel(builtLevels, columns, rows);
+            Arrays.fill(coarse, 0, columns * rows, 0);
+            int[] fine = counts[finer];
+            for (int r = 0; r < finerRows; r++) {
+                for (int c = 0; c < finerColumns; c++) {
+                    coarse[(r / 2) * columns + c / 2] += fine[r * finerColumns + c];
+                }
+            }
+        }
+    }
+
+    private int[] ensureLevel(int level, int columns, int rows) {
+        if (counts[level] == null || counts[level].length < columns * rows) {
+            counts[level] = new int[columns * rows];
+        }
+        levelColumns[level] = columns;
+        levelRows[level] = rows;
+        return counts[level];
+    }
+
+    private static void writeFloat(FrameBuffer out, float value) {
+        out.writeInt(Float.floatToIntBits(value));
+    }
+}
@@ -0,0 +1,36 @@
+package org.acme.rest;
+
+import org.acme.simulation.SimulationParameters;
+import org.acme.simulation.force.ForceEngineType;
+
+/**
+ * Body of {@code PATCH /simulations/{id}/parameters}: the fields that are present replace the current values,
+ * the missing ones are kept.
+ */
+public record ParameterUpdate(Integer width, Integer height, Integer bodyCount, Double centerMass, Double massMin,
+                              Double massMax, Double velocityDispersion, Double timeStep, Double physicsRate,
+                              Double broadcastRate, ForceEngineType engine, Double theta, Boolean collisions,
+                              Long seed) {
+
+    /**
+     * Current parameters with the fields of this update; throws {@link IllegalArgumentException} if the result
+     * is invalid.
+     */
+    public SimulationParameters applyTo(SimulationParameters current) {
+        return new SimulationParameters(
+                width != null ? width : current.width(),
+                height != null ? height : current.height(),
+                bodyCount != null ? bodyCount : current.bodyCount(),
+                centerMass != null ? centerMass : current.centerMass(),
+                massMin != null ? massMin : current.massMin(),
+                massMax != null ? massMax : current.massMax(),
+                velocityDispersion != null ? velocityDispersion : current.velocityDispersion(),
+                timeStep != null ? timeStep : current.timeStep(),
+                physicsRate != null ? physicsRate : current.physicsRate(),
+                broadcastRate != null ? broadcastRate : current.broadcastRate(),
+                engine != null ? engine : current.engine(),
+                theta != null ? theta : current.theta(),
+                collisions != null ? collisions : current.collisions(),
+                seed != null ? seed : current.seed());
+    }
+}
@@ -0,0 +1,70 @@
+package org.acme.rest;
+
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.NotFoundException;
+import jakarta.ws.rs.PATCH;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import org.acme.simulation.SimulationEngine;
+import org.acme.simulation.SimulationLogic;
+import org.acme.simulation.SimulationParameters;
+
+import java.util.List;
+
+/**
+ * Runtime parameters of the live simulations:
+ * <ul>
+ *     <li>{@code GET /simulations}: ids of the simulations;</li>
+ *     <li>{@code GET /simulations/{id}/parameters}: current {@link SimulationParameters};</li>
+ *     <li>{@code PATCH /simulations/{id}/parameters}: changes some parameters (e.g. {@code {"bodyCount": 50000,
+ *     "engine": "BARNES_HUT"}}), applied at the next tick boundary without restart.</li>
+ * </ul>
+ */
+@Path("/simulations")
+@Produces(MediaType.APPLICATION_JSON)
+public class SimulationResource {
+
+    @GET
+    public List<String> simulations() {
+        return SimulationEngine.getInstance().getSimulationIds().stream().sorted().toList();
+    }
+
+    @GET
+    @Path("/{id}/parameters")
+    public SimulationParameters parameters(@PathParam("id") String id) {
+        return simulation(id).getParameters();
+    }
+
+    /**
+     * Returns the requested parameters, which the simulation uses from its next tick.
+     */
+    @PATCH
+    @Path("/{id}/parameters")
+    @Consumes(MediaType.APPLICATION_JSON)
+    public SimulationParameters update(@PathParam("id") String id, ParameterUpdate update) {
+        if (update == null) {
+            throw new BadRequestException("Missing parameters");
+        }
+        SimulationLogic simulation = simulation(id);
+        SimulationParameters parameters;
+        try {
+            parameters = update.applyTo(simulation.getParameters());
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage());
+        }
+        simulation.setParameters(parameters);
+        return parameters;
+    }
+
+    private SimulationLogic simulation(String id) {
+        SimulationLogic simulation = SimulationEngine.getInstance().get(id);
+        if (simulation == null) {
+            throw new NotFoundException("Unknown simulation: " + id);
+        }
+        return simulation;
+    }
+}
@@ -0,0 +1,96 @@
+package org.acme.simulation;
+
+import org.acme.core.BodyStore;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Double-buffered copy of the bodies of a simulation, for readers running outside the tick.
+ * <p>
+ * The tick thread copies its state into the back buffer and swaps it with the front one by a single
+ * volatile write; readers pin the front buffer with {@link #acquire()} and read it without any lock.
+ * A buffer is only overwritten once no reader pins it: when a slow reader still holds the buffer that
+ * should be reused, a new one is allocated instead, so neither side ever waits for the other.
+ */
+public final class BodySnapshots {
+
+    private volatile Snapshot front = new Snapshot();
+    // Ancien front, réutilisé à la prochaine publication ; lu et écrit uniquement par le thread qui publie
+    private Snapshot back = new Snapshot();
+    private volatile long allocations;
+
+    /**
+     * Copies {@code bodies} and makes the copy visible to the readers. Must be called by one thread at a time.
+     */
+    public void publish(BodyStore bodies, long step) {
+        Snapshot target = back;
+        if (target.readers.get() != 0) {
+            target = new Snapshot();
+            allocations++;
+        }
+        target.bodies.clear();
+        target.bodies.addAll(bodies);
+        target.step = step;
+        target.modifications = bodies.modificationCount();
+        back = front;
+        front = target;
+    }
+
+    /**
+     * Pins the latest published snapshot; it stays unchanged until {@link Snapshot#close()}.
+     */
+    public Snapshot acquire() {
+        while (true) {
+            Snapshot snapshot = front;
+            snapshot.readers.incrementAndGet();
+            // Publié entre-temps : l'ancien front a pu être réutilisé avant qu'on l'ait épinglé
+            if (snapshot == front) {
+                return snapshot;
+            }
+            snapshot.readers.decrementAndGet();
+        }
+    }
+
+    /**
+     * Whether the latest snapshot already holds this state of the bodies (same step, no body added or removed).
+     */
+    boolean isCurrent(BodyStore bodies, long step) {
+        Snapshot snapshot = front;
+        return snapshot.step == step && snapshot.modifications == bodies.modificationCount();
+    }
+
+    /**
+     * Buffers allocated because a reader still held the one to reuse.
+     */
+    public long getAllocations() {
+        return allocations;
+    }
+
+    /**
+     * Immutable state of the bodies at the end of a step. The store must only be read, and only until
+     * {@link #close()}, which must be called exactly once.
+     */
+    public static final class Snapshot implements AutoCloseable {
+
+        private final BodyStore bodies = new BodyStore();
+        private final AtomicInteger readers = new AtomicInteger();
+        private long step = -1;
+        private long modifications = -1;
+
+        private Snapshot() {
+        }
+
+        public BodyStore bodies() {
+            return bodies;
+        }
+
+        public long step() {
+            return step;
+        }
+
+        @Override
+        public void close() {
+            readers.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package org.acme.simulation;
+
+import org.acme.core.BodyStore;
+import org.acme.core.SpatialGrid;
+import org.acme.simulation.integrator.Integrator;
+
+import java.util.Arrays;
+
+/**
+ * Merges the bodies that touch after a step, conserving mass and momentum: the body with the lower index
+ * absorbs the other one and moves to their centre of mass with their mean velocity. Pinned bodies
+ * ({@link Integrator#FIRST_MOVING_BODY}) only gain the mass, they stay where they are.
+ * <p>
+ * A body of mass {@code m} is a disc of radius {@code radiusScale * cbrt(m)}. The broad phase sorts the bodies
+ * into a {@link SpatialGrid} whose cells are as wide as the largest moving body, rebuilt every step, so each
+ * body only tests the bodies of the neighbouring cells (near O(n)). The grid stops one world size beyond the
+ * world ({@link #setWorldSize}): bodies ejected further share its border cells instead of stretching every
+ * cell until the whole galaxy fits in a few of them. Absorbed bodies are then removed in a
+ * single compaction pass that keeps the order of the others. Not thread-safe: one instance per simulation.
+ */
+public class CollisionMerger {
+
+    /**
+     * A body of {@link SimulationLogic#MASS_MAX} has a radius of half a world unit, i.e. one pixel wide.
+     */
+    public static final double DEFAULT_RADIUS_SCALE = 0.5 / Math.cbrt(SimulationLogic.MASS_MAX);
+
+    private final double radiusScale;
+    private final SpatialGrid grid = new SpatialGrid();
+    private boolean[] absorbed = new boolean[0];
+    private long mergedCount;
+    private double worldWidth = SimulationLogic.WIDTH;
+    private double worldHeight = SimulationLogic.HEIGHT;
+
+    public CollisionMerger() {
+        this(DEFAULT_RADIUS_SCALE);
+    }
+
+    public CollisionMerger(double radiusScale) {
+        if (!(radiusScale > 0) || Double.isInfinite(radiusScale)) {
+            throw new IllegalArgumentException("Radius scale must be a positive number");
+        }
+        this.radiusScale = radiusScale;
+    }
+
+    public double getRadiusScale() {
+        return radiusScale;
+    }
+
+    public double radius(double mass) {
+        return radiusScale * Math.cbrt(mass);
+    }
+
+    /**
+     * Size of the world, from (0, 0); the broad phase covers it with a margin of its own size on every side.
+     */
+    public void setWorldSize(double width, double height) {
+        if (!(width > 0) || !(height > 0) || Double.isInfinite(width) || Double.isInfinite(height)) {
+            throw new IllegalArgumentException("World size must be positive");
+        }
+        worldWidth = width;
+        worldHeight = height;
+    }
+
+    /**
+     * Number of bodies absorbed since creation.
+     */
+    public long getMergedCount() {
+        return mergedCount;
+    }
+
+    /**
+     * Merges the touching bodies and removes the absorbed ones.
+     * @return the number of bodies removed
+     */
+    public int merge(BodyStore bodies) {
+        int n = bodies.size();
+        if (n < 2) {
+            return 0;
+        }
+        double[] x = bodies.x();
+        double[] y = bodies.y();
+        double[] m = bodies.mass();
+        double maxRadius = 0;
+        for (int i = Integrator.FIRST_MOVING_BODY; i < n; i++) {
+            maxRadius = Math.max(maxRadius, radius(m[i]));
+        }
+        if (!(maxRadius > 0) || Double.isInfinite(maxRadius)) {
+            return 0;
+        }
+        // Cellules de la taille du plus gros corps mobile : deux corps en contact sont dans des cellules voisines
+        grid.build(bodies, 2 * maxRadius, -worldWidth, -worldHeight, 2 * worldWidth, 2 * worldHeight);
+        if (absorbed.length < n) {
+            absorbed = new boolean[bodies.capacity()];
+        } else {
+            Arrays.fill(absorbed, 0, n, false);
+        }
+
+        int merged = 0;
+        for (int i = 0; i < n; i++) {
+            if (absorbed[i]) {
+                continue;
+            }
+            // Les corps fixes (masse centrale) sont plus gros : ils parcourent plus de cellules
+            double reach = radius(m[i]) + maxRadius;
+            int firstColumn = grid.column(x[i] - reach);
+            int lastColumn = grid.column(x[i] + reach);
+            int lastRow = grid.row(y[i] + reach);
+            for (int row = grid.row(y[i] - reach); row <= lastRow; row++) {
+                for (int column = firstColumn; column <= lastColumn; column++) {
+                    int cell = row * grid.columns() + column;
+                    for (int k = grid.start(cell); k < grid.end(cell); k++) {
+                        int j = grid.body(k);
+                        // Chaque paire est testée une fois, depuis son plus petit indice
+                        if (j <= i || absorbed[j]) {
+                            continue;
+                        }
+                        double dx = x[j] - x[i];
+                        double dy = y[j] - y[i];
+                        double touch = radius(m[i]) + radius(m[j]);
+                        if (dx * dx + dy * dy < touch * touch) {
+                            absorb(bodies, i, j);
+                            absorbed[j] = true;
+                            merged++;
+                        }
+                    }
+                }
+            }
+        }
+        if (merged > 0) {
+            bodies.compact(absorbed);
+            mergedCount += merged;
+        }
+        return merged;
+    }
+
+    private static void absorb(BodyStore bodies, int i, int j) {
+        double[] m = bodies.mass();
+        double mass = m[i] + m[j];
+        if (i >= Integrator.FIRST_MOVING_BODY && mass > 0) {
+            double wi = m[i] / mass;
+            double wj = m[j] / mass;
+            bodies.x()[i] = wi * bodies.x()[i] + wj * bodies.x()[j];
+            bodies.y()[i] = wi * bodies.y()[i] + wj * bodies.y()[j];
+            bodies.vx()[i] = wi * bodies.vx()[i] + wj * bodies.vx()[j];
+            bodies.vy()[i] = wi * bodies.vy()[i] + wj * bodies.vy()[j];
+        }
+        m[i] = mass;
+    }
+}
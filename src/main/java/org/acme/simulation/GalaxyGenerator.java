@@ -0,0 +1,129 @@
+package org.acme.simulation;
+
+import org.acme.core.BodyStore;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Bulk generator of galaxies, writing straight into the arrays of a {@link BodyStore}.
+ * <p>
+ * Bodies are drawn in chunks of {@link #CHUNK_SIZE}, each with its own {@link SplittableRandom} split from
+ * the seed in chunk order, and the chunks are filled in parallel. The bodies therefore only depend on the seed,
+ * whatever the number of cores. The distribution is the one of {@link SimulationLogic#createOneBody()}: radius
+ * as the square root of a uniform number (uniform surface density), spiral arms, Keplerian velocities with
+ * dispersion and log-uniform masses.
+ */
+public final class GalaxyGenerator {
+
+    // Assez gros pour amortir la répartition des tâches, assez petit pour occuper tous les cœurs dès 10⁵ corps
+    public static final int CHUNK_SIZE = 16_384;
+
+    // Rayon du disque des corps ajoutés à une position donnée, en fraction du rayon de la galaxie
+    static final double CLUSTER_RADIUS = 0.05;
+
+    private GalaxyGenerator() {
+    }
+
+    /**
+     * New galaxy of {@code count} bodies: the central mass at index 0, then {@code count - 1} bodies.
+     */
+    public static BodyStore galaxy(SimulationParameters parameters, int count, long seed) {
+        BodyStore bodies = new BodyStore(count);
+        fill(bodies, count, parameters, seed);
+        return bodies;
+    }
+
+    /**
+     * Replaces the bodies of {@code bodies} by a new galaxy of {@code count} bodies, reusing its arrays.
+     */
+    public static void fill(BodyStore bodies, int count, SimulationParameters parameters, long seed) {
+        bodies.clear();
+        if (count > 0) {
+            bodies.add(parameters.width() / 2.0, parameters.height() / 2.0, 0, 0, parameters.centerMass());
+            generate(bodies, count - 1, parameters, seed);
+        }
+    }
+
+    /**
+     * Appends {@code count} bodies orbiting the centre of the world, growing the arrays at most once.
+     */
+    public static void generate(BodyStore bodies, int count, SimulationParameters parameters, long seed) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Count cannot be negative");
+        }
+        int first = bodies.size();
+        bodies.setSize(first + count);
+        int chunks = (count + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        // Découpage séquentiel : le générateur d'un morceau ne dépend que de la graine et de son rang
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] randoms = new SplittableRandom[chunks];
+        for (int k = 0; k < chunks; k++) {
+            randoms[k] = root.split();
+        }
+        IntStream range = IntStream.range(0, chunks);
+        (chunks > 1 ? range.parallel() : range).forEach(k -> fillChunk(bodies, parameters, randoms[k],
+                first + k * CHUNK_SIZE, first + Math.min(count, (k + 1) * CHUNK_SIZE)));
+    }
+
+    /**
+     * Appends {@code count} bodies spread over a small disk centred on ({@code x}, {@code y}), each on a
+     * circular orbit around the centre of the world with the usual dispersion and masses.
+     */
+    public static void generateAt(BodyStore bodies, int count, double x, double y, SimulationParameters parameters,
+                                  long seed) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Count cannot be negative");
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        double cx = parameters.width() / 2.0;
+        double cy = parameters.height() / 2.0;
+        double spread = CLUSTER_RADIUS * parameters.galaxyRadius();
+        double gm = SimulationLogic.G * parameters.centerMass();
+        double dispersion = parameters.velocityDispersion();
+        double logMassRatio = Math.log(parameters.massMax() / parameters.massMin());
+        for (int i = 0; i < count; i++) {
+            double r = spread * Math.sqrt(random.nextDouble());
+            double angle = random.nextDouble() * 2 * Math.PI;
+            double bx = x + r * Math.cos(angle);
+            double by = y + r * Math.sin(angle);
+            // Orbite circulaire autour de la masse centrale, comme les corps de la galaxie
+            double dx = bx - cx;
+            double dy = by - cy;
+            double distance = Math.hypot(dx, dy) + 1e-9;
+            double v = Math.sqrt(gm / distance) * (1.0 - dispersion + dispersion * 2 * random.nextDouble());
+            double mass = parameters.massMin() * Math.exp(logMassRatio * random.nextDouble());
+            bodies.add(bx, by, -v * dy / distance, v * dx / distance, mass);
+        }
+    }
+
+    private static void fillChunk(BodyStore bodies, SimulationParameters p, SplittableRandom random, int from, int to) {
+        double[] x = bodies.x();
+        double[] y = bodies.y();
+        double[] vx = bodies.vx();
+        double[] vy = bodies.vy();
+        double[] m = bodies.mass();
+        double cx = p.width() / 2.0;
+        double cy = p.height() / 2.0;
+        double radius = p.galaxyRadius();
+        double gm = SimulationLogic.G * p.centerMass();
+        double dispersion = p.velocityDispersion();
+        double logMassRatio = Math.log(p.massMax() / p.massMin());
+        for (int i = from; i < to; i++) {
+            double r = radius * Math.sqrt(random.nextDouble());
+            double angle = random.nextDouble() * 2 * Math.PI + SimulationLogic.SPIRAL_FACTOR * r;
+            double cos = Math.cos(angle);
+            double sin = Math.sin(angle);
+            double v = Math.sqrt(gm / (r + 1e-9)) * (1.0 - dispersion + dispersion * 2 * random.nextDouble());
+            x[i] = cx + r * cos;
+            y[i] = cy + r * sin;
+            vx[i] = -v * sin;
+            vy[i] = v * cos;
+            m[i] = p.massMin() * Math.exp(logMassRatio * random.nextDouble());
+        }
+        // Les accumulateurs de forces des nouveaux corps partent de zéro, comme avec add
+        Arrays.fill(bodies.fx(), from, to, 0.0);
+        Arrays.fill(bodies.fy(), from, to, 0.0);
+    }
+}
@@ -0,0 +1,16 @@
+package org.acme.simulation;
+
+import org.acme.protocol.PositionStreamEncoder;
+
+/**
+ * Receiver of the positions of a simulation, called from the tick of the simulation at the broadcast rate.
+ * Implementations must not block: the same thread runs the physics of the simulation.
+ */
+public interface PositionSubscriber {
+
+    /**
+     * @param stream the encoder of the simulation, positioned on the current tick; frames taken from it
+     *               are only valid until the next call unless they are retained
+     */
+    void onPositions(PositionStreamEncoder stream);
+}
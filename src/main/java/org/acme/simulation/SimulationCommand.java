@@ -0,0 +1,59 @@
+package org.acme.simulation;
+
+/**
+ * Structural edits of the bodies requested by clients. They are queued by {@link SimulationLogic#submit}
+ * and applied by the tick between two steps, so they never touch the bodies while a step reads them.
+ *
+ * @param type  whether bodies are added or deleted
+ * @param count number of bodies, 0 for 10 % of the configured body count
+ * @param x     centre of the added bodies, NaN to spread them over the galaxy
+ * @param y     centre of the added bodies, NaN to spread them over the galaxy
+ */
+public record SimulationCommand(Type type, int count, double x, double y) {
+
+    /**
+     * Ajoute 10 % du nombre de corps configuré ({@link SimulationParameters#bodyCount()}), dans la limite de
+     * 3 fois ce nombre
+     */
+    public static final SimulationCommand ADD_BODIES = new SimulationCommand(Type.ADD, 0, Double.NaN, Double.NaN);
+    /**
+     * Supprime 10 % du nombre de corps configuré ({@link SimulationParameters#bodyCount()}), choisis au hasard,
+     * la masse centrale exceptée
+     */
+    public static final SimulationCommand DELETE_BODIES = new SimulationCommand(Type.DELETE, 0, Double.NaN, Double.NaN);
+
+    public enum Type {
+        ADD,
+        DELETE
+    }
+
+    public SimulationCommand {
+        if (type == null) {
+            throw new IllegalArgumentException("Command type cannot be null");
+        }
+        if (count < 0) {
+            throw new IllegalArgumentException("Count cannot be negative");
+        }
+        if (Double.isNaN(x) != Double.isNaN(y) || Double.isInfinite(x) || Double.isInfinite(y)) {
+            throw new IllegalArgumentException("Position must be finite, or NaN on both axes");
+        }
+    }
+
+    /**
+     * Adds {@code count} bodies around ({@code x}, {@code y}), on orbits around the central mass.
+     */
+    public static SimulationCommand addAt(int count, double x, double y) {
+        return new SimulationCommand(Type.ADD, count, x, y);
+    }
+
+    /**
+     * Deletes {@code count} bodies chosen at random, the central mass excepted.
+     */
+    public static SimulationCommand delete(int count) {
+        return new SimulationCommand(Type.DELETE, count, Double.NaN, Double.NaN);
+    }
+
+    public boolean hasPosition() {
+        return !Double.isNaN(x);
+    }
+}
@@ -0,0 +1,78 @@
+package org.acme.simulation;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+import org.acme.simulation.force.ForceEngineType;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Initial parameters of every simulation, {@code nbody.simulation.*} in {@code application.properties}
+ * (e.g. {@code nbody.simulation.body-count=50000}). Defaults are the constants of {@link SimulationLogic}.
+ */
+@ConfigMapping(prefix = "nbody.simulation")
+public interface SimulationConfig {
+
+    @WithDefault("400")
+    int width();
+
+    @WithDefault("200")
+    int height();
+
+    @WithDefault("180")
+    int bodyCount();
+
+    @WithDefault("2e10")
+    double centerMass();
+
+    @WithDefault("1e5")
+    double massMin();
+
+    @WithDefault("5e6")
+    double massMax();
+
+    @WithDefault("0.2")
+    double velocityDispersion();
+
+    @WithDefault("0.1")
+    double timeStep();
+
+    @WithDefault("20")
+    double physicsRate();
+
+    @WithDefault("20")
+    double broadcastRate();
+
+    @WithDefault("vector")
+    ForceEngineType engine();
+
+    @WithDefault("0.5")
+    double theta();
+
+    @WithDefault("false")
+    boolean collisions();
+
+    /**
+     * Seed of the generated galaxies; random when absent.
+     */
+    Optional<Long> seed();
+
+    /**
+     * File whose bodies replace the generated galaxy of the default simulation, see
+     * {@link org.acme.persistence.InitialConditions}.
+     */
+    Optional<String> initialConditions();
+
+    /**
+     * Time after which a simulation other than the default one is removed when no client watches it.
+     */
+    @WithDefault("5m")
+    Duration idleTimeout();
+
+    default SimulationParameters toParameters() {
+        return new SimulationParameters(width(), height(), bodyCount(), centerMass(), massMin(), massMax(),
+                velocityDispersion(), timeStep(), physicsRate(), broadcastRate(), engine(), theta(), collisions(),
+                seed().orElse(null));
+    }
+}
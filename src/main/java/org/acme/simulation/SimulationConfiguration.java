@@ -0,0 +1,60 @@
+package org.acme.simulation;
+
+import io.quarkus.runtime.StartupEvent;
+import jakarta.annotation.Priority;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.interceptor.Interceptor;
+import org.acme.core.BodyStore;
+import org.acme.persistence.InitialConditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Applies the {@code nbody.simulation.*} parameters of {@link SimulationConfig} to every simulation at startup,
+ * sets the idle timeout of the named simulations, and loads the initial conditions of the default simulation
+ * when a file is configured.
+ * <p>
+ * Startup observers run in this order: parameters, initial conditions, then the restore of the checkpoints
+ * ({@link org.acme.persistence.PersistenceConfiguration}), so that neither the configuration nor the initial
+ * conditions replace a restored state.
+ */
+@ApplicationScoped
+public class SimulationConfiguration {
+
+    private static final Logger logger = LoggerFactory.getLogger(SimulationConfiguration.class);
+
+    public static final int PARAMETERS_PRIORITY = Interceptor.Priority.APPLICATION;
+    public static final int INITIAL_CONDITIONS_PRIORITY = PARAMETERS_PRIORITY + 10;
+    public static final int RESTORE_PRIORITY = INITIAL_CONDITIONS_PRIORITY + 10;
+
+    @Inject
+    SimulationConfig config;
+
+    void applyParameters(@Observes @Priority(PARAMETERS_PRIORITY) StartupEvent event) {
+        SimulationParameters parameters = config.toParameters();
+        SimulationEngine.getInstance().setDefaultParameters(parameters);
+        SimulationEngine.getInstance().setIdleTimeout(config.idleTimeout());
+        logger.info("Paramètres des simulations : {}", parameters);
+    }
+
+    void loadInitialConditions(@Observes @Priority(INITIAL_CONDITIONS_PRIORITY) StartupEvent event) {
+        config.initialConditions().ifPresent(this::loadInitialConditions);
+    }
+
+    private void loadInitialConditions(String file) {
+        long start = System.nanoTime();
+        try {
+            BodyStore bodies = InitialConditions.load(Path.of(file));
+            SimulationEngine.getInstance().getDefault().setBodies(bodies);
+            logger.info("{} corps chargés depuis {} en {} ms", bodies.size(), file,
+                    (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException | IllegalArgumentException e) {
+            logger.error("Chargement des conditions initiales {} impossible", file, e);
+        }
+    }
+}
@@ -0,0 +1,417 @@
+package org.acme.simulation;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Hosts many independent simulations in the same process, each identified by an id.
+ * <p>
+ * Simulations do not own a thread: their ticks are short tasks rescheduled on a pool of worker threads
+ * shared by all of them, so hundreds of small rooms fit on a few cores. A simulation without subscriber
+ * is parked (no scheduled task, no CPU) and resumes when a client subscribes to it. Simulations other than
+ * the default one are removed once nobody has watched them for the idle timeout.
+ */
+public class SimulationEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(SimulationEngine.class);
+
+    public static final String DEFAULT_SIMULATION = "default";
+    public static final int MAX_SIMULATIONS = 1000;
+    public static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(5);
+
+    private static final Pattern ID_PATTERN = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    private static SimulationEngine instance;
+
+    private final ScheduledThreadPoolExecutor workers;
+    // Pool des moteurs de forces parallèles, partagé : un pool par salle ferait n² threads
+    private final ForkJoinPool forcePool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    private final Map<String, SimulationLogic> simulations = new ConcurrentHashMap<>();
+
+    // Registre des métriques, null tant qu'elles sont désactivées
+    private volatile MeterRegistry meterRegistry;
+    private final List<Meter> meters = new ArrayList<>();
+
+    // Répertoire des checkpoints (un fichier par simulation), null quand ils sont désactivés
+    private volatile Path checkpointDirectory;
+    private volatile long checkpointIntervalNanos;
+
+    // Répertoire des enregistrements de trajectoires et une image enregistrée sur recordingInterval diffusions
+    private volatile Path recordingDirectory;
+    private volatile int recordingInterval;
+
+    // Paramètres des nouvelles simulations
+    private volatile SimulationParameters defaultParameters = SimulationParameters.DEFAULT;
+
+    // Délai sans client après lequel une salle est retirée, et la tâche qui les cherche
+    private volatile long idleTimeoutNanos;
+    private ScheduledFuture<?> idleSweep;
+
+    public SimulationEngine(int workerThreads) {
+        if (workerThreads < 1) {
+            throw new IllegalArgumentException("At least one worker thread is required");
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "SimulationWorker-" + threadCount.incrementAndGet());
+            thread.setDaemon(true); // Empêche les threads de bloquer l'arrêt de l'application
+            return thread;
+        };
+        workers = new ScheduledThreadPoolExecutor(workerThreads, threadFactory);
+        workers.setRemoveOnCancelPolicy(true);
+        setIdleTimeout(DEFAULT_IDLE_TIMEOUT);
+    }
+
+    public static synchronized SimulationEngine getInstance() {
+        if (instance == null) {
+            instance = new SimulationEngine(Runtime.getRuntime().availableProcessors());
+        }
+        return instance;
+    }
+
+    /**
+     * Simulation used by clients that do not choose one
+     */
+    public SimulationLogic getDefault() {
+        return getOrCreate(DEFAULT_SIMULATION);
+    }
+
+    /**
+     * Returns the simulation with this id, creating and starting it if needed; a new simulation stays
+     * parked until its first subscriber. Creating a simulation generates its galaxy and restores its
+     * checkpoint, which can take seconds for large ones: call this method off the event loop.
+     */
+    public SimulationLogic getOrCreate(String id) {
+        SimulationLogic simulation = simulations.get(id);
+        if (simulation != null) {
+            return simulation;
+        }
+        if (id == null || !ID_PATTERN.matcher(id).matches()) {
+            throw new IllegalArgumentException("Invalid simulation id: " + id);
+        }
+        return create(id);
+    }
+
+    /**
+     * Crée la simulation hors de la table, publiée une fois restaurée : les lectures de la table ne
+     * l'attendent pas. Le verrou du moteur sérialise les créations avec l'activation des checkpoints,
+     * des enregistrements et des métriques, qu'aucune nouvelle simulation ne manque
+     */
+    private synchronized SimulationLogic create(String id) {
+        SimulationLogic existing = simulations.get(id);
+        if (existing != null) {
+            return existing;
+        }
+        if (simulations.size() >= MAX_SIMULATIONS) {
+            throw new IllegalArgumentException("Too many simulations");
+        }
+        logger.info("Création de la simulation {}", id);
+        SimulationLogic created = new SimulationLogic(id, workers, forcePool, defaultParameters);
+        MeterRegistry registry = meterRegistry;
+        if (registry != null) {
+            created.setMeterRegistry(registry);
+        }
+        Path directory = checkpointDirectory;
+        if (directory != null) {
+            created.enableCheckpoints(checkpointFile(directory, id), checkpointIntervalNanos);
+        }
+        startRecording(created);
+        created.startSimulation();
+        simulations.put(id, created);
+        return created;
+    }
+
+    /**
+     * Returns the simulation with this id, or null if it does not exist.
+     */
+    public SimulationLogic get(String id) {
+        return id == null ? null : simulations.get(id);
+    }
+
+    /**
+     * Stops and forgets a simulation; the default simulation cannot be removed.
+     */
+    public boolean remove(String id) {
+        if (DEFAULT_SIMULATION.equals(id)) {
+            throw new IllegalArgumentException("The default simulation cannot be removed");
+        }
+        SimulationLogic simulation = id == null ? null : simulations.remove(id);
+        if (simulation == null) {
+            return false;
+        }
+        close(simulation);
+        return true;
+    }
+
+    /**
+     * Removes the simulations other than the default one once nobody has watched them for {@code timeout};
+     * a recording does not count as a viewer. A client subscribed to a simulation still returned by
+     * {@link #get} keeps it: when {@code get} no longer returns the simulation just subscribed to, it was
+     * removed in between and the client must subscribe to a new one.
+     */
+    public synchronized void setIdleTimeout(Duration timeout) {
+        if (timeout == null || timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("Idle timeout must be positive");
+        }
+        idleTimeoutNanos = timeout.toNanos();
+        if (idleSweep != null) {
+            idleSweep.cancel(false);
+        }
+        // Une salle abandonnée est retirée entre 1 et 1,25 fois le délai
+        long period = Math.max(1, idleTimeoutNanos / 4);
+        idleSweep = workers.scheduleWithFixedDelay(this::removeIdleSimulations, period, period, TimeUnit.NANOSECONDS);
+    }
+
+    public Duration getIdleTimeout() {
+        return Duration.ofNanos(idleTimeoutNanos);
+    }
+
+    private void removeIdleSimulations() {
+        long now = System.nanoTime();
+        for (SimulationLogic simulation : simulations.values()) {
+            if (DEFAULT_SIMULATION.equals(simulation.getId())) {
+                continue;
+            }
+            boolean removed;
+            // Verrou de la simulation : aucun client ne s'abonne entre le test et le retrait
+            synchronized (simulation) {
+                removed = simulation.getIdleNanos(now) >= idleTimeoutNanos
+                        && simulations.remove(simulation.getId(), simulation);
+            }
+            if (removed) {
+                logger.info("Simulation {} retirée faute de client", simulation.getId());
+                try {
+                    close(simulation);
+                } catch (RuntimeException e) {
+                    // Une exception arrêterait la tâche périodique
+                    logger.error("Fermeture de la simulation {} incorrecte", simulation.getId(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Arrête une simulation retirée, après un dernier checkpoint pour la reprendre si elle est recréée
+     */
+    private void close(SimulationLogic simulation) {
+        simulation.stopSimulation();
+        try {
+            simulation.checkpoint();
+        } catch (IOException e) {
+            logger.error("Checkpoint de la simulation {} impossible: {}", simulation.getId(), e.getMessage());
+        }
+        simulation.disableCheckpoints();
+        simulation.setMeterRegistry(null);
+        stopRecording(simulation);
+        simulation.closeForceEngine();
+    }
+
+    /**
+     * Records every simulation, current and future, into a new trajectory file of {@code directory}, keeping
+     * one broadcast frame out of {@code every}. Files are named {@code <simulation>-<start time in ms>.trajectory}.
+     */
+    public synchronized void enableRecording(Path directory, int every) throws IOException {
+        if (every < 1) {
+            throw new IllegalArgumentException("Recording interval must be at least 1");
+        }
+        Files.createDirectories(directory);
+        recordingInterval = every;
+        recordingDirectory = directory;
+        simulations.values().forEach(this::startRecording);
+    }
+
+    /**
+     * Stops every recording, waiting for the last frames to be written.
+     */
+    public synchronized void disableRecording() {
+        recordingDirectory = null;
+        simulations.values().forEach(SimulationEngine::stopRecording);
+    }
+
+    /**
+     * Enables or disables the merging of colliding bodies in every simulation, current and future.
+     */
+    public synchronized void setCollisionsEnabled(boolean enabled) {
+        SimulationParameters p = defaultParameters;
+        defaultParameters = new SimulationParameters(p.width(), p.height(), p.bodyCount(), p.centerMass(),
+                p.massMin(), p.massMax(), p.velocityDispersion(), p.timeStep(), p.physicsRate(), p.broadcastRate(),
+                p.engine(), p.theta(), enabled, p.seed());
+        simulations.values().forEach(simulation -> simulation.setCollisionsEnabled(enabled));
+    }
+
+    public boolean isCollisionsEnabled() {
+        return defaultParameters.collisions();
+    }
+
+    /**
+     * Parameters of the simulations created from now on, also applied to the existing ones at their next tick,
+     * except their body count and seed: their bodies (generated, loaded or restored) are kept.
+     */
+    public synchronized void setDefaultParameters(SimulationParameters parameters) {
+        if (parameters == null) {
+            throw new IllegalArgumentException("Parameters cannot be null");
+        }
+        defaultParameters = parameters;
+        for (SimulationLogic simulation : simulations.values()) {
+            SimulationParameters current = simulation.getParameters();
+            simulation.setParameters(parameters.withBodyCount(current.bodyCount()).withSeed(current.seed()));
+        }
+    }
+
+    public SimulationParameters getDefaultParameters() {
+        return defaultParameters;
+    }
+
+    public Path getRecordingDirectory() {
+        return recordingDirectory;
+    }
+
+    private void startRecording(SimulationLogic simulation) {
+        Path directory = recordingDirectory;
+        if (directory == null) {
+            return;
+        }
+        Path file = directory.resolve(simulation.getId() + "-" + System.currentTimeMillis() + ".trajectory");
+        try {
+            simulation.startRecording(file, recordingInterval);
+        } catch (IOException e) {
+            logger.error("Enregistrement de la simulation {} impossible: {}", simulation.getId(), e.getMessage());
+        }
+    }
+
+    private static void stopRecording(SimulationLogic simulation) {
+        try {
+            simulation.stopRecording();
+        } catch (IOException e) {
+            logger.error("Fin d'enregistrement de la simulation {} incorrecte: {}", simulation.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Publishes the metrics of the engine and of every simulation, current and future, in {@code registry};
+     * {@code null} turns them off. Without registry the tick loops only pay a branch per measured phase.
+     */
+    public synchronized void setMeterRegistry(MeterRegistry registry) {
+        MeterRegistry previous = meterRegistry;
+        if (previous != null) {
+            meters.forEach(previous::remove);
+            meters.clear();
+        }
+        meterRegistry = registry;
+        if (registry != null) {
+            meters.add(Gauge.builder("nbody.simulations", simulations, Map::size)
+                    .description("Hosted simulations").register(registry));
+            meters.add(Gauge.builder("nbody.simulations.parked", this, SimulationEngine::getParkedCount)
+                    .description("Simulations without subscriber, not using any thread").register(registry));
+            meters.add(Gauge.builder("nbody.workers.queue", workers, pool -> pool.getQueue().size())
+                    .description("Ticks scheduled on the shared worker pool").register(registry));
+        }
+        simulations.values().forEach(simulation -> simulation.setMeterRegistry(registry));
+    }
+
+    /**
+     * Checkpoints every simulation, current and future, into {@code directory} every {@code interval},
+     * restoring first the simulations whose checkpoint is more advanced than their current state.
+     */
+    public synchronized void enableCheckpoints(Path directory, Duration interval) throws IOException {
+        if (interval == null || interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("Checkpoint interval must be positive");
+        }
+        Files.createDirectories(directory);
+        checkpointIntervalNanos = interval.toNanos();
+        checkpointDirectory = directory;
+        for (SimulationLogic simulation : simulations.values()) {
+            simulation.enableCheckpoints(checkpointFile(directory, simulation.getId()), checkpointIntervalNanos);
+        }
+        logger.info("Checkpoints dans {} toutes les {} s", directory, interval.toSeconds());
+    }
+
+    public synchronized void disableCheckpoints() {
+        checkpointDirectory = null;
+        simulations.values().forEach(SimulationLogic::disableCheckpoints);
+    }
+
+    /**
+     * Writes a checkpoint of every simulation now and waits until they are on disk.
+     */
+    public void checkpointAll() {
+        for (SimulationLogic simulation : simulations.values()) {
+            try {
+                simulation.checkpoint();
+            } catch (IOException e) {
+                logger.error("Checkpoint de la simulation {} impossible: {}", simulation.getId(), e.getMessage());
+            }
+        }
+    }
+
+    public Path getCheckpointDirectory() {
+        return checkpointDirectory;
+    }
+
+    private static Path checkpointFile(Path directory, String id) {
+        // L'identifiant est déjà restreint à [A-Za-z0-9_-] : pas de traversée de répertoire possible
+        return directory.resolve(id + ".checkpoint");
+    }
+
+    public MeterRegistry getMeterRegistry() {
+        return meterRegistry;
+    }
+
+    private int getParkedCount() {
+        int parked = 0;
+        for (SimulationLogic simulation : simulations.values()) {
+            if (simulation.isParked()) {
+                parked++;
+            }
+        }
+        return parked;
+    }
+
+    public Collection<String> getSimulationIds() {
+        return Collections.unmodifiableSet(simulations.keySet());
+    }
+
+    public int getSimulationCount() {
+        return simulations.size();
+    }
+
+    public int getWorkerCount() {
+        return workers.getCorePoolSize();
+    }
+
+    /**
+     * Stops every simulation, its force engine and the worker threads.
+     */
+    public void shutdown() {
+        setMeterRegistry(null);
+        disableRecording();
+        for (SimulationLogic simulation : simulations.values()) {
+            simulation.stopSimulation();
+            simulation.closeForceEngine();
+        }
+        simulations.clear();
+        workers.shutdownNow();
+        forcePool.shutdownNow();
+    }
+}
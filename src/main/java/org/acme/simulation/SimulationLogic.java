@@ -1,18 +1,48 @@
 package org.acme.simulation;
 
 import org.acme.core.Body;
-import jakarta.inject.Singleton;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.acme.core.BodyStore;
+import org.acme.metrics.PhaseTimer;
+import org.acme.persistence.Checkpoint;
+import org.acme.persistence.CheckpointFile;
+import org.acme.persistence.CheckpointWriter;
+import org.acme.persistence.TrajectoryWriter;
+import org.acme.protocol.FrameBuffer;
+import org.acme.protocol.LegacyPositionEncoder;
+import org.acme.protocol.PositionStreamEncoder;
+import org.acme.simulation.force.ForceEngine;
+import org.acme.simulation.force.BarnesHutForceEngine;
+import org.acme.simulation.force.ForceEngineType;
+import org.acme.simulation.force.FmmForceEngine;
+import org.acme.simulation.integrator.Integrator;
+import org.acme.simulation.integrator.LeapfrogIntegrator;
+import org.acme.simulation.integrator.SemiImplicitEulerIntegrator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Queue;
 import java.util.Random;
-import org.acme.websocket.GridWebSocket;
-
-@Singleton
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Une simulation indépendante (une "salle") : ses corps, sa boucle de ticks et ses abonnés.
+ * Les instances sont créées et hébergées par {@link SimulationEngine}.
+ */
 public class SimulationLogic {
 
+    // Valeurs par défaut : chaque simulation a ses SimulationParameters (nbody.simulation.* dans application.properties)
+
     // Dimensions de la grille
     public static final int WIDTH = 400;
     public static final int HEIGHT = 200;
@@ -35,290 +65,888 @@ public class SimulationLogic {
     public static final double MASS_MIN = 1e5;  // Masse minimale des corps
     public static final double MASS_MAX = 5e6;  // Masse maximale des corps
 
-    private static final Random RAND = new Random();
+    // Cadence de la boucle : physique à pas fixe, diffusion indépendante
+    public static final double PHYSICS_RATE_HZ = 20;   // Même rythme que l'ancienne boucle (pause de 50 ms)
+    public static final double BROADCAST_RATE_HZ = 20;
+    public static final int MAX_CATCH_UP_STEPS = 5;    // Pas rattrapés au plus par tick avant de décrocher
+
 
     private static final Logger logger = LoggerFactory.getLogger(SimulationLogic.class);
 
-    private Thread simulationThread;
+    // Identifiant de la simulation dans le moteur, et pools de threads partagés entre toutes les simulations
+    private final String id;
+    private final ScheduledExecutorService workers;
+    private final ForkJoinPool forcePool;
+
+    // Tâche du prochain tick, null quand la simulation est arrêtée ou en veille (aucun abonné)
+    private ScheduledFuture<?> tickTask;
+    // Incrémenté à chaque démarrage/arrêt : un tick d'une génération précédente ne se replanifie pas
+    private long generation;
+    private final Object tickLock = new Object();
+
+    private final TickScheduler tickScheduler;
+
+    // Générateur des corps ajoutés, propre à la simulation pour que sa suite soit reprise après un checkpoint
+    private final Random random = new Random();
+    // Pas simulés depuis la création de la galaxie, y compris avant le dernier checkpoint restauré
+    private volatile long stepCount;
+
+    // Checkpoints périodiques, null quand ils sont désactivés
+    private volatile CheckpointWriter checkpointWriter;
+
+    // Enregistrement de la trajectoire en cours, null sinon
+    private TrajectoryRecorder recorder;
+
+    // Encodeurs des flux de positions, utilisés uniquement par le thread qui exécute le tick
+    private final PositionStreamEncoder positionStream = new PositionStreamEncoder();
+
+    // Clients qui reçoivent les positions de cette simulation
+    private final Set<PositionSubscriber> subscribers = ConcurrentHashMap.newKeySet();
+    // Départ du dernier client (System.nanoTime()) : une salle abandonnée est retirée par le moteur
+    private long idleSince = System.nanoTime();
     
     // Utiliser volatile pour garantir la visibilité entre les threads
     private volatile boolean running = false;
 
-    private final List<Body> bodies;
+    // Stockage en tableaux primitifs (structure of arrays) utilisé par la boucle de simulation
+    private final BodyStore bodies;
+    // Copie publiée à la fin des pas : les lecteurs hors du tick (REST, encodeurs) n'y voient jamais un pas à moitié fait
+    private final BodySnapshots snapshots = new BodySnapshots();
+
+    // Moteur de calcul des forces, choisi par simulation (O(n²) exact par défaut, vectoriel si la JVM le permet)
+    private volatile ForceEngine forceEngine;
+    // Moteur créé à partir des paramètres, fermé quand un changement de paramètres le remplace
+    private ForceEngine ownedForceEngine;
+
+    // Schéma d'intégration et pas de temps, choisis par simulation (leapfrog : même coût qu'Euler, énergie stable)
+    private volatile Integrator integrator = new LeapfrogIntegrator();
+    private volatile double timeStep;
+
+    // Paramètres appliqués, et derniers paramètres demandés en attente du prochain tick (null si aucun)
+    private volatile SimulationParameters parameters;
+    private volatile SimulationParameters pendingParameters;
+
+    // Mesures des phases du tick, inactives (coût d'une branche) tant que les métriques sont désactivées
+    private volatile SimulationMetrics metrics = SimulationMetrics.DISABLED;
+    // Moteur réellement utilisé par les pas : forceEngine, chronométré quand les métriques sont actives
+    private volatile ForceEngine stepForceEngine;
 
-    //functions to delete 10% of the bodies randomly
+    // Fusion des corps en contact après chaque pas, null quand les collisions sont désactivées
+    private volatile CollisionMerger collisions;
+    private volatile long mergedBodies;
+
+    // Modifications des corps demandées par les clients (threads I/O), appliquées par le tick entre deux pas
+    private final Queue<SimulationCommand> commands = new ConcurrentLinkedQueue<>();
+
+    // Modifications mises en file, appliquées entre deux ticks
     public void deleteBodies() {
-        logger.info("Deleting bodies");
-        int toDelete = BODY_COUNT / 10;
-        if (bodies.size() <= toDelete) {
-            logger.info("there is not enough bodies to delete");
+        submit(SimulationCommand.DELETE_BODIES);
+    }
+    public void addBodies() {
+        submit(SimulationCommand.ADD_BODIES);
+    }
+
+    /**
+     * Ajoute {@code count} corps autour de ({@code x}, {@code y}), en orbite autour de la masse centrale
+     */
+    public void addBodies(int count, double x, double y) {
+        submit(SimulationCommand.addAt(count, x, y));
+    }
+
+    public void deleteBodies(int count) {
+        submit(SimulationCommand.delete(count));
+    }
+
+    /**
+     * Met une modification en file sans toucher aux corps ; elle est appliquée au prochain tick,
+     * ou tout de suite si la simulation ne tourne pas (arrêtée ou en veille)
+     */
+    public void submit(SimulationCommand command) {
+        if (command == null) {
+            throw new IllegalArgumentException("Command cannot be null");
+        }
+        commands.add(command);
+        if (!isTicking()) {
+            synchronized (tickLock) {
+                applyCommands();
+                publishSnapshot();
+            }
+        }
+    }
+
+    /**
+     * Applique toutes les commandes en attente en une passe : les suppressions consécutives retirent
+     * leurs corps par échange avec le dernier (O(k)), les ajouts consécutifs sont insérés en bloc
+     * (sauf ceux placés à une position donnée). Appelé sous tickLock.
+     */
+    private void applyCommands() {
+        SimulationCommand command = commands.poll();
+        if (command == null) {
             return;
-        } else {
-            int deletedCount = 0;
-            while (deletedCount < toDelete) {
-                int index = RAND.nextInt(bodies.size());
-                if (index != 0) {
-                    bodies.remove(index);
-                    deletedCount++;
+        }
+        int toAdd = 0;
+        int toDelete = 0;
+        int before = bodies.size();
+        int bodyCount = parameters.bodyCount();
+        int limit = bodyCount / 10;
+        do {
+            int count = command.count() == 0 ? limit : command.count();
+            if (command.type() == SimulationCommand.Type.ADD) {
+                if (toDelete > 0) {
+                    removeRandomBodies(toDelete);
+                    toDelete = 0;
+                }
+                if (bodies.size() + toAdd >= 3 * bodyCount) {
+                    logger.info("there is too much bodies to add");
+                } else if (command.hasPosition()) {
+                    insertBodies(toAdd);
+                    toAdd = 0;
+                    insertBodiesAt(Math.min(count, 3 * bodyCount - bodies.size()), command.x(), command.y());
+                } else {
+                    toAdd += Math.min(count, 3 * bodyCount - bodies.size() - toAdd);
+                }
+            } else {
+                if (toAdd > 0) {
+                    insertBodies(toAdd);
+                    toAdd = 0;
+                }
+                if (bodies.size() - toDelete <= limit) {
+                    logger.info("there is not enough bodies to delete");
+                } else {
+                    toDelete += Math.min(count, bodies.size() - toDelete - 1);
                 }
             }
+            command = commands.poll();
+        } while (command != null);
+        removeRandomBodies(toDelete);
+        insertBodies(toAdd);
+        if (bodies.size() != before) {
+            logger.info("there is now {} bodies after edits", bodies.size());
         }
-        logger.info("there is now {} bodies after delete", bodies.size());
     }
-    //same to add 10% of the bodies randomly
-    public void addBodies() {
-        logger.info("Adding bodies");
-        int toAdd = BODY_COUNT / 10;
-        if(bodies.size() >= 3 * BODY_COUNT) {
-            logger.info("there is too much bodies to add");
+
+    /**
+     * Supprime {@code count} corps tirés au hasard, la masse centrale (indice 0) exceptée
+     */
+    private void removeRandomBodies(int count) {
+        for (int i = 0; i < count && bodies.size() > 1; i++) {
+            bodies.swapRemove(1 + random.nextInt(bodies.size() - 1));
+        }
+    }
+
+    private void insertBodies(int count) {
+        if (count == 0) {
             return;
         }
-        for (int i = 0; i < toAdd; i++) {
-            bodies.add(createOneBody());
+        // Une graine tirée du générateur de la simulation : les ajouts restent reproductibles après un checkpoint
+        GalaxyGenerator.generate(bodies, count, parameters, random.nextLong());
+    }
+
+    private void insertBodiesAt(int count, double x, double y) {
+        GalaxyGenerator.generateAt(bodies, count, x, y, parameters, random.nextLong());
+    }
+
+    /**
+     * Nombre de commandes en attente d'application
+     */
+    public int getPendingCommandCount() {
+        return commands.size();
+    }
+
+
+    /**
+     * Crée une simulation arrêtée ; ses ticks seront exécutés sur le pool partagé {@code workers}, et les
+     * moteurs de forces parallèles sur {@code forcePool}
+     */
+    SimulationLogic(String id, ScheduledExecutorService workers, ForkJoinPool forcePool) {
+        this(id, workers, forcePool, SimulationParameters.DEFAULT);
+    }
+
+    SimulationLogic(String id, ScheduledExecutorService workers, ForkJoinPool forcePool,
+            SimulationParameters parameters) {
+        this.id = id;
+        this.workers = workers;
+        this.forcePool = forcePool;
+        this.parameters = parameters;
+        timeStep = parameters.timeStep();
+        positionStream.setWorldSize(parameters.width(), parameters.height());
+        forceEngine = parameters.engine().create(parameters.theta(), forcePool);
+        ownedForceEngine = forceEngine;
+        stepForceEngine = forceEngine;
+        if (parameters.seed() != null) {
+            random.setSeed(parameters.seed());
+        }
+        bodies = GalaxyGenerator.galaxy(parameters, parameters.bodyCount(), random.nextLong());
+        tickScheduler = new TickScheduler(this::step, this::broadcastPositions,
+                parameters.physicsRate(), parameters.broadcastRate(), MAX_CATCH_UP_STEPS);
+        setCollisionsEnabled(parameters.collisions());
+        snapshots.publish(bodies, stepCount);
+    }
+
+    /**
+     * Paramètres courants ; le pas de temps, les cadences, le moteur et les collisions changés directement
+     * (setTimeStep, ...) y sont reportés
+     */
+    public SimulationParameters getParameters() {
+        SimulationParameters p = parameters;
+        ForceEngineType engine = ForceEngineType.of(forceEngine);
+        double theta = switch (forceEngine) {
+            case BarnesHutForceEngine barnesHut -> barnesHut.getTheta();
+            case FmmForceEngine fmm -> fmm.getTheta();
+            default -> p.theta();
+        };
+        return new SimulationParameters(p.width(), p.height(), p.bodyCount(), p.centerMass(), p.massMin(),
+                p.massMax(), p.velocityDispersion(), timeStep, tickScheduler.getPhysicsRate(),
+                tickScheduler.getBroadcastRate(), engine == null ? p.engine() : engine, theta, isCollisionsEnabled(),
+                p.seed());
+    }
+
+    /**
+     * Demande un changement de paramètres, appliqué au prochain tick (tout de suite si la simulation ne tourne
+     * pas) ; si plusieurs changements arrivent entre deux ticks, seul le dernier est appliqué
+     */
+    public void setParameters(SimulationParameters parameters) {
+        if (parameters == null) {
+            throw new IllegalArgumentException("Parameters cannot be null");
+        }
+        pendingParameters = parameters;
+        if (!isTicking()) {
+            synchronized (tickLock) {
+                applyPendingParameters();
+                publishSnapshot();
+            }
         }
-        logger.info("there is now {} bodies after add", bodies.size());
     }
 
+    /**
+     * Appelé sous tickLock, entre deux pas
+     */
+    private void applyPendingParameters() {
+        SimulationParameters next = pendingParameters;
+        if (next == null) {
+            return;
+        }
+        pendingParameters = null;
+        SimulationParameters previous = getParameters();
+        parameters = next;
+        timeStep = next.timeStep();
+        positionStream.setWorldSize(next.width(), next.height());
+        tickScheduler.setPhysicsRate(next.physicsRate());
+        tickScheduler.setBroadcastRate(next.broadcastRate());
+        if (next.engine() != ForceEngineType.of(forceEngine)
+                || (next.engine().usesTheta() && next.theta() != previous.theta())) {
+            replaceForceEngine(next.engine().create(next.theta(), forcePool));
+        }
+        setCollisionsEnabled(next.collisions());
+        CollisionMerger merger = collisions;
+        if (merger != null) {
+            merger.setWorldSize(next.width(), next.height());
+        }
+        if (next.seed() != null && !next.seed().equals(previous.seed())) {
+            // Nouvelle graine : la galaxie est recréée, identique pour les mêmes paramètres
+            random.setSeed(next.seed());
+            GalaxyGenerator.fill(bodies, next.bodyCount(), next, random.nextLong());
+            stepCount = 0;
+        } else if (next.bodyCount() != previous.bodyCount()) {
+            // Le corps 0 (masse centrale) n'est jamais retiré
+            int size = bodies.size();
+            if (next.bodyCount() > size) {
+                insertBodies(next.bodyCount() - size);
+            } else {
+                removeRandomBodies(size - next.bodyCount());
+            }
+        }
+        logger.info("Simulation {} : nouveaux paramètres {}", id, next);
+    }
 
-    private static SimulationLogic instance;
+    private void replaceForceEngine(ForceEngine engine) {
+        ForceEngine previous = ownedForceEngine;
+        setForceEngine(engine);
+        ownedForceEngine = engine;
+        closeForceEngine(previous);
+    }
 
-    private SimulationLogic() {
-        bodies = createBodies(BODY_COUNT);
-        // Initialiser le thread sans le démarrer
-        simulationThread = new Thread(this::runSimulationThread, "SimulationThread");
-        simulationThread.setDaemon(true); // Empêche le thread de bloquer l'arrêt de l'application
+    /**
+     * Ferme le moteur de forces créé par la simulation, une fois celle-ci retirée du moteur
+     */
+    void closeForceEngine() {
+        synchronized (tickLock) {
+            closeForceEngine(ownedForceEngine);
+        }
     }
 
-    public static synchronized SimulationLogic getInstance() {
-        if (instance == null) {
-            instance = new SimulationLogic();
+    private static void closeForceEngine(ForceEngine engine) {
+        if (engine instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                logger.warn("Fermeture du moteur de forces {} impossible", engine, e);
+            }
         }
-        return instance;
     }
 
+    /**
+     * Simulation par défaut du moteur, celle de l'endpoint /websocket
+     */
+    public static SimulationLogic getInstance() {
+        return SimulationEngine.getInstance().getDefault();
+    }
 
+    public String getId() {
+        return id;
+    }
 
     /**
-     * Méthode à exécuter en continu dans le thread org.acme.simulation
+     * Exécute les pas et la diffusion dus, puis replanifie le tick suivant sur le pool partagé.
+     * La simulation se met en veille (plus de tâche planifiée) dès qu'elle n'a plus d'abonné.
      */
-   private void runSimulationThread() {
-    try {
-        while (running && !Thread.currentThread().isInterrupted()) {
+    private void tick(long tickGeneration) {
+        long nextDeadline;
+        synchronized (tickLock) {
+            PhaseTimer timer = metrics.tick();
+            long start = timer.start();
             try {
-                simulateOneStep();
+                applyPendingParameters();
+                applyCommands();
+                nextDeadline = tickScheduler.advance(System.nanoTime());
+                CheckpointWriter writer = checkpointWriter;
+                if (writer != null && writer.isDue(System.nanoTime())) {
+                    offerCheckpoint(writer);
+                }
+                publishSnapshot();
+            } catch (RuntimeException e) {
+                logger.error("Erreur dans le tick de la simulation {}", id, e);
+                nextDeadline = System.nanoTime();
+            }
+            timer.stop(start);
+        }
+        synchronized (this) {
+            if (tickGeneration == generation) {
+                if (running && !subscribers.isEmpty()) {
+                    tickTask = workers.schedule(() -> tick(tickGeneration),
+                            Math.max(0, nextDeadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    return;
+                }
+                tickTask = null;
+                logger.info("Simulation {} en veille", id);
+            }
+        }
+        // Dernier tick avant la veille ou l'arrêt : une commande arrivée pendant ce tick ne serait sinon
+        // appliquée qu'à la reprise
+        synchronized (tickLock) {
+            applyPendingParameters();
+            applyCommands();
+            publishSnapshot();
+        }
+    }
 
-                // Envoyer les positions des corps au lieu de la grille
-                byte[] positionsBinary = getBodyPositionsBinary();
-                GridWebSocket.broadcastBinary(positionsBinary);
+    /**
+     * Vrai tant qu'un tick est planifié ou en cours : c'est lui qui appliquera les commandes
+     */
+    private synchronized boolean isTicking() {
+        return tickTask != null;
+    }
 
-                // Ajouter un petit délai pour éviter une utilisation excessive du CPU
-                Thread.sleep(50);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
+    /**
+     * Planifie le premier tick si la simulation tourne, a des abonnés et n'est pas déjà planifiée
+     */
+    private synchronized void resume() {
+        if (running && tickTask == null && !subscribers.isEmpty()) {
+            long tickGeneration = ++generation;
+            // Repartir d'une nouvelle échéance : pas de rattrapage du temps passé en veille
+            tickScheduler.reset();
+            tickTask = workers.schedule(() -> tick(tickGeneration), 0, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Abonne un client aux positions ; une simulation en veille reprend au premier abonné
+     */
+    public synchronized void addSubscriber(PositionSubscriber subscriber) {
+        subscribers.add(subscriber);
+        resume();
+    }
+
+    public synchronized void removeSubscriber(PositionSubscriber subscriber) {
+        if (subscribers.remove(subscriber) && !hasClients()) {
+            idleSince = System.nanoTime();
+        }
+    }
+
+    /**
+     * Temps écoulé à {@code now} depuis le départ du dernier client, 0 tant qu'un client regarde la simulation
+     */
+    synchronized long getIdleNanos(long now) {
+        return hasClients() ? 0 : now - idleSince;
+    }
+
+    /**
+     * Appelé en tenant le verrou de la simulation ; l'enregistreur ne compte pas comme un client
+     */
+    private boolean hasClients() {
+        return subscribers.size() > (recorder == null ? 0 : 1);
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * Envoie les positions des corps aux clients, à la cadence de diffusion
+     */
+    private void broadcastPositions() {
+        PhaseTimer timer = metrics.broadcast();
+        long start = timer.start();
+        publishSnapshot();
+        try (BodySnapshots.Snapshot snapshot = snapshots.acquire()) {
+            positionStream.beginTick(snapshot.bodies());
+            for (PositionSubscriber subscriber : subscribers) {
+                try {
+                    subscriber.onPositions(positionStream);
+                } catch (RuntimeException e) {
+                    logger.error("Erreur lors de la diffusion de la simulation {}: {}", id, e.getMessage());
+                }
             }
         }
-    } finally {
-        logger.info("Simulation thread stopped");
+        timer.stop(start);
     }
-}
+
+    public TickScheduler getTickScheduler() {
+        return tickScheduler;
+    }
+
+    public SimulationMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Enregistre les mesures de la simulation dans {@code registry}, ou les retire quand il est null
+     */
+    synchronized void setMeterRegistry(MeterRegistry registry) {
+        metrics.remove();
+        metrics = registry == null ? SimulationMetrics.DISABLED : SimulationMetrics.register(registry, this);
+        positionStream.setEncodeTimer(metrics.encode());
+        updateStepForceEngine();
+    }
+
     /**
-     * Démarre le thread de org.acme.simulation
+     * Démarre la org.acme.simulation ; sans abonné elle reste en veille jusqu'à l'arrivée d'un client
      */
     public synchronized void startSimulation() {
         if (!running) {
             running = true;
-            // Si le thread a déjà été lancé et arrêté, il faut en créer un nouveau
-            if (simulationThread == null || !simulationThread.isAlive()) {
-                simulationThread = new Thread(this::runSimulationThread, "SimulationThread");
-                simulationThread.setDaemon(true);
-            }
-            simulationThread.start();
-            logger.info("Simulation started");
+            resume();
+            logger.info("Simulation {} started", id);
         }
     }
 
 
 
     /**
-     * Arrête le thread org.acme.simulation de manière propre
+     * Arrête la org.acme.simulation ; un tick déjà en cours se termine sans être replanifié
      */
     public synchronized void stopSimulation() {
+        boolean wasRunning = running;
         running = false;
-        if (simulationThread != null && simulationThread.isAlive()) {
-            simulationThread.interrupt();
-            try {
-                // Attendre la fin du thread avec un timeout
-                simulationThread.join(1000);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                logger.error("Interruption lors de l'attente de l'arrêt", e);            }
-            logger.info("Simulation stopped");
+        generation++;
+        if (tickTask != null) {
+            tickTask.cancel(false);
+            tickTask = null;
+        }
+        if (wasRunning) {
+            logger.info("Simulation {} stopped", id);
         }
     }
     
     /**
-     * Vérifie si la org.acme.simulation est en cours d'exécution
+     * Vérifie si la org.acme.simulation est en cours d'exécution (éventuellement en veille)
      */
     public boolean isRunning() {
-        return running && simulationThread != null && simulationThread.isAlive();
+        return running;
     }
 
-    // Le reste de votre code reste inchangé
+    /**
+     * Vrai quand la simulation tourne mais n'occupe aucun thread faute d'abonné
+     */
+    public synchronized boolean isParked() {
+        return running && tickTask == null;
+    }
+
+    /**
+     * Un pas de simulation hors du tick (tests, outils), publié aussitôt pour les lecteurs
+     */
     public void simulateOneStep() {
+        synchronized (tickLock) {
+            step();
+            publishSnapshot();
+        }
+    }
+
+    /**
+     * Pas exécuté par le tick, sous tickLock ; l'instantané n'est publié qu'à la diffusion ou en fin de tick
+     */
+    private void step() {
+        PhaseTimer timer = metrics.physics();
+        long start = timer.start();
         simulateStep(bodies);
+        CollisionMerger merger = collisions;
+        if (merger != null) {
+            mergedBodies += merger.merge(bodies);
+        }
+        stepCount++;
+        timer.stop(start);
     }
 
+    public boolean isCollisionsEnabled() {
+        return collisions != null;
+    }
 
-        // Ajouter cette méthode pour générer une représentation binaire de la grille
-    public byte[] getGridBinary() {
-        int[][] grid = new int[HEIGHT][WIDTH];
-        for (Body b : bodies) {
-            int px = (int) Math.round(b.getX());
-            int py = (int) Math.round(b.getY());
-            if (px >= 0 && px < WIDTH && py >= 0 && py < HEIGHT) {
-                grid[py][px] = 1;
+    /**
+     * Active ou désactive la fusion des corps en contact, à partir du prochain pas
+     */
+    public void setCollisionsEnabled(boolean enabled) {
+        if (enabled != isCollisionsEnabled()) {
+            collisions = enabled ? newCollisionMerger(parameters) : null;
+        }
+    }
+
+    private static CollisionMerger newCollisionMerger(SimulationParameters parameters) {
+        CollisionMerger merger = new CollisionMerger();
+        merger.setWorldSize(parameters.width(), parameters.height());
+        return merger;
+    }
+
+    /**
+     * Nombre de corps absorbés par une collision depuis la création de la simulation
+     */
+    public long getMergedBodyCount() {
+        return mergedBodies;
+    }
+
+    public long getStepCount() {
+        return stepCount;
+    }
+
+    /**
+     * Active les checkpoints périodiques dans {@code file}, après avoir restauré l'état qu'il contient
+     * s'il est plus avancé que l'état courant (un redémarrage de Quarkus dans le même processus garde
+     * l'état en mémoire, plus récent que le dernier checkpoint)
+     * @return true si l'état a été restauré
+     */
+    boolean enableCheckpoints(Path file, long intervalNanos) {
+        boolean restored = false;
+        if (Files.exists(file)) {
+            try {
+                Checkpoint checkpoint = CheckpointFile.read(file);
+                if (checkpoint.step() > stepCount) {
+                    restore(checkpoint);
+                    restored = true;
+                    logger.info("Simulation {} restaurée : {} corps au pas {}", id, checkpoint.bodies().size(), checkpoint.step());
+                }
+            } catch (IOException e) {
+                logger.error("Checkpoint {} illisible, simulation {} non restaurée: {}", file, id, e.getMessage());
             }
         }
-    
-        // Compression : 8 cellules par octet (1 bit par cellule)
-        int bytesPerRow = (WIDTH + 7) / 8;
-        byte[] result = new byte[HEIGHT * bytesPerRow];
-        
-        for (int row = 0; row < HEIGHT; row++) {
-            for (int col = 0; col < WIDTH; col++) {
-                if (grid[row][col] == 1) {
-                    int byteIndex = row * bytesPerRow + (col / 8);
-                    int bitPosition = 7 - (col % 8); // MSB first
-                    result[byteIndex] |= (1 << bitPosition);
+        checkpointWriter = new CheckpointWriter(file, intervalNanos);
+        return restored;
+    }
+
+    /**
+     * Enregistre une image sur {@code every} diffusions dans un nouveau fichier de trajectoire. Tant que
+     * l'enregistrement dure, la simulation ne se met pas en veille : l'enregistreur compte comme un abonné.
+     */
+    public synchronized void startRecording(Path file, int every) throws IOException {
+        if (every < 1) {
+            throw new IllegalArgumentException("Recording interval must be at least 1");
+        }
+        stopRecording();
+        long periodNanos = Math.round(every * 1e9 / tickScheduler.getBroadcastRate());
+        recorder = new TrajectoryRecorder(this, new TrajectoryWriter(file, periodNanos), every);
+        addSubscriber(recorder);
+        logger.info("Simulation {} enregistrée dans {}", id, file);
+    }
+
+    /**
+     * Termine l'enregistrement en cours et attend que ses dernières images soient écrites
+     */
+    public synchronized void stopRecording() throws IOException {
+        if (recorder != null) {
+            removeSubscriber(recorder);
+            TrajectoryWriter writer = recorder.writer();
+            recorder = null;
+            writer.close();
+            logger.info("Enregistrement {} terminé ({} images)", writer.getFile(), writer.getRecordedFrames());
+        }
+    }
+
+    /**
+     * Fichier de l'enregistrement en cours, null s'il n'y en a pas
+     */
+    public synchronized Path getRecordingFile() {
+        return recorder == null ? null : recorder.writer().getFile();
+    }
+
+    void disableCheckpoints() {
+        checkpointWriter = null;
+    }
+
+    /**
+     * Écrit immédiatement un checkpoint et attend qu'il soit sur disque (arrêt de l'application)
+     */
+    public void checkpoint() throws IOException {
+        CheckpointWriter writer = checkpointWriter;
+        if (writer == null) {
+            return;
+        }
+        synchronized (tickLock) {
+            offerCheckpoint(writer);
+        }
+        writer.flush(30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Copie l'état dans un tampon du writer (sous tickLock) ; le générateur est réensemencé avec la graine
+     * enregistrée pour qu'une simulation restaurée ajoute les mêmes corps que l'originale
+     */
+    private void offerCheckpoint(CheckpointWriter writer) {
+        long seed = random.nextLong();
+        random.setSeed(seed);
+        writer.offer(bodies, stepCount, seed, timeStep, System.nanoTime());
+    }
+
+    /**
+     * Remplace l'état de la simulation par celui d'un checkpoint
+     */
+    public void restore(Checkpoint checkpoint) {
+        synchronized (tickLock) {
+            setBodies(checkpoint.bodies());
+            stepCount = checkpoint.step();
+            random.setSeed(checkpoint.seed());
+            setTimeStep(checkpoint.timeStep());
+            publishSnapshot();
+        }
+    }
+
+
+    /**
+     * Grille du monde à 1 bit par cellule (1 si au moins un corps), 8 cellules par octet, bit de poids fort
+     * en premier ; les bits sont posés directement dans le tableau renvoyé
+     */
+    public byte[] getGridBinary() {
+        SimulationParameters p = parameters;
+        int width = p.width();
+        int height = p.height();
+        int bytesPerRow = (width + 7) / 8;
+        byte[] result = new byte[height * bytesPerRow];
+        try (BodySnapshots.Snapshot snapshot = snapshots.acquire()) {
+            BodyStore state = snapshot.bodies();
+            int n = state.size();
+            double[] x = state.x();
+            double[] y = state.y();
+            for (int i = 0; i < n; i++) {
+                int px = (int) Math.round(x[i]);
+                int py = (int) Math.round(y[i]);
+                if (px >= 0 && px < width && py >= 0 && py < height) {
+                    result[py * bytesPerRow + (px >> 3)] |= (byte) (0x80 >>> (px & 7));
                 }
             }
         }
-        
         return result;
     }
 
 public Body createOneBody() {
+    SimulationParameters p = parameters;
     // Distribution logarithmique pour concentrer les corps vers le centre
-    double r = GALAXY_RADIUS * Math.pow(RAND.nextDouble(), 0.5);
+    double r = p.galaxyRadius() * Math.pow(random.nextDouble(), 0.5);
     
     // Angle qui inclut un facteur spiral pour créer des bras
-    double angle = RAND.nextDouble() * 2 * Math.PI;
+    double angle = random.nextDouble() * 2 * Math.PI;
     double spiralOffset = SPIRAL_FACTOR * r;
     angle += spiralOffset;
     
-    double x = (WIDTH / 2.0) + r * Math.cos(angle);
-    double y = (HEIGHT / 2.0) + r * Math.sin(angle);
+    double x = (p.width() / 2.0) + r * Math.cos(angle);
+    double y = (p.height() / 2.0) + r * Math.sin(angle);
     
     // Vitesse orbitale képlérienne avec dispersion pour créer du mouvement réaliste
-    double v = Math.sqrt((G * CENTER_MASS) / (r + 1e-9));
-    double velocityVariation = 1.0 - VELOCITY_DISPERSION + VELOCITY_DISPERSION * 2 * RAND.nextDouble();
+    double v = Math.sqrt((G * p.centerMass()) / (r + 1e-9));
+    double velocityVariation = 1.0 - p.velocityDispersion() + p.velocityDispersion() * 2 * random.nextDouble();
     
     // Vitesse perpendiculaire à la direction radiale (orbite circulaire)
     double vx = -v * Math.sin(angle) * velocityVariation;
     double vy = v * Math.cos(angle) * velocityVariation;
     
     // Distribution logarithmique des masses
-    double mass = MASS_MIN * Math.exp(Math.log(MASS_MAX/MASS_MIN) * RAND.nextDouble());
+    double mass = p.massMin() * Math.exp(Math.log(p.massMax() / p.massMin()) * random.nextDouble());
     
     return new Body(x, y, vx, vy, mass);
 }
     public List<Body> createBodies(int count) {
-        List<Body> newbodies = new ArrayList<>();
-        newbodies.add(new Body(WIDTH / 2.0, HEIGHT / 2.0, 0, 0, CENTER_MASS));
-        for (int i = 0; i < count - 1; i++) {
-            newbodies.add(createOneBody());
-        }
-        return newbodies;
+        return GalaxyGenerator.galaxy(parameters, Math.max(count, 1), random.nextLong()).toList();
     }
 
     public void computeForces(List<Body> bodies, double[] fx, double[] fy) {
-        for (int i = 0; i < bodies.size(); i++) {
-            for (int j = i + 1; j < bodies.size(); j++) {
-                Body bi = bodies.get(i);
-                Body bj = bodies.get(j);
-                double dx = bj.getX() - bi.getX();
-                double dy = bj.getY() - bi.getY();
-                double distSq = dx * dx + dy * dy + 1e-9;
-                double force = G * bi.getMass() * bj.getMass() / distSq;
-                double dist = Math.sqrt(distSq);
-                double fxi = force * dx / dist;
-                double fyi = force * dy / dist;
-                fx[i] += fxi;
-                fy[i] += fyi;
-                fx[j] -= fxi;
-                fy[j] -= fyi;
-            }
+        computeForces(BodyStore.of(bodies), fx, fy);
+    }
+
+    public void computeForces(BodyStore bodies, double[] fx, double[] fy) {
+        forceEngine.computeForces(bodies, fx, fy);
+    }
+
+    public ForceEngine getForceEngine() {
+        return forceEngine;
+    }
+
+    /**
+     * Change le moteur de calcul des forces, pris en compte au prochain pas de simulation
+     */
+    public void setForceEngine(ForceEngine forceEngine) {
+        if (forceEngine == null) {
+            throw new IllegalArgumentException("Force engine cannot be null");
+        }
+        this.forceEngine = forceEngine;
+        updateStepForceEngine();
+    }
+
+    private synchronized void updateStepForceEngine() {
+        stepForceEngine = metrics.isEnabled() ? new TimedForceEngine(forceEngine, metrics.forces()) : forceEngine;
+    }
+
+    public Integrator getIntegrator() {
+        return integrator;
+    }
+
+    /**
+     * Change le schéma d'intégration, pris en compte au prochain pas de simulation
+     */
+    public void setIntegrator(Integrator integrator) {
+        if (integrator == null) {
+            throw new IllegalArgumentException("Integrator cannot be null");
         }
+        this.integrator = integrator;
+    }
+
+    public double getTimeStep() {
+        return timeStep;
+    }
+
+    /**
+     * Change le pas de temps global ; un intégrateur d'ordre élevé ou adaptatif permet un pas plus grand
+     */
+    public void setTimeStep(double timeStep) {
+        if (!(timeStep > 0) || Double.isInfinite(timeStep)) {
+            throw new IllegalArgumentException("Time step must be a positive number");
+        }
+        this.timeStep = timeStep;
     }
 
     public void updatePositions(List<Body> bodies, double[] fx, double[] fy) {
-        for (int i = 1; i < bodies.size(); i++) {
-            Body b = bodies.get(i);
-            b.setVx(b.getVx() + (fx[i] / b.getMass()) * TIME_STEP);
-            b.setVy(b.getVy() + (fy[i] / b.getMass()) * TIME_STEP);
-            b.setX(b.getX() + b.getVx() * TIME_STEP);
-            b.setY(b.getY() + b.getVy() * TIME_STEP);
+        BodyStore store = BodyStore.of(bodies);
+        updatePositions(store, fx, fy);
+        for (int i = 0; i < bodies.size(); i++) {
+            store.copyTo(i, bodies.get(i));
         }
     }
 
+    /**
+     * Euler semi-implicite à partir de forces déjà calculées ; le corps 0 (masse centrale) reste fixe
+     */
+    public void updatePositions(BodyStore bodies, double[] fx, double[] fy) {
+        SemiImplicitEulerIntegrator.update(bodies, fx, fy, timeStep);
+    }
+
     public void simulateStep(List<Body> bodies) {
-        double[] fx = new double[bodies.size()];
-        double[] fy = new double[bodies.size()];
-        computeForces(bodies, fx, fy);
-        updatePositions(bodies, fx, fy);
+        BodyStore store = BodyStore.of(bodies);
+        simulateStep(store);
+        for (int i = 0; i < bodies.size(); i++) {
+            store.copyTo(i, bodies.get(i));
+        }
+    }
+
+    /**
+     * Un pas de simulation sans allocation : les forces sont accumulées dans les tampons du store
+     */
+    public void simulateStep(BodyStore bodies) {
+        integrator.step(bodies, stepForceEngine, timeStep);
     }
 
     public String buildGrid(List<Body> bodies) {
-        int[][] grid = new int[HEIGHT][WIDTH];
+        SimulationParameters p = parameters;
+        int width = p.width();
+        int height = p.height();
+        int[][] grid = new int[height][width];
         for (Body b : bodies) {
             int px = (int) Math.round(b.getX());
             int py = (int) Math.round(b.getY());
-            if (px >= 0 && px < WIDTH && py >= 0 && py < HEIGHT) {
+            if (px >= 0 && px < width && py >= 0 && py < height) {
                 grid[py][px] = 1;
             }
         }
 
         StringBuilder sb = new StringBuilder();
-        for (int row = 0; row < HEIGHT; row++) {
-            for (int col = 0; col < WIDTH; col++) {
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
                 sb.append(grid[row][col]);
             }
             sb.append("\n");
         }
         return sb.toString();
     }
-     public List<Body> getBodies() {
-         return bodies;
-     }
+    /**
+     * Remplace les corps de la simulation par une copie de ceux de {@code source} (le corps 0 reste fixe),
+     * entre deux pas ; le nombre de corps des paramètres suit
+     */
+    public void setBodies(BodyStore source) {
+        synchronized (tickLock) {
+            bodies.clear();
+            bodies.addAll(source);
+            int count = source.size();
+            if (count >= 1 && count <= SimulationParameters.MAX_BODY_COUNT) {
+                parameters = parameters.withBodyCount(count);
+            }
+            publishSnapshot();
+        }
+    }
+
+    /**
+     * Copie de l'état des corps à la fin du dernier pas, sous forme d'objets {@link Body}
+     */
+    public List<Body> getBodies() {
+        try (BodySnapshots.Snapshot snapshot = snapshots.acquire()) {
+            return snapshot.bodies().toList();
+        }
+    }
+
+    public int getBodyCount() {
+        try (BodySnapshots.Snapshot snapshot = snapshots.acquire()) {
+            return snapshot.bodies().size();
+        }
+    }
+
+    /**
+     * Instantané cohérent des corps, lisible sans verrou pendant que la simulation avance ; à fermer après lecture
+     */
+    public BodySnapshots.Snapshot getSnapshot() {
+        return snapshots.acquire();
+    }
+
+    /**
+     * Appelé sous tickLock : publie l'état des corps s'il a changé depuis la dernière publication
+     */
+    private void publishSnapshot() {
+        if (!snapshots.isCurrent(bodies, stepCount)) {
+            snapshots.publish(bodies, stepCount);
+        }
+    }
 
          /**
      * Génère une représentation binaire des positions des corps au lieu de la grille entière
      */
     public byte[] getBodyPositionsBinary() {
         // Format : nombre de corps (4 bytes) + (x, y) pour chaque corps (2 x 2 bytes par corps)
-        byte[] result = new byte[4 + bodies.size() * 4];
-        
-        // Nombre de corps (int = 4 bytes)
-        int bodyCount = bodies.size();
-        result[0] = (byte) ((bodyCount >> 24) & 0xFF);
-        result[1] = (byte) ((bodyCount >> 16) & 0xFF);
-        result[2] = (byte) ((bodyCount >> 8) & 0xFF);
-        result[3] = (byte) (bodyCount & 0xFF);
-        
-        // Coordonnées de chaque corps
-        for (int i = 0; i < bodies.size(); i++) {
-            Body b = bodies.get(i);
-            int x = (int) Math.round(b.getX());
-            int y = (int) Math.round(b.getY());
-            
-            // Chaque coordonnée prend deux bytes (short).
-            result[4 + i*4] = (byte) ((x >> 8) & 0xFF);
-            result[4 + i*4 + 1] = (byte) (x & 0xFF);
-            result[4 + i*4 + 2] = (byte) ((y >> 8) & 0xFF);
-            result[4 + i*4 + 3] = (byte) (y & 0xFF);
-        }
-        
-        return result;
+        try (BodySnapshots.Snapshot snapshot = snapshots.acquire()) {
+            FrameBuffer buffer = new FrameBuffer(4 + snapshot.bodies().size() * 4);
+            LegacyPositionEncoder.encode(snapshot.bodies(), buffer);
+            return buffer.toByteArray();
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,113 @@
+package org.acme.simulation;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.acme.metrics.PhaseTimer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Meters of one simulation, tagged with its id: the duration of each phase of a tick, plus the counters
+ * of its {@link TickScheduler}. {@link #DISABLED} records nothing and is used while metrics are off.
+ * <p>
+ * Only the phases of the default simulation publish percentiles and histogram buckets: clients create the
+ * other simulations, and a histogram for each of them would multiply the exported series.
+ */
+public final class SimulationMetrics {
+
+    public static final SimulationMetrics DISABLED = new SimulationMetrics(null, PhaseTimer.DISABLED,
+            PhaseTimer.DISABLED, PhaseTimer.DISABLED, PhaseTimer.DISABLED, PhaseTimer.DISABLED, List.of());
+
+    private final MeterRegistry registry;
+    private final PhaseTimer tick;
+    private final PhaseTimer physics;
+    private final PhaseTimer forces;
+    private final PhaseTimer encode;
+    private final PhaseTimer broadcast;
+    private final List<Meter> meters;
+
+    private SimulationMetrics(MeterRegistry registry, PhaseTimer tick, PhaseTimer physics, PhaseTimer forces,
+                              PhaseTimer encode, PhaseTimer broadcast, List<Meter> meters) {
+        this.registry = registry;
+        this.tick = tick;
+        this.physics = physics;
+        this.forces = forces;
+        this.encode = encode;
+        this.broadcast = broadcast;
+        this.meters = meters;
+    }
+
+    static SimulationMetrics register(MeterRegistry registry, SimulationLogic simulation) {
+        Tags tags = Tags.of("simulation", simulation.getId());
+        boolean distribution = SimulationEngine.DEFAULT_SIMULATION.equals(simulation.getId());
+        TickScheduler scheduler = simulation.getTickScheduler();
+        List<Meter> meters = new ArrayList<>();
+        meters.add(FunctionCounter.builder("nbody.steps", scheduler, TickScheduler::getSteps)
+                .description("Physics steps executed").tags(tags).register(registry));
+        meters.add(FunctionCounter.builder("nbody.steps.dropped", scheduler, TickScheduler::getDroppedSteps)
+                .description("Physics steps given up after falling behind").tags(tags).register(registry));
+        meters.add(FunctionCounter.builder("nbody.overruns", scheduler, TickScheduler::getOverruns)
+                .description("Ticks that could not catch up with the wall clock").tags(tags).register(registry));
+        meters.add(FunctionCounter.builder("nbody.broadcasts.skipped", scheduler, TickScheduler::getSkippedBroadcasts)
+                .description("Broadcasts skipped because the tick was late").tags(tags).register(registry));
+        meters.add(FunctionCounter.builder("nbody.collisions", simulation, SimulationLogic::getMergedBodyCount)
+                .description("Bodies absorbed by a collision").tags(tags).register(registry));
+        meters.add(Gauge.builder("nbody.tick.lag", scheduler, s -> s.getLastLagNanos() / 1e9)
+                .description("Delay of the last tick behind its deadline").baseUnit("seconds").tags(tags)
+                .register(registry));
+        meters.add(Gauge.builder("nbody.bodies", simulation, s -> s.getBodyCount())
+                .description("Bodies in the simulation").tags(tags).register(registry));
+        meters.add(Gauge.builder("nbody.subscribers", simulation, s -> s.getSubscriberCount())
+                .description("Clients receiving the positions").tags(tags).register(registry));
+        return new SimulationMetrics(registry,
+                PhaseTimer.register(registry, "nbody.tick", "Whole tick: physics steps and broadcast", tags,
+                        distribution),
+                PhaseTimer.register(registry, "nbody.physics", "One physics step", tags, distribution),
+                PhaseTimer.register(registry, "nbody.forces", "One force evaluation", tags, distribution),
+                PhaseTimer.register(registry, "nbody.encode", "Encoding of one position frame", tags, distribution),
+                PhaseTimer.register(registry, "nbody.broadcast", "Hand-off of the frames to every subscriber", tags,
+                        distribution),
+                meters);
+    }
+
+    public boolean isEnabled() {
+        return registry != null;
+    }
+
+    public PhaseTimer tick() {
+        return tick;
+    }
+
+    public PhaseTimer physics() {
+        return physics;
+    }
+
+    public PhaseTimer forces() {
+        return forces;
+    }
+
+    public PhaseTimer encode() {
+        return encode;
+    }
+
+    public PhaseTimer broadcast() {
+        return broadcast;
+    }
+
+    /**
+     * Removes the meters of the simulation from the registry.
+     */
+    void remove() {
+        if (registry == null) {
+            return;
+        }
+        for (PhaseTimer timer : List.of(tick, physics, forces, encode, broadcast)) {
+            timer.remove(registry);
+        }
+        meters.forEach(registry::remove);
+    }
+}
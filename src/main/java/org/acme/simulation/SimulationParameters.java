@@ -0,0 +1,92 @@
+package org.acme.simulation;
+
+import org.acme.simulation.force.BarnesHutForceEngine;
+import org.acme.simulation.force.ForceEngineType;
+
+/**
+ * Tunable parameters of a simulation, read from {@link SimulationConfig} at startup and changed at runtime
+ * through the REST API. A change is applied at the next tick boundary: the galaxy parameters only shape the
+ * bodies created afterwards, a new body count adds or removes bodies at random.
+ *
+ * @param width              width of the world, the galaxy being centred in it
+ * @param height             height of the world
+ * @param bodyCount          number of bodies, central mass included
+ * @param centerMass         mass of the central body
+ * @param massMin            smallest mass of the other bodies
+ * @param massMax            largest mass of the other bodies
+ * @param velocityDispersion relative variation of the orbital velocities (0 to 1)
+ * @param timeStep           simulated time of a physics step
+ * @param physicsRate        physics steps per second
+ * @param broadcastRate      position broadcasts per second
+ * @param engine             force engine
+ * @param theta              accuracy of the approximate force engines
+ * @param collisions         whether colliding bodies merge, see {@link CollisionMerger}
+ * @param seed               seed of the galaxy, {@code null} for a random one; a new seed regenerates the bodies
+ */
+public record SimulationParameters(int width, int height, int bodyCount, double centerMass, double massMin,
+                                   double massMax, double velocityDispersion, double timeStep, double physicsRate,
+                                   double broadcastRate, ForceEngineType engine, double theta, boolean collisions,
+                                   Long seed) {
+
+    public static final int MAX_BODY_COUNT = 10_000_000;
+
+    /**
+     * Values of the constants of {@link SimulationLogic}.
+     */
+    public static final SimulationParameters DEFAULT = new SimulationParameters(SimulationLogic.WIDTH,
+            SimulationLogic.HEIGHT, SimulationLogic.BODY_COUNT, SimulationLogic.CENTER_MASS, SimulationLogic.MASS_MIN,
+            SimulationLogic.MASS_MAX, SimulationLogic.VELOCITY_DISPERSION, SimulationLogic.TIME_STEP,
+            SimulationLogic.PHYSICS_RATE_HZ, SimulationLogic.BROADCAST_RATE_HZ, ForceEngineType.VECTOR,
+            BarnesHutForceEngine.DEFAULT_THETA, false, null);
+
+    public SimulationParameters {
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException("Width and height must be positive");
+        }
+        if (bodyCount < 1 || bodyCount > MAX_BODY_COUNT) {
+            throw new IllegalArgumentException("Body count must be between 1 and " + MAX_BODY_COUNT);
+        }
+        if (!(centerMass >= 0) || Double.isInfinite(centerMass)) {
+            throw new IllegalArgumentException("Center mass must be a non-negative number");
+        }
+        if (!(massMin > 0) || !(massMax >= massMin) || Double.isInfinite(massMax)) {
+            throw new IllegalArgumentException("Masses must satisfy 0 < min <= max");
+        }
+        if (!(velocityDispersion >= 0 && velocityDispersion <= 1)) {
+            throw new IllegalArgumentException("Velocity dispersion must be between 0 and 1");
+        }
+        if (!(timeStep > 0) || Double.isInfinite(timeStep)) {
+            throw new IllegalArgumentException("Time step must be a positive number");
+        }
+        if (!(physicsRate > 0) || !(broadcastRate > 0) || Double.isInfinite(physicsRate)
+                || Double.isInfinite(broadcastRate)) {
+            throw new IllegalArgumentException("Rates must be positive numbers");
+        }
+        if (engine == null) {
+            throw new IllegalArgumentException("Force engine cannot be null");
+        }
+        if (!(theta >= 0) || Double.isInfinite(theta)) {
+            throw new IllegalArgumentException("Theta must be a non-negative number");
+        }
+        if (engine == ForceEngineType.FMM && theta >= 1) {
+            throw new IllegalArgumentException("Theta must be less than 1 with the fmm engine");
+        }
+    }
+
+    /**
+     * Radius of the disc in which bodies are created.
+     */
+    public double galaxyRadius() {
+        return Math.min(width, height) * 0.4;
+    }
+
+    public SimulationParameters withBodyCount(int bodyCount) {
+        return new SimulationParameters(width, height, bodyCount, centerMass, massMin, massMax, velocityDispersion,
+                timeStep, physicsRate, broadcastRate, engine, theta, collisions, seed);
+    }
+
+    public SimulationParameters withSeed(Long seed) {
+        return new SimulationParameters(width, height, bodyCount, centerMass, massMin, massMax, velocityDispersion,
+                timeStep, physicsRate, broadcastRate, engine, theta, collisions, seed);
+    }
+}
@@ -0,0 +1,188 @@
+package org.acme.simulation;
+
+/**
+ * Fixed-rate scheduler decoupling the physics rate from the broadcast rate.
+ * <p>
+ * The owner calls {@link #advance(long)} with the current time and waits until the returned deadline.
+ * Physics steps are run at a fixed period; when the caller is late, up to {@code maxCatchUpSteps} steps
+ * are run back to back, and the remaining ones are dropped and counted as an overrun. Broadcasts run at
+ * their own period and never more than once per call, so a slow broadcast delays physics by at most one
+ * frame instead of accumulating.
+ * <p>
+ * {@link #advance(long)} must be called from a single thread; rates and counters can be read or changed
+ * from any thread.
+ */
+public class TickScheduler {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final Runnable physicsStep;
+    private final Runnable broadcast;
+
+    private volatile long physicsPeriodNanos;
+    private volatile long broadcastPeriodNanos;
+    private volatile int maxCatchUpSteps;
+
+    private boolean started;
+    private long nextPhysics;
+    private long nextBroadcast;
+
+    // Compteurs écrits uniquement par le thread qui appelle advance()
+    private volatile long steps;
+    private volatile long catchUpSteps;
+    private volatile long droppedSteps;
+    private volatile long overruns;
+    private volatile long broadcasts;
+    private volatile long skippedBroadcasts;
+    private volatile long lastLagNanos;
+    private volatile long maxLagNanos;
+
+    public TickScheduler(Runnable physicsStep, Runnable broadcast,
+                         double physicsRateHz, double broadcastRateHz, int maxCatchUpSteps) {
+        this.physicsStep = physicsStep;
+        this.broadcast = broadcast;
+        setPhysicsRate(physicsRateHz);
+        setBroadcastRate(broadcastRateHz);
+        setMaxCatchUpSteps(maxCatchUpSteps);
+    }
+
+    /**
+     * Runs the physics steps and the broadcast that are due at {@code now} (from {@link System#nanoTime()})
+     * and returns the time of the next deadline.
+     */
+    public long advance(long now) {
+        if (!started) {
+            started = true;
+            nextPhysics = now;
+            nextBroadcast = now;
+        }
+
+        long physicsPeriod = physicsPeriodNanos;
+        long lag = Math.max(0, now - nextPhysics);
+        lastLagNanos = lag;
+        if (lag > maxLagNanos) {
+            maxLagNanos = lag;
+        }
+
+        int done = 0;
+        int limit = maxCatchUpSteps;
+        while (now >= nextPhysics && done < limit) {
+            physicsStep.run();
+            nextPhysics += physicsPeriod;
+            done++;
+        }
+        if (done > 0) {
+            steps += done;
+            catchUpSteps += done - 1;
+        }
+        if (now >= nextPhysics) {
+            // Impossible de rattraper : on abandonne les pas en retard plutôt que de dériver
+            long dropped = (now - nextPhysics) / physicsPeriod + 1;
+            droppedSteps += dropped;
+            overruns++;
+            nextPhysics += dropped * physicsPeriod;
+        }
+
+        if (now >= nextBroadcast) {
+            long broadcastPeriod = broadcastPeriodNanos;
+            broadcast.run();
+            broadcasts++;
+            long missed = (now - nextBroadcast) / broadcastPeriod;
+            skippedBroadcasts += missed;
+            nextBroadcast += (missed + 1) * broadcastPeriod;
+        }
+
+        return Math.min(nextPhysics, nextBroadcast);
+    }
+
+    /**
+     * Forgets the current schedule; the next {@link #advance(long)} starts a new one. Counters are kept.
+     */
+    public void reset() {
+        started = false;
+    }
+
+    public double getPhysicsRate() {
+        return (double) NANOS_PER_SECOND / physicsPeriodNanos;
+    }
+
+    public void setPhysicsRate(double rateHz) {
+        physicsPeriodNanos = toPeriod(rateHz);
+    }
+
+    public double getBroadcastRate() {
+        return (double) NANOS_PER_SECOND / broadcastPeriodNanos;
+    }
+
+    public void setBroadcastRate(double rateHz) {
+        broadcastPeriodNanos = toPeriod(rateHz);
+    }
+
+    public int getMaxCatchUpSteps() {
+        return maxCatchUpSteps;
+    }
+
+    public void setMaxCatchUpSteps(int maxCatchUpSteps) {
+        if (maxCatchUpSteps < 1) {
+            throw new IllegalArgumentException("At least one physics step per tick is required");
+        }
+        this.maxCatchUpSteps = maxCatchUpSteps;
+    }
+
+    /**
+     * Physics steps run since creation.
+     */
+    public long getSteps() {
+        return steps;
+    }
+
+    /**
+     * Physics steps run back to back to catch up with the schedule.
+     */
+    public long getCatchUpSteps() {
+        return catchUpSteps;
+    }
+
+    /**
+     * Physics steps abandoned because the engine could not keep up.
+     */
+    public long getDroppedSteps() {
+        return droppedSteps;
+    }
+
+    /**
+     * Number of ticks that ended still behind schedule after the maximum number of catch-up steps.
+     */
+    public long getOverruns() {
+        return overruns;
+    }
+
+    public long getBroadcasts() {
+        return broadcasts;
+    }
+
+    /**
+     * Broadcast slots that were missed because the loop was late.
+     */
+    public long getSkippedBroadcasts() {
+        return skippedBroadcasts;
+    }
+
+    /**
+     * Delay of the last tick compared to its physics deadline.
+     */
+    public long getLastLagNanos() {
+        return lastLagNanos;
+    }
+
+    public long getMaxLagNanos() {
+        return maxLagNanos;
+    }
+
+    private static long toPeriod(double rateHz) {
+        if (!(rateHz > 0) || Double.isInfinite(rateHz)) {
+            throw new IllegalArgumentException("Rate must be a positive number of Hz");
+        }
+        return Math.max(1, Math.round(NANOS_PER_SECOND / rateHz));
+    }
+}
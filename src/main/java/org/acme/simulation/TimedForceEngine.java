@@ -0,0 +1,37 @@
+package org.acme.simulation;
+
+import org.acme.core.BodyStore;
+import org.acme.metrics.PhaseTimer;
+import org.acme.simulation.force.ForceEngine;
+
+/**
+ * Force engine recording the duration of every call of the engine it wraps.
+ */
+final class TimedForceEngine implements ForceEngine {
+
+    private final ForceEngine delegate;
+    private final PhaseTimer timer;
+
+    TimedForceEngine(ForceEngine delegate, PhaseTimer timer) {
+        this.delegate = delegate;
+        this.timer = timer;
+    }
+
+    ForceEngine delegate() {
+        return delegate;
+    }
+
+    @Override
+    public void computeForces(BodyStore bodies, double[] fx, double[] fy) {
+        long start = timer.start();
+        delegate.computeForces(bodies, fx, fy);
+        timer.stop(start);
+    }
+
+    @Override
+    public void computeForces(BodyStore bodies, int[] targets, int count, double[] fx, double[] fy) {
+        long start = timer.start();
+        delegate.computeForces(bodies, targets, count, fx, fy);
+        timer.stop(start);
+    }
+}
@@ -0,0 +1,34 @@
+package org.acme.simulation;
+
+import org.acme.persistence.TrajectoryWriter;
+import org.acme.protocol.PositionStreamEncoder;
+import org.acme.protocol.StreamSubscription;
+
+/**
+ * Subscriber recording every {@code every}-th broadcast of a simulation: the legacy frame is encoded
+ * once for the live clients and the recording alike, and written by the background thread of the writer.
+ */
+final class TrajectoryRecorder implements PositionSubscriber {
+
+    private final SimulationLogic simulation;
+    private final TrajectoryWriter writer;
+    private final int every;
+    private long broadcasts;
+
+    TrajectoryRecorder(SimulationLogic simulation, TrajectoryWriter writer, int every) {
+        this.simulation = simulation;
+        this.writer = writer;
+        this.every = every;
+    }
+
+    TrajectoryWriter writer() {
+        return writer;
+    }
+
+    @Override
+    public void onPositions(PositionStreamEncoder stream) {
+        if (broadcasts++ % every == 0) {
+            writer.append(simulation.getStepCount(), stream.frame(StreamSubscription.LEGACY));
+        }
+    }
+}
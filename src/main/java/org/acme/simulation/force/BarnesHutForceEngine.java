@@ -0,0 +1,50 @@
+package org.acme.simulation.force;
+
+import org.acme.core.BodyStore;
+
+/**
+ * O(n log n) approximation of the gravitational forces using a Barnes-Hut quadtree.
+ * A node is treated as a single mass when size / distance &lt; theta; theta = 0 gives the exact result.
+ * The tree is rebuilt every tick but its node pool is reused, so an instance must not be
+ * shared between simulations running concurrently.
+ */
+public class BarnesHutForceEngine implements ForceEngine {
+
+    public static final double DEFAULT_THETA = 0.5;
+
+    private final double theta;
+    private final QuadTree tree = new QuadTree();
+
+    public BarnesHutForceEngine() {
+        this(DEFAULT_THETA);
+    }
+
+    public BarnesHutForceEngine(double theta) {
+        if (theta < 0) {
+            throw new IllegalArgumentException("Theta cannot be negative");
+        }
+        this.theta = theta;
+    }
+
+    public double getTheta() {
+        return theta;
+    }
+
+    @Override
+    public void computeForces(BodyStore bodies, double[] fx, double[] fy) {
+        tree.build(bodies);
+        double thetaSq = theta * theta;
+        for (int i = 0; i < bodies.size(); i++) {
+            tree.accumulateForce(i, thetaSq, fx, fy);
+        }
+    }
+
+    @Override
+    public void computeForces(BodyStore bodies, int[] targets, int count, double[] fx, double[] fy) {
+        tree.build(bodies);
+        double thetaSq = theta * theta;
+        for (int k = 0; k < count; k++) {
+            tree.accumulateForce(targets[k], thetaSq, fx, fy);
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package org.acme.simulation.force;
+
+/**
+ * Truncated Cartesian Taylor expansions of the 1/r potential in the plane, used by {@link FmmForceEngine}.
+ * <p>
+ * A coefficient is indexed by a 2D multi-index (a, b) of total degree a + b &lt;= order and stands for
+ * the monomial x^a y^b. Multipole moments of a cell centered on s are Q(n) = sum m (x - s)^n; the local
+ * expansion of a cell centered on t is the potential psi(t + u) = sum L(k) u^k, with psi = sum m / |x - xj|.
+ * The translation operators are sums of precomputed (index, index, index, coefficient) terms, so
+ * applying them only reads flat arrays. Scratch arrays of {@link #terms()} doubles are supplied by the
+ * caller, which keeps the operators allocation-free and thread-safe.
+ */
+final class CartesianExpansion {
+
+    private final int order;
+    private final int terms;
+
+    // Termes de chaque coefficient cible : [start[n], start[n + 1]), sommés avant d'être écrits
+    // M2M : Q(n) += c * Qenfant(j) * d^(n - j)
+    private final int[] m2mStart;
+    private final int[] m2mSource;
+    private final int[] m2mPower;
+    private final double[] m2mCoefficient;
+
+    // M2L : L(k) += c * Q(n) * D(k + n), |k| + |n| <= order
+    private final int[] m2lStart;
+    private final int[] m2lSource;
+    private final int[] m2lDerivative;
+    private final double[] m2lCoefficient;
+
+    // L2L : Lenfant(k) += c * L(k + j) * d^j
+    private final int[] l2lStart;
+    private final int[] l2lSource;
+    private final int[] l2lPower;
+    private final double[] l2lCoefficient;
+
+    // Gradient : d/dx u^k = a u^(a-1, b), donc gx = sum (a + 1) L(a + 1, b) u^(a, b)
+    private final int gradientTerms;
+    private final int[] gradientX;
+    private final int[] gradientY;
+    private final double[] gradientXCoefficient;
+    private final double[] gradientYCoefficient;
+
+    CartesianExpansion(int order) {
+        if (order < 1) {
+            throw new IllegalArgumentException("Expansion order must be at least 1");
+        }
+        this.order = order;
+        this.terms = count(order);
+
+        int m2m = 0;
+        int m2l = 0;
+        int l2l = 0;
+        for (int n = 0; n < terms; n++) {
+            for (int j = 0; j < terms; j++) {
+                if (xOf(j) <= xOf(n) && yOf(j) <= yOf(n)) {
+                    m2m++;
+                }
+                if (degree(n) + degree(j) <= order) {
+                    m2l++;
+                    l2l++;
+                }
+            }
+        }
+        m2mStart = new int[terms + 1];
+        m2mSource = new int[m2m];
+        m2mPower = new int[m2m];
+        m2mCoefficient = new double[m2m];
+        m2lStart = new int[terms + 1];
+        m2lSource = new int[m2l];
+        m2lDerivative = new int[m2l];
+        m2lCoefficient = new double[m2l];
+        l2lStart = new int[terms + 1];
+        l2lSource = new int[l2l];
+        l2lPower = new int[l2l];
+        l2lCoefficient = new double[l2l];
+
+        m2m = 0;
+        m2l = 0;
+        l2l = 0;
+        for (int n = 0; n < terms; n++) {
+            int na = xOf(n);
+            int nb = yOf(n);
+            m2mStart[n] = m2m;
+            m2lStart[n] = m2l;
+            l2lStart[n] = l2l;
+            for (int j = 0; j < terms; j++) {
+                int ja = xOf(j);
+                int jb = yOf(j);
+                if (ja <= na && jb <= nb) {
+                    m2mSource[m2m] = j;
+                    m2mPower[m2m] = index(na - ja, nb - jb);
+                    m2mCoefficient[m2m++] = binomial(na, ja) * binomial(nb, jb);
+                }
+                if (degree(n) + degree(j) <= order) {
+                    // Ici n joue le rôle de k (local) et j celui de n (multipôle, ou décalage du L2L)
+                    int sum = index(na + ja, nb + jb);
+                    double c = binomial(na + ja, ja) * binomial(nb + jb, jb);
+                    m2lSource[m2l] = j;
+                    m2lDerivative[m2l] = sum;
+                    m2lCoefficient[m2l++] = degree(j) % 2 == 0 ? c : -c;
+                    l2lSource[l2l] = sum;
+                    l2lPower[l2l] = j;
+                    l2lCoefficient[l2l++] = c;
+                }
+            }
+        }
+        m2mStart[terms] = m2m;
+        m2lStart[terms] = m2l;
+        l2lStart[terms] = l2l;
+
+        gradientTerms = count(order - 1);
+        gradientX = new int[gradientTerms];
+        gradientY = new int[gradientTerms];
+        gradientXCoefficient = new double[gradientTerms];
+        gradientYCoefficient = new double[gradientTerms];
+        for (int k = 0; k < gradientTerms; k++) {
+            gradientX[k] = index(xOf(k) + 1, yOf(k));
+            gradientY[k] = index(xOf(k), yOf(k) + 1);
+            gradientXCoefficient[k] = xOf(k) + 1;
+            gradientYCoefficient[k] = yOf(k) + 1;
+        }
+    }
+
+    int order() {
+        return order;
+    }
+
+    /**
+     * Number of coefficients of an expansion.
+     */
+    int terms() {
+        return terms;
+    }
+
+    /**
+     * P2M: adds the moments of the bodies {@code [from, to)} around (cx, cy) to {@code q[offset..]}.
+     */
+    void particlesToMultipole(double[] x, double[] y, double[] m, int from, int to, double cx, double cy,
+                              double[] q, int offset, double[] scratch) {
+        for (int i = from; i < to; i++) {
+            powers(x[i] - cx, y[i] - cy, scratch);
+            double mi = m[i];
+            for (int n = 0; n < terms; n++) {
+                q[offset + n] += mi * scratch[n];
+            }
+        }
+    }
+
+    /**
+     * M2M: shifts the moments of a child centered on s + d into its parent centered on s.
+     */
+    void multipoleToMultipole(double[] q, int child, int parent, double dx, double dy, double[] scratch) {
+        powers(dx, dy, scratch);
+        for (int n = 0; n < terms; n++) {
+            double sum = 0;
+            for (int t = m2mStart[n]; t < m2mStart[n + 1]; t++) {
+                sum += m2mCoefficient[t] * q[child + m2mSource[t]] * scratch[m2mPower[t]];
+            }
+            q[parent + n] += sum;
+        }
+    }
+
+    /**
+     * M2L: adds to the local expansion at {@code local[target..]} the field of the moments at
+     * {@code q[source..]}, (rx, ry) being the target center minus the source center.
+     */
+    void multipoleToLocal(double[] q, int source, double[] local, int target, double rx, double ry,
+                          double[] scratch) {
+        derivatives(rx, ry, scratch);
+        for (int k = 0; k < terms; k++) {
+            double sum = 0;
+            for (int t = m2lStart[k]; t < m2lStart[k + 1]; t++) {
+                sum += m2lCoefficient[t] * q[source + m2lSource[t]] * scratch[m2lDerivative[t]];
+            }
+            local[target + k] += sum;
+        }
+    }
+
+    /**
+     * L2L: adds the local expansion of a parent centered on t to its child centered on t + d.
+     */
+    void localToLocal(double[] local, int parent, int child, double dx, double dy, double[] scratch) {
+        powers(dx, dy, scratch);
+        for (int k = 0; k < terms; k++) {
+            double sum = 0;
+            for (int t = l2lStart[k]; t < l2lStart[k + 1]; t++) {
+                sum += l2lCoefficient[t] * local[parent + l2lSource[t]] * scratch[l2lPower[t]];
+            }
+            local[child + k] += sum;
+        }
+    }
+
+    /**
+     * L2P: gradient of the potential at an offset u from the center, i.e. the field sum m (xj - x) / r³,
+     * added to {@code gx[i]} and {@code gy[i]}.
+     */
+    void localToGradient(double[] local, int offset, double ux, double uy, double[] gx, double[] gy, int i,
+                         double[] scratch) {
+        powers(ux, uy, scratch);
+        double sx = 0;
+        double sy = 0;
+        for (int k = 0; k < gradientTerms; k++) {
+            sx += gradientXCoefficient[k] * local[offset + gradientX[k]] * scratch[k];
+            sy += gradientYCoefficient[k] * local[offset + gradientY[k]] * scratch[k];
+        }
+        gx[i] += sx;
+        gy[i] += sy;
+    }
+
+    /**
+     * Monomials dx^a dy^b for every a + b &lt;= order.
+     */
+    void powers(double dx, double dy, double[] out) {
+        out[0] = 1;
+        for (int d = 1; d <= order; d++) {
+            int first = count(d - 1);
+            int previous = count(d - 2);
+            // (d, 0) = dx * (d - 1, 0) ; (a, b) avec b > 0 = dy * (a, b - 1)
+            out[first] = dx * out[previous];
+            for (int b = 1; b <= d; b++) {
+                out[first + b] = dy * out[previous + b - 1];
+            }
+        }
+    }
+
+    /**
+     * Taylor coefficients D(a, b) = d^(a+b) (1/r) / dx^a dy^b / (a! b!) at (rx, ry), for a + b &lt;= order,
+     * by the recurrence n r² D(k) = -(2n - 1) sum r_i D(k - e_i) - (n - 1) sum D(k - 2 e_i).
+     */
+    void derivatives(double rx, double ry, double[] out) {
+        double rSq = rx * rx + ry * ry;
+        double inverseRSq = 1 / rSq;
+        out[0] = Math.sqrt(inverseRSq);
+        for (int d = 1; d <= order; d++) {
+            int first = count(d - 1);
+            int previous = count(d - 2);
+            int beforePrevious = count(d - 3);
+            double s = -inverseRSq / d;
+            for (int b = 0; b <= d; b++) {
+                int a = d - b;
+                double first1 = 0;
+                if (a > 0) {
+                    first1 += rx * out[previous + b];
+                }
+                if (b > 0) {
+                    first1 += ry * out[previous + b - 1];
+                }
+                double second = 0;
+                if (a > 1) {
+                    second += out[beforePrevious + b];
+                }
+                if (b > 1) {
+                    second += out[beforePrevious + b - 2];
+                }
+                out[first + b] = s * ((2 * d - 1) * first1 + (d - 1) * second);
+            }
+        }
+    }
+
+    /**
+     * Flat index of (a, b): degrees are stored one after the other, by increasing b.
+     */
+    static int index(int a, int b) {
+        return count(a + b - 1) + b;
+    }
+
+    // Nombre de multi-indices de degré <= d
+    private static int count(int d) {
+        return d < 0 ? 0 : (d + 1) * (d + 2) / 2;
+    }
+
+    private static int degree(int index) {
+        int d = 0;
+        while (count(d) <= index) {
+            d++;
+        }
+        return d;
+    }
+
+    private static int yOf(int index) {
+        return index - count(degree(index) - 1);
+    }
+
+    private static int xOf(int index) {
+        return degree(index) - yOf(index);
+    }
+
+    private static double binomial(int n, int k) {
+        double c = 1;
+        for (int i = 1; i <= k; i++) {
+            c = c * (n - k + i) / i;
+        }
+        return c;
+    }
+}
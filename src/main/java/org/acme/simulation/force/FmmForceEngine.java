@@ -0,0 +1,572 @@
+package org.acme.simulation.force;
+
+import org.acme.core.BodyStore;
+import org.acme.simulation.SimulationLogic;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * O(n) approximation of the gravitational forces with the fast multipole method.
+ * <p>
+ * Bodies are sorted into an adaptive quadtree whose leaves hold at most {@link #LEAF_SIZE} bodies.
+ * Each cell carries a multipole expansion of its mass (upward pass) and a local expansion of the
+ * field of the far cells (downward pass), both truncated at the configured order. A dual-tree
+ * traversal converts the multipole of a source cell into the local expansion of a target cell when
+ * (r_target + r_source) / distance &lt; theta, and sums the remaining leaf pairs directly, with the
+ * same softening as {@link PairwiseForceEngine}. The error decreases as theta^order.
+ * <p>
+ * The target cells are split into subtrees processed by the workers of a fork/join pool; a subtree
+ * only writes to its own cells and bodies, so the result does not depend on the thread count. The
+ * tree and the expansions are reused between ticks: an instance must not be shared between
+ * simulations running concurrently.
+ */
+public class FmmForceEngine implements ForceEngine, AutoCloseable {
+
+    public static final int DEFAULT_ORDER = 8;
+    public static final double DEFAULT_THETA = 0.4;
+
+    static final int LEAF_SIZE = 64;
+    // En dessous, un seul sous-arbre traité par le thread appelant
+    static final int SEQUENTIAL_THRESHOLD = 4096;
+
+    private static final int MAX_DEPTH = QuadTree.MAX_DEPTH;
+    // Découpage fixe, indépendant du nombre de workers pour que le résultat n'en dépende pas ;
+    // assez fin pour équilibrer un disque très dense au centre
+    private static final int SUBTREES = 64;
+    private static final int INITIAL_NODES = 64;
+
+    private static final int UPWARD = 0;
+    private static final int EVALUATE = 1;
+
+    private final CartesianExpansion expansion;
+    private final int terms;
+    private final double theta;
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;
+    private final Worker[] workers;
+    private final RecursiveAction root;
+    private final AtomicInteger nextSubtree = new AtomicInteger();
+    private final double[] scratch;
+
+    // Corps triés par cellule : les corps d'une cellule occupent [start, end)
+    private double[] x = new double[0];
+    private double[] y = new double[0];
+    private double[] m = new double[0];
+    private double[] gx = new double[0];
+    private double[] gy = new double[0];
+    private int[] bodyIndex = new int[0];
+    private int[] sortedIndex = new int[0];
+    private boolean[] selected = new boolean[0];
+    private boolean selectAll;
+    private int bodyCount;
+
+    // Cellules ; les fils d'une cellule sont contigus à partir de firstChild
+    private double[] centerX = new double[INITIAL_NODES];
+    private double[] centerY = new double[INITIAL_NODES];
+    private double[] halfSize = new double[INITIAL_NODES];
+    private double[] radius = new double[INITIAL_NODES];
+    private int[] start = new int[INITIAL_NODES];
+    private int[] end = new int[INITIAL_NODES];
+    private int[] firstChild = new int[INITIAL_NODES];
+    private int[] childCount = new int[INITIAL_NODES];
+    private boolean[] subtreeRoot = new boolean[INITIAL_NODES];
+    private double[] multipole;
+    private double[] local;
+    private int nodeCount;
+
+    private int[] subtrees = new int[0];
+    private int[] nextSubtrees = new int[0];
+    private int subtreeCount;
+    private int phase;
+    private double[] fx;
+    private double[] fy;
+
+    public FmmForceEngine() {
+        this(DEFAULT_ORDER, DEFAULT_THETA);
+    }
+
+    /**
+     * Uses a dedicated pool with one worker per available processor.
+     */
+    public FmmForceEngine(int order, double theta) {
+        this(order, theta, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Uses a dedicated pool with the given number of workers, released by {@link #close()}.
+     */
+    public FmmForceEngine(int order, double theta, int parallelism) {
+        this(order, theta, new ForkJoinPool(parallelism), true);
+    }
+
+    /**
+     * Uses an existing pool, which is left running by {@link #close()}.
+     */
+    public FmmForceEngine(int order, double theta, ForkJoinPool pool) {
+        this(order, theta, pool, false);
+    }
+
+    private FmmForceEngine(int order, double theta, ForkJoinPool pool, boolean ownsPool) {
+        // Au-delà de 1 les développements ne convergent plus
+        if (!(theta >= 0 && theta < 1) || order < 1) {
+            if (ownsPool) {
+                pool.shutdown();
+            }
+            throw new IllegalArgumentException(order < 1 ? "Expansion order must be at least 1"
+                    : "Theta must be at least 0 and less than 1");
+        }
+        this.expansion = new CartesianExpansion(order);
+        this.terms = expansion.terms();
+        this.theta = theta;
+        this.pool = pool;
+        this.ownsPool = ownsPool;
+        this.scratch = new double[terms];
+        multipole = new double[INITIAL_NODES * terms];
+        local = new double[INITIAL_NODES * terms];
+        workers = new Worker[pool.getParallelism()];
+        for (int w = 0; w < workers.length; w++) {
+            workers[w] = new Worker();
+        }
+        root = new RecursiveAction() {
+            @Override
+            protected void compute() {
+                ForkJoinTask.invokeAll(workers);
+            }
+        };
+    }
+
+    public int getOrder() {
+        return expansion.order();
+    }
+
+    public double getTheta() {
+        return theta;
+    }
+
+    int getNodeCount() {
+        return nodeCount;
+    }
+
+    @Override
+    public void computeForces(BodyStore bodies, double[] fx, double[] fy) {
+        selectAll = true;
+        build(bodies);
+        evaluate(fx, fy);
+    }
+
+    /**
+     * Every expansion is still built, but the near field and the evaluation are limited to the targets.
+     */
+    @Override
+    public void computeForces(BodyStore bodies, int[] targets, int count, double[] fx, double[] fy) {
+        selectAll = false;
+        build(bodies);
+        for (int k = 0; k < count; k++) {
+            selected[sortedIndex[targets[k]]] = true;
+        }
+        try {
+            evaluate(fx, fy);
+        } finally {
+            for (int k = 0; k < count; k++) {
+                selected[sortedIndex[targets[k]]] = false;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (ownsPool) {
+            pool.shutdown();
+        }
+    }
+
+    private void evaluate(double[] fx, double[] fy) {
+        if (bodyCount == 0) {
+            return;
+        }
+        this.fx = fx;
+        this.fy = fy;
+        try {
+            splitSubtrees();
+            run(UPWARD);
+            if (!subtreeRoot[0]) {
+                upward(0, scratch);
+            }
+            Arrays.fill(local, 0, nodeCount * terms, 0.0);
+            run(EVALUATE);
+        } finally {
+            this.fx = null;
+            this.fy = null;
+            for (int s = 0; s < subtreeCount; s++) {
+                subtreeRoot[subtrees[s]] = false;
+            }
+        }
+    }
+
+    private boolean sequential() {
+        return bodyCount < SEQUENTIAL_THRESHOLD || workers.length == 1;
+    }
+
+    private void run(int phase) {
+        this.phase = phase;
+        nextSubtree.set(0);
+        if (sequential()) {
+            workers[0].process();
+            return;
+        }
+        for (Worker worker : workers) {
+            worker.reinitialize();
+        }
+        root.reinitialize();
+        pool.invoke(root);
+    }
+
+    /**
+     * Descend niveau par niveau jusqu'à avoir au moins SUBTREES sous-arbres (ou seulement des feuilles)
+     */
+    private void splitSubtrees() {
+        if (subtrees.length < nodeCount) {
+            subtrees = new int[Math.max(nodeCount, subtrees.length * 2)];
+            nextSubtrees = new int[subtrees.length];
+        }
+        subtrees[0] = 0;
+        subtreeCount = 1;
+        boolean split = true;
+        while (subtreeCount < SUBTREES && split) {
+            split = false;
+            int count = 0;
+            for (int s = 0; s < subtreeCount; s++) {
+                int node = subtrees[s];
+                if (childCount[node] == 0) {
+                    nextSubtrees[count++] = node;
+                } else {
+                    split = true;
+                    for (int c = 0; c < childCount[node]; c++) {
+                        nextSubtrees[count++] = firstChild[node] + c;
+                    }
+                }
+            }
+            int[] swap = subtrees;
+            subtrees = nextSubtrees;
+            nextSubtrees = swap;
+            subtreeCount = count;
+        }
+        for (int s = 0; s < subtreeCount; s++) {
+            subtreeRoot[subtrees[s]] = true;
+        }
+    }
+
+    // --- Arbre ---
+
+    private void build(BodyStore bodies) {
+        int n = bodies.size();
+        bodyCount = n;
+        nodeCount = 0;
+        if (x.length < n) {
+            int capacity = Math.max(n, x.length * 2);
+            x = new double[capacity];
+            y = new double[capacity];
+            m = new double[capacity];
+            gx = new double[capacity];
+            gy = new double[capacity];
+            bodyIndex = new int[capacity];
+            sortedIndex = new int[capacity];
+            selected = new boolean[capacity];
+        }
+        if (n == 0) {
+            return;
+        }
+        System.arraycopy(bodies.x(), 0, x, 0, n);
+        System.arraycopy(bodies.y(), 0, y, 0, n);
+        System.arraycopy(bodies.mass(), 0, m, 0, n);
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            bodyIndex[i] = i;
+            minX = Math.min(minX, x[i]);
+            minY = Math.min(minY, y[i]);
+            maxX = Math.max(maxX, x[i]);
+            maxY = Math.max(maxY, y[i]);
+        }
+
+        // Racine carrée légèrement élargie pour que les corps du bord soient strictement dedans
+        double half = Math.max(maxX - minX, maxY - minY) / 2.0;
+        half = half > 0 ? half * (1 + 1e-9) : 1.0;
+        newNodes(1);
+        setNode(0, (minX + maxX) / 2.0, (minY + maxY) / 2.0, half, 0, n);
+        split(0, 0);
+        for (int k = 0; k < n; k++) {
+            sortedIndex[bodyIndex[k]] = k;
+        }
+    }
+
+    private void split(int node, int depth) {
+        int from = start[node];
+        int to = end[node];
+        if (to - from <= LEAF_SIZE || depth >= MAX_DEPTH) {
+            return;
+        }
+        double cx = centerX[node];
+        double cy = centerY[node];
+        // Quadrants dans l'ordre (bas gauche, bas droite, haut gauche, haut droite)
+        int middle = partition(from, to, cy, false);
+        int lowMiddle = partition(from, middle, cx, true);
+        int highMiddle = partition(middle, to, cx, true);
+        int[] bounds = {from, lowMiddle, middle, highMiddle, to};
+
+        int children = 0;
+        for (int q = 0; q < 4; q++) {
+            if (bounds[q] < bounds[q + 1]) {
+                children++;
+            }
+        }
+        int first = newNodes(children);
+        firstChild[node] = first;
+        childCount[node] = children;
+        double quarter = halfSize[node] / 2;
+        int child = first;
+        for (int q = 0; q < 4; q++) {
+            if (bounds[q] < bounds[q + 1]) {
+                double childX = (q & 1) == 0 ? cx - quarter : cx + quarter;
+                double childY = q < 2 ? cy - quarter : cy + quarter;
+                setNode(child++, childX, childY, quarter, bounds[q], bounds[q + 1]);
+            }
+        }
+        for (int c = first; c < first + children; c++) {
+            split(c, depth + 1);
+        }
+    }
+
+    /**
+     * Place les corps de coordonnée &lt; pivot avant les autres et renvoie l'indice du premier des autres
+     */
+    private int partition(int from, int to, double pivot, boolean alongX) {
+        double[] axis = alongX ? x : y;
+        int i = from;
+        int j = to - 1;
+        while (true) {
+            while (i <= j && axis[i] < pivot) {
+                i++;
+            }
+            while (i <= j && axis[j] >= pivot) {
+                j--;
+            }
+            if (i >= j) {
+                return i;
+            }
+            swap(i++, j--);
+        }
+    }
+
+    private void swap(int i, int j) {
+        double tx = x[i];
+        x[i] = x[j];
+        x[j] = tx;
+        double ty = y[i];
+        y[i] = y[j];
+        y[j] = ty;
+        double tm = m[i];
+        m[i] = m[j];
+        m[j] = tm;
+        int ti = bodyIndex[i];
+        bodyIndex[i] = bodyIndex[j];
+        bodyIndex[j] = ti;
+    }
+
+    private int newNodes(int count) {
+        int first = nodeCount;
+        nodeCount += count;
+        if (nodeCount > centerX.length) {
+            int capacity = Math.max(nodeCount, centerX.length * 2);
+            centerX = Arrays.copyOf(centerX, capacity);
+            centerY = Arrays.copyOf(centerY, capacity);
+            halfSize = Arrays.copyOf(halfSize, capacity);
+            radius = Arrays.copyOf(radius, capacity);
+            start = Arrays.copyOf(start, capacity);
+            end = Arrays.copyOf(end, capacity);
+            firstChild = Arrays.copyOf(firstChild, capacity);
+            childCount = Arrays.copyOf(childCount, capacity);
+            subtreeRoot = Arrays.copyOf(subtreeRoot, capacity);
+            multipole = new double[capacity * terms];
+            local = new double[capacity * terms];
+        }
+        return first;
+    }
+
+    private void setNode(int node, double cx, double cy, double half, int from, int to) {
+        centerX[node] = cx;
+        centerY[node] = cy;
+        halfSize[node] = half;
+        start[node] = from;
+        end[node] = to;
+        firstChild[node] = -1;
+        childCount[node] = 0;
+    }
+
+    // --- Passes ---
+
+    /**
+     * Moments et rayon de la cellule ; s'arrête aux racines des sous-arbres déjà calculés par les workers
+     * (sauf si c'est la cellule de départ)
+     */
+    private void upward(int node, double[] scratch) {
+        int offset = node * terms;
+        Arrays.fill(multipole, offset, offset + terms, 0.0);
+        double cx = centerX[node];
+        double cy = centerY[node];
+        double r = 0;
+        if (childCount[node] == 0) {
+            expansion.particlesToMultipole(x, y, m, start[node], end[node], cx, cy, multipole, offset, scratch);
+            for (int i = start[node]; i < end[node]; i++) {
+                double dx = x[i] - cx;
+                double dy = y[i] - cy;
+                r = Math.max(r, dx * dx + dy * dy);
+            }
+            radius[node] = Math.sqrt(r);
+            return;
+        }
+        for (int c = firstChild[node]; c < firstChild[node] + childCount[node]; c++) {
+            if (!subtreeRoot[c]) {
+                upward(c, scratch);
+            }
+            double dx = centerX[c] - cx;
+            double dy = centerY[c] - cy;
+            expansion.multipoleToMultipole(multipole, c * terms, offset, dx, dy, scratch);
+            r = Math.max(r, Math.sqrt(dx * dx + dy * dy) + radius[c]);
+        }
+        // Le rayon ne dépasse jamais la demi-diagonale de la cellule
+        radius[node] = Math.min(r, halfSize[node] * Math.sqrt(2));
+    }
+
+    /**
+     * Champ de la cellule source sur la cellule cible : développement local si elles sont bien séparées,
+     * somme directe entre feuilles, sinon on descend dans la plus grande
+     */
+    private void interact(int target, int source, double[] scratch) {
+        double dx = centerX[target] - centerX[source];
+        double dy = centerY[target] - centerY[source];
+        double r = radius[target] + radius[source];
+        if (r * r < theta * theta * (dx * dx + dy * dy)) {
+            expansion.multipoleToLocal(multipole, source * terms, local, target * terms, dx, dy, scratch);
+            return;
+        }
+        boolean targetLeaf = childCount[target] == 0;
+        boolean sourceLeaf = childCount[source] == 0;
+        if (targetLeaf && sourceLeaf) {
+            direct(target, source);
+        } else if (!targetLeaf && (sourceLeaf || radius[target] >= radius[source])) {
+            for (int c = firstChild[target]; c < firstChild[target] + childCount[target]; c++) {
+                interact(c, source, scratch);
+            }
+        } else {
+            for (int c = firstChild[source]; c < firstChild[source] + childCount[source]; c++) {
+                interact(target, c, scratch);
+            }
+        }
+    }
+
+    /**
+     * Somme directe sur les corps de la feuille cible ; le terme i == j est nul grâce à l'adoucissement
+     */
+    private void direct(int target, int source) {
+        int from = start[source];
+        int to = end[source];
+        for (int i = start[target]; i < end[target]; i++) {
+            if (!selectAll && !selected[i]) {
+                continue;
+            }
+            double xi = x[i];
+            double yi = y[i];
+            double sx = 0;
+            double sy = 0;
+            for (int j = from; j < to; j++) {
+                double dx = x[j] - xi;
+                double dy = y[j] - yi;
+                double distSq = dx * dx + dy * dy + SOFTENING;
+                double s = m[j] / (distSq * Math.sqrt(distSq));
+                sx += s * dx;
+                sy += s * dy;
+            }
+            gx[i] += sx;
+            gy[i] += sy;
+        }
+    }
+
+    private void downward(int node, double[] scratch) {
+        int offset = node * terms;
+        if (childCount[node] == 0) {
+            double cx = centerX[node];
+            double cy = centerY[node];
+            for (int i = start[node]; i < end[node]; i++) {
+                if (selectAll || selected[i]) {
+                    expansion.localToGradient(local, offset, x[i] - cx, y[i] - cy, gx, gy, i, scratch);
+                }
+            }
+            return;
+        }
+        for (int c = firstChild[node]; c < firstChild[node] + childCount[node]; c++) {
+            expansion.localToLocal(local, offset, c * terms, centerX[c] - centerX[node], centerY[c] - centerY[node],
+                    scratch);
+            downward(c, scratch);
+        }
+    }
+
+    private void evaluateSubtree(int node, double[] scratch) {
+        int from = start[node];
+        int to = end[node];
+        if (!selectAll && !anySelected(from, to)) {
+            return;
+        }
+        Arrays.fill(gx, from, to, 0.0);
+        Arrays.fill(gy, from, to, 0.0);
+        interact(node, 0, scratch);
+        downward(node, scratch);
+        for (int i = from; i < to; i++) {
+            if (selectAll || selected[i]) {
+                int body = bodyIndex[i];
+                double gm = SimulationLogic.G * m[i];
+                fx[body] += gm * gx[i];
+                fy[body] += gm * gy[i];
+            }
+        }
+    }
+
+    private boolean anySelected(int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (selected[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private final class Worker extends RecursiveAction {
+        private final double[] scratch = new double[terms];
+
+        @Override
+        protected void compute() {
+            process();
+        }
+
+        /**
+         * Prend les sous-arbres un par un : un worker ralenti n'en retarde qu'un seul
+         */
+        void process() {
+            int s;
+            while ((s = nextSubtree.getAndIncrement()) < subtreeCount) {
+                int node = subtrees[s];
+                if (phase == UPWARD) {
+                    upward(node, scratch);
+                } else {
+                    evaluateSubtree(node, scratch);
+                }
+            }
+        }
+    }
+}
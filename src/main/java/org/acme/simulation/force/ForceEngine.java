@@ -0,0 +1,51 @@
+package org.acme.simulation.force;
+
+import org.acme.core.BodyStore;
+import org.acme.simulation.SimulationLogic;
+
+/**
+ * Strategy computing the gravitational forces applied on every body for one tick.
+ */
+public interface ForceEngine {
+
+    /**
+     * Softening added to squared distances so that close bodies do not produce infinite forces.
+     */
+    double SOFTENING = 1e-9;
+
+    /**
+     * Adds to {@code fx}/{@code fy} the force applied on each body of the store.
+     */
+    void computeForces(BodyStore bodies, double[] fx, double[] fy);
+
+    /**
+     * Adds to {@code fx}/{@code fy} the force applied by every body on the first {@code count} bodies
+     * listed in {@code targets}; the other entries are left untouched. Used by integrators that only
+     * advance part of the bodies at a time. The default implementation sums directly, in O(count * n).
+     */
+    default void computeForces(BodyStore bodies, int[] targets, int count, double[] fx, double[] fy) {
+        int n = bodies.size();
+        double[] x = bodies.x();
+        double[] y = bodies.y();
+        double[] m = bodies.mass();
+        for (int k = 0; k < count; k++) {
+            int i = targets[k];
+            double xi = x[i];
+            double yi = y[i];
+            double gmi = SimulationLogic.G * m[i];
+            double fxi = 0;
+            double fyi = 0;
+            for (int j = 0; j < n; j++) {
+                double dx = x[j] - xi;
+                double dy = y[j] - yi;
+                double distSq = dx * dx + dy * dy + SOFTENING;
+                double s = gmi * m[j] / (distSq * Math.sqrt(distSq));
+                // j == i donne dx = dy = 0 : pas besoin de branche
+                fxi += s * dx;
+                fyi += s * dy;
+            }
+            fx[i] += fxi;
+            fy[i] += fyi;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package org.acme.simulation.force;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Force engines that can be chosen by configuration or through the REST API.
+ */
+public enum ForceEngineType {
+
+    /**
+     * Exact O(n²) loop, {@link PairwiseForceEngine}.
+     */
+    PAIRWISE,
+
+    /**
+     * Exact O(n²) loop with SIMD instructions, {@link VectorPairwiseForceEngine}.
+     */
+    VECTOR,
+
+    /**
+     * Exact O(n²) loop on every core, {@link ParallelPairwiseForceEngine}.
+     */
+    PARALLEL,
+
+    /**
+     * Approximate O(n log n) tree, {@link BarnesHutForceEngine}, whose accuracy is set by theta.
+     */
+    BARNES_HUT,
+
+    /**
+     * Approximate O(n) fast multipole method on every core, {@link FmmForceEngine}, whose accuracy is set
+     * by theta (below 1) at the default expansion order.
+     */
+    FMM,
+
+    /**
+     * Approximate O(n) particle-particle / particle-mesh solver on every core, {@link P3mForceEngine}, for
+     * dense systems.
+     */
+    P3M;
+
+    /**
+     * New engine of this type; theta is only used by the approximate engines, and {@code pool} by the
+     * parallel ones, which leave it running when they are closed.
+     */
+    public ForceEngine create(double theta, ForkJoinPool pool) {
+        return switch (this) {
+            case PAIRWISE -> new PairwiseForceEngine();
+            case VECTOR -> new VectorPairwiseForceEngine();
+            case PARALLEL -> new ParallelPairwiseForceEngine(pool);
+            case BARNES_HUT -> new BarnesHutForceEngine(theta);
+            case FMM -> new FmmForceEngine(FmmForceEngine.DEFAULT_ORDER, theta, pool);
+            case P3M -> new P3mForceEngine(pool);
+        };
+    }
+
+    /**
+     * Whether the accuracy of the engine depends on theta.
+     */
+    public boolean usesTheta() {
+        return this == BARNES_HUT || this == FMM;
+    }
+
+    /**
+     * Type of an engine, or null for an engine that is not one of these types.
+     */
+    public static ForceEngineType of(ForceEngine engine) {
+        if (engine == null) {
+            return null;
+        }
+        // Classes exactes : une sous-classe peut se comporter autrement
+        Class<?> type = engine.getClass();
+        if (type == PairwiseForceEngine.class) {
+            return PAIRWISE;
+        } else if (type == VectorPairwiseForceEngine.class) {
+            return VECTOR;
+        } else if (type == ParallelPairwiseForceEngine.class) {
+            return PARALLEL;
+        } else if (type == BarnesHutForceEngine.class) {
+            return BARNES_HUT;
+        } else if (type == FmmForceEngine.class) {
+            return FMM;
+        } else if (type == P3mForceEngine.class) {
+            return P3M;
+        }
+        return null;
+    }
+
+    /**
+     * Parses a type name, case-insensitive, with dashes or underscores ({@code barnes-hut}).
+     */
+    public static ForceEngineType parse(String value) {
+        for (ForceEngineType type : values()) {
+            if (type.name().equalsIgnoreCase(value == null ? null : value.replace('-', '_'))) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("Unknown force engine: " + value);
+    }
+}
@@ -0,0 +1,541 @@
+package org.acme.simulation.force;
+
+import org.acme.core.BodyStore;
+import org.acme.simulation.SimulationLogic;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Particle-particle / particle-mesh (P3M) approximation of the gravitational forces, in O(n) per tick
+ * for a given density of bodies.
+ * <p>
+ * The force is split with a Gaussian of radius r_s ({@link #SPLIT} mesh cells). The smooth long-range
+ * part comes from a grid covering the bodies: masses are deposited with cloud-in-cell weights, the
+ * density is convolved with the long-range kernel by FFT, and the field is interpolated back with the
+ * same weights, whose smoothing is divided out of the kernel. The grid is zero-padded to twice its size, so the convolution is isolated rather than
+ * periodic. The remaining short-range part only matters below {@link #CUTOFF} r_s and is summed
+ * directly between neighbouring cells of a cell list, with the same softening as
+ * {@link PairwiseForceEngine}.
+ * <p>
+ * FFT rows and columns and the bodies of each cell are processed by the workers of a fork/join pool;
+ * every value is computed by a single worker in a fixed order, so the result does not depend on the
+ * thread count. Grids and buffers are reused between ticks: an instance must not be shared between
+ * simulations running concurrently.
+ */
+public class P3mForceEngine implements ForceEngine, AutoCloseable {
+
+    // Rayon de séparation r_s en mailles, et portée de la correction directe en r_s
+    static final double SPLIT = 1.25;
+    static final double CUTOFF = 6;
+    // Densité visée de la grille ; plus de corps par maille allonge la correction directe
+    static final int BODIES_PER_CELL = 2;
+    static final int MIN_GRID = 32;
+    static final int MAX_GRID = 1024;
+    // En dessous, la somme directe est plus rapide et exacte
+    static final int DIRECT_THRESHOLD = 1024;
+
+    // Part à courte portée de la force, tabulée sur (r / coupure)²
+    private static final int TABLE_SIZE = 4096;
+    private static final double[] SHORT_RANGE = shortRangeTable();
+
+    private static final int KERNEL_ROWS = 0;
+    private static final int KERNEL_COLUMNS = 1;
+    private static final int DENSITY_ROWS = 2;
+    private static final int CONVOLVE_COLUMNS = 3;
+    private static final int FIELD_ROWS = 4;
+    private static final int BODIES = 5;
+
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;
+    private final Worker[] workers;
+    private final RecursiveAction root;
+    private final AtomicInteger nextItem = new AtomicInteger();
+    private int phase;
+    private int itemCount;
+
+    // Grille de nx × ny nœuds, complétée de zéros jusqu'à px × py ; ligne par ligne
+    private int nx;
+    private int ny;
+    private int px;
+    private int py;
+    private Fft rowFft;
+    private Fft columnFft;
+    private double[] re = new double[0];
+    private double[] im = new double[0];
+    // Transformée du noyau (x + i y), colonne par colonne, divisée par px × py
+    private double[] kernelRe = new double[0];
+    private double[] kernelIm = new double[0];
+    private double originX;
+    private double originY;
+    private double spacing;
+
+    // Corps triés par cellule de la liste : la cellule c occupe [cellStart[c], cellStart[c + 1])
+    private double[] x = new double[0];
+    private double[] y = new double[0];
+    private double[] m = new double[0];
+    private int[] cell = new int[0];
+    private int[] bodyIndex = new int[0];
+    private int[] sortedIndex = new int[0];
+    private boolean[] selected = new boolean[0];
+    private boolean selectAll;
+    private int[] cellStart = new int[1];
+    private int cellsX;
+    private int cellsY;
+    private double cellSize;
+    private int bodyCount;
+
+    private double[] fx;
+    private double[] fy;
+
+    /**
+     * Uses a dedicated pool with one worker per available processor.
+     */
+    public P3mForceEngine() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Uses a dedicated pool with the given number of workers, released by {@link #close()}.
+     */
+    public P3mForceEngine(int parallelism) {
+        this(new ForkJoinPool(parallelism), true);
+    }
+
+    /**
+     * Uses an existing pool, which is left running by {@link #close()}.
+     */
+    public P3mForceEngine(ForkJoinPool pool) {
+        this(pool, false);
+    }
+
+    private P3mForceEngine(ForkJoinPool pool, boolean ownsPool) {
+        this.pool = pool;
+        this.ownsPool = ownsPool;
+        workers = new Worker[pool.getParallelism()];
+        for (int w = 0; w < workers.length; w++) {
+            workers[w] = new Worker();
+        }
+        root = new RecursiveAction() {
+            @Override
+            protected void compute() {
+                ForkJoinTask.invokeAll(workers);
+            }
+        };
+    }
+
+    int getGridWidth() {
+        return nx;
+    }
+
+    int getGridHeight() {
+        return ny;
+    }
+
+    @Override
+    public void computeForces(BodyStore bodies, double[] fx, double[] fy) {
+        int n = bodies.size();
+        if (n < DIRECT_THRESHOLD) {
+            PairwiseForceEngine.accumulateRows(bodies.x(), bodies.y(), bodies.mass(), n, 0, n, fx, fy, 0);
+            return;
+        }
+        selectAll = true;
+        build(bodies);
+        evaluate(fx, fy);
+    }
+
+    /**
+     * The whole mesh is still solved, but the interpolation and the short-range sums are limited to the targets.
+     */
+    @Override
+    public void computeForces(BodyStore bodies, int[] targets, int count, double[] fx, double[] fy) {
+        if (bodies.size() < DIRECT_THRESHOLD) {
+            ForceEngine.super.computeForces(bodies, targets, count, fx, fy);
+            return;
+        }
+        selectAll = false;
+        build(bodies);
+        for (int k = 0; k < count; k++) {
+            selected[sortedIndex[targets[k]]] = true;
+        }
+        try {
+            evaluate(fx, fy);
+        } finally {
+            for (int k = 0; k < count; k++) {
+                selected[sortedIndex[targets[k]]] = false;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (ownsPool) {
+            pool.shutdown();
+        }
+    }
+
+    private void evaluate(double[] fx, double[] fy) {
+        this.fx = fx;
+        this.fy = fy;
+        try {
+            // Seules les ny premières lignes de la densité sont non nulles, et seules elles sont lues ensuite
+            run(DENSITY_ROWS, ny);
+            run(CONVOLVE_COLUMNS, px);
+            run(FIELD_ROWS, ny);
+            run(BODIES, cellsX * cellsY);
+        } finally {
+            this.fx = null;
+            this.fy = null;
+        }
+    }
+
+    private void run(int phase, int items) {
+        this.phase = phase;
+        this.itemCount = items;
+        nextItem.set(0);
+        if (workers.length == 1) {
+            workers[0].process();
+            return;
+        }
+        for (Worker worker : workers) {
+            worker.reinitialize();
+        }
+        root.reinitialize();
+        pool.invoke(root);
+    }
+
+    private void build(BodyStore bodies) {
+        int n = bodies.size();
+        bodyCount = n;
+        if (x.length < n) {
+            int capacity = Math.max(n, x.length * 2);
+            x = new double[capacity];
+            y = new double[capacity];
+            m = new double[capacity];
+            cell = new int[capacity];
+            bodyIndex = new int[capacity];
+            sortedIndex = new int[capacity];
+            selected = new boolean[capacity];
+        }
+        double[] bx = bodies.x();
+        double[] by = bodies.y();
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            minX = Math.min(minX, bx[i]);
+            minY = Math.min(minY, by[i]);
+            maxX = Math.max(maxX, bx[i]);
+            maxY = Math.max(maxY, by[i]);
+        }
+        double width = maxX - minX;
+        double height = maxY - minY;
+        if (width == 0 && height == 0) {
+            width = 1;
+            height = 1;
+        }
+        resizeGrid(width, height, n);
+        // Deux nœuds de marge : le nœud suivant celui d'un corps du bord existe toujours
+        spacing = Math.max(width / (nx - 2), height / (ny - 2));
+        originX = minX;
+        originY = minY;
+
+        cellSize = CUTOFF * SPLIT * spacing;
+        cellsX = (int) (width / cellSize) + 1;
+        cellsY = (int) (height / cellSize) + 1;
+        sortIntoCells(bodies);
+        deposit();
+    }
+
+    /**
+     * Choisit une grille d'environ n / BODIES_PER_CELL mailles, conservée tant qu'elle reste à un facteur 2
+     * de ce choix pour ne pas recalculer le noyau à chaque tick
+     */
+    private void resizeGrid(double width, double height, int n) {
+        double target = Math.sqrt(width * height / ((double) n / BODIES_PER_CELL));
+        if (target == 0) {
+            target = Math.max(width, height) / MAX_GRID;
+        }
+        int wantX = gridSize(width / target);
+        int wantY = gridSize(height / target);
+        if (nx != 0 && nx <= 2 * wantX && 2 * nx >= wantX && ny <= 2 * wantY && 2 * ny >= wantY) {
+            return;
+        }
+        nx = wantX;
+        ny = wantY;
+        px = 2 * nx;
+        py = 2 * ny;
+        rowFft = new Fft(px);
+        columnFft = new Fft(py);
+        re = new double[px * py];
+        im = new double[px * py];
+        kernelRe = new double[px * py];
+        kernelIm = new double[px * py];
+        computeKernel();
+    }
+
+    private static int gridSize(double cells) {
+        int size = MIN_GRID;
+        while (size < MAX_GRID && size - 2 < cells) {
+            size <<= 1;
+        }
+        return size;
+    }
+
+    /**
+     * Partie à longue portée de -d / |d|³, en mailles, pour chaque décalage ; les indices au-delà de nx
+     * portent les décalages négatifs
+     */
+    private void computeKernel() {
+        for (int r = 0; r < py; r++) {
+            int dy = r < ny ? r : r - py;
+            for (int c = 0; c < px; c++) {
+                int dx = c < nx ? c : c - px;
+                double kx = 0;
+                double ky = 0;
+                // Décalage -nx (ou -ny) jamais atteint entre deux nœuds de la grille
+                if ((dx != 0 || dy != 0) && c != nx && r != ny) {
+                    double dist = Math.hypot(dx, dy);
+                    double s = (1 - shortRangeFraction(dist / SPLIT)) / (dist * dist * dist);
+                    kx = -dx * s;
+                    ky = -dy * s;
+                }
+                re[r * px + c] = kx;
+                im[r * px + c] = ky;
+            }
+        }
+        run(KERNEL_ROWS, py);
+        run(KERNEL_COLUMNS, px);
+    }
+
+    private void sortIntoCells(BodyStore bodies) {
+        int n = bodyCount;
+        int cells = cellsX * cellsY;
+        if (cellStart.length < cells + 1) {
+            cellStart = new int[Math.max(cells + 1, cellStart.length * 2)];
+        }
+        Arrays.fill(cellStart, 0, cells + 1, 0);
+        double[] bx = bodies.x();
+        double[] by = bodies.y();
+        double inverse = 1 / cellSize;
+        for (int i = 0; i < n; i++) {
+            int cx = Math.min((int) ((bx[i] - originX) * inverse), cellsX - 1);
+            int cy = Math.min((int) ((by[i] - originY) * inverse), cellsY - 1);
+            cell[i] = cy * cellsX + cx;
+            cellStart[cell[i] + 1]++;
+        }
+        for (int c = 0; c < cells; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        // Tri par comptage stable : l'ordre des corps d'une cellule suit leur indice
+        double[] bm = bodies.mass();
+        for (int i = 0; i < n; i++) {
+            int k = cellStart[cell[i]]++;
+            x[k] = bx[i];
+            y[k] = by[i];
+            m[k] = bm[i];
+            bodyIndex[k] = i;
+            sortedIndex[i] = k;
+        }
+        for (int c = cells; c > 0; c--) {
+            cellStart[c] = cellStart[c - 1];
+        }
+        cellStart[0] = 0;
+    }
+
+    /**
+     * Nuage-dans-maille : chaque masse est répartie sur les quatre nœuds qui l'entourent
+     */
+    private void deposit() {
+        Arrays.fill(re, 0.0);
+        Arrays.fill(im, 0.0);
+        double inverse = 1 / spacing;
+        for (int k = 0; k < bodyCount; k++) {
+            double u = (x[k] - originX) * inverse;
+            double v = (y[k] - originY) * inverse;
+            int i = Math.min((int) u, nx - 2);
+            int j = Math.min((int) v, ny - 2);
+            double fu = u - i;
+            double fv = v - j;
+            int node = j * px + i;
+            re[node] += m[k] * (1 - fu) * (1 - fv);
+            re[node + 1] += m[k] * fu * (1 - fv);
+            re[node + px] += m[k] * (1 - fu) * fv;
+            re[node + px + 1] += m[k] * fu * fv;
+        }
+    }
+
+    private void evaluateCell(int c) {
+        double inverse = 1 / spacing;
+        double meshScale = inverse * inverse;
+        double cutoffSq = cellSize * cellSize;
+        double tableScale = TABLE_SIZE / cutoffSq;
+        int cx = c % cellsX;
+        int cy = c / cellsX;
+        int fromX = Math.max(cx - 1, 0);
+        int toX = Math.min(cx + 1, cellsX - 1);
+        int fromY = Math.max(cy - 1, 0);
+        int toY = Math.min(cy + 1, cellsY - 1);
+        for (int k = cellStart[c]; k < cellStart[c + 1]; k++) {
+            if (!selectAll && !selected[k]) {
+                continue;
+            }
+            double xk = x[k];
+            double yk = y[k];
+
+            // Champ lointain interpolé avec les mêmes poids que le dépôt : pas d'auto-force
+            double u = (xk - originX) * inverse;
+            double v = (yk - originY) * inverse;
+            int i = Math.min((int) u, nx - 2);
+            int j = Math.min((int) v, ny - 2);
+            double fu = u - i;
+            double fv = v - j;
+            int node = j * px + i;
+            double w00 = (1 - fu) * (1 - fv);
+            double w10 = fu * (1 - fv);
+            double w01 = (1 - fu) * fv;
+            double w11 = fu * fv;
+            double ax = (w00 * re[node] + w10 * re[node + 1] + w01 * re[node + px] + w11 * re[node + px + 1])
+                    * meshScale;
+            double ay = (w00 * im[node] + w10 * im[node + 1] + w01 * im[node + px] + w11 * im[node + px + 1])
+                    * meshScale;
+
+            // Correction à courte portée ; les cellules voisines d'une ligne sont contiguës
+            for (int row = fromY; row <= toY; row++) {
+                int end = cellStart[row * cellsX + toX + 1];
+                for (int l = cellStart[row * cellsX + fromX]; l < end; l++) {
+                    double dx = x[l] - xk;
+                    double dy = y[l] - yk;
+                    double r2 = dx * dx + dy * dy;
+                    if (r2 >= cutoffSq) {
+                        continue;
+                    }
+                    double t = r2 * tableScale;
+                    int index = (int) t;
+                    double fraction = SHORT_RANGE[index] + (t - index) * (SHORT_RANGE[index + 1] - SHORT_RANGE[index]);
+                    double distSq = r2 + SOFTENING;
+                    // l == k donne dx = dy = 0 : pas besoin de branche
+                    double s = m[l] * fraction / (distSq * Math.sqrt(distSq));
+                    ax += s * dx;
+                    ay += s * dy;
+                }
+            }
+            double gm = SimulationLogic.G * m[k];
+            fx[bodyIndex[k]] += gm * ax;
+            fy[bodyIndex[k]] += gm * ay;
+        }
+    }
+
+    /**
+     * Atténuation d'un mode par le dépôt puis l'interpolation nuage-dans-maille, (sinc²)², compensée dans
+     * le noyau
+     */
+    private static double window(int k, int n) {
+        int frequency = k <= n / 2 ? k : n - k;
+        if (frequency == 0) {
+            return 1;
+        }
+        double a = Math.PI * frequency / n;
+        double sinc = Math.sin(a) / a;
+        return sinc * sinc * sinc * sinc;
+    }
+
+    private static double[] shortRangeTable() {
+        double[] table = new double[TABLE_SIZE + 2];
+        for (int t = 0; t < table.length; t++) {
+            table[t] = shortRangeFraction(CUTOFF * Math.sqrt((double) t / TABLE_SIZE));
+        }
+        return table;
+    }
+
+    /**
+     * Part de la force à la distance q r_s laissée à la somme directe ; le reste, lisse, passe par la grille
+     */
+    static double shortRangeFraction(double q) {
+        return erfc(q / 2) + q / Math.sqrt(Math.PI) * Math.exp(-q * q / 4);
+    }
+
+    // Approximation de Tchebychev, erreur relative inférieure à 1.2e-7
+    private static double erfc(double x) {
+        double z = Math.abs(x);
+        double t = 1 / (1 + 0.5 * z);
+        double r = t * Math.exp(-z * z - 1.26551223 + t * (1.00002368 + t * (0.37409196 + t * (0.09678418
+                + t * (-0.18628806 + t * (0.27886807 + t * (-1.13520398 + t * (1.48851587
+                + t * (-0.82215223 + t * 0.17087277)))))))));
+        return x >= 0 ? r : 2 - r;
+    }
+
+    private final class Worker extends RecursiveAction {
+        private double[] columnRe = new double[0];
+        private double[] columnIm = new double[0];
+
+        @Override
+        protected void compute() {
+            process();
+        }
+
+        /**
+         * Prend les lignes, colonnes ou cellules une par une
+         */
+        void process() {
+            if (columnRe.length != py) {
+                columnRe = new double[py];
+                columnIm = new double[py];
+            }
+            int item;
+            while ((item = nextItem.getAndIncrement()) < itemCount) {
+                switch (phase) {
+                    case KERNEL_ROWS, DENSITY_ROWS -> rowFft.transform(re, im, item * px, false);
+                    case FIELD_ROWS -> rowFft.transform(re, im, item * px, true);
+                    case KERNEL_COLUMNS -> transformKernelColumn(item);
+                    case CONVOLVE_COLUMNS -> convolveColumn(item);
+                    default -> evaluateCell(item);
+                }
+            }
+        }
+
+        private void transformKernelColumn(int c) {
+            gather(c);
+            columnFft.transform(columnRe, columnIm, 0, false);
+            double scale = 1.0 / ((double) px * py * window(c, px));
+            for (int r = 0; r < py; r++) {
+                double s = scale / window(r, py);
+                kernelRe[c * py + r] = columnRe[r] * s;
+                kernelIm[c * py + r] = columnIm[r] * s;
+            }
+        }
+
+        /**
+         * Transformée de la colonne, produit par le noyau et transformée inverse, sans repasser par la grille
+         */
+        private void convolveColumn(int c) {
+            gather(c);
+            columnFft.transform(columnRe, columnIm, 0, false);
+            for (int r = 0; r < py; r++) {
+                double a = columnRe[r];
+                double b = columnIm[r];
+                double kr = kernelRe[c * py + r];
+                double ki = kernelIm[c * py + r];
+                columnRe[r] = a * kr - b * ki;
+                columnIm[r] = a * ki + b * kr;
+            }
+            columnFft.transform(columnRe, columnIm, 0, true);
+            // Seules les ny premières lignes du champ sont utilisées
+            for (int r = 0; r < ny; r++) {
+                re[r * px + c] = columnRe[r];
+                im[r * px + c] = columnIm[r];
+            }
+        }
+
+        private void gather(int c) {
+            for (int r = 0; r < py; r++) {
+                columnRe[r] = re[r * px + c];
+                columnIm[r] = im[r * px + c];
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package org.acme.simulation.force;
+
+import org.acme.core.BodyStore;
+import org.acme.simulation.SimulationLogic;
+
+/**
+ * Exact O(n²) engine: every pair of bodies is evaluated once and Newton's third law
+ * is used to update both sides.
+ */
+public class PairwiseForceEngine implements ForceEngine {
+
+    @Override
+    public void computeForces(BodyStore bodies, double[] fx, double[] fy) {
+        accumulateRows(bodies.x(), bodies.y(), bodies.mass(), bodies.size(), 0, bodies.size(), fx, fy, 0);
+    }
+
+    /**
+     * Evaluates the pairs (i, j) with {@code from <= i < to} and {@code i < j < n}.
+     * Both sides are written into fx/fy, body k being stored at index {@code k - offset}.
+     */
+    static void accumulateRows(double[] x, double[] y, double[] m, int n, int from, int to,
+                               double[] fx, double[] fy, int offset) {
+        for (int i = from; i < to; i++) {
+            double xi = x[i];
+            double yi = y[i];
+            double gmi = SimulationLogic.G * m[i];
+            double fxi = 0;
+            double fyi = 0;
+            // Boucle interne sans appel ni branche pour laisser le JIT la vectoriser
+            for (int j = i + 1; j < n; j++) {
+                double dx = x[j] - xi;
+                double dy = y[j] - yi;
+                double distSq = dx * dx + dy * dy + SOFTENING;
+                double dist = Math.sqrt(distSq);
+                double s = gmi * m[j] / (distSq * dist);
+                double fxij = s * dx;
+                double fyij = s * dy;
+                fxi += fxij;
+                fyi += fyij;
+                fx[j - offset] -= fxij;
+                fy[j - offset] -= fyij;
+            }
+            fx[i - offset] += fxi;
+            fy[i - offset] += fyi;
+        }
+    }
+}
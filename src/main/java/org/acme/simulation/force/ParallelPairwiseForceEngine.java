@@ -0,0 +1,203 @@
+package org.acme.simulation.force;
+
+import org.acme.core.BodyStore;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Multi-core version of {@link PairwiseForceEngine}.
+ * <p>
+ * The rows of the pair triangle are cut into one tile per worker, balanced by number of pairs.
+ * Each tile keeps Newton's third law and accumulates into its own force buffer, so workers never
+ * write to the same memory; the buffers are then summed in tile order. Tile boundaries and the
+ * reduction order only depend on the body count and the parallelism, which makes the result
+ * deterministic for a given thread count.
+ * <p>
+ * Buffers and tasks are reused between ticks. An instance must not be shared between simulations
+ * running concurrently.
+ */
+public class ParallelPairwiseForceEngine implements ForceEngine, AutoCloseable {
+
+    // En dessous, le coût de la synchronisation dépasse le gain
+    static final int SEQUENTIAL_THRESHOLD = 512;
+
+    private static final int ACCUMULATE = 0;
+    private static final int REDUCE = 1;
+
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;
+    private final Tile[] tiles;
+    private final RecursiveAction root;
+
+    // Début de chaque tuile : la tuile t traite les lignes [rowStart[t], rowStart[t + 1])
+    private final int[] rowStart;
+    // Accumulateurs par tuile, indexés à partir de rowStart[t] (aucune ligne antérieure n'est touchée)
+    private final double[][] partialFx;
+    private final double[][] partialFy;
+
+    private int phase;
+    private BodyStore bodies;
+    private double[] fx;
+    private double[] fy;
+
+    /**
+     * Uses a dedicated pool with one worker per available processor.
+     */
+    public ParallelPairwiseForceEngine() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Uses a dedicated pool with the given number of workers, released by {@link #close()}.
+     */
+    public ParallelPairwiseForceEngine(int parallelism) {
+        this(new ForkJoinPool(parallelism), true);
+    }
+
+    /**
+     * Uses an existing pool, which is left running by {@link #close()}.
+     */
+    public ParallelPairwiseForceEngine(ForkJoinPool pool) {
+        this(pool, false);
+    }
+
+    private ParallelPairwiseForceEngine(ForkJoinPool pool, boolean ownsPool) {
+        this.pool = pool;
+        this.ownsPool = ownsPool;
+        int count = pool.getParallelism();
+        tiles = new Tile[count];
+        for (int t = 0; t < count; t++) {
+            tiles[t] = new Tile(t);
+        }
+        root = new RecursiveAction() {
+            @Override
+            protected void compute() {
+                ForkJoinTask.invokeAll(tiles);
+            }
+        };
+        rowStart = new int[count + 1];
+        partialFx = new double[count][0];
+        partialFy = new double[count][0];
+    }
+
+    public int getParallelism() {
+        return tiles.length;
+    }
+
+    @Override
+    public void computeForces(BodyStore bodies, double[] fx, double[] fy) {
+        int n = bodies.size();
+        if (n < SEQUENTIAL_THRESHOLD || tiles.length == 1) {
+            PairwiseForceEngine.accumulateRows(bodies.x(), bodies.y(), bodies.mass(), n, 0, n, fx, fy, 0);
+            return;
+        }
+        this.bodies = bodies;
+        this.fx = fx;
+        this.fy = fy;
+        try {
+            splitRows(n);
+            run(ACCUMULATE);
+            run(REDUCE);
+        } finally {
+            this.bodies = null;
+            this.fx = null;
+            this.fy = null;
+        }
+    }
+
+    @Override
+    public void close() {
+        if (ownsPool) {
+            pool.shutdown();
+        }
+    }
+
+    private void run(int phase) {
+        this.phase = phase;
+        for (Tile tile : tiles) {
+            tile.reinitialize();
+        }
+        root.reinitialize();
+        pool.invoke(root);
+    }
+
+    /**
+     * Ligne i = n - 1 - i paires : on coupe le triangle en tuiles de même nombre de paires
+     */
+    private void splitRows(int n) {
+        int count = tiles.length;
+        double pairsPerTile = (double) n * (n - 1) / 2 / count;
+        rowStart[0] = 0;
+        int t = 1;
+        double pairs = 0;
+        for (int i = 0; i < n && t < count; i++) {
+            pairs += n - 1 - i;
+            if (pairs >= t * pairsPerTile) {
+                rowStart[t++] = i + 1;
+            }
+        }
+        while (t <= count) {
+            rowStart[t++] = n;
+        }
+    }
+
+    private void accumulate(int t) {
+        int from = rowStart[t];
+        int to = rowStart[t + 1];
+        int n = bodies.size();
+        int length = n - from;
+        if (partialFx[t].length < length) {
+            partialFx[t] = new double[Math.max(length, partialFx[t].length * 2)];
+            partialFy[t] = new double[partialFx[t].length];
+        }
+        double[] pfx = partialFx[t];
+        double[] pfy = partialFy[t];
+        Arrays.fill(pfx, 0, length, 0.0);
+        Arrays.fill(pfy, 0, length, 0.0);
+        if (from < to) {
+            PairwiseForceEngine.accumulateRows(bodies.x(), bodies.y(), bodies.mass(), n, from, to, pfx, pfy, from);
+        }
+    }
+
+    /**
+     * Chaque worker somme une plage de colonnes, toujours dans l'ordre des tuiles
+     */
+    private void reduce(int t) {
+        int n = bodies.size();
+        int count = tiles.length;
+        int columnFrom = (int) ((long) n * t / count);
+        int columnTo = (int) ((long) n * (t + 1) / count);
+        for (int tile = 0; tile < count; tile++) {
+            int offset = rowStart[tile];
+            if (offset >= n || rowStart[tile] == rowStart[tile + 1]) {
+                continue;
+            }
+            double[] pfx = partialFx[tile];
+            double[] pfy = partialFy[tile];
+            for (int k = Math.max(columnFrom, offset); k < columnTo; k++) {
+                fx[k] += pfx[k - offset];
+                fy[k] += pfy[k - offset];
+            }
+        }
+    }
+
+    private final class Tile extends RecursiveAction {
+        private final int index;
+
+        Tile(int index) {
+            this.index = index;
+        }
+
+        @Override
+        protected void compute() {
+            if (phase == ACCUMULATE) {
+                accumulate(index);
+            } else {
+                reduce(index);
+            }
+        }
+    }
+}
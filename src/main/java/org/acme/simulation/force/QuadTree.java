@@ -0,0 +1,240 @@
+package org.acme.simulation.force;
+
+import org.acme.core.BodyStore;
+import org.acme.simulation.SimulationLogic;
+
+import java.util.Arrays;
+
+/**
+ * Barnes-Hut quadtree stored as a pool of primitive arrays.
+ * The pool (nodes, body links and traversal stack) is kept between two builds so that
+ * rebuilding the tree every tick does not allocate once the capacity has been reached.
+ */
+final class QuadTree {
+
+    // Au-delà de cette profondeur les corps (quasi) confondus partagent la même feuille
+    static final int MAX_DEPTH = 48;
+
+    private static final int INITIAL_NODES = 64;
+
+    // Noeuds
+    private double[] centerX = new double[INITIAL_NODES];
+    private double[] centerY = new double[INITIAL_NODES];
+    private double[] halfSize = new double[INITIAL_NODES];
+    private double[] mass = new double[INITIAL_NODES];
+    private double[] comX = new double[INITIAL_NODES];
+    private double[] comY = new double[INITIAL_NODES];
+    private int[] firstChild = new int[INITIAL_NODES]; // -1 pour une feuille, sinon index du premier des 4 fils
+    private int[] firstBody = new int[INITIAL_NODES];  // tête de la liste des corps de la feuille, -1 si vide
+    private int nodeCount;
+
+    // Tableaux du BodyStore lors du dernier build, valides le temps du tick
+    private double[] px;
+    private double[] py;
+    private double[] pm;
+    private int[] nextBody = new int[0];
+
+    private final int[] stack = new int[4 * (MAX_DEPTH + 1)];
+
+    int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Rebuilds the tree from the current positions of the bodies.
+     */
+    void build(BodyStore bodies) {
+        int n = bodies.size();
+        px = bodies.x();
+        py = bodies.y();
+        pm = bodies.mass();
+        if (nextBody.length < n) {
+            nextBody = new int[Math.max(n, nextBody.length * 2)];
+        }
+        nodeCount = 0;
+        if (n == 0) {
+            return;
+        }
+
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            double x = px[i];
+            double y = py[i];
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+        }
+
+        // Racine carrée légèrement élargie pour que les corps du bord soient strictement dedans
+        double half = Math.max(maxX - minX, maxY - minY) / 2.0;
+        half = half > 0 ? half * (1 + 1e-9) : 1.0;
+        newNode((minX + maxX) / 2.0, (minY + maxY) / 2.0, half);
+
+        for (int i = 0; i < n; i++) {
+            insert(i);
+        }
+        computeMassDistribution();
+    }
+
+    /**
+     * Adds to fx[i]/fy[i] the force applied on body i, opening every node whose size
+     * is not small enough compared to its distance (size / distance &lt; theta).
+     */
+    void accumulateForce(int i, double thetaSq, double[] fx, double[] fy) {
+        double mi = pm[i];
+        if (nodeCount == 0 || mi == 0) {
+            return;
+        }
+        double xi = px[i];
+        double yi = py[i];
+        double gmi = SimulationLogic.G * mi;
+        double fxi = 0;
+        double fyi = 0;
+
+        int sp = 0;
+        stack[sp++] = 0;
+        while (sp > 0) {
+            int node = stack[--sp];
+            double m = mass[node];
+            if (m == 0) {
+                continue;
+            }
+            int child = firstChild[node];
+            if (child < 0) {
+                for (int b = firstBody[node]; b >= 0; b = nextBody[b]) {
+                    if (b == i) {
+                        continue;
+                    }
+                    double dx = px[b] - xi;
+                    double dy = py[b] - yi;
+                    double distSq = dx * dx + dy * dy + ForceEngine.SOFTENING;
+                    double s = gmi * pm[b] / (distSq * Math.sqrt(distSq));
+                    fxi += s * dx;
+                    fyi += s * dy;
+                }
+                continue;
+            }
+            double dx = comX[node] - xi;
+            double dy = comY[node] - yi;
+            double size = 2 * halfSize[node];
+            if (size * size < thetaSq * (dx * dx + dy * dy)) {
+                double distSq = dx * dx + dy * dy + ForceEngine.SOFTENING;
+                double s = gmi * m / (distSq * Math.sqrt(distSq));
+                fxi += s * dx;
+                fyi += s * dy;
+            } else {
+                stack[sp++] = child;
+                stack[sp++] = child + 1;
+                stack[sp++] = child + 2;
+                stack[sp++] = child + 3;
+            }
+        }
+        fx[i] += fxi;
+        fy[i] += fyi;
+    }
+
+    private void insert(int i) {
+        double x = px[i];
+        double y = py[i];
+        int node = 0;
+        int depth = 0;
+        while (true) {
+            int child = firstChild[node];
+            if (child >= 0) {
+                node = child + quadrant(node, x, y);
+                depth++;
+                continue;
+            }
+            int occupant = firstBody[node];
+            if (occupant < 0) {
+                firstBody[node] = i;
+                nextBody[i] = -1;
+                return;
+            }
+            if (depth >= MAX_DEPTH) {
+                nextBody[i] = occupant;
+                firstBody[node] = i;
+                return;
+            }
+            // Feuille occupée : on la découpe et on redescend l'occupant d'un niveau
+            subdivide(node);
+            firstBody[node] = -1;
+            int target = firstChild[node] + quadrant(node, px[occupant], py[occupant]);
+            firstBody[target] = occupant;
+            nextBody[occupant] = -1;
+        }
+    }
+
+    private int quadrant(int node, double x, double y) {
+        return (x >= centerX[node] ? 1 : 0) | (y >= centerY[node] ? 2 : 0);
+    }
+
+    private void subdivide(int node) {
+        double h = halfSize[node] / 2.0;
+        double cx = centerX[node];
+        double cy = centerY[node];
+        int first = newNode(cx - h, cy - h, h);
+        newNode(cx + h, cy - h, h);
+        newNode(cx - h, cy + h, h);
+        newNode(cx + h, cy + h, h);
+        firstChild[node] = first;
+    }
+
+    private int newNode(double cx, double cy, double half) {
+        if (nodeCount == firstChild.length) {
+            growNodes(nodeCount * 2);
+        }
+        int node = nodeCount++;
+        centerX[node] = cx;
+        centerY[node] = cy;
+        halfSize[node] = half;
+        mass[node] = 0;
+        firstChild[node] = -1;
+        firstBody[node] = -1;
+        return node;
+    }
+
+    /**
+     * Children are always allocated after their parent, so walking the pool backwards
+     * aggregates mass and center of mass bottom-up without recursion.
+     */
+    private void computeMassDistribution() {
+        for (int node = nodeCount - 1; node >= 0; node--) {
+            double m = 0;
+            double sx = 0;
+            double sy = 0;
+            int child = firstChild[node];
+            if (child < 0) {
+                for (int b = firstBody[node]; b >= 0; b = nextBody[b]) {
+                    m += pm[b];
+                    sx += pm[b] * px[b];
+                    sy += pm[b] * py[b];
+                }
+            } else {
+                for (int c = child; c < child + 4; c++) {
+                    m += mass[c];
+                    sx += mass[c] * comX[c];
+                    sy += mass[c] * comY[c];
+                }
+            }
+            mass[node] = m;
+            comX[node] = m > 0 ? sx / m : centerX[node];
+            comY[node] = m > 0 ? sy / m : centerY[node];
+        }
+    }
+
+    private void growNodes(int capacity) {
+        centerX = Arrays.copyOf(centerX, capacity);
+        centerY = Arrays.copyOf(centerY, capacity);
+        halfSize = Arrays.copyOf(halfSize, capacity);
+        mass = Arrays.copyOf(mass, capacity);
+        comX = Arrays.copyOf(comX, capacity);
+        comY = Arrays.copyOf(comY, capacity);
+        firstChild = Arrays.copyOf(firstChild, capacity);
+        firstBody = Arrays.copyOf(firstBody, capacity);
+    }
+}
@@ -0,0 +1,124 @@
+package org.acme.simulation.force;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+import org.acme.simulation.SimulationLogic;
+
+/**
+ * SIMD loops of {@link VectorPairwiseForceEngine}. This is the only class referencing
+ * {@code jdk.incubator.vector}: it is never loaded when the module is missing.
+ */
+final class VectorKernel {
+
+    // Largeur native : 4 doubles en AVX2, 8 en AVX-512
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+
+    private VectorKernel() {
+    }
+
+    static int lanes() {
+        return LANES;
+    }
+
+    /**
+     * Same contract as {@link PairwiseForceEngine#accumulateRows}, over all the rows: the pairs (i, j > i)
+     * are evaluated by blocks of {@link #lanes()} values of j, whose forces are updated in place.
+     */
+    static void accumulateRows(double[] x, double[] y, double[] m, int n, double[] fx, double[] fy) {
+        DoubleVector softening = DoubleVector.broadcast(SPECIES, ForceEngine.SOFTENING);
+        DoubleVector one = DoubleVector.broadcast(SPECIES, 1.0);
+        for (int i = 0; i < n; i++) {
+            double xi = x[i];
+            double yi = y[i];
+            double gmi = SimulationLogic.G * m[i];
+            DoubleVector vxi = DoubleVector.broadcast(SPECIES, xi);
+            DoubleVector vyi = DoubleVector.broadcast(SPECIES, yi);
+            DoubleVector vgmi = DoubleVector.broadcast(SPECIES, gmi);
+            DoubleVector fxi = DoubleVector.zero(SPECIES);
+            DoubleVector fyi = DoubleVector.zero(SPECIES);
+            int bound = i + 1 + SPECIES.loopBound(n - i - 1);
+            for (int j = i + 1; j < bound; j += LANES) {
+                DoubleVector dx = DoubleVector.fromArray(SPECIES, x, j).sub(vxi);
+                DoubleVector dy = DoubleVector.fromArray(SPECIES, y, j).sub(vyi);
+                DoubleVector s = strength(dx, dy, vgmi.mul(DoubleVector.fromArray(SPECIES, m, j)), softening, one);
+                DoubleVector fxij = s.mul(dx);
+                DoubleVector fyij = s.mul(dy);
+                fxi = fxi.add(fxij);
+                fyi = fyi.add(fyij);
+                // Troisième loi de Newton : les forces du bloc j sont contiguës, lecture et écriture vectorielles
+                DoubleVector.fromArray(SPECIES, fx, j).sub(fxij).intoArray(fx, j);
+                DoubleVector.fromArray(SPECIES, fy, j).sub(fyij).intoArray(fy, j);
+            }
+            double sumX = fxi.reduceLanes(VectorOperators.ADD);
+            double sumY = fyi.reduceLanes(VectorOperators.ADD);
+            // Fin de ligne plus courte qu'un bloc : boucle scalaire
+            for (int j = bound; j < n; j++) {
+                double dx = x[j] - xi;
+                double dy = y[j] - yi;
+                double invDist = 1 / Math.sqrt(dx * dx + dy * dy + ForceEngine.SOFTENING);
+                double s = gmi * m[j] * invDist * invDist * invDist;
+                sumX += s * dx;
+                sumY += s * dy;
+                fx[j] -= s * dx;
+                fy[j] -= s * dy;
+            }
+            fx[i] += sumX;
+            fy[i] += sumY;
+        }
+    }
+
+    /**
+     * Same contract as {@link ForceEngine#computeForces(org.acme.core.BodyStore, int[], int, double[], double[])}:
+     * each target sums the attraction of every body, by blocks of {@link #lanes()} bodies.
+     */
+    static void accumulateTargets(double[] x, double[] y, double[] m, int n, int[] targets, int count,
+                                  double[] fx, double[] fy) {
+        int bound = SPECIES.loopBound(n);
+        DoubleVector softening = DoubleVector.broadcast(SPECIES, ForceEngine.SOFTENING);
+        DoubleVector one = DoubleVector.broadcast(SPECIES, 1.0);
+        for (int k = 0; k < count; k++) {
+            int i = targets[k];
+            double xi = x[i];
+            double yi = y[i];
+            double gmi = SimulationLogic.G * m[i];
+            DoubleVector vxi = DoubleVector.broadcast(SPECIES, xi);
+            DoubleVector vyi = DoubleVector.broadcast(SPECIES, yi);
+            DoubleVector vgmi = DoubleVector.broadcast(SPECIES, gmi);
+            DoubleVector fxi = DoubleVector.zero(SPECIES);
+            DoubleVector fyi = DoubleVector.zero(SPECIES);
+            for (int j = 0; j < bound; j += LANES) {
+                // j == i donne dx = dy = 0 : pas besoin de masque
+                DoubleVector dx = DoubleVector.fromArray(SPECIES, x, j).sub(vxi);
+                DoubleVector dy = DoubleVector.fromArray(SPECIES, y, j).sub(vyi);
+                DoubleVector s = strength(dx, dy, vgmi.mul(DoubleVector.fromArray(SPECIES, m, j)), softening, one);
+                fxi = fxi.add(s.mul(dx));
+                fyi = fyi.add(s.mul(dy));
+            }
+            double sumX = fxi.reduceLanes(VectorOperators.ADD);
+            double sumY = fyi.reduceLanes(VectorOperators.ADD);
+            for (int j = bound; j < n; j++) {
+                double dx = x[j] - xi;
+                double dy = y[j] - yi;
+                double invDist = 1 / Math.sqrt(dx * dx + dy * dy + ForceEngine.SOFTENING);
+                double s = gmi * m[j] * invDist * invDist * invDist;
+                sumX += s * dx;
+                sumY += s * dy;
+            }
+            fx[i] += sumX;
+            fy[i] += sumY;
+        }
+    }
+
+    /**
+     * {@code G * mi * mj / r³}, from the exact square root of the softened squared distance ({@code 1 / sqrt}),
+     * as in the scalar loops.
+     */
+    private static DoubleVector strength(DoubleVector dx, DoubleVector dy, DoubleVector gmm,
+                                         DoubleVector softening, DoubleVector one) {
+        DoubleVector distSq = dx.fma(dx, dy.fma(dy, softening));
+        DoubleVector invDist = one.div(distSq.lanewise(VectorOperators.SQRT));
+        return gmm.mul(invDist.mul(invDist).mul(invDist));
+    }
+}
@@ -0,0 +1,240 @@
+package org.acme.simulation.integrator;
+
+import org.acme.core.BodyStore;
+import org.acme.simulation.force.ForceEngine;
+
+import java.util.Arrays;
+
+/**
+ * Leapfrog (kick-drift-kick) with individual block time steps: each body advances with
+ * {@code dt / 2^level}, its level being chosen so that its step stays below {@code eta * |v| / |a|},
+ * i.e. a fixed fraction of its orbital time scale. Bodies close to the central mass get fine levels
+ * and are kicked several times per global step, while the outer bodies are kicked once.
+ * <p>
+ * All bodies drift together at the finest occupied level, but forces are only evaluated for the bodies
+ * whose step ends ({@link ForceEngine#computeForces(BodyStore, int[], int, double[], double[])}), so the
+ * cost of a global step grows with the number of fine bodies rather than with n times the finest level.
+ * Accelerations at the end of a step are kept for the next one, until bodies are added or removed.
+ */
+public class BlockTimeStepIntegrator implements Integrator {
+
+    public static final double DEFAULT_ETA = 0.1;   // ~60 pas par orbite circulaire
+    public static final int DEFAULT_MAX_LEVEL = 8;  // jusqu'à 256 sous-pas par pas global
+    public static final int MAX_LEVEL_LIMIT = 30;
+
+    private final double eta;
+    private final int maxLevel;
+
+    private double[] ax = new double[0];
+    private double[] ay = new double[0];
+    private int[] level = new int[0];
+    private int[] active = new int[0];
+    private final int[] levelCounts;
+
+    // Accélérations et niveaux valables pour cet état seulement
+    private BodyStore cachedBodies;
+    private long cachedModifications;
+    private ForceEngine cachedForces;
+    private double cachedDt;
+
+    private long forceEvaluations;
+
+    public BlockTimeStepIntegrator() {
+        this(DEFAULT_ETA, DEFAULT_MAX_LEVEL);
+    }
+
+    public BlockTimeStepIntegrator(double eta, int maxLevel) {
+        if (!(eta > 0)) {
+            throw new IllegalArgumentException("Eta must be positive");
+        }
+        if (maxLevel < 0 || maxLevel > MAX_LEVEL_LIMIT) {
+            throw new IllegalArgumentException("Max level must be between 0 and " + MAX_LEVEL_LIMIT);
+        }
+        this.eta = eta;
+        this.maxLevel = maxLevel;
+        this.levelCounts = new int[maxLevel + 1];
+    }
+
+    public double getEta() {
+        return eta;
+    }
+
+    public int getMaxLevel() {
+        return maxLevel;
+    }
+
+    /**
+     * Level of the given body during the last step: it was advanced {@code 2^level} times.
+     */
+    public int getLevel(int index) {
+        return level[index];
+    }
+
+    /**
+     * Number of single-body force evaluations since creation ({@code n} per step for a plain leapfrog).
+     */
+    public long getForceEvaluations() {
+        return forceEvaluations;
+    }
+
+    /**
+     * Forgets the cached accelerations, e.g. after positions were changed outside of the integrator.
+     */
+    public void reset() {
+        cachedBodies = null;
+    }
+
+    @Override
+    public void step(BodyStore bodies, ForceEngine forces, double dt) {
+        int n = bodies.size();
+        if (n <= FIRST_MOVING_BODY) {
+            return;
+        }
+        if (bodies != cachedBodies || bodies.modificationCount() != cachedModifications
+                || forces != cachedForces || dt != cachedDt) {
+            initialize(bodies, forces, dt);
+        }
+        double[] x = bodies.x();
+        double[] y = bodies.y();
+        double[] vx = bodies.vx();
+        double[] vy = bodies.vy();
+        double[] m = bodies.mass();
+        double[] fx = bodies.fx();
+        double[] fy = bodies.fy();
+
+        // Le pas global est découpé en 2^maxLevel unités de temps entières
+        long ticks = 1L << maxLevel;
+        double unit = dt / ticks;
+
+        // Demi-impulsion d'ouverture : tous les corps commencent un pas en même temps
+        for (int i = FIRST_MOVING_BODY; i < n; i++) {
+            double half = subStep(dt, level[i]) / 2;
+            vx[i] += ax[i] * half;
+            vy[i] += ay[i] * half;
+        }
+
+        long time = 0;
+        while (time < ticks) {
+            long stride = 1L << (maxLevel - finestLevel());
+            long next = (time / stride + 1) * stride;
+            double h = (next - time) * unit;
+            for (int i = FIRST_MOVING_BODY; i < n; i++) {
+                x[i] += vx[i] * h;
+                y[i] += vy[i] * h;
+            }
+            time = next;
+
+            // Corps dont le pas se termine à cet instant
+            int count = 0;
+            for (int i = FIRST_MOVING_BODY; i < n; i++) {
+                if ((time & ((1L << (maxLevel - level[i])) - 1)) == 0) {
+                    active[count++] = i;
+                    fx[i] = 0;
+                    fy[i] = 0;
+                }
+            }
+            forces.computeForces(bodies, active, count, fx, fy);
+            forceEvaluations += count;
+
+            for (int k = 0; k < count; k++) {
+                int i = active[k];
+                updateAcceleration(i, m, fx, fy);
+                double half = subStep(dt, level[i]) / 2;
+                vx[i] += ax[i] * half;
+                vy[i] += ay[i] * half;
+
+                levelCounts[level[i]]--;
+                level[i] = nextLevel(i, vx, vy, dt, time);
+                levelCounts[level[i]]++;
+                if (time < ticks) {
+                    // Demi-impulsion d'ouverture du pas suivant, avec le nouveau niveau
+                    half = subStep(dt, level[i]) / 2;
+                    vx[i] += ax[i] * half;
+                    vy[i] += ay[i] * half;
+                }
+            }
+        }
+    }
+
+    private void initialize(BodyStore bodies, ForceEngine forces, double dt) {
+        int n = bodies.size();
+        if (ax.length < n) {
+            int capacity = bodies.capacity();
+            ax = new double[capacity];
+            ay = new double[capacity];
+            level = new int[capacity];
+            active = new int[capacity];
+        }
+        bodies.clearForces();
+        forces.computeForces(bodies, bodies.fx(), bodies.fy());
+        forceEvaluations += n;
+
+        Arrays.fill(levelCounts, 0);
+        for (int i = 0; i < n; i++) {
+            updateAcceleration(i, bodies.mass(), bodies.fx(), bodies.fy());
+            level[i] = i < FIRST_MOVING_BODY ? 0 : desiredLevel(i, bodies.vx(), bodies.vy(), dt);
+            if (i >= FIRST_MOVING_BODY) {
+                levelCounts[level[i]]++;
+            }
+        }
+        cachedBodies = bodies;
+        cachedModifications = bodies.modificationCount();
+        cachedForces = forces;
+        cachedDt = dt;
+    }
+
+    private void updateAcceleration(int i, double[] m, double[] fx, double[] fy) {
+        if (m[i] > 0) {
+            ax[i] = fx[i] / m[i];
+            ay[i] = fy[i] / m[i];
+        } else {
+            ax[i] = 0;
+            ay[i] = 0;
+        }
+    }
+
+    /**
+     * Smallest level whose step respects the time-step criterion.
+     */
+    private int desiredLevel(int i, double[] vx, double[] vy, double dt) {
+        double a = Math.hypot(ax[i], ay[i]);
+        if (a == 0) {
+            return 0;
+        }
+        double timeScale = eta * Math.hypot(vx[i], vy[i]) / a;
+        if (timeScale >= dt) {
+            return 0;
+        }
+        if (!(timeScale > 0)) {
+            return maxLevel;
+        }
+        int desired = (int) Math.ceil(Math.log(dt / timeScale) / Math.log(2));
+        return Math.min(desired, maxLevel);
+    }
+
+    /**
+     * Level for the step starting at {@code time}: going finer is always possible, going coarser
+     * only when {@code time} falls on the grid of the coarser level, to keep the block structure.
+     */
+    private int nextLevel(int i, double[] vx, double[] vy, double dt, long time) {
+        int desired = desiredLevel(i, vx, vy, dt);
+        int current = level[i];
+        while (current > desired && (time & ((1L << (maxLevel - current + 1)) - 1)) == 0) {
+            current--;
+        }
+        return Math.max(current, desired);
+    }
+
+    private int finestLevel() {
+        for (int k = maxLevel; k > 0; k--) {
+            if (levelCounts[k] > 0) {
+                return k;
+            }
+        }
+        return 0;
+    }
+
+    private static double subStep(double dt, int level) {
+        return dt / (1L << level);
+    }
+}
@@ -0,0 +1,20 @@
+package org.acme.simulation.integrator;
+
+import org.acme.core.BodyStore;
+import org.acme.simulation.force.ForceEngine;
+
+/**
+ * Strategy advancing the bodies of a simulation by one global time step.
+ * Bodies before {@link #FIRST_MOVING_BODY} are pinned: they attract the others but never move.
+ * Implementations may use the force accumulators of the store as scratch space and may keep state
+ * between steps, so an instance must not be shared between simulations.
+ */
+public interface Integrator {
+
+    /**
+     * Le corps 0 est la masse centrale, maintenue fixe au centre de la galaxie.
+     */
+    int FIRST_MOVING_BODY = 1;
+
+    void step(BodyStore bodies, ForceEngine forces, double dt);
+}
@@ -0,0 +1,36 @@
+package org.acme.simulation.integrator;
+
+import org.acme.core.BodyStore;
+import org.acme.simulation.force.ForceEngine;
+
+/**
+ * First-order semi-implicit (symplectic) Euler: velocities are updated from the forces, then positions
+ * from the new velocities. One force evaluation per step. This is the historical integrator of the simulation.
+ */
+public class SemiImplicitEulerIntegrator implements Integrator {
+
+    @Override
+    public void step(BodyStore bodies, ForceEngine forces, double dt) {
+        bodies.clearForces();
+        forces.computeForces(bodies, bodies.fx(), bodies.fy());
+        update(bodies, bodies.fx(), bodies.fy(), dt);
+    }
+
+    /**
+     * Applies already computed forces for {@code dt}.
+     */
+    public static void update(BodyStore bodies, double[] fx, double[] fy, double dt) {
+        int n = bodies.size();
+        double[] x = bodies.x();
+        double[] y = bodies.y();
+        double[] vx = bodies.vx();
+        double[] vy = bodies.vy();
+        double[] m = bodies.mass();
+        for (int i = FIRST_MOVING_BODY; i < n; i++) {
+            vx[i] += (fx[i] / m[i]) * dt;
+            vy[i] += (fy[i] / m[i]) * dt;
+            x[i] += vx[i] * dt;
+            y[i] += vy[i] * dt;
+        }
+    }
+}
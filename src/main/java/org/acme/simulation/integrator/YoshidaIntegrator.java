@@ -0,0 +1,28 @@
+package org.acme.simulation.integrator;
+
+import org.acme.core.BodyStore;
+import org.acme.simulation.force.ForceEngine;
+
+/**
+ * Fourth-order symplectic integrator of Yoshida (1990): three leapfrog sub-steps of sizes
+ * w1, w0, w1 (w0 &lt; 0) composed so that the second-order error terms cancel.
+ * It costs three force evaluations per step but tolerates much larger steps for the same energy error.
+ */
+public class YoshidaIntegrator implements Integrator {
+
+    private static final double CBRT2 = Math.cbrt(2);
+    static final double W1 = 1 / (2 - CBRT2);
+    static final double W0 = -CBRT2 / (2 - CBRT2);
+
+    // Coefficients des dérives (c) et des impulsions (d) du schéma dérive-impulsion
+    private static final double C1 = W1 / 2;
+    private static final double C2 = (W0 + W1) / 2;
+
+    @Override
+    public void step(BodyStore bodies, ForceEngine forces, double dt) {
+        SplitSteps.drift(bodies, C1 * dt);
+        SplitSteps.kickDrift(bodies, forces, W1 * dt, C2 * dt);
+        SplitSteps.kickDrift(bodies, forces, W0 * dt, C2 * dt);
+        SplitSteps.kickDrift(bodies, forces, W1 * dt, C1 * dt);
+    }
+}
@@ -0,0 +1,377 @@
+package org.acme.websocket;
+
+import io.quarkus.websockets.next.CloseReason;
+import io.quarkus.websockets.next.WebSocketConnection;
+import io.vertx.core.buffer.Buffer;
+import org.acme.protocol.ControlRequest;
+import org.acme.protocol.Frame;
+import org.acme.protocol.PositionStreamEncoder;
+import org.acme.protocol.StreamFormat;
+import org.acme.protocol.StreamSubscription;
+import org.acme.protocol.Viewport;
+import org.acme.simulation.PositionSubscriber;
+import org.acme.simulation.SimulationLogic;
+import org.acme.simulation.SimulationParameters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Outbound side of one WebSocket client.
+ * <p>
+ * Each client owns a single pending slot: a frame that has not been sent yet is replaced by a newer one
+ * ("latest frame wins"). Frames are written by a virtual thread dedicated to the client, started on the
+ * first frame, which blocks on its own sends only: offering a frame is a reference count, a swap and an
+ * unpark, so the broadcaster never waits for a client and the number of platform threads does not grow
+ * with the number of clients. A slow browser only loses intermediate frames; a client whose send stays
+ * stuck, or that keeps dropping frames, is disconnected.
+ * <p>
+ * Delta frames are only sent right after the frame they apply to: once a frame has been skipped, the client
+ * waits for the next keyframe and {@link #needsKeyframe()} tells the broadcaster to produce one.
+ * <p>
+ * The session holds a reference on the pending frame and on the frame being sent, and releases it as soon
+ * as the frame is replaced, skipped or written, so that pooled frames go back to their pool. Closing the
+ * session interrupts its sender, which releases the pending frame before ending; the frame being written is
+ * released when the network is done with it.
+ * <p>
+ * The inbound side is the control requests of the client: the session keeps the request object they are
+ * decoded into and the rate limiter they go through.
+ */
+class ClientSession implements PositionSubscriber {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClientSession.class);
+
+    // Un client qui ne termine pas un envoi en 5 s, ou qui perd 100 images de suite, est déconnecté
+    static final long STALLED_SEND_NANOS = TimeUnit.SECONDS.toNanos(5);
+    static final int MAX_CONSECUTIVE_DROPS = 100;
+
+    static final CloseReason TOO_SLOW = new CloseReason(1008, "Client too slow");
+
+    private final WebSocketConnection connection;
+    private volatile StreamSubscription subscription;
+    private final SimulationLogic simulation;
+    private final AtomicReference<Frame> pending = new AtomicReference<>();
+    private final AtomicBoolean sending = new AtomicBoolean();
+    private final AtomicBoolean evicted = new AtomicBoolean();
+
+    // Thread virtuel d'envoi, démarré à la première image : un client qui n'en reçoit aucune ne coûte rien
+    private final Thread sender;
+    private final AtomicBoolean started = new AtomicBoolean();
+    // Fermeture demandée après l'envoi de l'image en attente (fin d'un replay), null sinon
+    private volatile CloseReason finishReason;
+
+    private volatile long sendStartNanos;
+    private volatile int consecutiveDrops;
+    private volatile long droppedFrames;
+    private volatile long sentFrames;
+
+    // Séquence de la dernière image du flux delta envoyée, -1 tant qu'aucune image clé n'est partie
+    private long lastSentSequence = -1;
+    private volatile boolean needsKeyframe = true;
+
+    // Zone affichée par le client, utilisée par le format viewport ; tout le monde de la simulation par défaut
+    private volatile Viewport viewport;
+
+    // Cadence maximale demandée par le client : intervalle minimal entre deux images, 0 pour toutes
+    private volatile long frameIntervalNanos;
+    private volatile long nextFrameNanos;
+
+    private final ControlRequest request = new ControlRequest();
+    private final ControlRateLimiter limiter = new ControlRateLimiter(System.nanoTime());
+
+    ClientSession(WebSocketConnection connection, StreamSubscription subscription, SimulationLogic simulation) {
+        this.connection = connection;
+        this.subscription = subscription;
+        this.simulation = simulation;
+        if (simulation != null) {
+            SimulationParameters parameters = simulation.getParameters();
+            viewport = Viewport.whole(parameters.width(), parameters.height());
+        }
+        sender = Thread.ofVirtual().name("websocket-sender-" + connection.id()).unstarted(this::sendLoop);
+    }
+
+    StreamSubscription subscription() {
+        return subscription;
+    }
+
+    /**
+     * Simulation this client watches and sends its commands to, null for a replay client.
+     */
+    SimulationLogic simulation() {
+        return simulation;
+    }
+
+    /**
+     * Offers the frame of the current tick in the format negotiated by the client, asking the stream
+     * for a keyframe first if the client lost track of the delta chain.
+     */
+    @Override
+    public void onPositions(PositionStreamEncoder stream) {
+        long interval = frameIntervalNanos;
+        if (interval != 0) {
+            long now = System.nanoTime();
+            if (now - nextFrameNanos < 0) {
+                // Image volontairement sautée : la chaîne delta reprendra sur une image clé
+                needsKeyframe = true;
+                return;
+            }
+            // Cadencé sur l'échéance précédente pour ne pas dériver avec la gigue des diffusions
+            nextFrameNanos = Math.max(nextFrameNanos + interval, now - interval / 2);
+        }
+        StreamSubscription subscription = this.subscription;
+        if (needsKeyframe && subscription.format() == StreamFormat.DELTA) {
+            stream.requestKeyframe(subscription.precision());
+        }
+        offer(stream.frame(subscription, viewport));
+    }
+
+    /**
+     * Switches the client to another stream format and frame rate (0 for every broadcast), from the next
+     * broadcast on.
+     */
+    void subscribe(StreamSubscription subscription, int rate) {
+        this.subscription = subscription;
+        nextFrameNanos = System.nanoTime();
+        frameIntervalNanos = rate == 0 ? 0 : TimeUnit.SECONDS.toNanos(1) / rate;
+        needsKeyframe = true;
+    }
+
+    /**
+     * Reusable object the control requests of this client are decoded into; callers synchronise on it.
+     */
+    ControlRequest request() {
+        return request;
+    }
+
+    ControlRateLimiter limiter() {
+        return limiter;
+    }
+
+    Viewport viewport() {
+        return viewport;
+    }
+
+    /**
+     * Changes the zone sent to the client, from the next broadcast on.
+     */
+    void setViewport(Viewport viewport) {
+        this.viewport = viewport;
+    }
+
+    /**
+     * True when the client skipped part of the delta stream (or just joined) and waits for a keyframe.
+     */
+    boolean needsKeyframe() {
+        return needsKeyframe;
+    }
+
+    WebSocketConnection connection() {
+        return connection;
+    }
+
+    String id() {
+        return connection.id();
+    }
+
+    /**
+     * Queues a frame for this client, replacing the pending one if it has not been sent yet.
+     */
+    void offer(Frame frame) {
+        if (evicted.get() || finishReason != null) {
+            return;
+        }
+        Frame replaced = pending.getAndSet(frame.retain());
+        if (replaced != null) {
+            replaced.release();
+            droppedFrames++;
+            WebSocketMetrics.DROPPED_FRAMES.increment();
+            consecutiveDrops++;
+        }
+        if (evicted.get()) {
+            // Expulsé entre-temps : personne d'autre ne videra le slot
+            discardPending();
+            return;
+        }
+        if (isTooSlow(System.nanoTime())) {
+            evict();
+            return;
+        }
+        wakeSender();
+    }
+
+    /**
+     * Accepts no more frames, sends the pending one and then closes the connection with {@code reason}.
+     */
+    void finish(CloseReason reason) {
+        if (evicted.get()) {
+            return;
+        }
+        finishReason = reason;
+        wakeSender();
+    }
+
+    /**
+     * Sends a text message without waiting for it to be written.
+     */
+    void sendText(String message) {
+        connection.sendText(message).subscribe().with(ignored -> { }, failure ->
+                logger.error("Erreur lors de l'envoi au client {}: {}", connection.id(), failure.getMessage()));
+    }
+
+    /**
+     * Sends a binary message outside the frame slot, without waiting for it to be written.
+     */
+    void sendBinary(Buffer message) {
+        connection.sendBinary(message).subscribe().with(ignored -> { }, failure ->
+                logger.error("Erreur lors de l'envoi au client {}: {}", connection.id(), failure.getMessage()));
+    }
+
+    long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    long getSentFrames() {
+        return sentFrames;
+    }
+
+    /**
+     * Frames held for this client: the pending one and the one being sent (0 to 2).
+     */
+    int queueDepth() {
+        return (pending.get() != null ? 1 : 0) + (sending.get() ? 1 : 0);
+    }
+
+    boolean isEvicted() {
+        return evicted.get();
+    }
+
+    /**
+     * Stops accepting frames once the connection is gone, releases the pending one and stops the sender.
+     */
+    void close() {
+        evicted.set(true);
+        discardPending();
+        stopSender();
+    }
+
+    private boolean isTooSlow(long now) {
+        return consecutiveDrops >= MAX_CONSECUTIVE_DROPS
+                || (sending.get() && now - sendStartNanos > STALLED_SEND_NANOS);
+    }
+
+    /**
+     * Body of the sender: sends the pending frame, or parks until {@link #offer(Frame)} fills the slot.
+     */
+    private void sendLoop() {
+        try {
+            while (!evicted.get()) {
+                Frame frame = pending.getAndSet(null);
+                if (frame == null) {
+                    CloseReason reason = finishReason;
+                    if (reason != null) {
+                        // Tout est parti : le client est fermé proprement
+                        evicted.set(true);
+                        connection.close(reason).subscribe().with(ignored -> { }, failure -> { });
+                        return;
+                    }
+                    LockSupport.park(this);
+                } else if (isApplicable(frame)) {
+                    send(frame);
+                } else {
+                    frame.release();
+                }
+            }
+        } finally {
+            // Fermé pendant une attente ou un envoi : une image a pu arriver entre-temps
+            discardPending();
+        }
+    }
+
+    private void send(Frame frame) {
+        sendStartNanos = System.nanoTime();
+        sending.set(true);
+        // Tous les clients partagent le même tampon : la référence n'est rendue qu'une fois l'écriture
+        // terminée par Netty, même si le client est déconnecté avant
+        CompletableFuture<Void> sent = new CompletableFuture<>();
+        try {
+            connection.sendBinary(frame.buffer()).subscribe().with(ignored -> {
+                frame.release();
+                sent.complete(null);
+            }, failure -> {
+                frame.release();
+                sent.completeExceptionally(failure);
+            });
+        } catch (RuntimeException e) {
+            frame.release();
+            sent.completeExceptionally(e);
+        }
+        try {
+            sent.get(STALLED_SEND_NANOS, TimeUnit.NANOSECONDS);
+            WebSocketMetrics.recordSent(sendStartNanos, frame.encodedAt());
+            sentFrames++;
+            consecutiveDrops = 0;
+        } catch (TimeoutException e) {
+            evict();
+        } catch (InterruptedException e) {
+            // Session fermée pendant l'envoi : la boucle s'arrête
+            evicted.set(true);
+        } catch (ExecutionException e) {
+            if (!evicted.get()) {
+                WebSocketMetrics.FAILED_SENDS.increment();
+                logger.error("Erreur lors de l'envoi binaire au client {}: {}", connection.id(),
+                        e.getCause().getMessage());
+            }
+        } finally {
+            sending.set(false);
+        }
+    }
+
+    private boolean isApplicable(Frame frame) {
+        if (frame.isDelta() && frame.sequence() != lastSentSequence + 1) {
+            needsKeyframe = true;
+            return false;
+        }
+        lastSentSequence = frame.sequence();
+        needsKeyframe = false;
+        return true;
+    }
+
+    private void evict() {
+        if (evicted.compareAndSet(false, true)) {
+            discardPending();
+            WebSocketMetrics.EVICTED_CLIENTS.increment();
+            logger.warn("Client {} trop lent, déconnexion ({} images perdues)", connection.id(), droppedFrames);
+            connection.close(TOO_SLOW).subscribe().with(ignored -> { }, failure -> { });
+            stopSender();
+        }
+    }
+
+    private void wakeSender() {
+        if (!started.get() && started.compareAndSet(false, true)) {
+            sender.start();
+        } else {
+            LockSupport.unpark(sender);
+        }
+    }
+
+    private void stopSender() {
+        // Réveille le sender, bloqué dans un envoi ou en attente d'image : il sort de sa boucle
+        if (started.get() && Thread.currentThread() != sender) {
+            sender.interrupt();
+        }
+    }
+
+    private void discardPending() {
+        Frame frame = pending.getAndSet(null);
+        if (frame != null) {
+            frame.release();
+        }
+    }
+}
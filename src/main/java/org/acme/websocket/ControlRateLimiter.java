@@ -0,0 +1,61 @@
+package org.acme.websocket;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket limiting the control messages of one client: {@link #BURST} messages at once, then
+ * {@link #RATE} per second. A malformed message costs {@link #MALFORMED_COST} tokens, so a client sending
+ * garbage is cut off sooner. A client that keeps sending while it is limited is flooding and gets
+ * disconnected. Not thread-safe: the caller serialises the messages of a client.
+ */
+final class ControlRateLimiter {
+
+    static final int BURST = 20;
+    static final int RATE = 10;
+    static final int MALFORMED_COST = 5;
+    // Messages refusés d'affilée avant déconnexion
+    static final int MAX_REJECTED = 50;
+
+    private static final long NANOS_PER_TOKEN = TimeUnit.SECONDS.toNanos(1) / RATE;
+
+    private long tokens = BURST;
+    private long refilledAt;
+    private int rejected;
+
+    ControlRateLimiter(long now) {
+        refilledAt = now;
+    }
+
+    /**
+     * Takes {@code cost} tokens if available; {@code now} is a {@link System#nanoTime()} value.
+     */
+    boolean tryAcquire(long now, int cost) {
+        long earned = (now - refilledAt) / NANOS_PER_TOKEN;
+        if (earned > 0) {
+            tokens = Math.min(BURST, tokens + earned);
+            // Le reste de la période est conservé : pas de jeton perdu par arrondi
+            refilledAt = tokens == BURST ? now : refilledAt + earned * NANOS_PER_TOKEN;
+        }
+        if (tokens >= cost) {
+            tokens -= cost;
+            rejected = 0;
+            return true;
+        }
+        rejected++;
+        return false;
+    }
+
+    /**
+     * Messages refused since the last accepted one.
+     */
+    int rejected() {
+        return rejected;
+    }
+
+    /**
+     * Whether {@link #MAX_REJECTED} messages in a row were refused: the client ignores the limit.
+     */
+    boolean isFlooding() {
+        return rejected >= MAX_REJECTED;
+    }
+}
@@ -1,17 +1,33 @@
 package org.acme.websocket;
 
+import io.quarkus.websockets.next.CloseReason;
+import io.quarkus.websockets.next.HandshakeRequest;
+import io.quarkus.websockets.next.OnBinaryMessage;
 import io.quarkus.websockets.next.OnClose;
 import io.quarkus.websockets.next.OnOpen;
 import io.quarkus.websockets.next.OnTextMessage;
 import io.quarkus.websockets.next.WebSocketConnection;
+import io.vertx.core.buffer.Buffer;
 import jakarta.enterprise.context.ApplicationScoped;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.acme.protocol.ControlRequest;
+import org.acme.protocol.StreamSubscription;
+import org.acme.protocol.Viewport;
+import org.acme.simulation.SimulationEngine;
 import org.acme.simulation.SimulationLogic;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Endpoint of the default simulation. Clients of the other simulations connect to
+ * {@code /websocket/{simulation}} ({@link SimulationWebSocket}); both share the registry of connections.
+ * <p>
+ * Clients control their simulation with binary requests ({@link ControlRequest}), each answered with its
+ * status; the text commands of the first front-end ({@code start}, {@code stop}, {@code add}, {@code delete},
+ * {@code viewport ...}) are still accepted. Both go through the rate limiter of the client.
+ */
 @ApplicationScoped
 @io.quarkus.websockets.next.WebSocket(path = "/websocket")
 public class GridWebSocket {
@@ -20,52 +36,232 @@ public class GridWebSocket {
 
     protected static SimulationLogic simulationLogic = SimulationLogic.getInstance();
 
-    // Store all connections in a concurrent map
-    protected static final Map<String, WebSocketConnection> connections = new ConcurrentHashMap<>();
+    private static final String VIEWPORT_COMMAND = "viewport ";
+
+    static final CloseReason FLOODING = new CloseReason(1008, "Too many requests");
+
+    // Connexions et leur état d'envoi ; la diffusion parcourt les abonnés de chaque simulation, jamais ce registre
+    protected static final Map<String, ClientSession> connections = new ConcurrentHashMap<>();
 
     @OnOpen
     public void onOpen(WebSocketConnection connection) {
-        if (logger.isInfoEnabled()) {
-            logger.info("Connexion établie avec un client: {}", connection.id());
-        }
-        connections.put(connection.id(), connection);
+        open(connection, SimulationEngine.DEFAULT_SIMULATION);
     }
 
     @OnClose
     public void onClose(WebSocketConnection connection) {
+        close(connection);
+    }
+
+    /**
+     * Registers a client and subscribes it to the given simulation, which is created if needed
+     * @param connection   the new connection
+     * @param simulationId the simulation chosen by the client
+     */
+    static void open(WebSocketConnection connection, String simulationId) {
+        if (logger.isInfoEnabled()) {
+            logger.info("Connexion établie avec un client: {} (simulation {})", connection.id(), simulationId);
+        }
+        // Le format du flux est négocié à la connexion : /websocket?format=delta&precision=4
+        HandshakeRequest handshake = connection.handshakeRequest();
+        ClientSession session;
+        try {
+            String query = handshake == null ? null : handshake.query();
+            StreamSubscription subscription = StreamSubscription.fromQuery(query);
+            session = subscribe(connection, simulationId, subscription, query);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Connexion refusée pour le client {}: {}", connection.id(), e.getMessage());
+            connection.close(new CloseReason(1003, e.getMessage())).subscribe().with(ignored -> { }, failure -> { });
+            return;
+        }
+        connections.put(connection.id(), session);
+    }
+
+    /**
+     * Unsubscribes a client; its simulation is parked once it has no subscriber left
+     * @param connection the closed connection
+     */
+    static void close(WebSocketConnection connection) {
         if (logger.isInfoEnabled()) {
             logger.info("Connexion fermée avec le client: {}", connection.id());
         }
-        connections.remove(connection.id());
+        ClientSession session = connections.remove(connection.id());
+        if (session != null) {
+            session.simulation().removeSubscriber(session);
+            session.close();
+        }
+    }
+
+    private static ClientSession subscribe(WebSocketConnection connection, String simulationId,
+                                           StreamSubscription subscription, String query) {
+        if (SimulationEngine.DEFAULT_SIMULATION.equals(simulationId)) {
+            return subscribe(connection, simulationLogic, subscription, query);
+        }
+        SimulationEngine engine = SimulationEngine.getInstance();
+        while (true) {
+            SimulationLogic simulation = engine.getOrCreate(simulationId);
+            ClientSession session = subscribe(connection, simulation, subscription, query);
+            if (engine.get(simulationId) == simulation) {
+                return session;
+            }
+            // Salle retirée faute de client juste avant l'abonnement : le client rejoint la nouvelle
+            simulation.removeSubscriber(session);
+            session.close();
+        }
+    }
+
+    private static ClientSession subscribe(WebSocketConnection connection, SimulationLogic simulation,
+                                           StreamSubscription subscription, String query) {
+        ClientSession session = new ClientSession(connection, subscription, simulation);
+        // Sans viewport demandé, le client voit tout le monde de sa simulation
+        session.setViewport(Viewport.fromQuery(query, session.viewport()));
+        simulation.addSubscriber(session);
+        return session;
     }
 
     /**
-     * Method to send a message to all connected clients
+     * Method to send a message to all connected clients, without waiting for the sends
      * @param message the message to broadcast
      */
     public static void broadcast(String message) {
-        for (WebSocketConnection conn : connections.values()) {
+        for (ClientSession session : connections.values()) {
             try {
-                conn.sendTextAndAwait(message);
+                session.sendText(message);
             } catch (Exception e) {
-                logger.error("Erreur lors de l'envoi au client {}: {}", conn.id(), e.getMessage());
+                logger.error("Erreur lors de l'envoi au client {}: {}", session.id(), e.getMessage());
             }
         }
     }
 
-    public static void broadcastBinary(byte[] data) {
-        for (WebSocketConnection conn : connections.values()) {
-            try {
-                conn.sendBinaryAndAwait(data);
-            } catch (Exception e) {
-                logger.error("Erreur lors de l'envoi binaire au client {}: {}", conn.id(), e.getMessage());
+    @OnTextMessage
+    public void onMessage(String message, WebSocketConnection connection) {
+        handleCommand(connection, message);
+    }
+
+    @OnBinaryMessage
+    public void onBinaryMessage(Buffer message, WebSocketConnection connection) {
+        handleRequest(connection, message);
+    }
+
+    /**
+     * Applies a command to the default simulation
+     * @param message the command
+     */
+    public void onMessage(String message) {
+        execute(simulationLogic, message);
+    }
+
+    /**
+     * Applies a command to the simulation watched by the client that sent it
+     * @param connection the connection the command was received on
+     * @param message    the command
+     */
+    static void handleCommand(WebSocketConnection connection, String message) {
+        ClientSession session = connection.id() == null ? null : connections.get(connection.id());
+        if (session == null) {
+            // Connexion refusée à l'ouverture : elle n'a ni simulation ni limiteur
+            logger.warn("Commande reçue d'un client inconnu");
+            return;
+        }
+        synchronized (session.request()) {
+            if (!admit(session, 1)) {
+                return;
             }
         }
+        if (message.startsWith(VIEWPORT_COMMAND)) {
+            changeViewport(session, message.substring(VIEWPORT_COMMAND.length()));
+            return;
+        }
+        execute(session.simulation(), message);
     }
 
-    @OnTextMessage
-    public void onMessage(String message) {
-        logger.info("Message reçu : {}", message);
+    /**
+     * Decodes a binary control request, applies it to the simulation watched by the client and answers
+     * with its status; a refused burst is answered once
+     * @param connection the connection the request was received on
+     * @param message    the encoded request
+     */
+    static void handleRequest(WebSocketConnection connection, Buffer message) {
+        ClientSession session = connection.id() == null ? null : connections.get(connection.id());
+        if (session == null) {
+            logger.warn("Requête reçue d'un client inconnu");
+            return;
+        }
+        ControlRequest request = session.request();
+        synchronized (request) {
+            int status = request.decode(message);
+            if (!admit(session, status == ControlRequest.OK ? 1 : ControlRateLimiter.MALFORMED_COST)) {
+                // Répondre à chaque message refusé amplifierait l'inondation
+                if (session.limiter().rejected() == 1) {
+                    session.sendBinary(request.encodeResponse(ControlRequest.RATE_LIMITED));
+                }
+                return;
+            }
+            if (status == ControlRequest.OK) {
+                status = apply(session, request);
+            } else if (logger.isDebugEnabled()) {
+                logger.debug("Requête invalide du client {} (statut {})", session.id(), status);
+            }
+            session.sendBinary(request.encodeResponse(status));
+        }
+    }
+
+    /**
+     * Passe un message au limiteur du client ; celui qui continue d'envoyer une fois limité est déconnecté.
+     * Appelé en tenant le verrou de session.request()
+     */
+    private static boolean admit(ClientSession session, int cost) {
+        ControlRateLimiter limiter = session.limiter();
+        if (limiter.tryAcquire(System.nanoTime(), cost)) {
+            return true;
+        }
+        WebSocketMetrics.LIMITED_REQUESTS.increment();
+        if (limiter.isFlooding() && !session.isEvicted()) {
+            logger.warn("Client {} inonde le canal de contrôle, déconnexion", session.id());
+            // Session fermée tout de suite : les messages suivants ne redemandent pas la déconnexion
+            session.close();
+            session.connection().close(FLOODING).subscribe().with(ignored -> { }, failure -> { });
+        }
+        return false;
+    }
+
+    private static int apply(ClientSession session, ControlRequest request) {
+        SimulationLogic simulation = session.simulation();
+        try {
+            switch (request.opcode()) {
+                case ControlRequest.START -> simulation.startSimulation();
+                case ControlRequest.STOP -> simulation.stopSimulation();
+                case ControlRequest.ADD_BODIES -> simulation.addBodies(request.count(), request.x(), request.y());
+                case ControlRequest.DELETE_BODIES -> simulation.deleteBodies(request.count());
+                case ControlRequest.SET_TIME_STEP -> simulation.setTimeStep(request.timeStep());
+                case ControlRequest.SUBSCRIBE -> session.subscribe(
+                        new StreamSubscription(request.format(), request.precision()), request.rate());
+                case ControlRequest.VIEWPORT -> session.setViewport(new Viewport(request.x(), request.y(),
+                        request.width(), request.height(), request.zoom()));
+                default -> {
+                    return ControlRequest.UNKNOWN_OPCODE;
+                }
+            }
+            return ControlRequest.OK;
+        } catch (IllegalArgumentException e) {
+            logger.debug("Requête refusée pour le client {}: {}", session.id(), e.getMessage());
+            return ControlRequest.INVALID_ARGUMENT;
+        }
+    }
+
+    /**
+     * Moves the zone sent to a client using the viewport format: {@code viewport <x> <y> <width> <height> <zoom>}
+     */
+    private static void changeViewport(ClientSession session, String arguments) {
+        try {
+            session.setViewport(Viewport.parse(arguments));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Viewport invalide du client {}: {}", session.id(), e.getMessage());
+        }
+    }
+
+    private static void execute(SimulationLogic simulationLogic, String message) {
+        logger.debug("Message reçu : {}", message);
         switch (message) {
             case "start" -> simulationLogic.startSimulation();
             case "stop" -> simulationLogic.stopSimulation();
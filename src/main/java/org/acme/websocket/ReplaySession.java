@@ -0,0 +1,85 @@
+package org.acme.websocket;
+
+import io.quarkus.websockets.next.CloseReason;
+import org.acme.persistence.TrajectoryReader;
+import org.acme.protocol.ReplayRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One viewer of a recording: at the recorded pace (times the requested speed), hands the next frame of
+ * the range to the client session, which applies the same latest-frame-wins policy as live clients.
+ * No physics and no encoding: each tick is a lookup in the shared, already decoded chunks.
+ */
+class ReplaySession {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplaySession.class);
+
+    static final CloseReason END_OF_REPLAY = new CloseReason(1000, "End of replay");
+
+    private final ClientSession client;
+    private final TrajectoryReader reader;
+    private final ReplayRequest request;
+    private ScheduledFuture<?> task;
+
+    private int next;
+    private int end;
+
+    ReplaySession(ClientSession client, TrajectoryReader reader, ReplayRequest request) {
+        this.client = client;
+        this.reader = reader;
+        this.request = request;
+    }
+
+    ClientSession client() {
+        return client;
+    }
+
+    TrajectoryReader reader() {
+        return reader;
+    }
+
+    synchronized void start(ScheduledExecutorService scheduler) throws IOException {
+        reader.refresh();
+        next = reader.seek(request.from());
+        end = request.to() == Long.MAX_VALUE ? reader.getFrameCount() : reader.seek(request.to() + 1);
+        long period = Math.max(1, Math.round(reader.getFramePeriodNanos() / request.speed()));
+        task = scheduler.scheduleAtFixedRate(this::sendNext, 0, period, TimeUnit.NANOSECONDS);
+    }
+
+    synchronized void stop() {
+        cancel();
+        client.close();
+    }
+
+    private void cancel() {
+        if (task != null) {
+            task.cancel(false);
+            task = null;
+        }
+    }
+
+    private synchronized void sendNext() {
+        if (task == null) {
+            return;
+        }
+        try {
+            if (next >= end || client.isEvicted()) {
+                // La dernière image part avant la fermeture ; un client expulsé est déjà fermé
+                cancel();
+                client.finish(END_OF_REPLAY);
+                return;
+            }
+            client.offer(reader.frame(next++));
+        } catch (IOException | RuntimeException e) {
+            logger.error("Erreur lors du replay de {} pour le client {}: {}", reader.getFile(), client.id(), e.getMessage());
+            stop();
+            client.connection().close(new CloseReason(1011, "Replay failed")).subscribe().with(ignored -> { }, failure -> { });
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package org.acme.websocket;
+
+import io.quarkus.websockets.next.CloseReason;
+import io.quarkus.websockets.next.HandshakeRequest;
+import io.quarkus.websockets.next.OnClose;
+import io.quarkus.websockets.next.OnOpen;
+import io.quarkus.websockets.next.WebSocketConnection;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.acme.persistence.TrajectoryReader;
+import org.acme.protocol.ReplayRequest;
+import org.acme.protocol.StreamSubscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.regex.Pattern;
+
+/**
+ * Streams a recorded trajectory, e.g. {@code /replay/room-1-1700000000000?from=200&to=800&speed=2}, in the
+ * legacy frame format. Every viewer of a recording shares the same memory-mapped reader and decoded chunks,
+ * closed when the last of them leaves, and all replays are paced by a single thread, so watching history does
+ * not touch the live simulations.
+ */
+@ApplicationScoped
+@io.quarkus.websockets.next.WebSocket(path = "/replay/{recording}")
+public class ReplayWebSocket {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplayWebSocket.class);
+
+    private static final Pattern NAME_PATTERN = Pattern.compile("[A-Za-z0-9_-]{1,128}");
+
+    private static final ScheduledExecutorService scheduler = createScheduler();
+
+    // Répertoire des enregistrements, lecteurs ouverts (partagés entre spectateurs, gardés par leur verrou)
+    // et sessions en cours
+    private static volatile Path directory = Path.of("recordings");
+    private static final Map<Path, SharedReader> readers = new HashMap<>();
+    private static final Map<String, ReplaySession> sessions = new ConcurrentHashMap<>();
+
+    public static void setDirectory(Path directory) {
+        ReplayWebSocket.directory = directory;
+    }
+
+    @OnOpen
+    public void onOpen(WebSocketConnection connection) {
+        String name = connection.pathParam("recording");
+        HandshakeRequest handshake = connection.handshakeRequest();
+        TrajectoryReader reader = null;
+        try {
+            ReplayRequest request = ReplayRequest.fromQuery(handshake == null ? null : handshake.query());
+            reader = acquire(name);
+            ClientSession client = new ClientSession(connection, StreamSubscription.LEGACY, null);
+            ReplaySession session = new ReplaySession(client, reader, request);
+            sessions.put(connection.id(), session);
+            session.start(scheduler);
+            logger.info("Replay de {} pour le client {}", name, connection.id());
+        } catch (IllegalArgumentException | IOException e) {
+            sessions.remove(connection.id());
+            if (reader != null) {
+                release(reader);
+            }
+            logger.warn("Replay refusé pour le client {}: {}", connection.id(), e.getMessage());
+            connection.close(new CloseReason(1003, e.getMessage())).subscribe().with(ignored -> { }, failure -> { });
+        }
+    }
+
+    @OnClose
+    public void onClose(WebSocketConnection connection) {
+        ReplaySession session = sessions.remove(connection.id());
+        if (session != null) {
+            // Arrêtée, la session ne lit plus : le lecteur peut être fermé
+            session.stop();
+            release(session.reader());
+        }
+    }
+
+    static int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Recordings currently open, one per recording with at least one viewer.
+     */
+    public static int getOpenReaderCount() {
+        synchronized (readers) {
+            return readers.size();
+        }
+    }
+
+    /**
+     * Lecteur partagé de l'enregistrement, ouvert au premier spectateur ; à rendre avec {@link #release}
+     */
+    private static TrajectoryReader acquire(String name) throws IOException {
+        if (name == null || !NAME_PATTERN.matcher(name).matches()) {
+            throw new IllegalArgumentException("Invalid recording name: " + name);
+        }
+        Path file = directory.resolve(name + ".trajectory");
+        if (!Files.exists(file)) {
+            throw new IllegalArgumentException("Unknown recording: " + name);
+        }
+        synchronized (readers) {
+            SharedReader shared = readers.get(file);
+            if (shared == null) {
+                shared = new SharedReader(new TrajectoryReader(file));
+                readers.put(file, shared);
+            }
+            shared.viewers++;
+            return shared.reader;
+        }
+    }
+
+    /**
+     * Rend le lecteur d'un spectateur et le ferme au départ du dernier
+     */
+    private static void release(TrajectoryReader reader) {
+        synchronized (readers) {
+            SharedReader shared = readers.get(reader.getFile());
+            if (shared == null || shared.reader != reader || --shared.viewers > 0) {
+                return;
+            }
+            readers.remove(reader.getFile());
+        }
+        try {
+            reader.close();
+        } catch (IOException e) {
+            logger.warn("Fermeture de l'enregistrement {} incorrecte: {}", reader.getFile(), e.getMessage());
+        }
+    }
+
+    private static final class SharedReader {
+
+        private final TrajectoryReader reader;
+        private int viewers;
+
+        private SharedReader(TrajectoryReader reader) {
+            this.reader = reader;
+        }
+    }
+
+    private static ScheduledExecutorService createScheduler() {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "ReplayWorker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+}
@@ -0,0 +1,42 @@
+package org.acme.websocket;
+
+import io.quarkus.websockets.next.OnBinaryMessage;
+import io.quarkus.websockets.next.OnClose;
+import io.quarkus.websockets.next.OnOpen;
+import io.quarkus.websockets.next.OnTextMessage;
+import io.quarkus.websockets.next.WebSocketConnection;
+import io.smallrye.common.annotation.Blocking;
+import io.vertx.core.buffer.Buffer;
+import jakarta.enterprise.context.ApplicationScoped;
+
+/**
+ * Endpoint of a named simulation, e.g. {@code /websocket/room-1?format=delta}: the simulation is created
+ * on first use, parked while nobody watches it and removed once nobody has watched it for a while. Same
+ * protocol as {@link GridWebSocket}.
+ */
+@ApplicationScoped
+@io.quarkus.websockets.next.WebSocket(path = "/websocket/{simulation}")
+public class SimulationWebSocket {
+
+    // Sur un thread worker : la première connexion à une simulation la crée et restaure son checkpoint
+    @OnOpen
+    @Blocking
+    public void onOpen(WebSocketConnection connection) {
+        GridWebSocket.open(connection, connection.pathParam("simulation"));
+    }
+
+    @OnClose
+    public void onClose(WebSocketConnection connection) {
+        GridWebSocket.close(connection);
+    }
+
+    @OnTextMessage
+    public void onMessage(String message, WebSocketConnection connection) {
+        GridWebSocket.handleCommand(connection, message);
+    }
+
+    @OnBinaryMessage
+    public void onBinaryMessage(Buffer message, WebSocketConnection connection) {
+        GridWebSocket.handleRequest(connection, message);
+    }
+}
@@ -0,0 +1,108 @@
+package org.acme.websocket;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.acme.metrics.PhaseTimer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Meters of the WebSocket endpoints: number of clients, frames waiting in their slots, frames sent,
+ * dropped or failed, send latencies, and control messages refused by the rate limiter. Counters are always kept (one striped
+ * increment per frame); timers and gauges only exist between {@link #enable} and {@link #disable}.
+ */
+public final class WebSocketMetrics {
+
+    static final LongAdder SENT_FRAMES = new LongAdder();
+    static final LongAdder DROPPED_FRAMES = new LongAdder();
+    static final LongAdder FAILED_SENDS = new LongAdder();
+    static final LongAdder EVICTED_CLIENTS = new LongAdder();
+    static final LongAdder LIMITED_REQUESTS = new LongAdder();
+
+    // Durée d'un envoi (sendBinary jusqu'à l'écriture), et de l'encodage de la frame jusqu'à l'écriture
+    static volatile PhaseTimer sendLatency = PhaseTimer.DISABLED;
+    static volatile PhaseTimer frameLatency = PhaseTimer.DISABLED;
+
+    private static MeterRegistry registry;
+    private static final List<Meter> meters = new ArrayList<>();
+
+    private WebSocketMetrics() {
+    }
+
+    /**
+     * Registers the meters in {@code registry}, replacing a previous registration.
+     */
+    public static synchronized void enable(MeterRegistry registry) {
+        disable();
+        WebSocketMetrics.registry = registry;
+        meters.add(Gauge.builder("nbody.websocket.connections", GridWebSocket.connections, map -> map.size())
+                .description("Connected clients").register(registry));
+        meters.add(Gauge.builder("nbody.websocket.queued", WebSocketMetrics::queuedFrames)
+                .description("Frames waiting or being sent, over all clients").register(registry));
+        meters.add(Gauge.builder("nbody.websocket.queue.max", WebSocketMetrics::maxQueueDepth)
+                .description("Frames waiting or being sent for the most loaded client").register(registry));
+        meters.add(FunctionCounter.builder("nbody.websocket.frames.sent", SENT_FRAMES, LongAdder::sum)
+                .description("Frames written to a client").register(registry));
+        meters.add(FunctionCounter.builder("nbody.websocket.frames.dropped", DROPPED_FRAMES, LongAdder::sum)
+                .description("Frames replaced by a newer one before being sent").register(registry));
+        meters.add(FunctionCounter.builder("nbody.websocket.sends.failed", FAILED_SENDS, LongAdder::sum)
+                .description("Sends that failed").register(registry));
+        meters.add(FunctionCounter.builder("nbody.websocket.clients.evicted", EVICTED_CLIENTS, LongAdder::sum)
+                .description("Clients disconnected for being too slow").register(registry));
+        meters.add(FunctionCounter.builder("nbody.websocket.requests.limited", LIMITED_REQUESTS, LongAdder::sum)
+                .description("Control messages refused by the rate limiter").register(registry));
+        sendLatency = PhaseTimer.register(registry, "nbody.websocket.send",
+                "From the start of a send to its completion", Tags.empty());
+        frameLatency = PhaseTimer.register(registry, "nbody.websocket.latency",
+                "From the encoding of a frame to its completion on a client", Tags.empty());
+    }
+
+    public static synchronized void disable() {
+        if (registry == null) {
+            return;
+        }
+        sendLatency.remove(registry);
+        frameLatency.remove(registry);
+        sendLatency = PhaseTimer.DISABLED;
+        frameLatency = PhaseTimer.DISABLED;
+        meters.forEach(registry::remove);
+        meters.clear();
+        registry = null;
+    }
+
+    /**
+     * Records a completed send started at {@code sendStart} (nanoTime) for a frame encoded at {@code encodedAt}.
+     */
+    static void recordSent(long sendStart, long encodedAt) {
+        SENT_FRAMES.increment();
+        PhaseTimer send = sendLatency;
+        if (send.isEnabled()) {
+            long now = System.nanoTime();
+            send.record(now - sendStart);
+            if (encodedAt != 0) {
+                frameLatency.record(now - encodedAt);
+            }
+        }
+    }
+
+    private static double queuedFrames() {
+        int total = 0;
+        for (ClientSession session : GridWebSocket.connections.values()) {
+            total += session.queueDepth();
+        }
+        return total;
+    }
+
+    private static double maxQueueDepth() {
+        int max = 0;
+        for (ClientSession session : GridWebSocket.connections.values()) {
+            max = Math.max(max, session.queueDepth());
+        }
+        return max;
+    }
+}
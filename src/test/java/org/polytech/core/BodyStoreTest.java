@@ -0,0 +1,146 @@
+package org.polytech.core;
+
+import org.acme.core.Body;
+import org.acme.core.BodyStore;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+class BodyStoreTest {
+
+    @Test
+    void testAddAndGet() {
+        BodyStore store = new BodyStore();
+        int index = store.add(1.0, 2.0, 3.0, 4.0, 5.0);
+
+        assertEquals(0, index);
+        assertEquals(1, store.size());
+        Body body = store.get(0);
+        assertEquals(1.0, body.getX());
+        assertEquals(2.0, body.getY());
+        assertEquals(3.0, body.getVx());
+        assertEquals(4.0, body.getVy());
+        assertEquals(5.0, body.getMass());
+    }
+
+    @Test
+    void testCapacityGrows() {
+        BodyStore store = new BodyStore(2);
+        for (int i = 0; i < 100; i++) {
+            store.add(i, -i, 0, 0, 1.0);
+        }
+        assertEquals(100, store.size());
+        assertTrue(store.capacity() >= 100);
+        assertTrue(store.fx().length >= 100);
+        assertEquals(99.0, store.x()[99]);
+        assertEquals(-99.0, store.y()[99]);
+    }
+
+    @Test
+    void testRemoveShiftsFollowingBodies() {
+        BodyStore store = BodyStore.of(List.of(
+                new Body(0, 0, 0, 0, 1),
+                new Body(1, 0, 0, 0, 1),
+                new Body(2, 0, 0, 0, 1)));
+        store.remove(1);
+
+        assertEquals(2, store.size());
+        assertEquals(0.0, store.x()[0]);
+        assertEquals(2.0, store.x()[1]);
+        assertThrows(IndexOutOfBoundsException.class, () -> store.remove(2));
+    }
+
+    @Test
+    void testSwapRemoveMovesLastBody() {
+        BodyStore store = line(4);
+        store.swapRemove(1);
+
+        assertEquals(3, store.size());
+        assertEquals(0.0, store.x()[0]);
+        assertEquals(3.0, store.x()[1]);
+        assertEquals(2.0, store.x()[2]);
+        assertThrows(IndexOutOfBoundsException.class, () -> store.swapRemove(3));
+    }
+
+    @Test
+    void testAddAllAppendsCopies() {
+        BodyStore store = line(3);
+        store.fx()[0] = 5;
+        BodyStore source = line(2);
+        source.fx()[1] = 7;
+        store.addAll(source);
+
+        assertEquals(5, store.size());
+        assertEquals(1.0, store.x()[4]);
+        assertEquals(0.0, store.fx()[4]);
+        assertEquals(5.0, store.fx()[0]);
+        source.x()[0] = 42;
+        assertEquals(0.0, store.x()[3]);
+    }
+
+    @Test
+    void testCompactKeepsOrder() {
+        BodyStore store = line(6);
+        long modifications = store.modificationCount();
+        boolean[] removed = {false, true, false, true, true, false};
+
+        assertEquals(3, store.compact(removed));
+        assertEquals(3, store.size());
+        assertEquals(0, store.x()[0]);
+        assertEquals(2, store.x()[1]);
+        assertEquals(5, store.x()[2]);
+        assertTrue(store.modificationCount() > modifications);
+        assertEquals(0, store.compact(new boolean[3]));
+    }
+
+    @Test
+    void testNegativeMass() {
+        BodyStore store = new BodyStore();
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> store.add(0, 0, 0, 0, -1));
+        assertEquals("Mass cannot be negative", exception.getMessage());
+    }
+
+    @Test
+    void testGetReturnsCopy() {
+        BodyStore store = new BodyStore();
+        store.add(1.0, 1.0, 0, 0, 1.0);
+        store.get(0).setX(42.0);
+        assertEquals(1.0, store.x()[0]);
+    }
+
+    @Test
+    void testCopyToAndToList() {
+        BodyStore store = new BodyStore();
+        store.add(1.0, 2.0, 3.0, 4.0, 5.0);
+        Body target = new Body(0, 0, 0, 0, 0);
+        store.copyTo(0, target);
+        assertEquals(2.0, target.getY());
+
+        List<Body> list = store.toList();
+        assertEquals(1, list.size());
+        assertEquals(4.0, list.getFirst().getVy());
+    }
+
+    @Test
+    void testClearForces() {
+        BodyStore store = new BodyStore();
+        store.add(0, 0, 0, 0, 1.0);
+        store.fx()[0] = 3.0;
+        store.fy()[0] = 4.0;
+        store.clearForces();
+        assertEquals(0.0, store.fx()[0]);
+        assertEquals(0.0, store.fy()[0]);
+    }
+
+    /**
+     * Corps alignés, d'abscisse égale à leur indice
+     */
+    private static BodyStore line(int count) {
+        BodyStore store = new BodyStore(count);
+        for (int i = 0; i < count; i++) {
+            store.add(i, 0, 0, 0, 1);
+        }
+        return store;
+    }
+}
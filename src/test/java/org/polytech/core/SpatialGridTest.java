@@ -0,0 +1,91 @@
+package org.polytech.core;
+
+import org.acme.core.BodyStore;
+import org.acme.core.SpatialGrid;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpatialGridTest {
+
+    @Test
+    void testEveryBodyIsInItsCell() {
+        Random random = new Random(1);
+        BodyStore bodies = new BodyStore();
+        for (int i = 0; i < 1000; i++) {
+            bodies.add(400 * random.nextDouble(), 200 * random.nextDouble(), 0, 0, 1);
+        }
+        SpatialGrid grid = new SpatialGrid();
+        grid.build(bodies, 10);
+
+        boolean[] seen = new boolean[bodies.size()];
+        for (int cell = 0; cell < grid.columns() * grid.rows(); cell++) {
+            int previous = -1;
+            for (int k = grid.start(cell); k < grid.end(cell); k++) {
+                int i = grid.body(k);
+                assertFalse(seen[i]);
+                seen[i] = true;
+                assertEquals(cell, grid.cellOf(bodies.x()[i], bodies.y()[i]));
+                // Tri stable : indices croissants dans chaque cellule
+                assertTrue(i > previous);
+                previous = i;
+            }
+        }
+        for (boolean s : seen) {
+            assertTrue(s);
+        }
+        assertEquals(bodies.size(), grid.end(grid.columns() * grid.rows() - 1));
+    }
+
+    @Test
+    void testEscapedBodiesDoNotBlowUpTheGrid() {
+        BodyStore bodies = new BodyStore();
+        bodies.add(0, 0, 0, 0, 1);
+        bodies.add(100, 100, 0, 0, 1);
+        bodies.add(Double.POSITIVE_INFINITY, Double.NaN, 0, 0, 1);
+        bodies.add(1e12, -1e12, 0, 0, 1);
+        SpatialGrid grid = new SpatialGrid();
+        grid.build(bodies, 1);
+
+        assertTrue((long) grid.columns() * grid.rows() <= SpatialGrid.MAX_CELLS);
+        assertTrue(grid.cellSize() > 1);
+        assertEquals(4, grid.end(grid.columns() * grid.rows() - 1));
+    }
+
+    @Test
+    void testFarBodiesGoToBorderCellsOfBoundedGrid() {
+        Random random = new Random(3);
+        BodyStore bodies = new BodyStore();
+        for (int i = 0; i < 1000; i++) {
+            bodies.add(400 * random.nextDouble(), 200 * random.nextDouble(), 0, 0, 1);
+        }
+        bodies.add(1e9, 5e8, 0, 0, 1);
+        SpatialGrid grid = new SpatialGrid();
+        grid.build(bodies, 1, -400, -200, 800, 400);
+
+        // L'éjecté ne grossit pas les cellules : il rejoint le coin de la grille
+        assertEquals(1, grid.cellSize());
+        assertTrue(grid.columns() <= 801 && grid.rows() <= 401);
+        assertEquals(grid.columns() * grid.rows() - 1, grid.cellOf(1e9, 5e8));
+        assertEquals(bodies.size(), grid.end(grid.columns() * grid.rows() - 1));
+        assertThrows(IllegalArgumentException.class, () -> grid.build(bodies, 1, 10, 0, 0, 10));
+    }
+
+    @Test
+    void testRebuildAfterChanges() {
+        BodyStore bodies = new BodyStore();
+        bodies.add(5, 5, 0, 0, 1);
+        SpatialGrid grid = new SpatialGrid();
+        grid.build(bodies, 1);
+        assertEquals(1, grid.columns() * grid.rows());
+
+        bodies.add(15, 5, 0, 0, 1);
+        grid.build(bodies, 1);
+        assertEquals(11, grid.columns());
+        int cell = grid.cellOf(15, 5);
+        assertEquals(1, grid.end(cell) - grid.start(cell));
+        assertEquals(1, grid.body(grid.start(cell)));
+        assertThrows(IllegalArgumentException.class, () -> grid.build(bodies, 0));
+    }
+}
@@ -0,0 +1,146 @@
+package org.polytech.persistence;
+
+import org.acme.core.Body;
+import org.acme.core.BodyStore;
+import org.acme.persistence.Checkpoint;
+import org.acme.persistence.CheckpointFile;
+import org.acme.persistence.CheckpointWriter;
+import org.acme.simulation.SimulationEngine;
+import org.acme.simulation.SimulationLogic;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CheckpointTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testRoundTrip() throws IOException {
+        BodyStore bodies = randomBodies(1000);
+        Path file = directory.resolve("room.checkpoint");
+        CheckpointFile.write(file, bodies, 1234, 42, 0.05);
+
+        Checkpoint checkpoint = CheckpointFile.read(file);
+        assertEquals(1234, checkpoint.step());
+        assertEquals(42, checkpoint.seed());
+        assertEquals(0.05, checkpoint.timeStep());
+        assertSameBodies(bodies.toList(), checkpoint.bodies().toList());
+        assertFalse(Files.exists(directory.resolve("room.checkpoint.tmp")));
+    }
+
+    @Test
+    void testMillionBodiesRestoreQuickly() throws IOException {
+        BodyStore bodies = randomBodies(1_000_000);
+        Path file = directory.resolve("large.checkpoint");
+        CheckpointFile.write(file, bodies, 1, 2, 0.1);
+
+        long start = System.nanoTime();
+        Checkpoint checkpoint = CheckpointFile.read(file);
+        long elapsed = System.nanoTime() - start;
+        assertEquals(1_000_000, checkpoint.bodies().size());
+        assertEquals(bodies.x()[999_999], checkpoint.bodies().x()[999_999]);
+        assertEquals(bodies.mass()[500_000], checkpoint.bodies().mass()[500_000]);
+        assertTrue(elapsed < TimeUnit.SECONDS.toNanos(1), "Restore took " + elapsed / 1_000_000 + " ms");
+    }
+
+    @Test
+    void testCorruptedFileIsRejected() throws IOException {
+        Path file = directory.resolve("room.checkpoint");
+        CheckpointFile.write(file, randomBodies(10), 1, 2, 0.1);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{1, 2, 3}), 100);
+        }
+        assertThrows(IOException.class, () -> CheckpointFile.read(file));
+
+        Files.write(file, new byte[]{1, 2, 3});
+        assertThrows(IOException.class, () -> CheckpointFile.read(file));
+    }
+
+    @Test
+    void testWriterCopiesStateAndWritesInBackground() throws IOException {
+        BodyStore bodies = randomBodies(100);
+        Path file = directory.resolve("room.checkpoint");
+        CheckpointWriter writer = new CheckpointWriter(file, TimeUnit.SECONDS.toNanos(30));
+        assertFalse(writer.isDue(System.nanoTime()));
+
+        List<Body> expected = bodies.toList();
+        assertTrue(writer.offer(bodies, 7, 8, 0.1, System.nanoTime()));
+        // Le tick peut modifier les corps dès le retour : le checkpoint porte sur la copie
+        bodies.x()[0] = -1;
+        writer.flush(10, TimeUnit.SECONDS);
+
+        assertSameBodies(expected, CheckpointFile.read(file).bodies().toList());
+        assertEquals(1, writer.getWrittenCount());
+    }
+
+    @Test
+    void testSimulationIsRestoredFromItsCheckpoint() throws IOException {
+        SimulationEngine engine = new SimulationEngine(1);
+        SimulationEngine restarted = new SimulationEngine(1);
+        try {
+            engine.enableCheckpoints(directory, Duration.ofMinutes(1));
+            SimulationLogic original = engine.getOrCreate("room");
+            original.stopSimulation();
+            for (int i = 0; i < 10; i++) {
+                original.simulateOneStep();
+            }
+            original.checkpoint();
+            assertTrue(Files.exists(directory.resolve("room.checkpoint")));
+
+            restarted.enableCheckpoints(directory, Duration.ofMinutes(1));
+            SimulationLogic restored = restarted.getOrCreate("room");
+            assertEquals(10, restored.getStepCount());
+            assertSameBodies(original.getBodies(), restored.getBodies());
+
+            // Même graine : les corps ajoutés ensuite sont identiques
+            restored.stopSimulation();
+            original.addBodies();
+            restored.addBodies();
+            assertSameBodies(original.getBodies(), restored.getBodies());
+
+            // Un checkpoint moins avancé que l'état courant n'est pas restauré
+            original.simulateOneStep();
+            engine.enableCheckpoints(directory, Duration.ofMinutes(1));
+            assertEquals(11, original.getStepCount());
+        } finally {
+            engine.shutdown();
+            restarted.shutdown();
+        }
+    }
+
+    private static void assertSameBodies(List<Body> expected, List<Body> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Body e = expected.get(i);
+            Body a = actual.get(i);
+            assertEquals(e.getX(), a.getX());
+            assertEquals(e.getY(), a.getY());
+            assertEquals(e.getVx(), a.getVx());
+            assertEquals(e.getVy(), a.getVy());
+            assertEquals(e.getMass(), a.getMass());
+        }
+    }
+
+    private static BodyStore randomBodies(int count) {
+        Random random = new Random(1);
+        BodyStore bodies = new BodyStore(count);
+        for (int i = 0; i < count; i++) {
+            bodies.add(random.nextDouble(), random.nextDouble(), random.nextGaussian(), random.nextGaussian(),
+                    random.nextDouble() * 1e6);
+        }
+        return bodies;
+    }
+}
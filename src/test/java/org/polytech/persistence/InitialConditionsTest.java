@@ -0,0 +1,105 @@
+package org.polytech.persistence;
+
+import org.acme.core.BodyStore;
+import org.acme.persistence.CheckpointFile;
+import org.acme.persistence.InitialConditions;
+import org.acme.simulation.GalaxyGenerator;
+import org.acme.simulation.SimulationParameters;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.*;
+
+class InitialConditionsTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testCsvIsParsed() throws IOException {
+        Path file = directory.resolve("galaxy.csv");
+        Files.writeString(file, """
+                # Galaxie de test
+                x,y,vx,vy,mass
+                200,100,0,0,2e10
+
+                150.5,100,0,-1.5,1e5
+                250;100;0;1.5;2E5
+                """);
+
+        BodyStore bodies = InitialConditions.load(file);
+        assertEquals(3, bodies.size());
+        assertEquals(2e10, bodies.mass()[0]);
+        assertEquals(150.5, bodies.x()[1]);
+        assertEquals(-1.5, bodies.vy()[1]);
+        assertEquals(2e5, bodies.mass()[2]);
+    }
+
+    @Test
+    void testMalformedCsvIsRejected() throws IOException {
+        Path columns = directory.resolve("columns.csv");
+        Files.writeString(columns, "1,2,3,4\n");
+        Path number = directory.resolve("number.csv");
+        Files.writeString(number, "1,2,3,4,5\n1,2,3,four,5\n");
+        Path mass = directory.resolve("mass.csv");
+        Files.writeString(mass, "1,2,3,4,-5\n");
+
+        IOException e = assertThrows(IOException.class, () -> InitialConditions.load(number));
+        assertTrue(e.getMessage().contains(":2:"), e.getMessage());
+        assertThrows(IOException.class, () -> InitialConditions.load(columns));
+        assertThrows(IOException.class, () -> InitialConditions.load(mass));
+    }
+
+    @Test
+    void testBinaryRoundTrip() throws IOException {
+        // Taille qui n'est pas un multiple du tampon de lecture
+        BodyStore bodies = GalaxyGenerator.galaxy(SimulationParameters.DEFAULT, 12_345, 5);
+        Path file = directory.resolve("galaxy.bin");
+        InitialConditions.writeBinary(file, bodies);
+
+        assertEquals(12_345L * 5 * Double.BYTES, Files.size(file));
+        BodyStore loaded = InitialConditions.load(file);
+        assertSameBodies(bodies, loaded);
+
+        Files.write(file, Arrays.copyOf(Files.readAllBytes(file), 100));
+        assertThrows(IOException.class, () -> InitialConditions.load(file));
+    }
+
+    @Test
+    void testCheckpointIsLoaded() throws IOException {
+        BodyStore bodies = GalaxyGenerator.galaxy(SimulationParameters.DEFAULT, 100, 5);
+        Path file = directory.resolve("room.checkpoint");
+        CheckpointFile.write(file, bodies, 1, 2, 0.1);
+
+        assertSameBodies(bodies, InitialConditions.load(file));
+    }
+
+    @Test
+    void testMillionBodiesLoadQuickly() throws IOException {
+        BodyStore bodies = GalaxyGenerator.galaxy(SimulationParameters.DEFAULT, 1_000_000, 9);
+        Path file = directory.resolve("large.bin");
+        InitialConditions.writeBinary(file, bodies);
+
+        long start = System.nanoTime();
+        BodyStore loaded = InitialConditions.load(file);
+        long elapsed = System.nanoTime() - start;
+        assertEquals(1_000_000, loaded.size());
+        assertEquals(bodies.vx()[999_999], loaded.vx()[999_999]);
+        assertTrue(elapsed < TimeUnit.SECONDS.toNanos(2), "Load took " + elapsed / 1_000_000 + " ms");
+    }
+
+    private static void assertSameBodies(BodyStore expected, BodyStore actual) {
+        int n = expected.size();
+        assertEquals(n, actual.size());
+        assertArrayEquals(Arrays.copyOf(expected.x(), n), Arrays.copyOf(actual.x(), n));
+        assertArrayEquals(Arrays.copyOf(expected.y(), n), Arrays.copyOf(actual.y(), n));
+        assertArrayEquals(Arrays.copyOf(expected.vx(), n), Arrays.copyOf(actual.vx(), n));
+        assertArrayEquals(Arrays.copyOf(expected.vy(), n), Arrays.copyOf(actual.vy(), n));
+        assertArrayEquals(Arrays.copyOf(expected.mass(), n), Arrays.copyOf(actual.mass(), n));
+    }
+}
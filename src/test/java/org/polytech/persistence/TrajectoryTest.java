@@ -0,0 +1,106 @@
+package org.polytech.persistence;
+
+import org.acme.persistence.TrajectoryReader;
+import org.acme.persistence.TrajectoryWriter;
+import org.acme.protocol.Frame;
+import org.acme.simulation.SimulationEngine;
+import org.acme.simulation.SimulationLogic;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrajectoryTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testFramesAreReadBackAndSeekable() throws IOException {
+        Path file = directory.resolve("room.trajectory");
+        try (TrajectoryWriter writer = new TrajectoryWriter(file, 50_000_000)) {
+            for (int i = 0; i < 200; i++) {
+                writer.append(5L * i, Frame.of(frameBytes(i)));
+            }
+        }
+
+        try (TrajectoryReader reader = new TrajectoryReader(file)) {
+            assertEquals(50_000_000, reader.getFramePeriodNanos());
+            assertEquals(200, reader.getFrameCount());
+            assertArrayEquals(frameBytes(0), reader.frame(0).content().toByteArray());
+            assertArrayEquals(frameBytes(199), reader.frame(199).content().toByteArray());
+            assertEquals(995, reader.step(199));
+
+            // Recherche d'un pas : première image enregistrée à ce pas ou après
+            assertEquals(0, reader.seek(0));
+            assertEquals(11, reader.seek(52));
+            assertEquals(11, reader.seek(55));
+            assertEquals(130, reader.seek(650));
+            assertEquals(200, reader.seek(10_000));
+            assertArrayEquals(frameBytes(130), reader.frame(reader.seek(650)).content().toByteArray());
+            assertThrows(IndexOutOfBoundsException.class, () -> reader.frame(200));
+        }
+    }
+
+    @Test
+    void testReaderFollowsRecordingInProgress() throws IOException, InterruptedException {
+        Path file = directory.resolve("live.trajectory");
+        try (TrajectoryWriter writer = new TrajectoryWriter(file, 1_000_000);
+             TrajectoryReader reader = new TrajectoryReader(file)) {
+            assertEquals(0, reader.getFrameCount());
+            for (int i = 0; i < TrajectoryWriter.FRAMES_PER_CHUNK + 10; i++) {
+                writer.append(i, Frame.of(frameBytes(i)));
+            }
+            // Seuls les blocs complets sont visibles pendant l'enregistrement
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (reader.getFrameCount() == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+                reader.refresh();
+            }
+            assertEquals(TrajectoryWriter.FRAMES_PER_CHUNK, reader.getFrameCount());
+
+            writer.close();
+            reader.refresh();
+            assertEquals(TrajectoryWriter.FRAMES_PER_CHUNK + 10, reader.getFrameCount());
+        }
+    }
+
+    @Test
+    void testSimulationIsRecorded() throws IOException, InterruptedException {
+        SimulationEngine engine = new SimulationEngine(1);
+        Path file = directory.resolve("room.trajectory");
+        try {
+            SimulationLogic simulation = engine.getOrCreate("room");
+            simulation.startRecording(file, 2);
+            // L'enregistreur suffit à faire tourner la simulation
+            assertFalse(simulation.isParked());
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (simulation.getStepCount() < 20 && System.nanoTime() < deadline) {
+                Thread.sleep(20);
+            }
+            simulation.stopRecording();
+            assertNull(simulation.getRecordingFile());
+        } finally {
+            engine.shutdown();
+        }
+
+        try (TrajectoryReader reader = new TrajectoryReader(file)) {
+            assertTrue(reader.getFrameCount() >= 5, "frames: " + reader.getFrameCount());
+            // Une image sur deux diffusions, à 20 Hz
+            assertEquals(100_000_000, reader.getFramePeriodNanos());
+            ByteBuffer frame = ByteBuffer.wrap(reader.frame(0).content().toByteArray());
+            assertEquals(SimulationLogic.BODY_COUNT, frame.getInt());
+            assertTrue(reader.step(reader.getFrameCount() - 1) > reader.step(0));
+        }
+    }
+
+    private static byte[] frameBytes(int i) {
+        byte[] bytes = new byte[4 + i % 50];
+        ByteBuffer.wrap(bytes).putInt(i);
+        return bytes;
+    }
+}
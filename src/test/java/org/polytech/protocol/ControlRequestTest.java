@@ -0,0 +1,113 @@
+package org.polytech.protocol;
+
+import io.vertx.core.buffer.Buffer;
+import org.acme.protocol.ControlRequest;
+import org.acme.protocol.DeltaPositionEncoder;
+import org.acme.protocol.StreamFormat;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ControlRequestTest {
+
+    @Test
+    void testParametersAreDecoded() {
+        ControlRequest request = new ControlRequest();
+
+        assertEquals(ControlRequest.OK, request.decode(header(ControlRequest.ADD_BODIES, 42)
+                .appendInt(25).appendDouble(120.5).appendDouble(-3)));
+        assertEquals(ControlRequest.ADD_BODIES, request.opcode());
+        assertEquals(42, request.requestId());
+        assertEquals(25, request.count());
+        assertEquals(120.5, request.x());
+        assertEquals(-3, request.y());
+
+        assertEquals(ControlRequest.OK, request.decode(header(ControlRequest.SET_TIME_STEP, 65535).appendDouble(0.05)));
+        assertEquals(65535, request.requestId());
+        assertEquals(0.05, request.timeStep());
+
+        assertEquals(ControlRequest.OK, request.decode(header(ControlRequest.SUBSCRIBE, 7)
+                .appendByte((byte) StreamFormat.DELTA.ordinal()).appendByte((byte) 4).appendUnsignedShort(10)));
+        assertEquals(StreamFormat.DELTA, request.format());
+        assertEquals(4, request.precision());
+        assertEquals(10, request.rate());
+
+        assertEquals(ControlRequest.OK, request.decode(header(ControlRequest.VIEWPORT, 8).appendDouble(10)
+                .appendDouble(20).appendDouble(100).appendDouble(50).appendDouble(2)));
+        assertEquals(10, request.x());
+        assertEquals(50, request.height());
+        assertEquals(2, request.zoom());
+
+        assertEquals(ControlRequest.OK, request.decode(header(ControlRequest.START, 9)));
+        assertEquals(ControlRequest.START, request.opcode());
+    }
+
+    @Test
+    void testInvalidMessagesAreReported() {
+        ControlRequest request = new ControlRequest();
+
+        assertEquals(ControlRequest.MALFORMED, request.decode(Buffer.buffer(new byte[]{1, 1})));
+        assertEquals(ControlRequest.MALFORMED, request.decode(Buffer.buffer()
+                .appendByte((byte) 9).appendByte((byte) ControlRequest.START).appendUnsignedShort(3)));
+        // Longueur fausse : l'identifiant reste lisible pour répondre
+        assertEquals(ControlRequest.MALFORMED, request.decode(header(ControlRequest.DELETE_BODIES, 12)));
+        assertEquals(12, request.requestId());
+        assertEquals(ControlRequest.MALFORMED, request.decode(header(ControlRequest.STOP, 1).appendByte((byte) 0)));
+        assertEquals(ControlRequest.UNKNOWN_OPCODE, request.decode(header(200, 13)));
+
+        assertEquals(ControlRequest.INVALID_ARGUMENT, request.decode(header(ControlRequest.DELETE_BODIES, 1).appendInt(-1)));
+        assertEquals(ControlRequest.INVALID_ARGUMENT, request.decode(header(ControlRequest.ADD_BODIES, 1)
+                .appendInt(5).appendDouble(Double.NaN).appendDouble(3)));
+        assertEquals(ControlRequest.INVALID_ARGUMENT, request.decode(header(ControlRequest.SET_TIME_STEP, 1).appendDouble(0)));
+        assertEquals(ControlRequest.INVALID_ARGUMENT, request.decode(header(ControlRequest.SUBSCRIBE, 1)
+                .appendByte((byte) 99).appendByte((byte) 0).appendUnsignedShort(0)));
+        assertEquals(ControlRequest.INVALID_ARGUMENT, request.decode(header(ControlRequest.SUBSCRIBE, 1)
+                .appendByte((byte) 0).appendByte((byte) (DeltaPositionEncoder.MAX_PRECISION + 1)).appendUnsignedShort(0)));
+    }
+
+    @Test
+    void testResponseLayout() {
+        ControlRequest request = new ControlRequest();
+        request.decode(header(ControlRequest.DELETE_BODIES, 513).appendInt(3));
+
+        Buffer response = request.encodeResponse(ControlRequest.INVALID_ARGUMENT);
+        assertEquals(ControlRequest.RESPONSE_SIZE, response.length());
+        assertEquals(DeltaPositionEncoder.VERSION, response.getByte(0));
+        assertEquals(ControlRequest.RESPONSE, response.getByte(1));
+        assertEquals(ControlRequest.INVALID_ARGUMENT, response.getByte(2));
+        assertEquals(ControlRequest.DELETE_BODIES, response.getByte(3));
+        assertEquals(513, response.getUnsignedShort(4));
+    }
+
+    @Test
+    void testDecodingDoesNotAllocate() {
+        ControlRequest request = new ControlRequest();
+        Buffer[] messages = {
+                header(ControlRequest.ADD_BODIES, 1).appendInt(25).appendDouble(1).appendDouble(2),
+                header(ControlRequest.SUBSCRIBE, 2).appendByte((byte) 1).appendByte((byte) 4).appendUnsignedShort(10),
+                header(ControlRequest.VIEWPORT, 3).appendDouble(0).appendDouble(0).appendDouble(10).appendDouble(10)
+                        .appendDouble(1),
+                header(200, 4)
+        };
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long checksum = 0;
+        for (int i = 0; i < 20_000; i++) {
+            checksum += request.decode(messages[i % messages.length]);
+        }
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < 100_000; i++) {
+            checksum += request.decode(messages[i % messages.length]);
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        assertEquals(120_000 / 4 * ControlRequest.UNKNOWN_OPCODE, checksum);
+        // Quelques octets tolérés pour la mesure elle-même
+        assertTrue(allocated < 1024, "Allocated " + allocated + " bytes");
+    }
+
+    private static Buffer header(int opcode, int requestId) {
+        return Buffer.buffer().appendByte((byte) DeltaPositionEncoder.VERSION).appendByte((byte) opcode)
+                .appendUnsignedShort(requestId);
+    }
+}
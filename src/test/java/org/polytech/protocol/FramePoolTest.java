@@ -0,0 +1,65 @@
+package org.polytech.protocol;
+
+import org.acme.protocol.Frame;
+import org.acme.protocol.FramePool;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FramePoolTest {
+
+    @Test
+    void testFrameIsRecycledWhenLastReferenceIsReleased() {
+        FramePool pool = new FramePool(16);
+        Frame frame = pool.acquire();
+        frame.content().writeInt(42);
+        frame.retain();
+
+        frame.release();
+        assertEquals(0, pool.getIdleFrames());
+        frame.release();
+        assertEquals(1, pool.getIdleFrames());
+
+        Frame reused = pool.acquire();
+        assertSame(frame, reused);
+        assertEquals(0, reused.content().length());
+        assertFalse(reused.isDelta());
+        assertEquals(1, pool.getAllocatedFrames());
+    }
+
+    @Test
+    void testBufferGrowsAndIsKept() {
+        FramePool pool = new FramePool(16);
+        Frame frame = pool.acquire();
+        for (int i = 0; i < 1000; i++) {
+            frame.content().writeInt(i);
+        }
+        assertEquals(4000, frame.content().length());
+        assertEquals(4000, frame.buffer().length());
+        frame.release();
+
+        assertTrue(pool.acquire().content().byteBuf().capacity() >= 4000);
+    }
+
+    @Test
+    void testReleasedFrameCannotBeRetained() {
+        Frame frame = new FramePool(16).acquire();
+        frame.release();
+        assertThrows(IllegalStateException.class, frame::retain);
+        assertThrows(IllegalStateException.class, frame::release);
+    }
+
+    @Test
+    void testIdleFramesAreBounded() {
+        FramePool pool = new FramePool(16, 2);
+        Frame[] frames = new Frame[5];
+        for (int i = 0; i < frames.length; i++) {
+            frames[i] = pool.acquire();
+        }
+        for (Frame frame : frames) {
+            frame.release();
+        }
+        assertEquals(2, pool.getIdleFrames());
+        assertEquals(0, frames[4].content().byteBuf().refCnt());
+    }
+}
@@ -0,0 +1,123 @@
+package org.polytech.protocol;
+
+import org.acme.core.BodyStore;
+import org.acme.protocol.DeltaPositionEncoder;
+import org.acme.protocol.FrameBuffer;
+import org.acme.protocol.HeatmapEncoder;
+import org.acme.protocol.PositionStreamEncoder;
+import org.acme.protocol.StreamFormat;
+import org.acme.protocol.StreamSubscription;
+import org.acme.simulation.GalaxyGenerator;
+import org.acme.simulation.SimulationParameters;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import static org.junit.jupiter.api.Assertions.*;
+
+class HeatmapEncoderTest {
+
+    @Test
+    void testMassIsSummedPerCell() {
+        BodyStore bodies = new BodyStore();
+        bodies.add(0.5, 0.5, 0, 0, 2);
+        bodies.add(1.5, 0.9, 0, 0, 3);
+        bodies.add(399.9, 199.9, 0, 0, 1);
+        bodies.add(-1, 10, 0, 0, 100);
+        bodies.add(Double.NaN, 10, 0, 0, 100);
+        HeatmapEncoder encoder = new HeatmapEncoder(200, 100);
+        FrameBuffer out = new FrameBuffer();
+        encoder.encode(bodies, out);
+
+        assertEquals(5, encoder.mass(0, 0));
+        assertEquals(1, encoder.mass(199, 99));
+        byte[] cells = decode(out, 200, 100);
+        assertEquals((byte) 255, cells[0]);
+        assertEquals(1, cells[200 * 100 - 1]);
+        int nonEmpty = 0;
+        for (byte cell : cells) {
+            if (cell != 0) {
+                nonEmpty++;
+            }
+        }
+        assertEquals(2, nonEmpty);
+    }
+
+    @Test
+    void testFrameSizeDoesNotDependOnTheBodyCount() {
+        HeatmapEncoder encoder = new HeatmapEncoder();
+        FrameBuffer small = new FrameBuffer();
+        FrameBuffer large = new FrameBuffer();
+        encoder.encode(GalaxyGenerator.galaxy(SimulationParameters.DEFAULT, 100_000, 1), small);
+        encoder.encode(GalaxyGenerator.galaxy(SimulationParameters.DEFAULT, 1_000_000, 1), large);
+
+        int cells = HeatmapEncoder.DEFAULT_COLUMNS * HeatmapEncoder.DEFAULT_ROWS;
+        assertTrue(large.length() < cells + 64, "Frame too large: " + large.length());
+        assertEquals(small.length(), large.length(), 0.1 * small.length());
+        decode(large, HeatmapEncoder.DEFAULT_COLUMNS, HeatmapEncoder.DEFAULT_ROWS);
+    }
+
+    @Test
+    void testEmptyWorldIsASingleRun() {
+        FrameBuffer out = new FrameBuffer();
+        new HeatmapEncoder(64, 32).encode(new BodyStore(), out);
+
+        assertEquals(4 + 4 + 16 + 2 + 1, out.length());
+        assertArrayEquals(new byte[64 * 32], decode(out, 64, 32));
+        assertThrows(IllegalArgumentException.class, () -> new HeatmapEncoder(0, 10));
+        assertThrows(IllegalArgumentException.class, () -> new HeatmapEncoder(4096, 4096));
+    }
+
+    @Test
+    void testHeatmapFrameIsSharedAndFollowsTheWorldSize() {
+        BodyStore bodies = new BodyStore();
+        bodies.add(700, 300, 0, 0, 1);
+        PositionStreamEncoder stream = new PositionStreamEncoder();
+        StreamSubscription heatmap = StreamSubscription.fromQuery("format=heatmap");
+        assertEquals(StreamFormat.HEATMAP, heatmap.format());
+
+        stream.setWorldSize(800, 400);
+        stream.beginTick(bodies);
+        assertSame(stream.frame(heatmap), stream.frame(heatmap));
+        ByteBuffer in = ByteBuffer.wrap(stream.frame(heatmap).content().toByteArray());
+        in.position(8);
+        assertEquals(800f, in.getFloat());
+        assertEquals(400f, in.getFloat());
+        stream.releaseFrames();
+    }
+
+    /**
+     * Décodeur de la carte, tel qu'un client l'implémenterait
+     */
+    private static byte[] decode(FrameBuffer frame, int columns, int rows) {
+        ByteBuffer in = ByteBuffer.wrap(frame.toByteArray());
+        assertEquals(DeltaPositionEncoder.VERSION, in.get());
+        assertEquals(HeatmapEncoder.HEATMAP, in.get());
+        in.getShort();
+        assertEquals(columns, Short.toUnsignedInt(in.getShort()));
+        assertEquals(rows, Short.toUnsignedInt(in.getShort()));
+        in.position(in.position() + 4 * Float.BYTES);
+        byte[] cells = new byte[columns * rows];
+        int k = 0;
+        while (k < cells.length) {
+            k += (int) readVarLong(in);
+            int literals = (int) readVarLong(in);
+            in.get(cells, k, literals);
+            k += literals;
+        }
+        assertEquals(cells.length, k);
+        assertFalse(in.hasRemaining());
+        return cells;
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+}
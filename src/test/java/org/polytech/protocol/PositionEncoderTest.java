@@ -0,0 +1,171 @@
+package org.polytech.protocol;
+
+import org.acme.core.BodyStore;
+import org.acme.protocol.DeltaPositionEncoder;
+import org.acme.protocol.FrameBuffer;
+import org.acme.protocol.LegacyPositionEncoder;
+import org.acme.protocol.StreamFormat;
+import org.acme.protocol.StreamSubscription;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import static org.junit.jupiter.api.Assertions.*;
+
+class PositionEncoderTest {
+
+    @Test
+    void testLegacyFormat() {
+        BodyStore bodies = new BodyStore();
+        bodies.add(200.4, 99.6, 0, 0, 1);
+        bodies.add(-3.2, 1000, 0, 0, 1);
+        FrameBuffer out = new FrameBuffer();
+        LegacyPositionEncoder.encode(bodies, out);
+
+        ByteBuffer frame = ByteBuffer.wrap(out.toByteArray());
+        assertEquals(4 + 2 * 4, frame.remaining());
+        assertEquals(2, frame.getInt());
+        assertEquals(200, frame.getShort());
+        assertEquals(100, frame.getShort());
+        assertEquals(-3, frame.getShort());
+        assertEquals(1000, frame.getShort());
+    }
+
+    @Test
+    void testKeyframeThenDeltaRoundTrip() {
+        BodyStore bodies = new BodyStore();
+        bodies.add(10.25, 20.5, 0, 0, 1);
+        bodies.add(300.75, 150.125, 0, 0, 1);
+        DeltaPositionEncoder encoder = new DeltaPositionEncoder(4);
+        FrameBuffer out = new FrameBuffer();
+        Decoder decoder = new Decoder();
+
+        assertTrue(encoder.encode(bodies, 0, out));
+        decoder.apply(out);
+        assertEquals(10.25, decoder.x[0], 1e-9);
+        assertEquals(150.125, decoder.y[1], 1e-9);
+
+        bodies.x()[0] += 0.5;
+        bodies.y()[1] -= 1.0;
+        assertFalse(encoder.encode(bodies, 1, out));
+        decoder.apply(out);
+        assertEquals(10.75, decoder.x[0], 1e-9);
+        assertEquals(149.125, decoder.y[1], 1e-9);
+        assertEquals(1, decoder.sequence);
+    }
+
+    @Test
+    void testDeltaFramesAreSmall() {
+        BodyStore bodies = new BodyStore();
+        for (int i = 0; i < 1000; i++) {
+            bodies.add(i % 400, i % 200, 0, 0, 1);
+        }
+        DeltaPositionEncoder encoder = new DeltaPositionEncoder(0);
+        FrameBuffer out = new FrameBuffer();
+        encoder.encode(bodies, 0, out);
+        for (int i = 0; i < 1000; i++) {
+            bodies.x()[i] += 1;
+        }
+        encoder.encode(bodies, 1, out);
+
+        // 1 octet par coordonnée au lieu de 2 pour le format d'origine
+        assertTrue(out.length() < 4 + 1000 * 4 / 2 + 16, "Delta frame too large: " + out.length());
+    }
+
+    @Test
+    void testKeyframeWhenCountChangesOrTickSkipped() {
+        BodyStore bodies = new BodyStore();
+        bodies.add(1, 1, 0, 0, 1);
+        DeltaPositionEncoder encoder = new DeltaPositionEncoder(0);
+        FrameBuffer out = new FrameBuffer();
+
+        assertTrue(encoder.encode(bodies, 0, out));
+        assertFalse(encoder.encode(bodies, 1, out));
+        bodies.add(2, 2, 0, 0, 1);
+        assertTrue(encoder.encode(bodies, 2, out));
+        assertFalse(encoder.encode(bodies, 3, out));
+        assertTrue(encoder.encode(bodies, 5, out));
+        encoder.requestKeyframe();
+        assertTrue(encoder.encode(bodies, 6, out));
+    }
+
+    @Test
+    void testPeriodicKeyframes() {
+        BodyStore bodies = new BodyStore();
+        bodies.add(1, 1, 0, 0, 1);
+        DeltaPositionEncoder encoder = new DeltaPositionEncoder(0);
+        FrameBuffer out = new FrameBuffer();
+
+        int keyframes = 0;
+        for (int tick = 0; tick < DeltaPositionEncoder.KEYFRAME_INTERVAL * 3; tick++) {
+            if (encoder.encode(bodies, tick, out)) {
+                keyframes++;
+            }
+        }
+        assertEquals(3, keyframes);
+    }
+
+    @Test
+    void testSubscriptionFromQuery() {
+        assertEquals(StreamSubscription.LEGACY, StreamSubscription.fromQuery(null));
+        assertEquals(new StreamSubscription(StreamFormat.DELTA, 4), StreamSubscription.fromQuery("format=delta&precision=4"));
+        assertThrows(IllegalArgumentException.class, () -> StreamSubscription.fromQuery("format=jpeg"));
+        assertThrows(IllegalArgumentException.class, () -> StreamSubscription.fromQuery("format=delta&precision=20"));
+    }
+
+    /**
+     * Décodeur minimal du flux delta, tel qu'un client l'implémenterait
+     */
+    private static final class Decoder {
+        double[] x = new double[0];
+        double[] y = new double[0];
+        long sequence = -1;
+        private long[] qx = new long[0];
+        private long[] qy = new long[0];
+
+        void apply(FrameBuffer frame) {
+            ByteBuffer in = ByteBuffer.wrap(frame.toByteArray());
+            assertEquals(DeltaPositionEncoder.VERSION, in.get());
+            boolean keyframe = in.get() == DeltaPositionEncoder.KEYFRAME;
+            double scale = 1 << in.get();
+            in.get();
+            long seq = readVarLong(in);
+            if (!keyframe) {
+                assertEquals(sequence + 1, seq);
+            }
+            sequence = seq;
+            int n = (int) readVarLong(in);
+            if (keyframe) {
+                qx = new long[n];
+                qy = new long[n];
+                x = new double[n];
+                y = new double[n];
+            }
+            for (int i = 0; i < n; i++) {
+                long dx = readZigZag(in);
+                long dy = readZigZag(in);
+                qx[i] = keyframe ? dx : qx[i] + dx;
+                qy[i] = keyframe ? dy : qy[i] + dy;
+                x[i] = qx[i] / scale;
+                y[i] = qy[i] / scale;
+            }
+            assertFalse(in.hasRemaining());
+        }
+
+        private static long readVarLong(ByteBuffer in) {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = in.get();
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+
+        private static long readZigZag(ByteBuffer in) {
+            long value = readVarLong(in);
+            return (value >>> 1) ^ -(value & 1);
+        }
+    }
+}
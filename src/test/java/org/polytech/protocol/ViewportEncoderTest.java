@@ -0,0 +1,158 @@
+package org.polytech.protocol;
+
+import org.acme.core.BodyStore;
+import org.acme.protocol.DeltaPositionEncoder;
+import org.acme.protocol.FrameBuffer;
+import org.acme.protocol.Viewport;
+import org.acme.protocol.ViewportEncoder;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ViewportEncoderTest {
+
+    @Test
+    void testBodiesOutsideTheViewportAreCulled() {
+        BodyStore bodies = new BodyStore();
+        bodies.add(10, 10, 0, 0, 1);
+        bodies.add(55.5, 42, 0, 0, 1);
+        bodies.add(300, 150, 0, 0, 1);
+        ViewportEncoder encoder = new ViewportEncoder();
+        encoder.reset(bodies);
+        FrameBuffer out = new FrameBuffer();
+        encoder.encode(new Viewport(50, 40, 100, 50, 2), out);
+
+        ByteBuffer frame = ByteBuffer.wrap(out.toByteArray());
+        assertEquals(DeltaPositionEncoder.VERSION, frame.get());
+        assertEquals(ViewportEncoder.VIEWPORT, frame.get());
+        frame.getShort();
+        assertEquals(50f, frame.getFloat());
+        assertEquals(40f, frame.getFloat());
+        assertEquals(100f, frame.getFloat());
+        assertEquals(50f, frame.getFloat());
+        assertEquals(2f, frame.getFloat());
+        frame.getFloat();
+        assertEquals(1, readVarLong(frame));
+        assertEquals(0, readVarLong(frame));
+        assertEquals(11, frame.getShort());
+        assertEquals(4, frame.getShort());
+        assertFalse(frame.hasRemaining());
+    }
+
+    @Test
+    void testDenseRegionsAreAggregatedWhenZoomedOut() {
+        BodyStore bodies = new BodyStore();
+        Random random = new Random(3);
+        for (int i = 0; i < 10_000; i++) {
+            bodies.add(100 + 20 * random.nextDouble(), 100 + 20 * random.nextDouble(), 0, 0, 1);
+        }
+        ViewportEncoder encoder = new ViewportEncoder();
+        encoder.reset(bodies);
+        FrameBuffer out = new FrameBuffer();
+
+        encoder.encode(new Viewport(0, 0, 400, 200, 1), out);
+        Summary zoomedOut = summary(out);
+        assertTrue(zoomedOut.cells > 0);
+        assertEquals(10_000, zoomedOut.points + zoomedOut.bodiesInCells);
+        assertTrue(out.length() < 1000, "Frame too large: " + out.length());
+
+        // Zoom fort sur une petite zone : chaque corps visible est envoyé individuellement
+        encoder.encode(new Viewport(110, 110, 1, 1, 100), out);
+        Summary zoomedIn = summary(out);
+        assertEquals(0, zoomedIn.cells);
+        long visible = 0;
+        for (int i = 0; i < bodies.size(); i++) {
+            if (bodies.x()[i] >= 110 && bodies.x()[i] < 111 && bodies.y()[i] >= 110 && bodies.y()[i] < 111) {
+                visible++;
+            }
+        }
+        assertEquals(visible, zoomedIn.points);
+    }
+
+    @Test
+    void testFrameSizeIsBoundedByTheScreen() {
+        ViewportEncoder encoder = new ViewportEncoder();
+        FrameBuffer out = new FrameBuffer();
+        int[] sizes = new int[2];
+        for (int run = 0; run < 2; run++) {
+            BodyStore bodies = new BodyStore();
+            Random random = new Random(5);
+            int count = run == 0 ? 100_000 : 1_000_000;
+            for (int i = 0; i < count; i++) {
+                bodies.add(400 * random.nextDouble(), 200 * random.nextDouble(), 0, 0, 1);
+            }
+            encoder.reset(bodies);
+            encoder.encode(Viewport.whole(400, 200), out);
+            sizes[run] = out.length();
+        }
+        // 10 fois plus de corps, même image : la frame ne grossit presque pas
+        assertTrue(sizes[1] < 1.5 * sizes[0], "Frame grows with the bodies: " + sizes[0] + " -> " + sizes[1]);
+        assertTrue(sizes[1] < 400 * 200 / 16 * 7 + 64);
+    }
+
+    @Test
+    void testPointsAreCappedWhenZoomedIn() {
+        BodyStore bodies = new BodyStore();
+        Random random = new Random(7);
+        for (int i = 0; i < 200_000; i++) {
+            bodies.add(100 + 20 * random.nextDouble(), 100 + 20 * random.nextDouble(), 0, 0, 1);
+        }
+        ViewportEncoder encoder = new ViewportEncoder();
+        encoder.reset(bodies);
+        FrameBuffer out = new FrameBuffer();
+
+        // 8 pixels par unité : chaque cellule de base couvre 2×2 cellules écran, soit 16 points au plus
+        encoder.encode(new Viewport(0, 0, 400, 200, 8), out);
+        Summary summary = summary(out);
+        assertEquals(200_000, summary.points + summary.bodiesInCells);
+        assertTrue(summary.points <= 20 * 20 * 16, "Too many points: " + summary.points);
+        assertTrue(out.length() < 20 * 20 * 16 * 4 + 64, "Frame too large: " + out.length());
+    }
+
+    @Test
+    void testViewportParsing() {
+        Viewport world = Viewport.whole(1000, 500);
+        assertEquals(world, Viewport.fromQuery(null, world));
+        assertEquals(new Viewport(0, 0, 1000, 500, 2), Viewport.fromQuery("format=viewport&zoom=2", world));
+        assertEquals(new Viewport(10, 20, 100, 50, 2),
+                Viewport.fromQuery("format=viewport&viewport=10,20,100,50&zoom=2", world));
+        // Un monde plus grand que l'image maximale est dézoomé pour y tenir
+        assertEquals(new Viewport(0, 0, 8192, 4096, 0.5), Viewport.whole(8192, 4096));
+        assertEquals(new Viewport(1, 2, 3, 4, 5), Viewport.parse(" 1 2 3 4 5"));
+        assertThrows(IllegalArgumentException.class, () -> Viewport.parse("1 2 3"));
+        assertThrows(IllegalArgumentException.class, () -> Viewport.parse("0 0 -1 10 1"));
+        assertThrows(IllegalArgumentException.class, () -> Viewport.fromQuery("viewport=0,0,10000,10&zoom=1", world));
+    }
+
+    private record Summary(long points, long cells, long bodiesInCells) {
+    }
+
+    private static Summary summary(FrameBuffer out) {
+        ByteBuffer frame = ByteBuffer.wrap(out.toByteArray());
+        frame.position(4 + 6 * Float.BYTES);
+        long points = readVarLong(frame);
+        long cells = readVarLong(frame);
+        frame.position(frame.position() + (int) points * 4);
+        long bodiesInCells = 0;
+        for (long k = 0; k < cells; k++) {
+            frame.getInt();
+            bodiesInCells += readVarLong(frame);
+        }
+        assertFalse(frame.hasRemaining());
+        return new Summary(points, cells, bodiesInCells);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+}
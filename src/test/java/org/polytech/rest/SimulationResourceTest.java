@@ -0,0 +1,75 @@
+package org.polytech.rest;
+
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.NotFoundException;
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import org.acme.rest.ParameterUpdate;
+import org.acme.rest.SimulationResource;
+import org.acme.simulation.SimulationEngine;
+import org.acme.simulation.SimulationLogic;
+import org.acme.simulation.SimulationParameters;
+import org.acme.simulation.force.BarnesHutForceEngine;
+import org.acme.simulation.force.ForceEngineType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimulationResourceTest {
+
+    private static final String ID = "rest-test";
+
+    private final SimulationResource resource = new SimulationResource();
+    private SimulationLogic simulation;
+
+    @BeforeEach
+    void setUp() {
+        simulation = SimulationEngine.getInstance().getOrCreate(ID);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SimulationEngine.getInstance().remove(ID);
+    }
+
+    @Test
+    void testReadParameters() {
+        assertTrue(resource.simulations().contains(ID));
+        SimulationParameters parameters = resource.parameters(ID);
+        assertEquals(SimulationParameters.DEFAULT, parameters);
+        assertThrows(NotFoundException.class, () -> resource.parameters("missing"));
+    }
+
+    @Test
+    void testPartialUpdateIsApplied() {
+        Jsonb jsonb = JsonbBuilder.create();
+        ParameterUpdate update = jsonb.fromJson(
+                "{\"bodyCount\": 500, \"timeStep\": 0.05, \"engine\": \"BARNES_HUT\", \"theta\": 0.8}",
+                ParameterUpdate.class);
+
+        SimulationParameters requested = resource.update(ID, update);
+        assertEquals(500, requested.bodyCount());
+        assertEquals(SimulationParameters.DEFAULT.physicsRate(), requested.physicsRate());
+
+        // Simulation en veille : appliqué tout de suite
+        assertEquals(500, simulation.getBodyCount());
+        assertEquals(0.05, simulation.getTimeStep());
+        assertInstanceOf(BarnesHutForceEngine.class, simulation.getForceEngine());
+        assertEquals(0.8, ((BarnesHutForceEngine) simulation.getForceEngine()).getTheta());
+        assertEquals(requested, resource.parameters(ID));
+        assertTrue(jsonb.toJson(requested).contains("\"engine\":\"BARNES_HUT\""));
+    }
+
+    @Test
+    void testInvalidUpdateIsRejected() {
+        ParameterUpdate update = new ParameterUpdate(null, null, 0, null, null, null, null, null, null, null, null,
+                null, null, null);
+        assertThrows(BadRequestException.class, () -> resource.update(ID, update));
+        assertThrows(BadRequestException.class, () -> resource.update(ID, null));
+        assertThrows(NotFoundException.class, () -> resource.update("missing", update));
+        assertEquals(SimulationLogic.BODY_COUNT, simulation.getBodyCount());
+        assertEquals(ForceEngineType.VECTOR, resource.parameters(ID).engine());
+    }
+}
@@ -0,0 +1,132 @@
+package org.polytech.simulation;
+
+import org.acme.core.BodyStore;
+import org.acme.simulation.BodySnapshots;
+import org.acme.simulation.SimulationEngine;
+import org.acme.simulation.SimulationLogic;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import static org.junit.jupiter.api.Assertions.*;
+
+class BodySnapshotsTest {
+
+    @Test
+    void testBuffersAreReusedWithoutReaders() {
+        BodySnapshots snapshots = new BodySnapshots();
+        List<BodyStore> seen = new ArrayList<>();
+        for (int k = 0; k < 10; k++) {
+            snapshots.publish(uniform(k, 20), k);
+            try (BodySnapshots.Snapshot snapshot = snapshots.acquire()) {
+                assertEquals(k, snapshot.step());
+                assertEquals(k, snapshot.bodies().x()[19]);
+                if (seen.stream().noneMatch(store -> store == snapshot.bodies())) {
+                    seen.add(snapshot.bodies());
+                }
+            }
+        }
+        // Deux tampons qui alternent
+        assertEquals(2, seen.size());
+        assertEquals(0, snapshots.getAllocations());
+    }
+
+    @Test
+    void testHeldSnapshotIsNeverOverwritten() {
+        BodySnapshots snapshots = new BodySnapshots();
+        snapshots.publish(uniform(1, 10), 1);
+        try (BodySnapshots.Snapshot held = snapshots.acquire()) {
+            for (int k = 2; k < 6; k++) {
+                snapshots.publish(uniform(k, 30), k);
+            }
+            assertEquals(1, held.step());
+            assertEquals(10, held.bodies().size());
+            assertEquals(1, held.bodies().x()[9]);
+            // Le tampon retenu est remplacé une seule fois, pas à chaque publication
+            assertEquals(1, snapshots.getAllocations());
+        }
+        for (int k = 6; k < 10; k++) {
+            snapshots.publish(uniform(k, 30), k);
+        }
+        assertEquals(1, snapshots.getAllocations());
+    }
+
+    @Test
+    void testConcurrentReadersSeeWholeSteps() throws InterruptedException {
+        BodySnapshots snapshots = new BodySnapshots();
+        snapshots.publish(uniform(0, 100), 0);
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> failure = new AtomicReference<>();
+        List<Thread> readers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread reader = new Thread(() -> {
+                while (!done.get() && failure.get() == null) {
+                    try (BodySnapshots.Snapshot snapshot = snapshots.acquire()) {
+                        BodyStore bodies = snapshot.bodies();
+                        long step = snapshot.step();
+                        // Chaque publication k a 100 + k % 50 corps, tous en x = k
+                        if (bodies.size() != 100 + step % 50) {
+                            failure.set("step " + step + " with " + bodies.size() + " bodies");
+                        }
+                        for (int i = 0; i < bodies.size(); i++) {
+                            if (bodies.x()[i] != step) {
+                                failure.set("step " + step + " mixed with " + bodies.x()[i]);
+                                break;
+                            }
+                        }
+                    }
+                }
+            });
+            readers.add(reader);
+            reader.start();
+        }
+        BodyStore state = new BodyStore();
+        for (int k = 1; k <= 20_000 && failure.get() == null; k++) {
+            fill(state, k, 100 + k % 50);
+            snapshots.publish(state, k);
+        }
+        done.set(true);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        assertNull(failure.get());
+    }
+
+    @Test
+    void testStepsArePublishedAsAWhole() {
+        SimulationEngine engine = new SimulationEngine(1);
+        try {
+            SimulationLogic simulation = engine.getOrCreate("snapshot");
+            try (BodySnapshots.Snapshot before = simulation.getSnapshot()) {
+                double x = before.bodies().x()[1];
+                simulation.simulateOneStep();
+
+                // L'instantané retenu ne bouge pas ; le pas est visible dans le suivant
+                assertEquals(x, before.bodies().x()[1]);
+                assertEquals(before.step() + 1, simulation.getStepCount());
+                try (BodySnapshots.Snapshot after = simulation.getSnapshot()) {
+                    assertEquals(simulation.getStepCount(), after.step());
+                    assertNotEquals(x, after.bodies().x()[1]);
+                }
+            }
+            assertEquals(SimulationLogic.BODY_COUNT, simulation.getBodyCount());
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    private static BodyStore uniform(double x, int count) {
+        BodyStore bodies = new BodyStore();
+        fill(bodies, x, count);
+        return bodies;
+    }
+
+    private static void fill(BodyStore bodies, double x, int count) {
+        bodies.clear();
+        for (int i = 0; i < count; i++) {
+            bodies.add(x, 0, 0, 0, 1);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package org.polytech.simulation;
+
+import org.acme.core.BodyStore;
+import org.acme.simulation.CollisionMerger;
+import org.acme.simulation.SimulationEngine;
+import org.acme.simulation.SimulationLogic;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CollisionMergerTest {
+
+    @Test
+    void testMergeConservesMassAndMomentum() {
+        BodyStore bodies = new BodyStore();
+        bodies.add(-100, -100, 0, 0, 1);
+        bodies.add(100, 100, 1, 0, 3);
+        bodies.add(100.5, 100, -1, 2, 1);
+        bodies.add(200, 100, 0, 0, 1);
+        CollisionMerger merger = new CollisionMerger(0.5);
+
+        assertEquals(1, merger.merge(bodies));
+        assertEquals(3, bodies.size());
+        assertEquals(4, bodies.mass()[1]);
+        assertEquals(100.125, bodies.x()[1], 1e-12);
+        // Quantité de mouvement : 3 * (1, 0) + 1 * (-1, 2) = 4 * (0.5, 0.5)
+        assertEquals(0.5, bodies.vx()[1], 1e-12);
+        assertEquals(0.5, bodies.vy()[1], 1e-12);
+        assertEquals(200, bodies.x()[2]);
+        assertEquals(1, merger.getMergedCount());
+    }
+
+    @Test
+    void testCentralMassAbsorbsWithoutMoving() {
+        BodyStore bodies = new BodyStore();
+        bodies.add(200, 100, 0, 0, SimulationLogic.CENTER_MASS);
+        bodies.add(201, 100, 0, 5, SimulationLogic.MASS_MIN);
+        bodies.add(300, 100, 0, 5, SimulationLogic.MASS_MIN);
+        CollisionMerger merger = new CollisionMerger();
+        assertTrue(merger.radius(SimulationLogic.CENTER_MASS) > 1);
+
+        assertEquals(1, merger.merge(bodies));
+        assertEquals(2, bodies.size());
+        assertEquals(200, bodies.x()[0]);
+        assertEquals(0, bodies.vy()[0]);
+        assertEquals(SimulationLogic.CENTER_MASS + SimulationLogic.MASS_MIN, bodies.mass()[0]);
+        assertEquals(300, bodies.x()[1]);
+    }
+
+    @Test
+    void testDenseCloudConservesMomentum() {
+        Random random = new Random(7);
+        BodyStore bodies = new BodyStore();
+        bodies.add(-1000, -1000, 0, 0, 1);
+        for (int i = 0; i < 20_000; i++) {
+            bodies.add(50 * random.nextDouble(), 50 * random.nextDouble(), random.nextGaussian(), random.nextGaussian(),
+                    SimulationLogic.MASS_MIN + random.nextDouble() * SimulationLogic.MASS_MAX);
+        }
+        double[] before = totals(bodies);
+        CollisionMerger merger = new CollisionMerger();
+
+        int merged = merger.merge(bodies);
+        assertTrue(merged > 1000, "merged " + merged);
+        assertEquals(20_001 - merged, bodies.size());
+        double[] after = totals(bodies);
+        for (int k = 0; k < before.length; k++) {
+            assertEquals(before[k], after[k], 1e-9 * Math.abs(before[k]) + 1e-6);
+        }
+        assertEquals(-1000, bodies.x()[0]);
+    }
+
+    @Test
+    void testEjectedOutlierKeepsFineBroadPhase() {
+        Random random = new Random(5);
+        BodyStore bodies = new BodyStore();
+        bodies.add(SimulationLogic.WIDTH / 2.0, SimulationLogic.HEIGHT / 2.0, 0, 0, SimulationLogic.CENTER_MASS);
+        for (int i = 0; i < 2000; i++) {
+            bodies.add(SimulationLogic.WIDTH * random.nextDouble(), SimulationLogic.HEIGHT * random.nextDouble(),
+                    0, 0, SimulationLogic.MASS_MIN);
+        }
+        // Deux corps éjectés très loin, encore en contact
+        bodies.add(1e12, 1e12, 0, 0, SimulationLogic.MASS_MAX);
+        bodies.add(1e12 + 0.1, 1e12, 0, 0, SimulationLogic.MASS_MAX);
+        int count = bodies.size();
+        CollisionMerger merger = new CollisionMerger();
+        BodyStore reference = new BodyStore();
+        for (int i = 0; i < count - 2; i++) {
+            reference.add(bodies.x()[i], bodies.y()[i], 0, 0, bodies.mass()[i]);
+        }
+
+        // Les corps du monde fusionnent comme sans l'éjecté, et la paire éjectée fusionne aussi
+        int merged = merger.merge(bodies);
+        int expected = new CollisionMerger().merge(reference);
+        assertEquals(expected + 1, merged);
+        assertEquals(1e12 + 0.05, bodies.x()[bodies.size() - 1], 1e-3);
+    }
+
+    /**
+     * Temps de la phase large sur 500k corps, lancée avec -Dnbody.benchmark=true
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "nbody.benchmark", matches = "true")
+    void testBroadPhaseScales() {
+        Random random = new Random(11);
+        BodyStore bodies = new BodyStore();
+        for (int i = 0; i < 500_000; i++) {
+            bodies.add(SimulationLogic.WIDTH * random.nextDouble(), SimulationLogic.HEIGHT * random.nextDouble(),
+                    0, 0, SimulationLogic.MASS_MIN);
+        }
+        CollisionMerger merger = new CollisionMerger();
+        merger.merge(bodies);
+
+        // Une paire testée par corps et par voisin : pas de balayage quadratique (500k² paires)
+        long start = System.nanoTime();
+        merger.merge(bodies);
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+        assertTrue(elapsed < 2000, "Merge took " + elapsed + " ms");
+    }
+
+    @Test
+    void testSimulationMergesWhenEnabled() {
+        SimulationEngine engine = new SimulationEngine(1);
+        try {
+            SimulationLogic simulation = engine.getOrCreate("room");
+            simulation.stopSimulation();
+            assertFalse(simulation.isCollisionsEnabled());
+            simulation.setBodies(touchingPair());
+            simulation.simulateOneStep();
+            assertEquals(3, simulation.getBodyCount());
+
+            engine.setCollisionsEnabled(true);
+            simulation.setBodies(touchingPair());
+            assertTrue(simulation.isCollisionsEnabled());
+            simulation.simulateOneStep();
+            assertEquals(2, simulation.getBodyCount());
+            assertEquals(1, simulation.getMergedBodyCount());
+            assertTrue(engine.getOrCreate("other").isCollisionsEnabled());
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    void testInvalidRadiusScale() {
+        assertThrows(IllegalArgumentException.class, () -> new CollisionMerger(0));
+        assertThrows(IllegalArgumentException.class, () -> new CollisionMerger(Double.NaN));
+    }
+
+    /**
+     * Masse centrale et deux corps qui se chevauchent, loin d'elle
+     */
+    private static BodyStore touchingPair() {
+        BodyStore bodies = new BodyStore();
+        bodies.add(SimulationLogic.WIDTH / 2.0, SimulationLogic.HEIGHT / 2.0, 0, 0, SimulationLogic.CENTER_MASS);
+        bodies.add(100, 50, 0, 0, SimulationLogic.MASS_MAX);
+        bodies.add(100.2, 50, 0, 0, SimulationLogic.MASS_MAX);
+        return bodies;
+    }
+
+    /**
+     * Masse totale et quantité de mouvement totale
+     */
+    private static double[] totals(BodyStore bodies) {
+        double mass = 0;
+        double px = 0;
+        double py = 0;
+        for (int i = 0; i < bodies.size(); i++) {
+            mass += bodies.mass()[i];
+            px += bodies.mass()[i] * bodies.vx()[i];
+            py += bodies.mass()[i] * bodies.vy()[i];
+        }
+        return new double[]{mass, px, py};
+    }
+}
@@ -0,0 +1,101 @@
+package org.polytech.simulation;
+
+import org.acme.core.BodyStore;
+import org.acme.simulation.GalaxyGenerator;
+import org.acme.simulation.SimulationEngine;
+import org.acme.simulation.SimulationLogic;
+import org.acme.simulation.SimulationParameters;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.DoubleStream;
+import static org.junit.jupiter.api.Assertions.*;
+
+class GalaxyGeneratorTest {
+
+    private static final SimulationParameters PARAMETERS = SimulationParameters.DEFAULT;
+
+    @Test
+    void testSameSeedGivesSameGalaxy() {
+        BodyStore first = GalaxyGenerator.galaxy(PARAMETERS, 100_000, 7);
+        BodyStore second = GalaxyGenerator.galaxy(PARAMETERS, 100_000, 7);
+        BodyStore other = GalaxyGenerator.galaxy(PARAMETERS, 100_000, 8);
+
+        assertEquals(100_000, first.size());
+        assertArrayEquals(Arrays.copyOf(first.x(), 100_000), Arrays.copyOf(second.x(), 100_000));
+        assertArrayEquals(Arrays.copyOf(first.vy(), 100_000), Arrays.copyOf(second.vy(), 100_000));
+        assertArrayEquals(Arrays.copyOf(first.mass(), 100_000), Arrays.copyOf(second.mass(), 100_000));
+        assertNotEquals(first.x()[1], other.x()[1]);
+    }
+
+    @Test
+    void testBodiesFollowTheParameters() {
+        BodyStore bodies = GalaxyGenerator.galaxy(PARAMETERS, 50_000, 1);
+        double cx = PARAMETERS.width() / 2.0;
+        double cy = PARAMETERS.height() / 2.0;
+
+        assertEquals(cx, bodies.x()[0]);
+        assertEquals(cy, bodies.y()[0]);
+        assertEquals(PARAMETERS.centerMass(), bodies.mass()[0]);
+        for (int i = 1; i < bodies.size(); i++) {
+            double dx = bodies.x()[i] - cx;
+            double dy = bodies.y()[i] - cy;
+            assertTrue(Math.hypot(dx, dy) <= PARAMETERS.galaxyRadius() + 1e-9, "body " + i);
+            assertTrue(bodies.mass()[i] >= PARAMETERS.massMin() && bodies.mass()[i] <= PARAMETERS.massMax());
+            // Orbite dans le sens direct : vitesse perpendiculaire au rayon
+            assertEquals(0, dx * bodies.vx()[i] + dy * bodies.vy()[i], 1e-6 * Math.hypot(dx, dy)
+                    * Math.hypot(bodies.vx()[i], bodies.vy()[i]) + 1e-9);
+            assertEquals(0, bodies.fx()[i]);
+        }
+    }
+
+    @Test
+    void testMillionBodiesAreGeneratedQuickly() {
+        GalaxyGenerator.galaxy(PARAMETERS, 100_000, 0); // Préchauffage
+        long start = System.nanoTime();
+        BodyStore bodies = GalaxyGenerator.galaxy(PARAMETERS, 1_000_000, 3);
+        long elapsed = System.nanoTime() - start;
+
+        assertEquals(1_000_000, bodies.size());
+        assertTrue(elapsed < TimeUnit.SECONDS.toNanos(1), "Generation took " + elapsed / 1_000_000 + " ms");
+    }
+
+    @Test
+    void testSeedMakesSimulationsReproducible() {
+        SimulationEngine engine = new SimulationEngine(1);
+        try {
+            engine.setDefaultParameters(PARAMETERS.withBodyCount(500));
+            SimulationLogic first = engine.getOrCreate("first");
+            SimulationLogic second = engine.getOrCreate("second");
+            assertFalse(Arrays.equals(state(first), state(second)));
+
+            SimulationParameters seeded = new SimulationParameters(PARAMETERS.width(), PARAMETERS.height(), 2000,
+                    PARAMETERS.centerMass(), PARAMETERS.massMin(), PARAMETERS.massMax(),
+                    PARAMETERS.velocityDispersion(), PARAMETERS.timeStep(), PARAMETERS.physicsRate(),
+                    PARAMETERS.broadcastRate(), PARAMETERS.engine(), PARAMETERS.theta(), false, 42L);
+            first.setParameters(seeded);
+            second.setParameters(seeded);
+            assertEquals(2000, first.getBodyCount());
+            assertArrayEquals(state(first), state(second));
+
+            // Les corps ajoutés ensuite sont tirés de la même graine
+            first.addBodies();
+            second.addBodies();
+            assertEquals(2200, first.getBodyCount());
+            assertArrayEquals(state(first), state(second));
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    /**
+     * Positions, vitesses et masses de tous les corps, à la suite
+     */
+    private static double[] state(SimulationLogic simulation) {
+        return simulation.getBodies().stream()
+                .flatMapToDouble(b -> DoubleStream.of(b.getX(), b.getY(), b.getVx(), b.getVy(),
+                        b.getMass()))
+                .toArray();
+    }
+}
@@ -0,0 +1,218 @@
+package org.polytech.simulation;
+
+import org.acme.protocol.PositionStreamEncoder;
+import org.acme.simulation.PositionSubscriber;
+import org.acme.simulation.SimulationEngine;
+import org.acme.simulation.SimulationLogic;
+import org.acme.simulation.SimulationParameters;
+import org.acme.simulation.force.ForceEngineType;
+import org.acme.simulation.force.ParallelPairwiseForceEngine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimulationEngineTest {
+
+    private SimulationEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        engine = new SimulationEngine(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.shutdown();
+    }
+
+    @Test
+    void testSimulationsAreIsolated() {
+        SimulationLogic first = engine.getOrCreate("room-1");
+        SimulationLogic second = engine.getOrCreate("room-2");
+
+        assertSame(first, engine.getOrCreate("room-1"));
+        assertNotSame(first, second);
+        first.addBodies();
+        assertEquals(SimulationLogic.BODY_COUNT + SimulationLogic.BODY_COUNT / 10, first.getBodies().size());
+        assertEquals(SimulationLogic.BODY_COUNT, second.getBodies().size());
+        assertEquals(2, engine.getSimulationCount());
+    }
+
+    @Test
+    void testInvalidIdIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> engine.getOrCreate("../etc"));
+        assertThrows(IllegalArgumentException.class, () -> engine.getOrCreate(""));
+        assertThrows(IllegalArgumentException.class, () -> engine.remove(SimulationEngine.DEFAULT_SIMULATION));
+        assertNull(engine.get("missing"));
+    }
+
+    @Test
+    void testIdleSimulationIsParked() throws InterruptedException {
+        SimulationLogic simulation = engine.getOrCreate("room");
+        assertTrue(simulation.isRunning());
+        assertTrue(simulation.isParked());
+
+        Thread.sleep(100);
+        assertEquals(0, simulation.getTickScheduler().getSteps());
+
+        CountDownLatch received = new CountDownLatch(3);
+        PositionSubscriber subscriber = stream -> received.countDown();
+        simulation.addSubscriber(subscriber);
+        assertFalse(simulation.isParked());
+        assertTrue(received.await(5, TimeUnit.SECONDS));
+
+        simulation.removeSubscriber(subscriber);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!simulation.isParked() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(simulation.isParked());
+        long steps = simulation.getTickScheduler().getSteps();
+        Thread.sleep(150);
+        assertEquals(steps, simulation.getTickScheduler().getSteps());
+    }
+
+    @Test
+    void testRemovingSimulationKeepsSharedForcePool() {
+        engine.setDefaultParameters(new SimulationParameters(1000, 500, 1000, 1e9, 1e3, 1e4, 0, 0.2, 10, 5,
+                ForceEngineType.PARALLEL, 0.5, false, null));
+        SimulationLogic removed = engine.getOrCreate("room-1");
+        SimulationLogic kept = engine.getOrCreate("room-2");
+        assertInstanceOf(ParallelPairwiseForceEngine.class, removed.getForceEngine());
+
+        assertTrue(engine.remove("room-1"));
+        // Le moteur fermé ne doit pas arrêter le pool des autres salles
+        kept.simulateOneStep();
+        assertEquals(1, kept.getStepCount());
+    }
+
+    @Test
+    void testAbandonedSimulationIsRemoved(@TempDir Path recordings) throws Exception {
+        engine.setIdleTimeout(Duration.ofMillis(200));
+        engine.enableRecording(recordings, 1);
+        SimulationLogic defaultSimulation = engine.getDefault();
+        SimulationLogic watched = engine.getOrCreate("watched");
+        SimulationLogic abandoned = engine.getOrCreate("abandoned");
+        PositionSubscriber subscriber = stream -> { };
+        watched.addSubscriber(subscriber);
+
+        // L'enregistreur ne retient pas la salle abandonnée ; elle est fermée juste après son retrait
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while ((engine.get("abandoned") != null || abandoned.getRecordingFile() != null)
+                && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertNull(engine.get("abandoned"));
+        assertFalse(abandoned.isRunning());
+        assertNull(abandoned.getRecordingFile());
+        assertSame(watched, engine.get("watched"));
+        assertSame(defaultSimulation, engine.get(SimulationEngine.DEFAULT_SIMULATION));
+
+        watched.removeSubscriber(subscriber);
+        deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (engine.get("watched") != null && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertNull(engine.get("watched"));
+        assertSame(defaultSimulation, engine.get(SimulationEngine.DEFAULT_SIMULATION));
+        // Un client qui revient obtient une nouvelle salle
+        assertNotSame(abandoned, engine.getOrCreate("abandoned"));
+    }
+
+    @Test
+    void testManySimulationsShareFewWorkers() throws InterruptedException {
+        int rooms = 100;
+        List<AtomicInteger> broadcasts = new ArrayList<>();
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        for (int i = 0; i < rooms; i++) {
+            AtomicInteger count = new AtomicInteger();
+            broadcasts.add(count);
+            engine.getOrCreate("room-" + i).addSubscriber(stream -> {
+                threads.add(Thread.currentThread());
+                count.incrementAndGet();
+            });
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (broadcasts.stream().anyMatch(count -> count.get() < 2) && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(broadcasts.stream().allMatch(count -> count.get() >= 2), "Every simulation should tick");
+        // Aucun thread dédié : toutes les simulations tournent sur les 2 threads du pool
+        assertEquals(2, engine.getWorkerCount());
+        assertTrue(threads.size() <= 2, "Unexpected threads: " + threads);
+    }
+
+    @Test
+    void testCommandsAreAppliedByTheTick() throws InterruptedException {
+        SimulationLogic simulation = engine.getOrCreate("room");
+        CountDownLatch ticking = new CountDownLatch(1);
+        simulation.addSubscriber(stream -> ticking.countDown());
+        assertTrue(ticking.await(5, TimeUnit.SECONDS));
+
+        // Rafale de commandes depuis plusieurs threads, sans jamais toucher aux corps pendant un pas
+        List<Thread> clients = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread client = new Thread(() -> {
+                for (int i = 0; i < 250; i++) {
+                    simulation.addBodies();
+                    simulation.deleteBodies();
+                }
+            });
+            clients.add(client);
+            client.start();
+        }
+        for (Thread client : clients) {
+            client.join();
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (simulation.getPendingCommandCount() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, simulation.getPendingCommandCount());
+        int size = simulation.getBodyCount();
+        assertTrue(size > SimulationLogic.BODY_COUNT / 10 && size <= 3 * SimulationLogic.BODY_COUNT, "size " + size);
+        assertEquals(SimulationLogic.CENTER_MASS, simulation.getBodies().getFirst().getMass());
+    }
+
+    @Test
+    void testStoppedSimulationDoesNotResume() throws InterruptedException {
+        SimulationLogic simulation = engine.getOrCreate("room");
+        simulation.stopSimulation();
+        simulation.addSubscriber(stream -> { });
+        Thread.sleep(100);
+
+        assertFalse(simulation.isRunning());
+        assertEquals(0, simulation.getTickScheduler().getSteps());
+        assertTrue(engine.remove("room"));
+        assertFalse(engine.remove("room"));
+    }
+
+    @Test
+    void testPositionsAreBroadcastOnlyToSubscribers() throws InterruptedException {
+        CountDownLatch received = new CountDownLatch(1);
+        engine.getOrCreate("watched").addSubscriber(new PositionSubscriber() {
+            @Override
+            public void onPositions(PositionStreamEncoder stream) {
+                received.countDown();
+            }
+        });
+        engine.getOrCreate("other").startSimulation();
+
+        assertTrue(received.await(5, TimeUnit.SECONDS));
+        assertTrue(engine.get("other").isParked());
+        assertEquals(0, engine.get("other").getTickScheduler().getSteps());
+    }
+}
@@ -1,8 +1,10 @@
 package org.polytech.simulation;
 
 import org.acme.core.Body;
+import org.acme.core.BodyStore;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.acme.simulation.SimulationEngine;
 import org.acme.simulation.SimulationLogic;
 
 import java.util.List;
@@ -116,6 +118,33 @@ class SimulationLogicTest {
         simulationLogic.stopSimulation();
     }
 
+    @Test
+    void testAddBodiesAtPositionAndDeleteCount() {
+        SimulationEngine engine = new SimulationEngine(1);
+        try {
+            SimulationLogic simulation = engine.getOrCreate("positioned");
+            int initialSize = simulation.getBodyCount();
+            simulation.addBodies(7, 100, 50);
+
+            // Simulation arrêtée : la commande est appliquée tout de suite
+            List<Body> bodies = simulation.getBodies();
+            assertEquals(initialSize + 7, bodies.size());
+            double spread = 0.05 * simulation.getParameters().galaxyRadius();
+            for (Body body : bodies.subList(initialSize, bodies.size())) {
+                assertTrue(Math.hypot(body.getX() - 100, body.getY() - 50) <= spread + 1e-9);
+                assertTrue(Math.hypot(body.getVx(), body.getVy()) > 0);
+            }
+
+            // Plafonné à 3 fois le nombre de corps configuré
+            simulation.addBodies(10 * SimulationLogic.BODY_COUNT, 100, 50);
+            assertEquals(3 * SimulationLogic.BODY_COUNT, simulation.getBodyCount());
+            simulation.deleteBodies(5);
+            assertEquals(3 * SimulationLogic.BODY_COUNT - 5, simulation.getBodyCount());
+        } finally {
+            engine.shutdown();
+        }
+    }
+
     @Test
     void testSimulationLifecycle() {
         assertFalse(simulationLogic.isRunning());
@@ -156,6 +185,24 @@ class SimulationLogicTest {
         assertEquals(0, fy[1], 0.0001);
     }
 
+    @Test
+    void testSetBodies() {
+        SimulationEngine engine = new SimulationEngine(1);
+        try {
+            SimulationLogic simulation = engine.getOrCreate("set-bodies");
+            BodyStore source = BodyStore.of(simulation.createBodies(1000));
+
+            simulation.setBodies(source);
+            source.x()[1] = -1;
+
+            assertEquals(1000, simulation.getBodies().size());
+            assertNotEquals(-1, simulation.getBodies().get(1).getX());
+            assertEquals(4 + 1000 * 4, simulation.getBodyPositionsBinary().length);
+        } finally {
+            engine.shutdown();
+        }
+    }
+
     @Test
     void testEmptyBodyList() {
         List<Body> bodies = List.of();
@@ -0,0 +1,99 @@
+package org.polytech.simulation;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.acme.protocol.StreamSubscription;
+import org.acme.simulation.SimulationEngine;
+import org.acme.simulation.SimulationLogic;
+import org.acme.simulation.force.VectorPairwiseForceEngine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimulationMetricsTest {
+
+    private SimulationEngine engine;
+    private MeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        engine = new SimulationEngine(1);
+        registry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.shutdown();
+    }
+
+    @Test
+    void testPhasesAreTimed() throws InterruptedException {
+        engine.setMeterRegistry(registry);
+        SimulationLogic simulation = engine.getOrCreate("room");
+        CountDownLatch received = new CountDownLatch(3);
+        simulation.addSubscriber(stream -> {
+            stream.frame(StreamSubscription.LEGACY);
+            received.countDown();
+        });
+        assertTrue(received.await(5, TimeUnit.SECONDS));
+        simulation.stopSimulation();
+
+        for (String phase : new String[]{"nbody.tick", "nbody.physics", "nbody.forces", "nbody.encode", "nbody.broadcast"}) {
+            Timer timer = registry.get(phase).tag("simulation", "room").timer();
+            assertTrue(timer.count() > 0, phase + " was not recorded");
+            assertTrue(timer.max(TimeUnit.NANOSECONDS) > 0, phase);
+        }
+        assertEquals(SimulationLogic.BODY_COUNT, registry.get("nbody.bodies").tag("simulation", "room").gauge().value());
+        assertTrue(registry.get("nbody.steps").tag("simulation", "room").functionCounter().count() > 0);
+        assertEquals(1, registry.get("nbody.simulations").gauge().value());
+        // Le moteur chronométré n'apparaît pas aux appelants
+        assertInstanceOf(VectorPairwiseForceEngine.class, simulation.getForceEngine());
+    }
+
+    @Test
+    void testMetricsAreOffByDefault() throws InterruptedException {
+        SimulationLogic simulation = engine.getOrCreate("room");
+        CountDownLatch received = new CountDownLatch(2);
+        simulation.addSubscriber(stream -> received.countDown());
+        assertTrue(received.await(5, TimeUnit.SECONDS));
+
+        assertFalse(simulation.getMetrics().isEnabled());
+        assertEquals(0, simulation.getMetrics().tick().start());
+        assertTrue(registry.getMeters().isEmpty());
+    }
+
+    @Test
+    void testOnlyDefaultSimulationPublishesPercentiles() {
+        engine.setMeterRegistry(registry);
+        engine.getDefault();
+        engine.getOrCreate("room");
+
+        Timer defaultTick = registry.get("nbody.tick").tag("simulation", SimulationEngine.DEFAULT_SIMULATION).timer();
+        assertTrue(defaultTick.takeSnapshot().percentileValues().length > 0);
+        // Une salle créée par un client n'ajoute que le nombre, le total et le maximum de chaque phase
+        Timer roomTick = registry.get("nbody.tick").tag("simulation", "room").timer();
+        assertEquals(0, roomTick.takeSnapshot().percentileValues().length);
+    }
+
+    @Test
+    void testMetersFollowSimulationLifecycle() {
+        engine.getOrCreate("before");
+        engine.setMeterRegistry(registry);
+        engine.getOrCreate("after");
+        assertNotNull(registry.find("nbody.tick").tag("simulation", "before").timer());
+        assertNotNull(registry.find("nbody.tick").tag("simulation", "after").timer());
+
+        engine.remove("before");
+        assertNull(registry.find("nbody.tick").tag("simulation", "before").timer());
+        assertNull(registry.find("nbody.bodies").tag("simulation", "before").gauge());
+
+        engine.setMeterRegistry(null);
+        assertTrue(registry.getMeters().isEmpty());
+        assertFalse(engine.get("after").getMetrics().isEnabled());
+    }
+}
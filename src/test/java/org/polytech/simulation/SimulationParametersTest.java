@@ -0,0 +1,130 @@
+package org.polytech.simulation;
+
+import org.acme.core.Body;
+import org.acme.simulation.GalaxyGenerator;
+import org.acme.simulation.PositionSubscriber;
+import org.acme.simulation.SimulationEngine;
+import org.acme.simulation.SimulationLogic;
+import org.acme.simulation.SimulationParameters;
+import org.acme.simulation.force.ForceEngineType;
+import org.acme.simulation.force.PairwiseForceEngine;
+import org.acme.simulation.force.ParallelPairwiseForceEngine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimulationParametersTest {
+
+    private SimulationEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        engine = new SimulationEngine(1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.shutdown();
+    }
+
+    @Test
+    void testNewSimulationsUseDefaultParameters() {
+        SimulationParameters parameters = new SimulationParameters(1000, 500, 50, 1e9, 1e3, 1e4, 0, 0.2, 10, 5,
+                ForceEngineType.PAIRWISE, 0.5, false, null);
+        engine.setDefaultParameters(parameters);
+        SimulationLogic simulation = engine.getOrCreate("room");
+
+        assertEquals(parameters, simulation.getParameters());
+        assertEquals(50, simulation.getBodyCount());
+        assertEquals(500, simulation.getBodies().getFirst().getX());
+        assertEquals(1e9, simulation.getBodies().getFirst().getMass());
+        assertEquals(500 * 1000 / 8, simulation.getGridBinary().length);
+        assertTrue(simulation.getBodies().stream().skip(1).allMatch(b -> b.getMass() >= 1e3 && b.getMass() <= 1e4));
+        assertInstanceOf(PairwiseForceEngine.class, simulation.getForceEngine());
+        assertEquals(10, simulation.getTickScheduler().getPhysicsRate(), 1e-9);
+        assertEquals(5, simulation.getTickScheduler().getBroadcastRate(), 1e-9);
+    }
+
+    @Test
+    void testChangesWaitForTheTickBoundary() throws InterruptedException {
+        SimulationLogic simulation = engine.getOrCreate("room");
+        CountDownLatch ticking = new CountDownLatch(1);
+        PositionSubscriber subscriber = stream -> ticking.countDown();
+        simulation.addSubscriber(subscriber);
+        assertTrue(ticking.await(5, TimeUnit.SECONDS));
+
+        simulation.setParameters(simulation.getParameters().withBodyCount(400));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (simulation.getBodyCount() != 400 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(400, simulation.getBodyCount());
+
+        simulation.setParameters(simulation.getParameters().withBodyCount(20));
+        deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (simulation.getBodyCount() != 20 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(20, simulation.getBodyCount());
+        assertEquals(SimulationLogic.CENTER_MASS, simulation.getBodies().getFirst().getMass());
+        simulation.removeSubscriber(subscriber);
+    }
+
+    @Test
+    void testEngineAndCollisionsFollowParameters() {
+        SimulationLogic simulation = engine.getOrCreate("room");
+        SimulationParameters p = simulation.getParameters();
+        simulation.setParameters(new SimulationParameters(p.width(), p.height(), p.bodyCount(), p.centerMass(),
+                p.massMin(), p.massMax(), p.velocityDispersion(), p.timeStep(), p.physicsRate(), p.broadcastRate(),
+                ForceEngineType.PARALLEL, p.theta(), true, null));
+        assertInstanceOf(ParallelPairwiseForceEngine.class, simulation.getForceEngine());
+        assertTrue(simulation.isCollisionsEnabled());
+
+        simulation.setParameters(p);
+        assertEquals(ForceEngineType.VECTOR, ForceEngineType.of(simulation.getForceEngine()));
+        assertFalse(simulation.isCollisionsEnabled());
+        assertEquals(p, simulation.getParameters());
+    }
+
+    @Test
+    void testDefaultParametersKeepLoadedBodies() {
+        SimulationLogic simulation = engine.getOrCreate("room");
+        simulation.setBodies(GalaxyGenerator.galaxy(SimulationParameters.DEFAULT, 500, 1));
+        simulation.simulateOneStep();
+        List<Body> loaded = simulation.getBodies();
+
+        // La configuration appliquée après un chargement (ou une restauration) ne retaille ni ne régénère les corps
+        SimulationParameters configured = SimulationParameters.DEFAULT.withBodyCount(50).withSeed(42L);
+        engine.setDefaultParameters(configured);
+        assertEquals(500, simulation.getBodyCount());
+        assertEquals(1, simulation.getStepCount());
+        assertEquals(loaded.get(1).getX(), simulation.getBodies().get(1).getX());
+        assertNull(simulation.getParameters().seed());
+        // Les nouvelles simulations suivent la configuration
+        assertEquals(50, engine.getOrCreate("other").getBodyCount());
+        assertEquals(42L, engine.getOrCreate("other").getParameters().seed());
+    }
+
+    @Test
+    void testInvalidParameters() {
+        SimulationParameters p = SimulationParameters.DEFAULT;
+        assertThrows(IllegalArgumentException.class, () -> p.withBodyCount(0));
+        assertThrows(IllegalArgumentException.class, () -> new SimulationParameters(400, 200, 10, 1, 5, 1, 0, 0.1,
+                20, 20, ForceEngineType.VECTOR, 0.5, false, null));
+        assertThrows(IllegalArgumentException.class, () -> new SimulationParameters(400, 200, 10, 1, 1, 5, 0, 0.1,
+                0, 20, ForceEngineType.VECTOR, 0.5, false, null));
+        assertThrows(IllegalArgumentException.class, () -> engine.getOrCreate("room").setParameters(null));
+        assertEquals(ForceEngineType.BARNES_HUT, ForceEngineType.parse("barnes-hut"));
+        assertEquals(ForceEngineType.FMM, ForceEngineType.parse("fmm"));
+        assertEquals(ForceEngineType.P3M, ForceEngineType.parse("P3M"));
+        assertThrows(IllegalArgumentException.class, () -> ForceEngineType.parse("tree-pm"));
+        // Les développements multipolaires divergent pour theta >= 1
+        assertThrows(IllegalArgumentException.class, () -> new SimulationParameters(400, 200, 10, 1, 1, 5, 0, 0.1,
+                20, 20, ForceEngineType.FMM, 1, false, null));
+    }
+}
@@ -0,0 +1,88 @@
+package org.polytech.simulation;
+
+import org.acme.simulation.TickScheduler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TickSchedulerTest {
+
+    private static final long MS = 1_000_000L;
+
+    private final AtomicInteger physicsCalls = new AtomicInteger();
+    private final AtomicInteger broadcastCalls = new AtomicInteger();
+    private TickScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        // Physique à 100 Hz (10 ms), diffusion à 25 Hz (40 ms), 3 pas de rattrapage au plus
+        scheduler = new TickScheduler(physicsCalls::incrementAndGet, broadcastCalls::incrementAndGet, 100, 25, 3);
+    }
+
+    @Test
+    void testIndependentRates() {
+        long now = 0;
+        long deadline = scheduler.advance(now);
+        while (deadline < 1000 * MS) {
+            now = deadline;
+            deadline = scheduler.advance(now);
+        }
+
+        assertEquals(100, physicsCalls.get());
+        assertEquals(25, broadcastCalls.get());
+        assertEquals(0, scheduler.getOverruns());
+        assertEquals(0, scheduler.getSkippedBroadcasts());
+    }
+
+    @Test
+    void testReturnsNextDeadline() {
+        assertEquals(10 * MS, scheduler.advance(0));
+        assertEquals(20 * MS, scheduler.advance(10 * MS));
+        // En avance : rien ne s'exécute
+        assertEquals(20 * MS, scheduler.advance(15 * MS));
+        assertEquals(2, physicsCalls.get());
+        assertEquals(1, broadcastCalls.get());
+    }
+
+    @Test
+    void testCatchUpSteps() {
+        scheduler.advance(0);
+        scheduler.advance(25 * MS);
+
+        // Pas attendus à 10 et 20 ms, exécutés à la suite
+        assertEquals(3, physicsCalls.get());
+        assertEquals(1, scheduler.getCatchUpSteps());
+        assertEquals(0, scheduler.getDroppedSteps());
+        assertEquals(15 * MS, scheduler.getLastLagNanos());
+    }
+
+    @Test
+    void testOverrunDropsStepsInsteadOfDrifting() {
+        scheduler.advance(0);
+        long deadline = scheduler.advance(100 * MS);
+
+        // 10 pas dus (10..100 ms) mais seulement 3 exécutés
+        assertEquals(4, physicsCalls.get());
+        assertEquals(1, scheduler.getOverruns());
+        assertEquals(7, scheduler.getDroppedSteps());
+        assertEquals(110 * MS, deadline);
+        assertEquals(1, scheduler.getSkippedBroadcasts());
+        assertEquals(2, broadcastCalls.get());
+    }
+
+    @Test
+    void testRatesCanChangeAtRuntime() {
+        scheduler.setPhysicsRate(50);
+        assertEquals(20 * MS, scheduler.advance(0));
+        assertEquals(50.0, scheduler.getPhysicsRate(), 1e-9);
+    }
+
+    @Test
+    void testInvalidParameters() {
+        assertThrows(IllegalArgumentException.class, () -> scheduler.setPhysicsRate(0));
+        assertThrows(IllegalArgumentException.class, () -> scheduler.setBroadcastRate(-1));
+        assertThrows(IllegalArgumentException.class, () -> scheduler.setMaxCatchUpSteps(0));
+    }
+}
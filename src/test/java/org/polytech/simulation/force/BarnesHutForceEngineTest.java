@@ -0,0 +1,133 @@
+package org.polytech.simulation.force;
+
+import org.acme.core.Body;
+import org.acme.core.BodyStore;
+import org.acme.simulation.SimulationLogic;
+import org.acme.simulation.force.BarnesHutForceEngine;
+import org.acme.simulation.force.ForceEngine;
+import org.acme.simulation.force.PairwiseForceEngine;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+class BarnesHutForceEngineTest {
+
+    private final SimulationLogic simulationLogic = SimulationLogic.getInstance();
+
+    @Test
+    void testMatchesPairwiseWithinTolerance() {
+        List<Body> bodies = simulationLogic.createBodies(2000);
+        double[][] exact = forces(new PairwiseForceEngine(), bodies);
+        double[][] approx = forces(new BarnesHutForceEngine(0.5), bodies);
+
+        // Erreur relative moyenne sur la norme de la force
+        double errorSum = 0;
+        for (int i = 0; i < bodies.size(); i++) {
+            double ex = exact[0][i] - approx[0][i];
+            double ey = exact[1][i] - approx[1][i];
+            double norm = Math.hypot(exact[0][i], exact[1][i]);
+            errorSum += Math.hypot(ex, ey) / norm;
+        }
+        assertTrue(errorSum / bodies.size() < 0.01, "Mean relative error too high: " + errorSum / bodies.size());
+    }
+
+    @Test
+    void testZeroThetaIsExact() {
+        List<Body> bodies = simulationLogic.createBodies(300);
+        double[][] exact = forces(new PairwiseForceEngine(), bodies);
+        double[][] approx = forces(new BarnesHutForceEngine(0), bodies);
+
+        for (int i = 0; i < bodies.size(); i++) {
+            double tolerance = 1e-9 * Math.hypot(exact[0][i], exact[1][i]);
+            assertEquals(exact[0][i], approx[0][i], tolerance);
+            assertEquals(exact[1][i], approx[1][i], tolerance);
+        }
+    }
+
+    @Test
+    void testGravitationalForce() {
+        List<Body> bodies = List.of(new Body(0, 0, 0, 0, 1000), new Body(10, 0, 0, 0, 2000));
+        double[][] f = forces(new BarnesHutForceEngine(), bodies);
+
+        double expectedForce = SimulationLogic.G * 1000 * 2000 / 100;
+        assertEquals(expectedForce, f[0][0], 0.0001);
+        assertEquals(-expectedForce, f[0][1], 0.0001);
+        assertEquals(0, f[1][0], 0.0001);
+        assertEquals(0, f[1][1], 0.0001);
+    }
+
+    @Test
+    void testCoincidentBodies() {
+        // Des corps superposés ne doivent ni boucler à l'infini ni produire de NaN
+        List<Body> bodies = List.of(
+                new Body(5, 5, 0, 0, 1000),
+                new Body(5, 5, 0, 0, 1000),
+                new Body(5, 5, 0, 0, 1000),
+                new Body(50, 5, 0, 0, 1000));
+        double[][] f = forces(new BarnesHutForceEngine(), bodies);
+
+        for (int i = 0; i < bodies.size(); i++) {
+            assertFalse(Double.isNaN(f[0][i]));
+            assertFalse(Double.isNaN(f[1][i]));
+        }
+        assertTrue(f[0][0] > 0);
+        assertTrue(f[0][3] < 0);
+    }
+
+    @Test
+    void testEngineIsReusableAcrossTicks() {
+        BarnesHutForceEngine engine = new BarnesHutForceEngine();
+        List<Body> large = simulationLogic.createBodies(1000);
+        List<Body> small = simulationLogic.createBodies(10);
+
+        forces(engine, large);
+        double[][] reused = forces(engine, small);
+        double[][] fresh = forces(new BarnesHutForceEngine(), small);
+
+        assertArrayEquals(fresh[0], reused[0]);
+        assertArrayEquals(fresh[1], reused[1]);
+    }
+
+    @Test
+    void testEmptyBodyList() {
+        assertDoesNotThrow(() -> forces(new BarnesHutForceEngine(), List.of()));
+    }
+
+    @Test
+    void testNegativeTheta() {
+        assertThrows(IllegalArgumentException.class, () -> new BarnesHutForceEngine(-1));
+    }
+
+    /**
+     * Comparaison du temps de calcul des forces, lancée avec -Dnbody.benchmark=true
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "nbody.benchmark", matches = "true")
+    void testTickTimeComparison() {
+        for (int count : new int[]{1_000, 10_000, 100_000}) {
+            BodyStore bodies = BodyStore.of(simulationLogic.createBodies(count));
+            long pairwise = time(new PairwiseForceEngine(), bodies);
+            long barnesHut = time(new BarnesHutForceEngine(), bodies);
+            System.out.printf("%d bodies: pairwise %d ms, barnes-hut %d ms%n", count, pairwise, barnesHut);
+            if (count >= 10_000) {
+                assertTrue(barnesHut < pairwise);
+            }
+        }
+    }
+
+    private static long time(ForceEngine engine, BodyStore bodies) {
+        engine.computeForces(bodies, bodies.fx(), bodies.fy()); // chauffe
+        long start = System.nanoTime();
+        engine.computeForces(bodies, bodies.fx(), bodies.fy());
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private static double[][] forces(ForceEngine engine, List<Body> bodies) {
+        double[] fx = new double[bodies.size()];
+        double[] fy = new double[bodies.size()];
+        engine.computeForces(BodyStore.of(bodies), fx, fy);
+        return new double[][]{fx, fy};
+    }
+}
@@ -0,0 +1,230 @@
+package org.polytech.simulation.force;
+
+import org.acme.core.Body;
+import org.acme.core.BodyStore;
+import org.acme.simulation.GalaxyGenerator;
+import org.acme.simulation.SimulationLogic;
+import org.acme.simulation.SimulationParameters;
+import org.acme.simulation.force.BarnesHutForceEngine;
+import org.acme.simulation.force.FmmForceEngine;
+import org.acme.simulation.force.ForceEngine;
+import org.acme.simulation.force.PairwiseForceEngine;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+class FmmForceEngineTest {
+
+    private final SimulationLogic simulationLogic = SimulationLogic.getInstance();
+
+    @Test
+    void testMatchesPairwiseWithinTolerance() {
+        BodyStore bodies = GalaxyGenerator.galaxy(SimulationParameters.DEFAULT, 3000, 1);
+        double[][] exact = forces(new PairwiseForceEngine(), bodies);
+        try (FmmForceEngine engine = new FmmForceEngine()) {
+            double[][] approx = forces(engine, bodies);
+            assertTrue(maxRelativeError(exact, approx) < 1e-2, "Max relative error too high: "
+                    + maxRelativeError(exact, approx));
+            assertTrue(meanRelativeError(exact, approx) < 1e-3, "Mean relative error too high: "
+                    + meanRelativeError(exact, approx));
+        }
+    }
+
+    @Test
+    void testNearCancellingBodiesKeepSmallAbsoluteError() {
+        // Avec cette graine, le corps le plus mal approché subit une accélération 30 fois plus faible que la
+        // médiane : ses attractions se compensent presque et son erreur relative dépasse 1 %. Son erreur
+        // reste petite devant le champ typique, qui sert de plancher à la norme
+        BodyStore bodies = GalaxyGenerator.galaxy(SimulationParameters.DEFAULT, 3000, 42);
+        double[][] exact = forces(new PairwiseForceEngine(), bodies);
+        try (FmmForceEngine engine = new FmmForceEngine()) {
+            double[][] approx = forces(engine, bodies);
+            int n = bodies.size();
+            double[] acceleration = new double[n];
+            for (int i = 0; i < n; i++) {
+                acceleration[i] = Math.hypot(exact[0][i], exact[1][i]) / bodies.mass()[i];
+            }
+            double[] sorted = acceleration.clone();
+            Arrays.sort(sorted);
+            double median = sorted[n / 2];
+            for (int i = 0; i < n; i++) {
+                double error = Math.hypot(exact[0][i] - approx[0][i], exact[1][i] - approx[1][i]) / bodies.mass()[i];
+                assertTrue(error < 1e-2 * Math.max(acceleration[i], median), "Body " + i + " error too high: "
+                        + error / acceleration[i]);
+            }
+        }
+    }
+
+    @Test
+    void testErrorDecreasesWithOrder() {
+        BodyStore bodies = GalaxyGenerator.galaxy(SimulationParameters.DEFAULT, 2000, 1);
+        double[][] exact = forces(new PairwiseForceEngine(), bodies);
+        double previous = Double.POSITIVE_INFINITY;
+        for (int order : new int[]{2, 4, 8, 12}) {
+            try (FmmForceEngine engine = new FmmForceEngine(order, 0.5, 2)) {
+                double error = meanRelativeError(exact, forces(engine, bodies));
+                assertTrue(error < previous / 5, "Order " + order + " should be more accurate: " + error);
+                previous = error;
+            }
+        }
+    }
+
+    @Test
+    void testZeroThetaIsExact() {
+        BodyStore bodies = BodyStore.of(simulationLogic.createBodies(300));
+        double[][] exact = forces(new PairwiseForceEngine(), bodies);
+        try (FmmForceEngine engine = new FmmForceEngine(4, 0, 2)) {
+            double[][] approx = forces(engine, bodies);
+            for (int i = 0; i < bodies.size(); i++) {
+                double tolerance = 1e-9 * Math.hypot(exact[0][i], exact[1][i]);
+                assertEquals(exact[0][i], approx[0][i], tolerance);
+                assertEquals(exact[1][i], approx[1][i], tolerance);
+            }
+        }
+    }
+
+    @Test
+    void testIndependentOfThreadCount() {
+        BodyStore bodies = BodyStore.of(simulationLogic.createBodies(20_000));
+        try (FmmForceEngine single = new FmmForceEngine(FmmForceEngine.DEFAULT_ORDER, 0.5, 1);
+             FmmForceEngine parallel = new FmmForceEngine(FmmForceEngine.DEFAULT_ORDER, 0.5, 4)) {
+            double[][] a = forces(single, bodies);
+            double[][] b = forces(parallel, bodies);
+            double[][] c = forces(parallel, bodies);
+            assertArrayEquals(a[0], b[0]);
+            assertArrayEquals(a[1], b[1]);
+            assertArrayEquals(b[0], c[0]);
+            assertArrayEquals(b[1], c[1]);
+        }
+    }
+
+    @Test
+    void testTargetsMatchFullComputation() {
+        BodyStore bodies = BodyStore.of(simulationLogic.createBodies(10_000));
+        try (FmmForceEngine engine = new FmmForceEngine()) {
+            double[][] full = forces(engine, bodies);
+            int[] targets = {0, 17, 4242, 9999};
+            double[] fx = new double[bodies.size()];
+            double[] fy = new double[bodies.size()];
+            engine.computeForces(bodies, targets, targets.length, fx, fy);
+
+            for (int i = 0; i < bodies.size(); i++) {
+                boolean target = i == 0 || i == 17 || i == 4242 || i == 9999;
+                assertEquals(target ? full[0][i] : 0, fx[i], 1e-9 * Math.abs(full[0][i]));
+                assertEquals(target ? full[1][i] : 0, fy[i], 1e-9 * Math.abs(full[1][i]));
+            }
+        }
+    }
+
+    @Test
+    void testGravitationalForce() {
+        BodyStore bodies = BodyStore.of(List.of(new Body(0, 0, 0, 0, 1000), new Body(10, 0, 0, 0, 2000)));
+        try (FmmForceEngine engine = new FmmForceEngine()) {
+            double[][] f = forces(engine, bodies);
+
+            double expectedForce = SimulationLogic.G * 1000 * 2000 / 100;
+            assertEquals(expectedForce, f[0][0], 0.0001);
+            assertEquals(-expectedForce, f[0][1], 0.0001);
+            assertEquals(0, f[1][0], 0.0001);
+            assertEquals(0, f[1][1], 0.0001);
+        }
+    }
+
+    @Test
+    void testCoincidentBodies() {
+        // Plus de corps superposés qu'une feuille n'en contient : profondeur maximale, sans NaN
+        BodyStore bodies = new BodyStore();
+        for (int i = 0; i < 100; i++) {
+            bodies.add(5, 5, 0, 0, 1000);
+        }
+        bodies.add(50, 5, 0, 0, 1000);
+        try (FmmForceEngine engine = new FmmForceEngine()) {
+            double[][] f = forces(engine, bodies);
+
+            for (int i = 0; i < bodies.size(); i++) {
+                assertFalse(Double.isNaN(f[0][i]));
+                assertFalse(Double.isNaN(f[1][i]));
+            }
+            assertTrue(f[0][0] > 0);
+            assertTrue(f[0][100] < 0);
+        }
+    }
+
+    @Test
+    void testEngineIsReusableAcrossTicks() {
+        BodyStore large = BodyStore.of(simulationLogic.createBodies(5000));
+        BodyStore small = BodyStore.of(simulationLogic.createBodies(10));
+        try (FmmForceEngine engine = new FmmForceEngine(); FmmForceEngine fresh = new FmmForceEngine()) {
+            forces(engine, large);
+            double[][] reused = forces(engine, small);
+            double[][] expected = forces(fresh, small);
+
+            assertArrayEquals(expected[0], reused[0]);
+            assertArrayEquals(expected[1], reused[1]);
+            assertDoesNotThrow(() -> forces(engine, new BodyStore()));
+        }
+    }
+
+    @Test
+    void testInvalidParameters() {
+        assertThrows(IllegalArgumentException.class, () -> new FmmForceEngine(0, 0.5, 1));
+        assertThrows(IllegalArgumentException.class, () -> new FmmForceEngine(4, -0.1, 1));
+        assertThrows(IllegalArgumentException.class, () -> new FmmForceEngine(4, 1, 1));
+    }
+
+    /**
+     * Passage à l'échelle jusqu'à 10⁶ corps, lancé avec -Dnbody.benchmark=true
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "nbody.benchmark", matches = "true")
+    void testTickTimeComparison() {
+        try (FmmForceEngine fmm = new FmmForceEngine()) {
+            for (int count : new int[]{10_000, 100_000, 1_000_000}) {
+                BodyStore bodies = BodyStore.of(simulationLogic.createBodies(count));
+                long barnesHut = time(new BarnesHutForceEngine(), bodies);
+                long multipole = time(fmm, bodies);
+                System.out.printf("%d bodies: barnes-hut %d ms, fmm %d ms%n", count, barnesHut, multipole);
+            }
+        }
+    }
+
+    private static long time(ForceEngine engine, BodyStore bodies) {
+        engine.computeForces(bodies, bodies.fx(), bodies.fy()); // chauffe
+        long start = System.nanoTime();
+        engine.computeForces(bodies, bodies.fx(), bodies.fy());
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private static double maxRelativeError(double[][] exact, double[][] approx) {
+        double max = 0;
+        for (int i = 0; i < exact[0].length; i++) {
+            max = Math.max(max, relativeError(exact, approx, i));
+        }
+        return max;
+    }
+
+    private static double meanRelativeError(double[][] exact, double[][] approx) {
+        double sum = 0;
+        for (int i = 0; i < exact[0].length; i++) {
+            sum += relativeError(exact, approx, i);
+        }
+        return sum / exact[0].length;
+    }
+
+    // Erreur relative sur la norme de la force
+    private static double relativeError(double[][] exact, double[][] approx, int i) {
+        double ex = exact[0][i] - approx[0][i];
+        double ey = exact[1][i] - approx[1][i];
+        return Math.hypot(ex, ey) / Math.hypot(exact[0][i], exact[1][i]);
+    }
+
+    private static double[][] forces(ForceEngine engine, BodyStore bodies) {
+        double[] fx = new double[bodies.size()];
+        double[] fy = new double[bodies.size()];
+        engine.computeForces(bodies, fx, fy);
+        return new double[][]{fx, fy};
+    }
+}
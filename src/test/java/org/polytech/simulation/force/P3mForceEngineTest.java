@@ -0,0 +1,183 @@
+package org.polytech.simulation.force;
+
+import org.acme.core.Body;
+import org.acme.core.BodyStore;
+import org.acme.simulation.GalaxyGenerator;
+import org.acme.simulation.SimulationLogic;
+import org.acme.simulation.SimulationParameters;
+import org.acme.simulation.force.BarnesHutForceEngine;
+import org.acme.simulation.force.ForceEngine;
+import org.acme.simulation.force.P3mForceEngine;
+import org.acme.simulation.force.PairwiseForceEngine;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+class P3mForceEngineTest {
+
+    private final SimulationLogic simulationLogic = SimulationLogic.getInstance();
+
+    @Test
+    void testMatchesPairwiseWithinTolerance() {
+        BodyStore bodies = GalaxyGenerator.galaxy(SimulationParameters.DEFAULT, 5000, 42);
+        double[][] exact = forces(new PairwiseForceEngine(), bodies);
+        try (P3mForceEngine engine = new P3mForceEngine()) {
+            double[][] approx = forces(engine, bodies);
+            assertTrue(maxRelativeError(exact, approx) < 0.1, "Max relative error too high: "
+                    + maxRelativeError(exact, approx));
+            assertTrue(meanRelativeError(exact, approx) < 5e-3, "Mean relative error too high: "
+                    + meanRelativeError(exact, approx));
+        }
+    }
+
+    @Test
+    void testSmallSystemsAreExact() {
+        BodyStore bodies = BodyStore.of(simulationLogic.createBodies(300));
+        try (P3mForceEngine engine = new P3mForceEngine()) {
+            double[][] exact = forces(new PairwiseForceEngine(), bodies);
+            double[][] direct = forces(engine, bodies);
+            assertArrayEquals(exact[0], direct[0]);
+            assertArrayEquals(exact[1], direct[1]);
+        }
+    }
+
+    @Test
+    void testIndependentOfThreadCount() {
+        BodyStore bodies = BodyStore.of(simulationLogic.createBodies(20_000));
+        try (P3mForceEngine single = new P3mForceEngine(1); P3mForceEngine parallel = new P3mForceEngine(4)) {
+            double[][] a = forces(single, bodies);
+            double[][] b = forces(parallel, bodies);
+            double[][] c = forces(parallel, bodies);
+            assertArrayEquals(a[0], b[0]);
+            assertArrayEquals(a[1], b[1]);
+            assertArrayEquals(b[0], c[0]);
+            assertArrayEquals(b[1], c[1]);
+        }
+    }
+
+    @Test
+    void testTargetsMatchFullComputation() {
+        BodyStore bodies = BodyStore.of(simulationLogic.createBodies(10_000));
+        try (P3mForceEngine engine = new P3mForceEngine()) {
+            double[][] full = forces(engine, bodies);
+            int[] targets = {0, 17, 4242, 9999};
+            double[] fx = new double[bodies.size()];
+            double[] fy = new double[bodies.size()];
+            engine.computeForces(bodies, targets, targets.length, fx, fy);
+
+            for (int i = 0; i < bodies.size(); i++) {
+                boolean target = i == 0 || i == 17 || i == 4242 || i == 9999;
+                assertEquals(target ? full[0][i] : 0, fx[i]);
+                assertEquals(target ? full[1][i] : 0, fy[i]);
+            }
+        }
+    }
+
+    @Test
+    void testGravitationalForce() {
+        BodyStore bodies = BodyStore.of(List.of(new Body(0, 0, 0, 0, 1000), new Body(10, 0, 0, 0, 2000)));
+        try (P3mForceEngine engine = new P3mForceEngine()) {
+            double[][] f = forces(engine, bodies);
+
+            double expectedForce = SimulationLogic.G * 1000 * 2000 / 100;
+            assertEquals(expectedForce, f[0][0], 0.0001);
+            assertEquals(-expectedForce, f[0][1], 0.0001);
+        }
+    }
+
+    @Test
+    void testCoincidentBodies() {
+        // Grille dégénérée : tous les corps au même point, puis un seul corps à l'écart
+        BodyStore bodies = new BodyStore();
+        for (int i = 0; i < 2000; i++) {
+            bodies.add(5, 5, 0, 0, 1000);
+        }
+        try (P3mForceEngine engine = new P3mForceEngine()) {
+            double[][] f = forces(engine, bodies);
+            // Aux arrondis de la FFT près
+            for (int i = 0; i < bodies.size(); i++) {
+                assertEquals(0, f[0][i], 1e-6);
+                assertEquals(0, f[1][i], 1e-6);
+            }
+
+            bodies.add(50, 5, 0, 0, 1000);
+            f = forces(engine, bodies);
+            for (int i = 0; i < bodies.size(); i++) {
+                assertFalse(Double.isNaN(f[0][i]));
+                assertFalse(Double.isNaN(f[1][i]));
+            }
+            assertTrue(f[0][0] > 0);
+            assertTrue(f[0][2000] < 0);
+        }
+    }
+
+    @Test
+    void testEngineIsReusableAcrossTicks() {
+        BodyStore large = BodyStore.of(simulationLogic.createBodies(40_000));
+        BodyStore small = BodyStore.of(simulationLogic.createBodies(3000));
+        try (P3mForceEngine engine = new P3mForceEngine()) {
+            forces(engine, large);
+            double[][] exact = forces(new PairwiseForceEngine(), small);
+            double[][] reused = forces(engine, small);
+
+            assertTrue(meanRelativeError(exact, reused) < 5e-3, "Mean relative error too high: "
+                    + meanRelativeError(exact, reused));
+            assertDoesNotThrow(() -> forces(engine, new BodyStore()));
+        }
+    }
+
+    /**
+     * Passage à l'échelle jusqu'à 10⁶ corps, lancé avec -Dnbody.benchmark=true
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "nbody.benchmark", matches = "true")
+    void testTickTimeComparison() {
+        try (P3mForceEngine p3m = new P3mForceEngine()) {
+            for (int count : new int[]{10_000, 100_000, 1_000_000}) {
+                BodyStore bodies = BodyStore.of(simulationLogic.createBodies(count));
+                long barnesHut = time(new BarnesHutForceEngine(), bodies);
+                long mesh = time(p3m, bodies);
+                System.out.printf("%d bodies: barnes-hut %d ms, p3m %d ms%n", count, barnesHut, mesh);
+            }
+        }
+    }
+
+    private static long time(ForceEngine engine, BodyStore bodies) {
+        engine.computeForces(bodies, bodies.fx(), bodies.fy()); // chauffe
+        long start = System.nanoTime();
+        engine.computeForces(bodies, bodies.fx(), bodies.fy());
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private static double maxRelativeError(double[][] exact, double[][] approx) {
+        double max = 0;
+        for (int i = 0; i < exact[0].length; i++) {
+            max = Math.max(max, relativeError(exact, approx, i));
+        }
+        return max;
+    }
+
+    private static double meanRelativeError(double[][] exact, double[][] approx) {
+        double sum = 0;
+        for (int i = 0; i < exact[0].length; i++) {
+            sum += relativeError(exact, approx, i);
+        }
+        return sum / exact[0].length;
+    }
+
+    // Erreur relative sur la norme de la force
+    private static double relativeError(double[][] exact, double[][] approx, int i) {
+        double ex = exact[0][i] - approx[0][i];
+        double ey = exact[1][i] - approx[1][i];
+        return Math.hypot(ex, ey) / Math.hypot(exact[0][i], exact[1][i]);
+    }
+
+    private static double[][] forces(ForceEngine engine, BodyStore bodies) {
+        double[] fx = new double[bodies.size()];
+        double[] fy = new double[bodies.size()];
+        engine.computeForces(bodies, fx, fy);
+        return new double[][]{fx, fy};
+    }
+}
@@ -0,0 +1,96 @@
+package org.polytech.simulation.force;
+
+import org.acme.core.BodyStore;
+import org.acme.simulation.SimulationLogic;
+import org.acme.simulation.force.ForceEngine;
+import org.acme.simulation.force.ParallelPairwiseForceEngine;
+import org.acme.simulation.force.PairwiseForceEngine;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.concurrent.ForkJoinPool;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelPairwiseForceEngineTest {
+
+    private final SimulationLogic simulationLogic = SimulationLogic.getInstance();
+
+    @Test
+    void testMatchesSequentialEngine() {
+        BodyStore bodies = BodyStore.of(simulationLogic.createBodies(3000));
+        double[][] expected = forces(new PairwiseForceEngine(), bodies);
+        try (ParallelPairwiseForceEngine engine = new ParallelPairwiseForceEngine(4)) {
+            double[][] actual = forces(engine, bodies);
+            for (int i = 0; i < bodies.size(); i++) {
+                double tolerance = 1e-9 * Math.hypot(expected[0][i], expected[1][i]);
+                assertEquals(expected[0][i], actual[0][i], tolerance);
+                assertEquals(expected[1][i], actual[1][i], tolerance);
+            }
+        }
+    }
+
+    @Test
+    void testDeterministicForSameThreadCount() {
+        BodyStore bodies = BodyStore.of(simulationLogic.createBodies(2000));
+        try (ParallelPairwiseForceEngine first = new ParallelPairwiseForceEngine(3);
+             ParallelPairwiseForceEngine second = new ParallelPairwiseForceEngine(3)) {
+            double[][] a = forces(first, bodies);
+            double[][] b = forces(second, bodies);
+            double[][] c = forces(first, bodies);
+            assertArrayEquals(a[0], b[0]);
+            assertArrayEquals(a[1], b[1]);
+            assertArrayEquals(a[0], c[0]);
+            assertArrayEquals(a[1], c[1]);
+        }
+    }
+
+    @Test
+    void testSmallSystemUsesSequentialPath() {
+        BodyStore bodies = BodyStore.of(simulationLogic.createBodies(10));
+        double[][] expected = forces(new PairwiseForceEngine(), bodies);
+        try (ParallelPairwiseForceEngine engine = new ParallelPairwiseForceEngine(4)) {
+            double[][] actual = forces(engine, bodies);
+            assertArrayEquals(expected[0], actual[0]);
+            assertArrayEquals(expected[1], actual[1]);
+        }
+    }
+
+    @Test
+    void testSharedPoolIsNotShutDown() {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        new ParallelPairwiseForceEngine(pool).close();
+        assertFalse(pool.isShutdown());
+        pool.shutdown();
+    }
+
+    /**
+     * Passage à l'échelle selon le nombre de threads, lancé avec -Dnbody.benchmark=true
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "nbody.benchmark", matches = "true")
+    void testScaling() {
+        BodyStore bodies = BodyStore.of(simulationLogic.createBodies(20_000));
+        long reference = time(new PairwiseForceEngine(), bodies);
+        System.out.printf("sequential: %d ms%n", reference);
+        for (int threads = 1; threads <= Runtime.getRuntime().availableProcessors(); threads *= 2) {
+            try (ParallelPairwiseForceEngine engine = new ParallelPairwiseForceEngine(threads)) {
+                long elapsed = time(engine, bodies);
+                System.out.printf("%d threads: %d ms (x%.1f)%n", threads, elapsed, (double) reference / elapsed);
+            }
+        }
+    }
+
+    private static long time(ForceEngine engine, BodyStore bodies) {
+        forces(engine, bodies); // chauffe
+        long start = System.nanoTime();
+        forces(engine, bodies);
+        return Math.max(1, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static double[][] forces(ForceEngine engine, BodyStore bodies) {
+        double[] fx = new double[bodies.size()];
+        double[] fy = new double[bodies.size()];
+        engine.computeForces(bodies, fx, fy);
+        return new double[][]{fx, fy};
+    }
+}
@@ -0,0 +1,94 @@
+package org.polytech.simulation.force;
+
+import org.acme.core.BodyStore;
+import org.acme.simulation.SimulationEngine;
+import org.acme.simulation.SimulationLogic;
+import org.acme.simulation.force.ForceEngine;
+import org.acme.simulation.force.PairwiseForceEngine;
+import org.acme.simulation.force.VectorPairwiseForceEngine;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VectorPairwiseForceEngineTest {
+
+    private final SimulationLogic simulationLogic = SimulationLogic.getInstance();
+
+    @Test
+    void testMatchesScalarEngine() {
+        BodyStore bodies = BodyStore.of(simulationLogic.createBodies(3000));
+        assertSameForces(forces(new PairwiseForceEngine(), bodies), forces(new VectorPairwiseForceEngine(), bodies));
+    }
+
+    @Test
+    void testEverySizeHandlesTheTail() {
+        // Tailles autour des multiples de la largeur des vecteurs : blocs complets plus fin scalaire
+        for (int n = 0; n <= 4 * VectorPairwiseForceEngine.lanes() + 1; n++) {
+            BodyStore bodies = BodyStore.of(simulationLogic.createBodies(n));
+            assertSameForces(forces(new PairwiseForceEngine(), bodies), forces(new VectorPairwiseForceEngine(), bodies));
+        }
+    }
+
+    @Test
+    void testTargetsMatchScalarEngine() {
+        BodyStore bodies = BodyStore.of(simulationLogic.createBodies(1001));
+        int[] targets = {0, 3, 500, 999, 1000};
+        ForceEngine scalar = new PairwiseForceEngine();
+        double[][] expected = {new double[bodies.size()], new double[bodies.size()]};
+        double[][] actual = {new double[bodies.size()], new double[bodies.size()]};
+        scalar.computeForces(bodies, targets, targets.length, expected[0], expected[1]);
+        new VectorPairwiseForceEngine().computeForces(bodies, targets, targets.length, actual[0], actual[1]);
+
+        assertSameForces(expected, actual);
+        assertEquals(0, actual[0][1]);
+        assertNotEquals(0, actual[0][500]);
+    }
+
+    @Test
+    void testIsTheDefaultEngine() {
+        SimulationEngine engine = new SimulationEngine(1);
+        try {
+            assertInstanceOf(VectorPairwiseForceEngine.class, engine.getOrCreate("room").getForceEngine());
+        } finally {
+            engine.shutdown();
+        }
+        assertTrue(VectorPairwiseForceEngine.lanes() >= 1);
+        assertEquals(VectorPairwiseForceEngine.isAvailable(), VectorPairwiseForceEngine.lanes() > 1);
+    }
+
+    /**
+     * Gain du noyau SIMD sur la boucle scalaire, lancé avec -Dnbody.benchmark=true
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "nbody.benchmark", matches = "true")
+    void testSpeedup() {
+        BodyStore bodies = BodyStore.of(simulationLogic.createBodies(20_000));
+        long scalar = time(new PairwiseForceEngine(), bodies);
+        long vector = time(new VectorPairwiseForceEngine(), bodies);
+        System.out.printf("scalar: %d ms, vector (%d lanes): %d ms (x%.1f)%n",
+                scalar, VectorPairwiseForceEngine.lanes(), vector, (double) scalar / vector);
+    }
+
+    private static void assertSameForces(double[][] expected, double[][] actual) {
+        for (int i = 0; i < expected[0].length; i++) {
+            double tolerance = 1e-9 * Math.hypot(expected[0][i], expected[1][i]);
+            assertEquals(expected[0][i], actual[0][i], tolerance);
+            assertEquals(expected[1][i], actual[1][i], tolerance);
+        }
+    }
+
+    private static long time(ForceEngine engine, BodyStore bodies) {
+        forces(engine, bodies); // chauffe
+        long start = System.nanoTime();
+        forces(engine, bodies);
+        return Math.max(1, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static double[][] forces(ForceEngine engine, BodyStore bodies) {
+        double[] fx = new double[bodies.size()];
+        double[] fy = new double[bodies.size()];
+        engine.computeForces(bodies, fx, fy);
+        return new double[][]{fx, fy};
+    }
+}
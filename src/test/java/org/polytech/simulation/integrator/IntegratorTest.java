@@ -0,0 +1,166 @@
+package org.polytech.simulation.integrator;
+
+import org.acme.core.BodyStore;
+import org.acme.simulation.SimulationLogic;
+import org.acme.simulation.force.ForceEngine;
+import org.acme.simulation.force.PairwiseForceEngine;
+import org.acme.simulation.integrator.BlockTimeStepIntegrator;
+import org.acme.simulation.integrator.Integrator;
+import org.acme.simulation.integrator.LeapfrogIntegrator;
+import org.acme.simulation.integrator.SemiImplicitEulerIntegrator;
+import org.acme.simulation.integrator.YoshidaIntegrator;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntegratorTest {
+
+    private static final ForceEngine FORCES = new PairwiseForceEngine();
+
+    // Durée simulée : plusieurs orbites des corps intérieurs
+    private static final double DURATION = 100;
+
+    @Test
+    void testLeapfrogEnergyDriftIsBounded() {
+        double euler = energyDrift(new SemiImplicitEulerIntegrator(), galaxy(20), 0.05);
+        double leapfrog = energyDrift(new LeapfrogIntegrator(), galaxy(20), 0.05);
+
+        assertTrue(leapfrog < 1e-4, "Leapfrog energy drift too large: " + leapfrog);
+        assertTrue(leapfrog < euler / 10, "Leapfrog should beat Euler: " + leapfrog + " vs " + euler);
+    }
+
+    @Test
+    void testYoshidaIsFourthOrder() {
+        double coarse = energyDrift(new YoshidaIntegrator(), galaxy(20), 0.2);
+        double fine = energyDrift(new YoshidaIntegrator(), galaxy(20), 0.1);
+        // Ordre 4 : diviser le pas par 2 divise l'erreur par ~16 (par ~4 pour le leapfrog)
+        assertTrue(coarse / fine > 10, "Yoshida error should drop as dt^4: " + coarse + " -> " + fine);
+
+        // 3 évaluations de forces par pas : un pas 3 fois plus grand pour le même coût
+        double leapfrog = energyDrift(new LeapfrogIntegrator(), galaxy(20), 0.05);
+        double yoshida = energyDrift(new YoshidaIntegrator(), galaxy(20), 0.15);
+        assertTrue(yoshida < leapfrog, "Yoshida should beat leapfrog at equal cost: " + yoshida + " vs " + leapfrog);
+    }
+
+    @Test
+    void testBlockTimeStepsRefineInnerBodies() {
+        BodyStore bodies = galaxyWithInnerOrbit();
+        BlockTimeStepIntegrator adaptive = new BlockTimeStepIntegrator();
+        int steps = (int) (DURATION / SimulationLogic.TIME_STEP);
+
+        double leapfrog = energyDrift(new LeapfrogIntegrator(), galaxyWithInnerOrbit(), SimulationLogic.TIME_STEP);
+        double block = energyDrift(adaptive, bodies, SimulationLogic.TIME_STEP);
+
+        assertTrue(block < leapfrog / 10, "Adaptive steps should beat leapfrog: " + block + " vs " + leapfrog);
+        assertTrue(adaptive.getLevel(1) > adaptive.getLevel(bodies.size() - 1), "Inner body should substep more");
+        // Seul le corps intérieur est raffiné : le coût reste proche d'un leapfrog au même pas global
+        long leapfrogEvaluations = (long) steps * (bodies.size() - 1);
+        assertTrue(adaptive.getForceEvaluations() < 2 * leapfrogEvaluations,
+                "Too many force evaluations: " + adaptive.getForceEvaluations());
+    }
+
+    @Test
+    void testCentralMassStaysPinned() {
+        for (Integrator integrator : new Integrator[]{new SemiImplicitEulerIntegrator(), new LeapfrogIntegrator(),
+                new YoshidaIntegrator(), new BlockTimeStepIntegrator()}) {
+            BodyStore bodies = galaxy(5);
+            for (int i = 0; i < 10; i++) {
+                integrator.step(bodies, FORCES, 0.1);
+            }
+            assertEquals(SimulationLogic.WIDTH / 2.0, bodies.x()[0], integrator.getClass().getSimpleName());
+            assertEquals(SimulationLogic.HEIGHT / 2.0, bodies.y()[0], integrator.getClass().getSimpleName());
+        }
+    }
+
+    @Test
+    void testBlockTimeStepsFollowAddedBodies() {
+        BodyStore bodies = galaxy(5);
+        BlockTimeStepIntegrator adaptive = new BlockTimeStepIntegrator();
+        adaptive.step(bodies, FORCES, 0.1);
+        bodies.add(SimulationLogic.WIDTH / 2.0 + 30, SimulationLogic.HEIGHT / 2.0, 0, 20, 1e5);
+
+        assertDoesNotThrow(() -> adaptive.step(bodies, FORCES, 0.1));
+        assertTrue(bodies.y()[bodies.size() - 1] > SimulationLogic.HEIGHT / 2.0);
+    }
+
+    @Test
+    void testInvalidParameters() {
+        assertThrows(IllegalArgumentException.class, () -> new BlockTimeStepIntegrator(0, 4));
+        assertThrows(IllegalArgumentException.class, () -> new BlockTimeStepIntegrator(0.1, -1));
+        SimulationLogic simulationLogic = SimulationLogic.getInstance();
+        assertThrows(IllegalArgumentException.class, () -> simulationLogic.setIntegrator(null));
+        assertThrows(IllegalArgumentException.class, () -> simulationLogic.setTimeStep(0));
+    }
+
+    /**
+     * Écart relatif maximal de l'énergie totale sur la durée simulée
+     */
+    private static double energyDrift(Integrator integrator, BodyStore bodies, double dt) {
+        double initial = energy(bodies);
+        double maxDrift = 0;
+        int steps = (int) Math.round(DURATION / dt);
+        for (int step = 0; step < steps; step++) {
+            integrator.step(bodies, FORCES, dt);
+            maxDrift = Math.max(maxDrift, Math.abs((energy(bodies) - initial) / initial));
+        }
+        return maxDrift;
+    }
+
+    /**
+     * Énergie cinétique des corps mobiles plus énergie potentielle de toutes les paires
+     */
+    private static double energy(BodyStore bodies) {
+        int n = bodies.size();
+        double[] x = bodies.x();
+        double[] y = bodies.y();
+        double[] m = bodies.mass();
+        double e = 0;
+        for (int i = Integrator.FIRST_MOVING_BODY; i < n; i++) {
+            e += 0.5 * m[i] * (bodies.vx()[i] * bodies.vx()[i] + bodies.vy()[i] * bodies.vy()[i]);
+        }
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                double dx = x[j] - x[i];
+                double dy = y[j] - y[i];
+                e -= SimulationLogic.G * m[i] * m[j] / Math.sqrt(dx * dx + dy * dy + ForceEngine.SOFTENING);
+            }
+        }
+        return e;
+    }
+
+    /**
+     * Masse centrale fixe et corps en orbite quasi circulaire entre 20 et 80 unités
+     */
+    private static BodyStore galaxy(int count) {
+        Random random = new Random(42);
+        BodyStore bodies = new BodyStore();
+        double cx = SimulationLogic.WIDTH / 2.0;
+        double cy = SimulationLogic.HEIGHT / 2.0;
+        bodies.add(cx, cy, 0, 0, SimulationLogic.CENTER_MASS);
+        for (int i = 1; i < count; i++) {
+            double r = 20 + 60 * random.nextDouble();
+            double angle = 2 * Math.PI * random.nextDouble();
+            double v = Math.sqrt(SimulationLogic.G * SimulationLogic.CENTER_MASS / r);
+            bodies.add(cx + r * Math.cos(angle), cy + r * Math.sin(angle),
+                    -v * Math.sin(angle), v * Math.cos(angle), SimulationLogic.MASS_MIN);
+        }
+        return bodies;
+    }
+
+    /**
+     * Même galaxie, plus un corps en orbite excentrique qui passe très près du centre
+     */
+    private static BodyStore galaxyWithInnerOrbit() {
+        BodyStore outer = galaxy(20);
+        BodyStore bodies = new BodyStore();
+        bodies.add(outer.get(0));
+        double r = 30;
+        double v = 0.4 * Math.sqrt(SimulationLogic.G * SimulationLogic.CENTER_MASS / r);
+        bodies.add(SimulationLogic.WIDTH / 2.0 + r, SimulationLogic.HEIGHT / 2.0, 0, v, SimulationLogic.MASS_MIN);
+        for (int i = 1; i < outer.size(); i++) {
+            bodies.add(outer.get(i));
+        }
+        return bodies;
+    }
+}
@@ -1,13 +1,43 @@
 package org.polytech.websocket;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.websockets.next.CloseReason;
+import io.quarkus.websockets.next.HandshakeRequest;
 import io.quarkus.websockets.next.WebSocketConnection;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.buffer.Buffer;
+import org.acme.core.BodyStore;
+import org.acme.protocol.ControlRequest;
+import org.acme.protocol.DeltaPositionEncoder;
+import org.acme.protocol.Frame;
+import org.acme.protocol.FramePool;
+import org.acme.protocol.PositionStreamEncoder;
+import org.acme.protocol.StreamFormat;
+import org.acme.protocol.StreamSubscription;
+import org.acme.simulation.PositionSubscriber;
+import org.acme.simulation.SimulationEngine;
 import org.acme.simulation.SimulationLogic;
+import org.acme.simulation.SimulationParameters;
 import org.acme.websocket.GridWebSocket;
+import org.acme.websocket.SimulationWebSocket;
+import org.acme.websocket.WebSocketMetrics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 import java.lang.reflect.Field;
@@ -22,6 +52,7 @@ class GridWebSocketTest {
     @BeforeEach
     public void setup() throws NoSuchFieldException, IllegalAccessException {
         simulationLogicMock = mock(SimulationLogic.class);
+        when(simulationLogicMock.getParameters()).thenReturn(SimulationParameters.DEFAULT);
         connectionMock = mock(WebSocketConnection.class);
 
         gridWebSocket = new GridWebSocket();
@@ -32,7 +63,7 @@ class GridWebSocketTest {
         simulationLogicField.set(null, simulationLogicMock);
 
         // Clear the existing connections map
-        Map<String, WebSocketConnection> connections = getConnections();
+        Map<String, ?> connections = getConnections();
         connections.clear();
 
         // We can't mock the logger as it's final, so we'll skip that part
@@ -51,7 +82,7 @@ class GridWebSocketTest {
     @Test
     void testOnClose() {
         when(connectionMock.id()).thenReturn("123");
-        getConnections().put("123", connectionMock);
+        gridWebSocket.onOpen(connectionMock);
 
         gridWebSocket.onClose(connectionMock);
 
@@ -62,20 +93,254 @@ class GridWebSocketTest {
     @Test
     void testBroadcast() {
         when(connectionMock.id()).thenReturn("123");
-        getConnections().put("123", connectionMock);
+        gridWebSocket.onOpen(connectionMock);
+
+        when(connectionMock.sendText(anyString())).thenReturn(Uni.createFrom().voidItem());
 
         GridWebSocket.broadcast("test message");
-        verify(connectionMock).sendTextAndAwait("test message");
+        verify(connectionMock).sendText("test message");
+        verify(connectionMock, never()).sendTextAndAwait(anyString());
     }
 
     @Test
-    void testBroadcastBinary() {
+    void testFramesAreSentWithoutBlocking() {
         when(connectionMock.id()).thenReturn("123");
-        getConnections().put("123", connectionMock);
+        gridWebSocket.onOpen(connectionMock);
         byte[] data = new byte[]{1, 2, 3};
+        when(connectionMock.sendBinary(any(Buffer.class))).thenReturn(Uni.createFrom().voidItem());
 
-        GridWebSocket.broadcastBinary(data);
-        verify(connectionMock).sendBinaryAndAwait(data);
+        broadcast(data);
+        verify(connectionMock, timeout(5000)).sendBinary(bufferOf(data));
+        verify(connectionMock, never()).sendBinaryAndAwait(any(Buffer.class));
+        verify(connectionMock, never()).sendBinaryAndAwait(any(byte[].class));
+    }
+
+    @Test
+    void testSlowClientOnlyReceivesLatestFrame() {
+        when(connectionMock.id()).thenReturn("123");
+        gridWebSocket.onOpen(connectionMock);
+        byte[] first = new byte[]{1};
+        byte[] second = new byte[]{2};
+        byte[] third = new byte[]{3};
+        CompletableFuture<Void> firstSend = new CompletableFuture<>();
+        when(connectionMock.sendBinary(bufferOf(first))).thenReturn(Uni.createFrom().completionStage(firstSend));
+        when(connectionMock.sendBinary(bufferOf(third))).thenReturn(Uni.createFrom().voidItem());
+
+        // Le premier envoi ne se termine pas : les images suivantes ne bloquent pas l'appelant
+        broadcast(first);
+        verify(connectionMock, timeout(5000)).sendBinary(bufferOf(first));
+        broadcast(second);
+        broadcast(third);
+        verify(connectionMock, never()).sendBinary(bufferOf(third));
+
+        firstSend.complete(null);
+        verify(connectionMock, timeout(5000)).sendBinary(bufferOf(third));
+        verify(connectionMock, never()).sendBinary(bufferOf(second));
+    }
+
+    @Test
+    void testSendMetricsAreRecorded() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        WebSocketMetrics.enable(registry);
+        try {
+            when(connectionMock.id()).thenReturn("123");
+            gridWebSocket.onOpen(connectionMock);
+            CompletableFuture<Void> firstSend = new CompletableFuture<>();
+            when(connectionMock.sendBinary(bufferOf((byte) 1))).thenReturn(Uni.createFrom().completionStage(firstSend));
+            when(connectionMock.sendBinary(bufferOf((byte) 3))).thenReturn(Uni.createFrom().voidItem());
+            double sent = registry.get("nbody.websocket.frames.sent").functionCounter().count();
+            double dropped = registry.get("nbody.websocket.frames.dropped").functionCounter().count();
+
+            broadcast(new byte[]{1});
+            verify(connectionMock, timeout(5000)).sendBinary(bufferOf((byte) 1));
+            broadcast(new byte[]{2});
+            broadcast(new byte[]{3});
+            // Un envoi en cours et une image en attente
+            assertEquals(1, registry.get("nbody.websocket.connections").gauge().value());
+            assertEquals(2, registry.get("nbody.websocket.queued").gauge().value());
+
+            firstSend.complete(null);
+            // La file est vide un court instant entre les deux envois : on attend le compteur d'abord
+            waitFor(() -> registry.get("nbody.websocket.frames.sent").functionCounter().count() == sent + 2
+                    && registry.get("nbody.websocket.queue.max").gauge().value() == 0);
+            assertEquals(sent + 2, registry.get("nbody.websocket.frames.sent").functionCounter().count());
+            assertEquals(dropped + 1, registry.get("nbody.websocket.frames.dropped").functionCounter().count());
+            assertEquals(2, registry.get("nbody.websocket.send").timer().count());
+            assertEquals(0, registry.get("nbody.websocket.queue.max").gauge().value());
+        } finally {
+            WebSocketMetrics.disable();
+        }
+        assertTrue(registry.getMeters().isEmpty());
+    }
+
+    @Test
+    void testStalledClientIsDisconnected() {
+        when(connectionMock.id()).thenReturn("123");
+        gridWebSocket.onOpen(connectionMock);
+        when(connectionMock.sendBinary(any(Buffer.class))).thenReturn(Uni.createFrom().emitter(emitter -> { }));
+        when(connectionMock.close(any(CloseReason.class))).thenReturn(Uni.createFrom().voidItem());
+
+        for (int i = 0; i < 200; i++) {
+            broadcast(new byte[]{(byte) i});
+        }
+        verify(connectionMock).close(any(CloseReason.class));
+    }
+
+    @Test
+    void testDeltaClientStartsOnKeyframe() {
+        HandshakeRequest handshake = mock(HandshakeRequest.class);
+        when(handshake.query()).thenReturn("format=delta&precision=2");
+        when(connectionMock.handshakeRequest()).thenReturn(handshake);
+        when(connectionMock.id()).thenReturn("123");
+        List<byte[]> sent = new CopyOnWriteArrayList<>();
+        when(connectionMock.sendBinary(any(Buffer.class))).thenAnswer(invocation -> {
+            // Le tampon retourne au pool dès la fin de l'envoi : on en garde une copie
+            sent.add(invocation.<Buffer>getArgument(0).getBytes());
+            return Uni.createFrom().voidItem();
+        });
+        BodyStore bodies = new BodyStore();
+        bodies.add(1, 1, 0, 0, 1);
+        PositionStreamEncoder stream = new PositionStreamEncoder();
+
+        // Le flux existe déjà avant l'arrivée du client
+        stream.beginTick(bodies);
+        stream.frame(new StreamSubscription(StreamFormat.DELTA, 2));
+        stream.beginTick(bodies);
+        gridWebSocket.onOpen(connectionMock);
+        subscribers().forEach(subscriber -> subscriber.onPositions(stream));
+        waitFor(() -> sent.size() == 1);
+        stream.beginTick(bodies);
+        subscribers().forEach(subscriber -> subscriber.onPositions(stream));
+
+        waitFor(() -> sent.size() == 2);
+        assertEquals(DeltaPositionEncoder.KEYFRAME, sent.get(0)[1]);
+        assertEquals(DeltaPositionEncoder.DELTA, sent.get(1)[1]);
+    }
+
+    @Test
+    void testFrameIsSharedAndRecycledAfterSends() {
+        WebSocketConnection otherConnection = mock(WebSocketConnection.class);
+        when(connectionMock.id()).thenReturn("123");
+        when(otherConnection.id()).thenReturn("456");
+        List<Buffer> sent = new CopyOnWriteArrayList<>();
+        when(connectionMock.sendBinary(any(Buffer.class))).thenAnswer(invocation -> {
+            sent.add(invocation.getArgument(0));
+            return Uni.createFrom().voidItem();
+        });
+        CompletableFuture<Void> slowSend = new CompletableFuture<>();
+        when(otherConnection.sendBinary(any(Buffer.class))).thenAnswer(invocation -> {
+            sent.add(invocation.getArgument(0));
+            return Uni.createFrom().completionStage(slowSend);
+        });
+        gridWebSocket.onOpen(connectionMock);
+        gridWebSocket.onOpen(otherConnection);
+        BodyStore bodies = new BodyStore();
+        bodies.add(1, 1, 0, 0, 1);
+        FramePool pool = new FramePool(64);
+        PositionStreamEncoder stream = new PositionStreamEncoder(pool);
+
+        stream.beginTick(bodies);
+        subscribers().forEach(subscriber -> subscriber.onPositions(stream));
+        // Une seule frame encodée, envoyée telle quelle aux deux clients
+        waitFor(() -> sent.size() == 2);
+        assertSame(sent.get(0), sent.get(1));
+
+        // Le client lent garde la première frame : elle ne peut pas être réutilisée
+        stream.beginTick(bodies);
+        assertEquals(0, pool.getIdleFrames());
+        slowSend.complete(null);
+        waitFor(() -> pool.getIdleFrames() == 1);
+
+        for (int i = 0; i < 100; i++) {
+            stream.beginTick(bodies);
+            subscribers().forEach(subscriber -> subscriber.onPositions(stream));
+            // Les envois se terminent avant la diffusion suivante
+            int expected = 2 * (i + 2);
+            waitFor(() -> sent.size() == expected);
+            stream.releaseFrames();
+            waitFor(() -> pool.getIdleFrames() == 1);
+        }
+        // La même frame sert à chaque fois
+        assertEquals(1, pool.getAllocatedFrames());
+        assertEquals(1, pool.getIdleFrames());
+    }
+
+    @Test
+    void testFrameIsKeptUntilWriteEndsAfterDisconnect() {
+        when(connectionMock.id()).thenReturn("123");
+        CompletableFuture<Void> write = new CompletableFuture<>();
+        when(connectionMock.sendBinary(any(Buffer.class))).thenReturn(Uni.createFrom().completionStage(write));
+        gridWebSocket.onOpen(connectionMock);
+        BodyStore bodies = new BodyStore();
+        bodies.add(1, 1, 0, 0, 1);
+        FramePool pool = new FramePool(64);
+        PositionStreamEncoder stream = new PositionStreamEncoder(pool);
+
+        stream.beginTick(bodies);
+        subscribers().forEach(subscriber -> subscriber.onPositions(stream));
+        verify(connectionMock, timeout(5000)).sendBinary(any(Buffer.class));
+        stream.releaseFrames();
+        gridWebSocket.onClose(connectionMock);
+
+        // Netty écrit encore le tampon : il ne doit pas retourner au pool
+        assertEquals(0, pool.getIdleFrames());
+        write.complete(null);
+        waitFor(() -> pool.getIdleFrames() == 1);
+    }
+
+    @Test
+    void testCommandFromUnknownConnectionIsIgnored() {
+        // Connexion refusée à l'ouverture (identifiant de salle invalide) qui envoie quand même des commandes
+        when(connectionMock.id()).thenReturn("refused");
+
+        for (String command : List.of("start", "stop", "add", "delete", "viewport 0 0 10 10 1")) {
+            gridWebSocket.onMessage(command, connectionMock);
+        }
+
+        verifyNoInteractions(simulationLogicMock);
+        assertFalse(getConnections().containsKey("refused"));
+    }
+
+    @Test
+    void testInvalidStreamFormatIsRejected() {
+        HandshakeRequest handshake = mock(HandshakeRequest.class);
+        when(handshake.query()).thenReturn("format=jpeg");
+        when(connectionMock.handshakeRequest()).thenReturn(handshake);
+        when(connectionMock.id()).thenReturn("123");
+        when(connectionMock.close(any(CloseReason.class))).thenReturn(Uni.createFrom().voidItem());
+
+        gridWebSocket.onOpen(connectionMock);
+
+        assertFalse(getConnections().containsKey("123"));
+        verify(connectionMock).close(any(CloseReason.class));
+    }
+
+    @Test
+    void testNamedSimulationReceivesItsClientsCommands() {
+        when(connectionMock.id()).thenReturn("123");
+        when(connectionMock.pathParam("simulation")).thenReturn("websocket-test-room");
+        SimulationWebSocket endpoint = new SimulationWebSocket();
+        endpoint.onOpen(connectionMock);
+        SimulationLogic room = SimulationEngine.getInstance().get("websocket-test-room");
+        try {
+            assertNotNull(room);
+            assertEquals(1, room.getSubscriberCount());
+            int before = room.getBodies().size();
+
+            endpoint.onMessage("add", connectionMock);
+            // La commande est appliquée par le tick de la salle, entre deux pas
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (room.getBodyCount() == before && System.nanoTime() < deadline) {
+                Thread.onSpinWait();
+            }
+            assertEquals(before + SimulationLogic.BODY_COUNT / 10, room.getBodies().size());
+            verify(simulationLogicMock, never()).addBodies();
+
+            endpoint.onClose(connectionMock);
+            assertEquals(0, room.getSubscriberCount());
+        } finally {
+            SimulationEngine.getInstance().remove("websocket-test-room");
+        }
     }
 
     @Test
@@ -102,12 +367,148 @@ class GridWebSocketTest {
         verify(simulationLogicMock).deleteBodies();
     }
 
+    @Test
+    void testBinaryRequestsAreAppliedAndAnswered() {
+        when(connectionMock.id()).thenReturn("123");
+        when(connectionMock.sendBinary(any(Buffer.class))).thenReturn(Uni.createFrom().voidItem());
+        gridWebSocket.onOpen(connectionMock);
+
+        gridWebSocket.onBinaryMessage(request(ControlRequest.START, 1), connectionMock);
+        verify(simulationLogicMock).startSimulation();
+        verify(connectionMock).sendBinary(bufferOf(response(ControlRequest.OK, ControlRequest.START, 1)));
+
+        gridWebSocket.onBinaryMessage(request(ControlRequest.ADD_BODIES, 2).appendInt(5).appendDouble(10)
+                .appendDouble(20), connectionMock);
+        verify(simulationLogicMock).addBodies(5, 10, 20);
+        verify(connectionMock).sendBinary(bufferOf(response(ControlRequest.OK, ControlRequest.ADD_BODIES, 2)));
+
+        gridWebSocket.onBinaryMessage(request(ControlRequest.SUBSCRIBE, 5).appendByte((byte) StreamFormat.HEATMAP.ordinal())
+                .appendByte((byte) 0).appendUnsignedShort(5), connectionMock);
+        verify(connectionMock).sendBinary(bufferOf(response(ControlRequest.OK, ControlRequest.SUBSCRIBE, 5)));
+
+        // Paramètre refusé par la simulation
+        doThrow(new IllegalArgumentException("Time step must be a positive number"))
+                .when(simulationLogicMock).setTimeStep(1e300);
+        gridWebSocket.onBinaryMessage(request(ControlRequest.SET_TIME_STEP, 3).appendDouble(1e300), connectionMock);
+        verify(connectionMock).sendBinary(bufferOf(response(ControlRequest.INVALID_ARGUMENT,
+                ControlRequest.SET_TIME_STEP, 3)));
+
+        gridWebSocket.onBinaryMessage(request(ControlRequest.STOP, 4).appendByte((byte) 0), connectionMock);
+        verify(connectionMock).sendBinary(bufferOf(response(ControlRequest.MALFORMED, ControlRequest.STOP, 4)));
+        verify(simulationLogicMock, never()).stopSimulation();
+    }
+
+    @Test
+    void testFloodingClientIsLimitedThenDisconnected() {
+        when(connectionMock.id()).thenReturn("123");
+        when(connectionMock.sendBinary(any(Buffer.class))).thenReturn(Uni.createFrom().voidItem());
+        when(connectionMock.close(any(CloseReason.class))).thenReturn(Uni.createFrom().voidItem());
+        gridWebSocket.onOpen(connectionMock);
+
+        // Rafale de 20 messages, puis 10 par seconde ; 50 refus d'affilée déconnectent le client
+        for (int i = 0; i < 100; i++) {
+            gridWebSocket.onBinaryMessage(request(ControlRequest.START, i), connectionMock);
+        }
+        verify(simulationLogicMock, atLeast(20)).startSimulation();
+        verify(simulationLogicMock, atMost(30)).startSimulation();
+        // Une seule réponse pour toute la série refusée
+        verify(connectionMock, times(1)).sendBinary(ArgumentMatchers.<Buffer>argThat(buffer -> buffer != null
+                && buffer.getByte(2) == ControlRequest.RATE_LIMITED));
+        verify(connectionMock).close(ArgumentMatchers.<CloseReason>argThat(reason -> reason.getCode() == 1008));
+    }
+
+    @Test
+    void testBlockedClientsDoNotHoldPlatformThreads() {
+        int clients = 2000;
+        List<WebSocketConnection> blocked = new ArrayList<>();
+        Set<Thread> senders = ConcurrentHashMap.newKeySet();
+        for (int i = 0; i < clients; i++) {
+            WebSocketConnection connection = mock(WebSocketConnection.class);
+            when(connection.id()).thenReturn("blocked-" + i);
+            // Envois qui ne se terminent jamais : chaque client reste bloqué dans son envoi
+            when(connection.sendBinary(any(Buffer.class))).thenAnswer(invocation -> {
+                senders.add(Thread.currentThread());
+                return Uni.createFrom().emitter(emitter -> { });
+            });
+            when(connection.close(any(CloseReason.class))).thenReturn(Uni.createFrom().voidItem());
+            blocked.add(connection);
+            gridWebSocket.onOpen(connection);
+        }
+        int platformThreads = Thread.activeCount();
+        List<PositionSubscriber> subscribers = subscribers();
+
+        long start = System.nanoTime();
+        broadcast(subscribers, new byte[]{1});
+        long broadcast = System.nanoTime() - start;
+        waitFor(() -> senders.size() == clients);
+
+        assertTrue(senders.stream().allMatch(Thread::isVirtual));
+        assertTrue(Thread.activeCount() < platformThreads + 64, "Platform threads: " + Thread.activeCount());
+        assertTrue(broadcast < TimeUnit.SECONDS.toNanos(1), "Broadcast took " + broadcast / 1_000_000 + " ms");
+
+        // La fermeture interrompt chaque sender bloqué
+        blocked.forEach(gridWebSocket::onClose);
+        waitFor(() -> senders.stream().noneMatch(Thread::isAlive));
+    }
+
+    /**
+     * Attend qu'une condition remplie par les threads d'envoi devienne vraie
+     */
+    private static void waitFor(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Condition not reached in time");
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Clients abonnés à la simulation simulée, dans l'ordre de leur connexion
+     */
+    private List<PositionSubscriber> subscribers() {
+        ArgumentCaptor<PositionSubscriber> captor = ArgumentCaptor.forClass(PositionSubscriber.class);
+        verify(simulationLogicMock, atLeast(0)).addSubscriber(captor.capture());
+        return captor.getAllValues();
+    }
+
+    /**
+     * Diffuse une image brute comme le tick de la simulation : chaque abonné la prend dans le flux
+     */
+    private void broadcast(byte[] data) {
+        broadcast(subscribers(), data);
+    }
+
+    private static void broadcast(List<PositionSubscriber> subscribers, byte[] data) {
+        Frame frame = Frame.of(data);
+        PositionStreamEncoder stream = mock(PositionStreamEncoder.class);
+        when(stream.frame(any(), any())).thenReturn(frame);
+        try {
+            subscribers.forEach(subscriber -> subscriber.onPositions(stream));
+        } finally {
+            frame.release();
+        }
+    }
+
+    private static Buffer request(int opcode, int requestId) {
+        return Buffer.buffer().appendByte((byte) DeltaPositionEncoder.VERSION).appendByte((byte) opcode)
+                .appendUnsignedShort(requestId);
+    }
+
+    private static byte[] response(int status, int opcode, int requestId) {
+        return new byte[]{DeltaPositionEncoder.VERSION, ControlRequest.RESPONSE, (byte) status, (byte) opcode,
+                (byte) (requestId >> 8), (byte) requestId};
+    }
+
+    private static Buffer bufferOf(byte... expected) {
+        return argThat(buffer -> buffer != null && Arrays.equals(expected, buffer.getBytes()));
+    }
+
     @SuppressWarnings("unchecked")
-    private Map<String, WebSocketConnection> getConnections() {
+    private Map<String, ?> getConnections() {
         try {
             Field connectionsField = GridWebSocket.class.getDeclaredField("connections");
             connectionsField.setAccessible(true);
-            return (Map<String, WebSocketConnection>) connectionsField.get(null);
+            return (Map<String, ?>) connectionsField.get(null);
         } catch (NoSuchFieldException | IllegalAccessException e) {
             throw new RuntimeException(e);
         }
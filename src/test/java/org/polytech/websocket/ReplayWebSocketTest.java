@@ -0,0 +1,112 @@
+package org.polytech.websocket;
+
+import io.quarkus.websockets.next.CloseReason;
+import io.quarkus.websockets.next.HandshakeRequest;
+import io.quarkus.websockets.next.WebSocketConnection;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.buffer.Buffer;
+import org.acme.persistence.TrajectoryWriter;
+import org.acme.protocol.Frame;
+import org.acme.websocket.ReplayWebSocket;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ReplayWebSocketTest {
+
+    @TempDir
+    Path directory;
+
+    private WebSocketConnection connection;
+    private final List<Integer> received = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // 100 images à 1 ms d'intervalle, enregistrées aux pas 0, 10, 20...
+        try (TrajectoryWriter writer = new TrajectoryWriter(directory.resolve("room-1.trajectory"), 1_000_000)) {
+            for (int i = 0; i < 100; i++) {
+                writer.append(10L * i, Frame.of(ByteBuffer.allocate(4).putInt(i).array()));
+            }
+        }
+        ReplayWebSocket.setDirectory(directory);
+
+        connection = mock(WebSocketConnection.class);
+        when(connection.id()).thenReturn("viewer");
+        when(connection.sendBinary(any(Buffer.class))).thenAnswer(invocation -> {
+            received.add(invocation.<Buffer>getArgument(0).getInt(0));
+            return Uni.createFrom().voidItem();
+        });
+        when(connection.close(any(CloseReason.class))).thenReturn(Uni.createFrom().voidItem());
+    }
+
+    @Test
+    void testRangeIsReplayedThenClosed() {
+        connect("room-1", "from=200&to=290&speed=4");
+
+        verify(connection, timeout(5000)).close(argThat(reason -> reason.getCode() == 1000));
+        // Envois asynchrones : à 4x, une image peut être remplacée par la suivante, mais la dernière part
+        // toujours avant la fermeture
+        assertFalse(received.isEmpty());
+        assertEquals(29, received.getLast());
+        for (int k = 0; k < received.size(); k++) {
+            assertTrue(received.get(k) >= 20 && (k == 0 || received.get(k) > received.get(k - 1)), "" + received);
+        }
+    }
+
+    @Test
+    void testUnknownRecordingIsRefused() {
+        connect("missing", null);
+        verify(connection).close(argThat(reason -> reason.getCode() == 1003));
+
+        connect("room-1", "from=50&to=10");
+        verify(connection, times(2)).close(argThat(reason -> reason.getCode() == 1003));
+
+        connect("..", null);
+        verify(connection, times(3)).close(argThat(reason -> reason.getCode() == 1003));
+        assertTrue(received.isEmpty());
+    }
+
+    @Test
+    void testReaderIsClosedWhenLastViewerLeaves() {
+        WebSocketConnection other = mock(WebSocketConnection.class);
+        when(other.id()).thenReturn("other-viewer");
+        when(other.sendBinary(any(Buffer.class))).thenReturn(Uni.createFrom().voidItem());
+        when(other.close(any(CloseReason.class))).thenReturn(Uni.createFrom().voidItem());
+        ReplayWebSocket endpoint = new ReplayWebSocket();
+        int open = ReplayWebSocket.getOpenReaderCount();
+
+        // Replays lents : les deux spectateurs regardent encore quand ils partent
+        connect(connection, "room-1", "speed=0.01");
+        connect(other, "room-1", "speed=0.01");
+        assertEquals(open + 1, ReplayWebSocket.getOpenReaderCount());
+
+        endpoint.onClose(connection);
+        assertEquals(open + 1, ReplayWebSocket.getOpenReaderCount());
+        endpoint.onClose(other);
+        assertEquals(open, ReplayWebSocket.getOpenReaderCount());
+
+        // Une demande refusée n'ouvre pas de lecteur
+        connect(connection, "room-1", "from=50&to=10");
+        assertEquals(open, ReplayWebSocket.getOpenReaderCount());
+    }
+
+    private void connect(String recording, String query) {
+        connect(connection, recording, query);
+    }
+
+    private static void connect(WebSocketConnection connection, String recording, String query) {
+        HandshakeRequest handshake = mock(HandshakeRequest.class);
+        when(handshake.query()).thenReturn(query);
+        when(connection.handshakeRequest()).thenReturn(handshake);
+        when(connection.pathParam("recording")).thenReturn(recording);
+        new ReplayWebSocket().onOpen(connection);
+    }
+}